@@ -26,7 +26,7 @@ import lombok.NoArgsConstructor;
  *   <li>价格和数量：price、quantity（成交单价和数量）</li>
  *   <li>费用信息：fee、feeRate、feeAsset（手续费相关）</li>
  *   <li>订单信息：orderType、status、orderId（订单类型、状态和ID）</li>
- *   <li>时间信息：executedAt（成交时间）、createdAt（创建时间）</li>
+ *   <li>时间信息：executedAt（成交时间）、createdAt（创建时间）、ingestedAt（服务端写入时间）</li>
  * </ul>
  * 
  * <p>扩展字段：
@@ -93,5 +93,7 @@ public class CryptoTradeInfo {
     private String createdBy;
     /** 记录创建时间戳（毫秒） */
     private Long createdAt;
+    /** 服务端写入时间戳（毫秒），保存时由服务端填写，用于内存统计与 Elasticsearch 聚合结果对账 */
+    private Long ingestedAt;
 
 }
@@ -16,6 +16,8 @@ import lombok.NoArgsConstructor;
  *   <li>总金额：统计时间窗口内的交易总金额</li>
  *   <li>时间窗口：统计的时间范围（开始和结束时间戳）</li>
  *   <li>回退标志：标识是否使用了回退窗口（当最近一小时没有数据时）</li>
+ *   <li>最新成交时间：内存水位线记录的最近一笔交易成交时间，未知时为 null</li>
+ *   <li>活跃用户数：时间窗口内的去重用户数（HyperLogLog 近似值），无法估计时为 null</li>
  * </ul>
  * 
  * @author lcp
@@ -33,4 +35,22 @@ public class RecentHourTradeSummary {
   private long windowEnd;
   /** 是否为回退窗口，true 表示使用了回退机制（最近一小时没有数据时） */
   private boolean fallback;
+  /** 最新一笔交易的成交时间（毫秒时间戳），来自内存水位线，未知时为 null */
+  private Long latestExecutedAt;
+  /** 时间窗口内的去重活跃用户数（近似值），无法估计时为 null */
+  private Long distinctUsers;
+
+  /**
+   * 构造不带水位线信息的汇总对象
+   * 
+   * @param count 交易笔数
+   * @param totalAmount 交易总金额
+   * @param windowStart 时间窗口开始时间（毫秒时间戳）
+   * @param windowEnd 时间窗口结束时间（毫秒时间戳）
+   * @param fallback 是否为回退窗口
+   */
+  public RecentHourTradeSummary (long count, BigDecimal totalAmount, long windowStart,
+      long windowEnd, boolean fallback) {
+    this(count, totalAmount, windowStart, windowEnd, fallback, null, null);
+  }
 }
@@ -0,0 +1,27 @@
+package com.lcp.spb.bean.trade;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 活跃用户去重数统计对象
+ *
+ * <p>基于 HyperLogLog 的近似去重计数，误差由 precision 决定。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeDistinctUsers {
+
+  /** 时间窗口开始时间（毫秒时间戳） */
+  private long windowStart;
+  /** 时间窗口结束时间（毫秒时间戳） */
+  private long windowEnd;
+  /** 去重用户数估计值，窗口超出内存统计范围时为 null */
+  private Long distinctUsers;
+  /** HyperLogLog 精度 */
+  private int precision;
+  /** 相对标准误差，例如 0.016 表示 1.6% */
+  private double relativeStandardError;
+}
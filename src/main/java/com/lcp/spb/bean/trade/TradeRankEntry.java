@@ -0,0 +1,27 @@
+package com.lcp.spb.bean.trade;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 交易排行条目
+ *
+ * <p>表示排行榜中的一项，成交金额为近似值：真实值位于
+ * [guaranteedNotional, notional] 区间内。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeRankEntry {
+
+  /** 维度取值，例如 userId、交易所名称或币种 */
+  private String key;
+  /** 估计成交金额，不小于真实值 */
+  private BigDecimal notional;
+  /** 最大高估量，notional 减去该值不大于真实值 */
+  private BigDecimal maxOverestimate;
+  /** 保证成交金额下界（notional - maxOverestimate） */
+  private BigDecimal guaranteedNotional;
+}
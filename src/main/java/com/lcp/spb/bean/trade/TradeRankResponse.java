@@ -0,0 +1,44 @@
+package com.lcp.spb.bean.trade;
+
+import com.lcp.spb.bean.trade.enums.TradeRankDimension;
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 交易排行响应对象
+ *
+ * <p>封装某个维度在指定时间窗口内按成交金额排序的 Top N 结果，以及近似算法的误差说明。
+ *
+ * <p>误差说明：
+ * <ul>
+ *   <li>每个条目的真实成交金额位于 [guaranteedNotional, notional] 区间内</li>
+ *   <li>errorBound 为整个窗口的全局误差上界（窗口内各分钟桶的 总成交金额 / capacity 之和），
+ *       任何条目的高估量都不会超过它</li>
+ *   <li>真实成交金额超过 errorBound 的对象一定会出现在统计结果中</li>
+ * </ul>
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeRankResponse {
+
+  /** 排行维度 */
+  private TradeRankDimension dimension;
+  /** 时间窗口开始时间（毫秒时间戳） */
+  private long windowStart;
+  /** 时间窗口结束时间（毫秒时间戳） */
+  private long windowEnd;
+  /** 窗口内的总成交金额（精确值） */
+  private BigDecimal totalNotional;
+  /** 每个分钟桶保留的计数器数量 */
+  private int capacity;
+  /** 全局误差上界 */
+  private BigDecimal errorBound;
+  /** 按估计成交金额降序排列的条目 */
+  private List<TradeRankEntry> entries;
+  /** 窗口内的去重活跃用户数（HyperLogLog 近似值），无法估计时为 null */
+  private Long distinctUsers;
+}
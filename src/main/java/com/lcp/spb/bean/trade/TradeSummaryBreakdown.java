@@ -0,0 +1,31 @@
+package com.lcp.spb.bean.trade;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 交易汇总分组统计对象
+ *
+ * <p>与 {@link RecentHourTradeSummary} 使用同一个时间窗口，按币种和交易所分别给出交易笔数和总金额，
+ * 并附带整个窗口的去重活跃用户数。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeSummaryBreakdown {
+
+  /** 时间窗口开始时间（毫秒时间戳） */
+  private long windowStart;
+  /** 时间窗口结束时间（毫秒时间戳） */
+  private long windowEnd;
+  /** 是否为回退窗口，true 表示最近一小时没有数据，使用了最新成交时间往前推一小时的窗口 */
+  private boolean fallback;
+  /** 按币种分组的汇总，key 为币种名称，例如 BTC */
+  private Map<String, RecentHourTradeSummary> bySymbol;
+  /** 按交易所分组的汇总，key 为交易所名称 */
+  private Map<String, RecentHourTradeSummary> byExchange;
+  /** 时间窗口内的去重活跃用户数（HyperLogLog 近似值），无法估计时为 null */
+  private Long distinctUsers;
+}
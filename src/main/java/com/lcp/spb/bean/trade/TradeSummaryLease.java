@@ -0,0 +1,24 @@
+package com.lcp.spb.bean.trade;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 交易汇总调度租约
+ *
+ * <p>多副本部署时保存在 Elasticsearch 中的租约文档，持有者即为负责计算汇总的唯一副本。
+ * 获取和续约都通过 if_seq_no / if_primary_term 做乐观并发控制。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeSummaryLease {
+
+  /** 租约持有者（副本节点 ID） */
+  private String holder;
+  /** 本次持有开始时间（毫秒时间戳），续约时不变 */
+  private long acquiredAt;
+  /** 租约到期时间（毫秒时间戳），超过后其他副本可以接管 */
+  private long expiresAt;
+}
@@ -0,0 +1,47 @@
+package com.lcp.spb.bean.trade;
+
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.bean.trade.enums.TradeSide;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 成交明细推送对象
+ *
+ * <p>{@link CryptoTradeInfo} 的精简投影，只保留成交明细（trade tape）展示需要的字段，
+ * 不包含用户、钱包、备注等信息。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeTapeEntry {
+
+  /** 交易ID */
+  private String tradeId;
+  /** 交易币种 */
+  private CryptoCurrency symbol;
+  /** 交易方向 */
+  private TradeSide side;
+  /** 成交价格 */
+  private BigDecimal price;
+  /** 成交数量 */
+  private BigDecimal quantity;
+  /** 交易所名称 */
+  private String exchange;
+  /** 成交时间（毫秒时间戳） */
+  private Long executedAt;
+
+  /**
+   * 从完整交易信息构造投影
+   *
+   * @param tradeInfo 交易信息
+   * @return 成交明细推送对象
+   */
+  public static TradeTapeEntry of (CryptoTradeInfo tradeInfo) {
+    return new TradeTapeEntry(tradeInfo.getTradeId(), tradeInfo.getSymbol(), tradeInfo.getSide(),
+        tradeInfo.getPrice(), tradeInfo.getQuantity(), tradeInfo.getExchange(),
+        tradeInfo.getExecutedAt());
+  }
+}
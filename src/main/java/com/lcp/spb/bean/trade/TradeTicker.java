@@ -0,0 +1,44 @@
+package com.lcp.spb.bean.trade;
+
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 行情快照对象
+ *
+ * <p>由交易写入流实时计算的单个币种（可按交易所细分）行情，包括：
+ * <ul>
+ *   <li>最新成交价和成交时间</li>
+ *   <li>最近一小时成交量加权均价（VWAP）</li>
+ *   <li>最近 24 小时最高价、最低价、成交数量和成交金额</li>
+ * </ul>
+ *
+ * <p>统计窗口按分钟（1 小时）和小时（24 小时）对齐。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeTicker {
+
+  /** 交易币种 */
+  private CryptoCurrency symbol;
+  /** 交易所名称，为 null 表示所有交易所的汇总行情 */
+  private String exchange;
+  /** 最新成交价 */
+  private BigDecimal lastPrice;
+  /** 最新成交时间（毫秒时间戳） */
+  private Long lastExecutedAt;
+  /** 最近一小时成交量加权均价，没有成交时为 null */
+  private BigDecimal vwap1h;
+  /** 最近 24 小时最高价，没有成交时为 null */
+  private BigDecimal high24h;
+  /** 最近 24 小时最低价，没有成交时为 null */
+  private BigDecimal low24h;
+  /** 最近 24 小时成交数量 */
+  private BigDecimal volume24h;
+  /** 最近 24 小时成交金额 */
+  private BigDecimal notional24h;
+}
@@ -0,0 +1,25 @@
+package com.lcp.spb.bean.trade;
+
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 最新成交时间水位线
+ *
+ * <p>记录全局以及每个币种最近一笔交易的成交时间，用于汇总回退窗口的计算。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class TradeWatermark {
+
+  /** 全局最新成交时间（毫秒时间戳），没有任何交易时为 null */
+  private Long latestExecutedAt;
+  /** 每个币种的最新成交时间（毫秒时间戳），只包含有交易的币种 */
+  private Map<CryptoCurrency, Long> bySymbol;
+  /** 是否已通过 Elasticsearch 完成初始化，false 时只反映本实例启动后的写入 */
+  private boolean seeded;
+}
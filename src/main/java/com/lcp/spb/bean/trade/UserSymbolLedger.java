@@ -0,0 +1,29 @@
+package com.lcp.spb.bean.trade;
+
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户单币种账本条目
+ *
+ * <p>记录某个用户在某个币种上的累计交易统计，是 {@link UserTradeLedger} 的组成部分。
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class UserSymbolLedger {
+
+  /** 交易币种 */
+  private CryptoCurrency symbol;
+  /** 累计成交笔数 */
+  private long tradeCount;
+  /** 累计成交金额（totalAmount 之和） */
+  private BigDecimal volume;
+  /** 累计手续费（fee 之和） */
+  private BigDecimal fees;
+  /** 累计已实现盈亏（realizedPnl 之和） */
+  private BigDecimal realizedPnl;
+}
@@ -0,0 +1,32 @@
+package com.lcp.spb.bean.trade;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户交易账本
+ *
+ * <p>汇总单个用户按币种划分的累计成交金额、手续费和已实现盈亏，用于账户页面展示。
+ *
+ * <p>数据来源：
+ * <ul>
+ *   <li>内存账本：用户已常驻内存时，由交易写入增量维护，读取为常数时间</li>
+ *   <li>Elasticsearch：用户不在内存中时，通过聚合查询加载后再常驻内存</li>
+ * </ul>
+ *
+ * @author lcp
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class UserTradeLedger {
+
+  /** 用户ID */
+  private String userId;
+  /** 按币种划分的账本条目 */
+  private List<UserSymbolLedger> symbols;
+  /** 本次读取是否直接命中内存账本，false 表示刚从 Elasticsearch 加载 */
+  private boolean resident;
+  /** 账本最近一次更新时间（毫秒时间戳） */
+  private long updatedAt;
+}
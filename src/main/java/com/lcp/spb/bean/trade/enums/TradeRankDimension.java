@@ -0,0 +1,17 @@
+package com.lcp.spb.bean.trade.enums;
+
+/**
+ * 交易排行维度枚举
+ * 
+ * <p>表示按成交金额统计排行榜时使用的分组维度。
+ * 
+ * @author lcp
+ */
+public enum TradeRankDimension {
+    /** 按用户（userId）统计 */
+    USER,
+    /** 按交易所（exchange）统计 */
+    EXCHANGE,
+    /** 按交易币种（symbol）统计 */
+    SYMBOL
+}
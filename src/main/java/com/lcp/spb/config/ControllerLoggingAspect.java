@@ -1,19 +1,43 @@
 package com.lcp.spb.config;
 
+import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import org.aspectj.lang.JoinPoint;
+import org.apache.commons.lang3.StringUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import java.util.Objects;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
- * 统一为所有 RestController 方法执行前输出日志（方法名 + 参数），
- * 利用 Spring AOP 无需在各个 Controller 中显式写入日志。
+ * 统一为所有 RestController 方法输出调用日志，利用 Spring AOP 无需在各个 Controller 中显式写入日志。
+ *
+ * <p>日志在返回的 Mono / Flux 结束时输出，带有结构化字段 endpoint、outcome（success / error / cancel）、
+ * latencyMs 和 args，便于按字段检索。写入高峰时逐条输出参数的开销不可忽视，因此：
+ * <ul>
+ *   <li>按采样率输出：默认 trade.controller-log.sample-rate，可按端点覆盖，
+ *       如 ElasticsearchCryptoTradeController.saveTrade=0.001 或 ElasticsearchUserController.*=1</li>
+ *   <li>被采样的调用在进入控制器方法时就格式化参数，记录的是调用时的值，不受之后修改或释放参数对象的影响</li>
+ *   <li>未被采样的调用不会对参数做 toString，失败的调用不受采样限制，总是以 warn 级别输出，此时才格式化参数</li>
+ *   <li>单个参数超过 max-arg-length 个字符时截断</li>
+ * </ul>
+ * 日志经由 logback-spring.xml 中的异步 appender 输出，不阻塞事件循环线程。
+ *
+ * @author lcp
  */
 @Aspect
 @Component
@@ -21,21 +45,98 @@ public class ControllerLoggingAspect {
 
     private static final Logger logger = LoggerFactory.getLogger(ControllerLoggingAspect.class);
 
+    /** 端点通配符，匹配控制器的所有方法 */
+    private static final String ANY_METHOD = "*";
+
+    /** 默认采样率 [0, 1] */
+    private final double defaultSampleRate;
+
+    /** 单个参数的最大输出长度 */
+    private final int maxArgLength;
+
+    /** 解析后的按端点采样率 */
+    private final Map<String, Double> configuredRates = new HashMap<>();
+
+    /** 每个控制器方法的端点名称和采样率 */
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 构造调用日志切面并解析按端点覆盖的采样率
+     *
+     * @param defaultSampleRate 默认采样率 [0, 1]
+     * @param endpointSampleRates 按端点覆盖的采样率，格式为 控制器.方法=采样率，逗号分隔，方法可为 *
+     * @param maxArgLength 单个参数的最大输出长度
+     */
+    public ControllerLoggingAspect (
+            @Value("${trade.controller-log.sample-rate:0.01}") double defaultSampleRate,
+            @Value("${trade.controller-log.endpoints:}") String endpointSampleRates,
+            @Value("${trade.controller-log.max-arg-length:256}") int maxArgLength) {
+        this.defaultSampleRate = clamp(defaultSampleRate);
+        this.maxArgLength = maxArgLength;
+        for (String entry : StringUtils.split(endpointSampleRates, ',')) {
+            String[] parts = StringUtils.split(entry, '=');
+            if (parts.length != 2) {
+                logger.warn("Ignoring malformed controller log sample rate: {}", entry);
+                continue;
+            }
+            configuredRates.put(parts[0].trim(), clamp(Double.parseDouble(parts[1].trim())));
+        }
+    }
+
     /** 匹配所有 RestController 的公开方法 */
     @Pointcut("within(@org.springframework.web.bind.annotation.RestController *)")
     public void anyRestControllerMethod () {}
 
-    /** 方法执行前记录调用信息 */
-    @Before("anyRestControllerMethod()")
-    public void logBefore (JoinPoint joinPoint) {
+    /** 记录调用结果和耗时 */
+    @Around("anyRestControllerMethod()")
+    public Object logInvocation (ProceedingJoinPoint joinPoint) throws Throwable {
         if (!logger.isInfoEnabled()) {
-            return;
+            return joinPoint.proceed();
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), this::resolve);
+        boolean sampled = endpoint.sampleRate >= 1.0 || (endpoint.sampleRate > 0
+                && ThreadLocalRandom.current().nextDouble() < endpoint.sampleRate);
+        Invocation invocation = new Invocation(endpoint.name, joinPoint.getArgs(), sampled,
+                System.nanoTime());
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable error) {
+            invocation.finish("error", error);
+            throw error;
+        }
+        if (result instanceof Mono<?> mono) {
+            return mono.doOnSuccess(value -> invocation.finish("success", null))
+                    .doOnError(error -> invocation.finish("error", error))
+                    .doOnCancel(() -> invocation.finish("cancel", null));
+        }
+        if (result instanceof Flux<?> flux) {
+            return flux.doOnComplete(() -> invocation.finish("success", null))
+                    .doOnError(error -> invocation.finish("error", error))
+                    .doOnCancel(() -> invocation.finish("cancel", null));
+        }
+        invocation.finish("success", null);
+        return result;
+    }
+
+    /**
+     * 解析控制器方法的端点名称和采样率：先按方法，再按控制器通配，最后使用默认值
+     */
+    private Endpoint resolve (Method method) {
+        String controller = method.getDeclaringClass().getSimpleName();
+        String name = controller + "." + method.getName();
+        Double rate = configuredRates.get(name);
+        if (Objects.isNull(rate)) {
+            rate = configuredRates.getOrDefault(controller + "." + ANY_METHOD, defaultSampleRate);
         }
-        String methodSignature = joinPoint.getSignature().toShortString();
-        String args = Arrays.stream(joinPoint.getArgs())
-                .map(this::safeToString)
+        return new Endpoint(name, rate);
+    }
+
+    private String formatArgs (Object[] args) {
+        return Arrays.stream(args)
+                .map(arg -> StringUtils.abbreviate(safeToString(arg), Math.max(4, maxArgLength)))
                 .collect(Collectors.joining(", "));
-        logger.info("Invoke controller: {} with args: {}", methodSignature, args);
     }
 
     private String safeToString (Object arg) {
@@ -48,4 +149,52 @@ public class ControllerLoggingAspect {
             return arg.getClass().getSimpleName() + "(toString failed)";
         }
     }
+
+    private static double clamp (double rate) {
+        return Math.min(1.0, Math.max(0.0, rate));
+    }
+
+    /**
+     * 端点名称及其采样率
+     */
+    private record Endpoint(String name, double sampleRate) {
+    }
+
+    /**
+     * 一次控制器调用，结束时按采样结果和调用结果决定是否输出
+     *
+     * <p>被采样时在创建时格式化参数，不再持有参数对象；未被采样时保留参数，只在失败时格式化。
+     */
+    private final class Invocation {
+
+        private final String endpoint;
+        private final Object[] args;
+        private final String formattedArgs;
+        private final long startedAt;
+
+        Invocation (String endpoint, Object[] args, boolean sampled, long startedAt) {
+            this.endpoint = endpoint;
+            this.args = sampled ? null : args;
+            this.formattedArgs = sampled ? formatArgs(args) : null;
+            this.startedAt = startedAt;
+        }
+
+        void finish (String outcome, Throwable error) {
+            boolean failed = Objects.nonNull(error);
+            boolean sampled = Objects.nonNull(formattedArgs);
+            if (!sampled && !failed) {
+                return;
+            }
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            LoggingEventBuilder event = failed ? logger.atWarn() : logger.atInfo();
+            event = event.addKeyValue("endpoint", endpoint)
+                    .addKeyValue("outcome", outcome)
+                    .addKeyValue("latencyMs", latencyMs)
+                    .addKeyValue("args", sampled ? formattedArgs : formatArgs(args));
+            if (failed) {
+                event = event.addKeyValue("error", error.getClass().getSimpleName());
+            }
+            event.log("Controller {} {} in {} ms", endpoint, outcome, latencyMs);
+        }
+    }
 }
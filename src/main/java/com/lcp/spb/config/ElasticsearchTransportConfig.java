@@ -0,0 +1,252 @@
+package com.lcp.spb.config;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Elasticsearch 传输层配置类
+ * 
+ * <p>在 Spring Boot 自动配置的 RestClient 之上调整连接与序列化：
+ * <ul>
+ *   <li>连接池：总连接数 max-connections，每个节点 max-connections-per-route，
+ *       route-max-connections 可为个别节点单独设置（如 http://es-hot-1:9200=64,http://es-hot-2:9200=64）</li>
+ *   <li>租用超时：连接池耗尽时最多等待 lease-timeout-ms，超时按 I/O 异常失败，
+ *       而不是像默认配置那样无限等待</li>
+ *   <li>保活：TCP keep-alive，空闲连接最多复用 keep-alive-ms，避免复用已被中间设备关闭的连接</li>
+ *   <li>压缩：请求体 gzip 压缩，并声明接受 gzip 响应</li>
+ *   <li>建连与读超时沿用 spring.elasticsearch.connection-timeout 与 spring.elasticsearch.socket-timeout</li>
+ *   <li>JSON 映射：使用独立的 ObjectMapper 构建 JsonpMapper（忽略 null 字段，与默认映射一致），
+ *       不受 spring.jackson.* 影响；应用中另行声明 JsonpMapper Bean 时以其为准</li>
+ * </ul>
+ * 
+ * <p>指标：
+ * <ul>
+ *   <li>trade.es.pool.leased / available / pending / max：连接池的已租用、空闲、等待中的请求数和上限</li>
+ *   <li>trade.es.pool.lease-wait：从请求连接到拿到连接的等待时间，按 outcome 区分</li>
+ *   <li>trade.es.bytes：每次请求在连接上实际发送和接收的字节数（direction 为 out 或 in，
+ *       含报文头，压缩后），在连接归还连接池时记录</li>
+ * </ul>
+ * 
+ * <p>注意：连接池由本配置创建，https 节点使用 JVM 默认的 SSL 上下文，
+ * 不支持 spring.elasticsearch.restclient.ssl.bundle。
+ * 
+ * @author lcp
+ */
+@Configuration
+public class ElasticsearchTransportConfig {
+
+    /** 连接池最大连接数 */
+    @Value("${trade.es.transport.max-connections:100}")
+    private int maxConnections;
+
+    /** 每个节点的默认最大连接数 */
+    @Value("${trade.es.transport.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    /** 个别节点的最大连接数，格式 http://host:port=N，逗号分隔 */
+    @Value("${trade.es.transport.route-max-connections:}")
+    private String routeMaxConnections;
+
+    /** 从连接池租用连接的最长等待时间（毫秒） */
+    @Value("${trade.es.transport.lease-timeout-ms:1000}")
+    private int leaseTimeoutMillis;
+
+    /** 空闲连接的最长复用时间（毫秒） */
+    @Value("${trade.es.transport.keep-alive-ms:60000}")
+    private long keepAliveMillis;
+
+    /** 是否启用 gzip 压缩 */
+    @Value("${trade.es.transport.compression:true}")
+    private boolean compression;
+
+    /** I/O 线程数，0 表示使用 CPU 核数 */
+    @Value("${trade.es.transport.io-threads:0}")
+    private int ioThreads;
+
+    /**
+     * 定制 Elasticsearch RestClient
+     * 
+     * @param meterRegistry 指标注册表
+     * @return RestClient 定制器
+     */
+    @Bean
+    RestClientBuilderCustomizer elasticsearchTransportCustomizer (MeterRegistry meterRegistry) {
+        PoolingNHttpClientConnectionManager connectionManager =
+                connectionManager(meterRegistry);
+        return new RestClientBuilderCustomizer() {
+
+            @Override
+            public void customize (RestClientBuilder builder) {
+                builder.setCompressionEnabled(compression);
+            }
+
+            @Override
+            public void customize (HttpAsyncClientBuilder builder) {
+                builder.setConnectionManager(connectionManager);
+                builder.setKeepAliveStrategy((response, context) -> keepAliveMillis);
+            }
+
+            @Override
+            public void customize (RequestConfig.Builder builder) {
+                builder.setConnectionRequestTimeout(leaseTimeoutMillis);
+            }
+        };
+    }
+
+    /**
+     * Elasticsearch 客户端使用的 JSON 映射
+     * 
+     * <p>使用独立的 ObjectMapper，设置与客户端默认映射相同（不缩进、忽略 null 字段），
+     * 不受 spring.jackson.* 配置影响，避免 Web 层的序列化设置改变文档的存储格式。
+     * 
+     * @return JsonpMapper 对象
+     */
+    @Bean
+    @ConditionalOnMissingBean(JsonpMapper.class)
+    JsonpMapper elasticsearchJsonpMapper () {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(SerializationFeature.INDENT_OUTPUT, false)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return new JacksonJsonpMapper(objectMapper);
+    }
+
+    /**
+     * 创建带指标的连接池
+     */
+    private PoolingNHttpClientConnectionManager connectionManager (MeterRegistry meterRegistry) {
+        DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                    .setSoKeepAlive(true)
+                    .setIoThreadCount(ioThreads > 0 ? ioThreads
+                            : Runtime.getRuntime().availableProcessors())
+                    .build());
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("Failed to create Elasticsearch I/O reactor", e);
+        }
+        Timer leased = leaseWaitTimer(meterRegistry, "leased");
+        Timer failed = leaseWaitTimer(meterRegistry, "failed");
+        DistributionSummary bytesOut = bytesSummary(meterRegistry, "out");
+        DistributionSummary bytesIn = bytesSummary(meterRegistry, "in");
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(ioReactor,
+                        RegistryBuilder.<SchemeIOSessionStrategy>create()
+                                .register("http", NoopIOSessionStrategy.INSTANCE)
+                                .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                                .build()) {
+
+                    @Override
+                    public Future<NHttpClientConnection> requestConnection (HttpRoute route,
+                            Object state, long connectTimeout, long leaseTimeout,
+                            TimeUnit timeUnit, FutureCallback<NHttpClientConnection> callback) {
+                        long requestedAt = System.nanoTime();
+                        return super.requestConnection(route, state, connectTimeout,
+                                leaseTimeout, timeUnit, new FutureCallback<>() {
+
+                                    @Override
+                                    public void completed (NHttpClientConnection connection) {
+                                        leased.record(System.nanoTime() - requestedAt,
+                                                TimeUnit.NANOSECONDS);
+                                        callback.completed(connection);
+                                    }
+
+                                    @Override
+                                    public void failed (Exception ex) {
+                                        failed.record(System.nanoTime() - requestedAt,
+                                                TimeUnit.NANOSECONDS);
+                                        callback.failed(ex);
+                                    }
+
+                                    @Override
+                                    public void cancelled () {
+                                        callback.cancelled();
+                                    }
+                                });
+                    }
+
+                    @Override
+                    public void releaseConnection (NHttpClientConnection connection, Object state,
+                            long keepAlive, TimeUnit timeUnit) {
+                        HttpConnectionMetrics metrics = connection.getMetrics();
+                        if (Objects.nonNull(metrics)) {
+                            bytesOut.record(metrics.getSentBytesCount());
+                            bytesIn.record(metrics.getReceivedBytesCount());
+                            metrics.reset();
+                        }
+                        super.releaseConnection(connection, state, keepAlive, timeUnit);
+                    }
+                };
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        for (String entry : StringUtils.commaDelimitedListToStringArray(routeMaxConnections)) {
+            int separator = entry.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid route max connections: " + entry);
+            }
+            connectionManager.setMaxPerRoute(
+                    new HttpRoute(HttpHost.create(entry.substring(0, separator).trim())),
+                    Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+
+        poolGauge(meterRegistry, "trade.es.pool.leased", connectionManager, PoolStats::getLeased);
+        poolGauge(meterRegistry, "trade.es.pool.available", connectionManager,
+                PoolStats::getAvailable);
+        poolGauge(meterRegistry, "trade.es.pool.pending", connectionManager, PoolStats::getPending);
+        poolGauge(meterRegistry, "trade.es.pool.max", connectionManager, PoolStats::getMax);
+        return connectionManager;
+    }
+
+    private static void poolGauge (MeterRegistry meterRegistry, String name,
+            PoolingNHttpClientConnectionManager connectionManager, ToIntFunction<PoolStats> stat) {
+        Gauge.builder(name, connectionManager, manager -> stat.applyAsInt(manager.getTotalStats()))
+                .register(meterRegistry);
+    }
+
+    private static Timer leaseWaitTimer (MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("trade.es.pool.lease-wait")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary bytesSummary (MeterRegistry meterRegistry,
+            String direction) {
+        return DistributionSummary.builder("trade.es.bytes")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.lcp.spb.config;
+
+/**
+ * 定时任务重叠处理策略
+ * 
+ * <p>定时触发时上一次执行仍未结束的处理方式，见 {@link SummaryJobRunner}。
+ * 
+ * @author lcp
+ */
+public enum JobOverlapPolicy {
+    /** 直接跳过本次触发 */
+    SKIP,
+    /** 跳过本次触发，但在上一次执行结束后立即补跑一次（多次触发合并为一次） */
+    COALESCE
+}
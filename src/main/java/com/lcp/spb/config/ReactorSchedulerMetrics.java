@@ -0,0 +1,118 @@
+package com.lcp.spb.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.ToIntFunction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactor 调度器指标
+ *
+ * <p>Elasticsearch 调用都在 boundedElastic 上执行，线程用满后新任务在各工作线程的队列里排队，
+ * 这段等待不计入 trade.es.requests 的耗时，只能从队列深度上看出来。Reactor 本身只暴露工作线程数量，
+ * 这里通过 {@link Schedulers#addExecutorServiceDecorator} 拿到每个工作线程背后的
+ * {@link ScheduledThreadPoolExecutor}，按调度器汇总：
+ * <ul>
+ *   <li>trade.scheduler.workers：存活的工作线程数</li>
+ *   <li>trade.scheduler.active：正在执行任务的线程数</li>
+ *   <li>trade.scheduler.queued：已提交但尚未开始执行的任务数</li>
+ * </ul>
+ * 标签 scheduler 取调度器名称（boundedElastic、parallel 等）。装饰器只作用于注册之后创建的执行器，
+ * 启动期间已创建的工作线程在空闲回收（ttl）后重建时才会纳入统计。
+ *
+ * @author lcp
+ */
+@Component
+public class ReactorSchedulerMetrics {
+
+    /** 装饰器的注册 key */
+    private static final String DECORATOR_KEY = "trade.scheduler.metrics";
+
+    /** 指标注册表 */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 各调度器的执行器，key 为调度器名称 */
+    private final Map<String, Set<ScheduledThreadPoolExecutor>> executors =
+            new ConcurrentHashMap<>();
+
+    /**
+     * 注册执行器装饰器
+     */
+    @PostConstruct
+    public void init () {
+        Schedulers.addExecutorServiceDecorator(DECORATOR_KEY, this::track);
+    }
+
+    /**
+     * 移除执行器装饰器
+     */
+    @PreDestroy
+    public void destroy () {
+        Schedulers.removeExecutorServiceDecorator(DECORATOR_KEY);
+    }
+
+    /**
+     * 记录新建的执行器，原样返回不做包装
+     *
+     * @param scheduler 所属调度器
+     * @param service 新建的执行器
+     * @return 原执行器
+     */
+    private ScheduledExecutorService track (Scheduler scheduler, ScheduledExecutorService service) {
+        if (service instanceof ScheduledThreadPoolExecutor executor) {
+            executors.computeIfAbsent(schedulerName(scheduler), this::register).add(executor);
+        }
+        return service;
+    }
+
+    /**
+     * 为调度器注册指标
+     *
+     * @param name 调度器名称
+     * @return 该调度器的执行器集合
+     */
+    private Set<ScheduledThreadPoolExecutor> register (String name) {
+        Set<ScheduledThreadPoolExecutor> set = ConcurrentHashMap.newKeySet();
+        gauge("trade.scheduler.workers", name, set, executor -> 1);
+        gauge("trade.scheduler.active", name, set, ScheduledThreadPoolExecutor::getActiveCount);
+        gauge("trade.scheduler.queued", name, set, executor -> executor.getQueue().size());
+        return set;
+    }
+
+    /**
+     * 注册按执行器求和的 Gauge，求值时顺带移除已关闭（空闲回收）的执行器
+     */
+    private void gauge (String meter, String scheduler, Set<ScheduledThreadPoolExecutor> set,
+            ToIntFunction<ScheduledThreadPoolExecutor> value) {
+        Gauge.builder(meter, set, executors -> {
+            executors.removeIf(ScheduledThreadPoolExecutor::isShutdown);
+            return executors.stream().mapToInt(value).sum();
+        })
+                .tag("scheduler", scheduler)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 调度器名称，去掉参数部分，例如 boundedElastic("boundedElastic",maxThreads=10,...) 取 boundedElastic
+     *
+     * @param scheduler 调度器
+     * @return 调度器名称
+     */
+    private static String schedulerName (Scheduler scheduler) {
+        String name = Scannable.from(scheduler).name();
+        int paren = name.indexOf('(');
+        return paren > 0 ? name.substring(0, paren) : name;
+    }
+}
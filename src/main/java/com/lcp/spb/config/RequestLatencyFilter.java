@@ -0,0 +1,149 @@
+package com.lcp.spb.config;
+
+import com.lcp.spb.logic.metrics.RequestTimings;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+/**
+ * 按路由的请求延迟统计与慢请求日志
+ *
+ * <p>每个 HTTP 请求结束时把耗时记入 {@link RouteLatencyHistograms}，路由取匹配到的路由模板
+ * （如 GET /es/trades/{id}），未匹配任何处理器的请求归入 UNMATCHED，避免路径中的 ID 撑大路由数量。
+ * 耗时超过 trade.request-latency.slow-threshold-ms 的请求输出一条 warn 日志，带有结构化字段：
+ * 路由、状态码、耗时、规范化后的查询参数（按名称排序，单个值截断到 {@value #MAX_PARAM_LENGTH} 个字符），
+ * 以及本次请求发出的每个 Elasticsearch 调用的排队时间、调用时间和 took（来自 {@link RequestTimings}）。
+ *
+ * <p>WebSocket 握手、Server-Sent Events 等长连接以及 /actuator 下的请求不参与统计。
+ *
+ * @author lcp
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "trade.request-latency.enabled", havingValue = "true",
+        matchIfMissing = true)
+public class RequestLatencyFilter implements WebFilter {
+
+    /** 未匹配任何处理器时使用的路由名 */
+    private static final String UNMATCHED = "UNMATCHED";
+    /** 慢请求日志中单个查询参数值的最大长度 */
+    private static final int MAX_PARAM_LENGTH = 64;
+
+    /** 日志记录器 */
+    private static final Logger logger = LoggerFactory.getLogger(RequestLatencyFilter.class);
+
+    /** 按路由的延迟直方图 */
+    @Autowired
+    private RouteLatencyHistograms routeLatencyHistograms;
+
+    /** 慢请求阈值（毫秒），0 表示不输出慢请求日志 */
+    @Value("${trade.request-latency.slow-threshold-ms:1000}")
+    private long slowThresholdMillis;
+
+    @Override
+    public Mono<Void> filter (ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getPath().pathWithinApplication().value().startsWith("/actuator")
+                || "websocket".equalsIgnoreCase(request.getHeaders().getUpgrade())) {
+            return chain.filter(exchange);
+        }
+        RequestTimings timings = (RequestTimings) exchange.getAttributes()
+                .computeIfAbsent(RequestTimings.CONTEXT_KEY, key -> new RequestTimings());
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(RequestTimings.CONTEXT_KEY, timings))
+                .doFinally(signal -> complete(exchange, timings));
+    }
+
+    /**
+     * 请求结束：记录直方图，超过阈值时输出慢请求日志
+     *
+     * @param exchange 请求上下文
+     * @param timings 请求耗时记录
+     */
+    private void complete (ServerWebExchange exchange, RequestTimings timings) {
+        long elapsed = timings.elapsedNanos();
+        MediaType contentType = exchange.getResponse().getHeaders().getContentType();
+        if (Objects.nonNull(contentType)
+                && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+            return;
+        }
+        String route = route(exchange);
+        routeLatencyHistograms.record(route, elapsed);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (slowThresholdMillis <= 0 || elapsedMillis < slowThresholdMillis) {
+            return;
+        }
+        List<RequestTimings.EsCall> esCalls = timings.esCalls();
+        logger.atWarn()
+                .addKeyValue("route", route)
+                .addKeyValue("status", exchange.getResponse().getStatusCode())
+                .addKeyValue("latencyMs", elapsedMillis)
+                .addKeyValue("query", normalizedQuery(exchange.getRequest()))
+                .addKeyValue("esCalls", esCalls.size())
+                .addKeyValue("es", formatEsCalls(esCalls))
+                .log("Slow request {} took {} ms", route, elapsedMillis);
+    }
+
+    /**
+     * 请求方法加匹配到的路由模板
+     */
+    private static String route (ServerWebExchange exchange) {
+        PathPattern pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return exchange.getRequest().getMethod().name() + " "
+                + (Objects.isNull(pattern) ? UNMATCHED : pattern.getPatternString());
+    }
+
+    /**
+     * 按名称排序的查询参数，多个值以逗号连接，单个值截断
+     */
+    private static String normalizedQuery (ServerHttpRequest request) {
+        StringJoiner joiner = new StringJoiner("&");
+        new TreeMap<>(request.getQueryParams()).forEach((name, values) -> joiner.add(name + "="
+                + values.stream()
+                        .map(value -> StringUtils.abbreviate(value, MAX_PARAM_LENGTH))
+                        .reduce((left, right) -> left + "," + right)
+                        .orElse("")));
+        return joiner.toString();
+    }
+
+    /**
+     * 每个 Elasticsearch 调用一段，例如 crypto-trade-info SEARCH 120.4ms queue=0.3ms took=98ms
+     */
+    private static String formatEsCalls (List<RequestTimings.EsCall> esCalls) {
+        StringJoiner joiner = new StringJoiner("; ");
+        for (RequestTimings.EsCall call : esCalls) {
+            StringBuilder builder = new StringBuilder()
+                    .append(call.index()).append(' ').append(call.operation())
+                    .append(String.format(Locale.ROOT, " %.1fms queue=%.1fms",
+                            call.elapsedNanos() / 1_000_000.0, call.queueNanos() / 1_000_000.0));
+            if (call.tookMillis() >= 0) {
+                builder.append(" took=").append(call.tookMillis()).append("ms");
+            }
+            if (!call.success()) {
+                builder.append(" failed");
+            }
+            joiner.add(builder);
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.lcp.spb.config;
+
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按路由的请求延迟管理端点
+ *
+ * <p>GET /actuator/latency 返回各路由自启动（或上次重置）以来的请求数和延迟分位数（毫秒），
+ * DELETE /actuator/latency 清空直方图，便于压测前后对比。需要在
+ * management.endpoints.web.exposure.include 中包含 latency。
+ *
+ * <p>重置操作没有鉴权，管理端点只监听独立的 management.server.port，不随业务端口对外暴露。
+ *
+ * @author lcp
+ */
+@Component
+@Endpoint(id = "latency")
+public class RouteLatencyEndpoint {
+
+    /** 按路由的延迟直方图 */
+    @Autowired
+    private RouteLatencyHistograms routeLatencyHistograms;
+
+    /**
+     * 各路由的延迟分布
+     *
+     * @return 按路由排序的延迟分布
+     */
+    @ReadOperation
+    public Map<String, RouteLatencyHistograms.RouteLatency> routes () {
+        return routeLatencyHistograms.snapshot();
+    }
+
+    /**
+     * 清空所有路由的直方图
+     */
+    @DeleteOperation
+    public void reset () {
+        routeLatencyHistograms.reset();
+    }
+}
@@ -0,0 +1,117 @@
+package com.lcp.spb.config;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按路由的请求延迟 HDR 直方图
+ *
+ * <p>每个路由（请求方法 + 路由模板，如 GET /es/trades/{id}）一个 {@link Recorder}，记录路径上无锁；
+ * 读取时把 Recorder 自上次读取以来的区间直方图累加到该路由的累计直方图上，因此读取不会漏掉或重复计数。
+ * 直方图以微秒记录，范围 1 微秒到 1 分钟，保留 2 位有效数字（相对误差 1% 以内），超过 1 分钟的请求按 1 分钟计。
+ * 单个直方图约 20 KB，每个路由有 Recorder 的活动直方图、区间直方图和累计直方图共 3 个，约 60 KB；
+ * 路由数量超过 {@value #MAX_ROUTES} 后新路由归入 OTHER，因此总占用不超过约 15 MB。
+ *
+ * @author lcp
+ */
+@Component
+public class RouteLatencyHistograms {
+
+    /** 最大路由数 */
+    private static final int MAX_ROUTES = 256;
+    /** 超出最大路由数后使用的路由名 */
+    private static final String OTHER_ROUTE = "OTHER";
+    /** 可记录的最大值（微秒） */
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+    /** 有效数字位数 */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /** 各路由的直方图 */
+    private final Map<String, RouteHistogram> routes = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次请求的耗时
+     *
+     * @param route 路由
+     * @param nanos 耗时（纳秒）
+     */
+    public void record (String route, long nanos) {
+        RouteHistogram histogram = routes.get(route);
+        if (Objects.isNull(histogram)) {
+            String key = routes.size() < MAX_ROUTES ? route : OTHER_ROUTE;
+            histogram = routes.computeIfAbsent(key, k -> new RouteHistogram());
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        histogram.recorder.recordValue(Math.min(Math.max(1, micros), HIGHEST_MICROS));
+    }
+
+    /**
+     * 各路由自启动（或上次重置）以来的延迟分布
+     *
+     * @return 按路由排序的延迟分布
+     */
+    public Map<String, RouteLatency> snapshot () {
+        Map<String, RouteLatency> result = new TreeMap<>();
+        routes.forEach((route, histogram) -> result.put(route, histogram.summary()));
+        return result;
+    }
+
+    /**
+     * 清空所有路由的直方图
+     */
+    public void reset () {
+        routes.values().forEach(RouteHistogram::reset);
+    }
+
+    /**
+     * 单个路由的延迟分布，时间单位为毫秒
+     *
+     * @param count 请求数
+     * @param mean 平均值
+     * @param p50 中位数
+     * @param p90 90 分位
+     * @param p99 99 分位
+     * @param p999 99.9 分位
+     * @param max 最大值
+     */
+    public record RouteLatency(long count, double mean, double p50, double p90, double p99,
+            double p999, double max) {
+    }
+
+    /**
+     * 单个路由的 Recorder 与累计直方图
+     */
+    private static final class RouteHistogram {
+
+        private final Recorder recorder = new Recorder(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram total = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        synchronized RouteLatency summary () {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return new RouteLatency(total.getTotalCount(),
+                    millis(total.getMean()),
+                    millis(total.getValueAtPercentile(50)),
+                    millis(total.getValueAtPercentile(90)),
+                    millis(total.getValueAtPercentile(99)),
+                    millis(total.getValueAtPercentile(99.9)),
+                    millis(total.getMaxValue()));
+        }
+
+        synchronized void reset () {
+            recorder.reset();
+            total.reset();
+        }
+
+        private static double millis (double micros) {
+            return Math.round(micros / 10.0) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.lcp.spb.config;
+
+import com.lcp.spb.logic.metrics.RequestTimings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Server-Timing 请求头
+ *
+ * <p>为交易和用户接口（/es/trades、/es/users）的每个请求准备 {@link RequestTimings} 并放入 Reactor Context
+ * （与 {@link RequestLatencyFilter} 通过请求属性共用同一个实例），
+ * 服务层在 Elasticsearch 调用和命中结果转换时记录各阶段耗时，响应提交前输出为 Server-Timing 请求头，例如：
+ * <pre>
+ * Server-Timing: queue;dur=0.2, es;dur=14.3;desc="2 calls", es-took;dur=9.0, hits;dur=0.4, render;dur=1.1, total;dur=16.2
+ * </pre>
+ * es 与 es-took 的差值即网络往返和客户端反序列化的时间；render 为最后一个阶段结束到响应提交，
+ * 包括控制器后续处理和响应体序列化。浏览器开发者工具的 Timing 面板会直接展示这些阶段。
+ *
+ * <p>开启 trade.server-timing.log 时同时以 info 级别输出到日志，便于在压测输出中按请求归因。
+ *
+ * <p>启用条件：配置项 trade.server-timing.enabled 为 true。响应头会暴露内部各阶段耗时，默认关闭，
+ * 只在压测或排查时开启。
+ *
+ * @author lcp
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "trade.server-timing.enabled", havingValue = "true")
+public class ServerTimingFilter implements WebFilter {
+
+    /** 请求头名称 */
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    /** 日志记录器 */
+    private static final Logger logger = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    /** 是否把各阶段耗时输出到日志 */
+    @Value("${trade.server-timing.log:false}")
+    private boolean logTimings;
+
+    @Override
+    public Mono<Void> filter (ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        if (!path.startsWith("/es/trades") && !path.startsWith("/es/users")) {
+            return chain.filter(exchange);
+        }
+        RequestTimings timings = (RequestTimings) exchange.getAttributes()
+                .computeIfAbsent(RequestTimings.CONTEXT_KEY, key -> new RequestTimings());
+        exchange.getResponse().beforeCommit(() -> {
+            String header = timings.toHeader();
+            exchange.getResponse().getHeaders().add(SERVER_TIMING, header);
+            if (logTimings) {
+                logger.info("{} {} -> {} [{}]", request.getMethod(), path,
+                        exchange.getResponse().getStatusCode(), header);
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(RequestTimings.CONTEXT_KEY, timings));
+    }
+}
@@ -0,0 +1,17 @@
+package com.lcp.spb.config;
+
+/**
+ * WebSocket 慢消费者处理策略
+ * 
+ * <p>会话的发送缓冲区满（客户端消费速度跟不上推送速度）时的处理方式。
+ * 
+ * @author lcp
+ */
+public enum SlowConsumerPolicy {
+    /** 只保留最新一条，旧消息直接被新消息替换（只作用于汇总类的全量快照，逐条数据流见 ordered-policy） */
+    LATEST,
+    /** 保留最近 buffer-size 条，缓冲区满时丢弃最旧的一条 */
+    DROP_OLDEST,
+    /** 与 DROP_OLDEST 相同地缓冲，连续错过发送截止时间达到上限后断开连接 */
+    DISCONNECT
+}
@@ -0,0 +1,274 @@
+package com.lcp.spb.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * 汇总任务执行器
+ * 
+ * <p>定时任务只负责触发，实际执行由这里控制，避免 Elasticsearch 变慢时聚合查询层层堆积：
+ * <ul>
+ *   <li>防重叠：上一次执行未结束时，本次触发按 {@link JobOverlapPolicy} 跳过或合并为一次补跑</li>
+ *   <li>执行截止时间：单次执行超过 deadline-ms 即取消，按失败处理</li>
+ *   <li>随机延迟：每次触发在 [0, jitter-ms] 内随机延迟后开始，分散多个任务（或多个副本）的查询高峰</li>
+ *   <li>自适应退避：连续失败或超时后，按 backoff-initial-ms 起指数增长（上限 backoff-max-ms）
+ *       的时间内跳过触发；成功一次即恢复</li>
+ * </ul>
+ * 
+ * <p>指标（按 job 区分）：
+ * <ul>
+ *   <li>trade.summary.job.duration：单次执行耗时，按 outcome（success、failure、timeout）区分</li>
+ *   <li>trade.summary.job.skipped：被跳过的触发次数，按 reason（in-flight、coalesced、backoff）区分</li>
+ *   <li>trade.summary.job.consecutive-failures：当前连续失败次数</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class SummaryJobRunner {
+
+    /** 执行结果：成功 */
+    static final String OUTCOME_SUCCESS = "success";
+    /** 执行结果：失败 */
+    static final String OUTCOME_FAILURE = "failure";
+    /** 执行结果：超过截止时间 */
+    static final String OUTCOME_TIMEOUT = "timeout";
+    /** 跳过原因：上一次执行未结束 */
+    static final String SKIP_IN_FLIGHT = "in-flight";
+    /** 跳过原因：已合并到补跑 */
+    static final String SKIP_COALESCED = "coalesced";
+    /** 跳过原因：退避中 */
+    static final String SKIP_BACKOFF = "backoff";
+    /** 退避时间指数增长的最大次数，避免移位溢出 */
+    private static final int MAX_BACKOFF_EXPONENT = 16;
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 重叠处理策略 */
+    private final JobOverlapPolicy overlap;
+
+    /** 单次执行截止时间（毫秒） */
+    private final long deadlineMillis;
+
+    /** 开始前的最大随机延迟（毫秒） */
+    private final long jitterMillis;
+
+    /** 首次失败后的退避时间（毫秒） */
+    private final long backoffInitialMillis;
+
+    /** 退避时间上限（毫秒） */
+    private final long backoffMaxMillis;
+
+    /**
+     * 构造任务执行器
+     * 
+     * @param meterRegistry 指标注册表
+     * @param overlap 重叠处理策略
+     * @param deadlineMillis 单次执行截止时间（毫秒）
+     * @param jitterMillis 开始前的最大随机延迟（毫秒）
+     * @param backoffInitialMillis 首次失败后的退避时间（毫秒）
+     * @param backoffMaxMillis 退避时间上限（毫秒）
+     */
+    public SummaryJobRunner (MeterRegistry meterRegistry,
+            @Value("${trade.summary.job.overlap:COALESCE}") JobOverlapPolicy overlap,
+            @Value("${trade.summary.job.deadline-ms:20000}") long deadlineMillis,
+            @Value("${trade.summary.job.jitter-ms:2000}") long jitterMillis,
+            @Value("${trade.summary.job.backoff-initial-ms:30000}") long backoffInitialMillis,
+            @Value("${trade.summary.job.backoff-max-ms:480000}") long backoffMaxMillis) {
+        this.meterRegistry = meterRegistry;
+        this.overlap = overlap;
+        this.deadlineMillis = deadlineMillis;
+        this.jitterMillis = jitterMillis;
+        this.backoffInitialMillis = backoffInitialMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+    }
+
+    /**
+     * 创建任务
+     * 
+     * @param name 任务名称，用作指标标签和日志
+     * @param action 每次执行时调用，返回执行本身的 Mono（结果处理应放在其中）
+     * @param onFailure 执行失败或超时时回调
+     * @return 任务
+     */
+    public Job job (String name, Supplier<Mono<?>> action, Consumer<Throwable> onFailure) {
+        return new Job(name, action, onFailure);
+    }
+
+    /**
+     * 由定时任务触发的单个任务
+     */
+    public final class Job {
+
+        /** 任务名称 */
+        private final String name;
+        /** 执行动作 */
+        private final Supplier<Mono<?>> action;
+        /** 失败回调 */
+        private final Consumer<Throwable> onFailure;
+        /** 是否正在执行（包括随机延迟阶段） */
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        /** 是否有待补跑的触发 */
+        private final AtomicBoolean pending = new AtomicBoolean();
+        /** 连续失败次数 */
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        /** 退避截止时间（纳秒），在此之前的触发被跳过 */
+        private volatile long backoffUntil;
+        /** 是否处于退避中 */
+        private volatile boolean backingOff;
+
+        private final Timer success;
+        private final Timer failure;
+        private final Timer timeout;
+        private final Counter skippedInFlight;
+        private final Counter skippedCoalesced;
+        private final Counter skippedBackoff;
+
+        Job(String name, Supplier<Mono<?>> action, Consumer<Throwable> onFailure) {
+            this.name = name;
+            this.action = action;
+            this.onFailure = onFailure;
+            this.success = durationTimer(OUTCOME_SUCCESS);
+            this.failure = durationTimer(OUTCOME_FAILURE);
+            this.timeout = durationTimer(OUTCOME_TIMEOUT);
+            this.skippedInFlight = skippedCounter(SKIP_IN_FLIGHT);
+            this.skippedCoalesced = skippedCounter(SKIP_COALESCED);
+            this.skippedBackoff = skippedCounter(SKIP_BACKOFF);
+            Gauge.builder("trade.summary.job.consecutive-failures", consecutiveFailures,
+                    AtomicInteger::get)
+                    .tag("job", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * 触发一次执行，立即返回
+         */
+        public void trigger () {
+            if (inBackoff()) {
+                skippedBackoff.increment();
+                return;
+            }
+            if (!inFlight.compareAndSet(false, true)) {
+                if (overlap == JobOverlapPolicy.COALESCE && pending.compareAndSet(false, true)) {
+                    skippedCoalesced.increment();
+                } else {
+                    skippedInFlight.increment();
+                }
+                return;
+            }
+            start(true);
+        }
+
+        /**
+         * 开始一次执行，调用前必须已持有 inFlight
+         * 
+         * @param withJitter 是否随机延迟后开始，补跑时不再延迟
+         */
+        private void start (boolean withJitter) {
+            long delay = withJitter && jitterMillis > 0
+                    ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+            Mono.delay(Duration.ofMillis(delay))
+                    .then(Mono.defer(this::runOnce))
+                    .subscribe(ignored -> { }, error -> finish(), this::finish);
+        }
+
+        /**
+         * 执行一次并记录结果，错误已在内部处理
+         */
+        private Mono<Void> runOnce () {
+            long startedAt = System.nanoTime();
+            return Mono.defer(action)
+                    .timeout(Duration.ofMillis(deadlineMillis))
+                    .then()
+                    .doOnSuccess(ignored -> {
+                        success.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                        consecutiveFailures.set(0);
+                        backingOff = false;
+                    })
+                    .onErrorResume(error -> {
+                        boolean timedOut = error instanceof TimeoutException;
+                        (timedOut ? timeout : failure)
+                                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                        long backoff = backOff();
+                        logger.warn("Summary job {} {} after {} ms, backing off {} ms: {}", name,
+                                timedOut ? OUTCOME_TIMEOUT : OUTCOME_FAILURE,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt),
+                                backoff, error.getMessage());
+                        try {
+                            onFailure.accept(error);
+                        } catch (RuntimeException ex) {
+                            logger.warn("Summary job {} failure handler failed: {}", name,
+                                    ex.getMessage());
+                        }
+                        return Mono.empty();
+                    });
+        }
+
+        /**
+         * 执行结束：有待补跑的触发且不在退避中时立即补跑，否则释放 inFlight
+         */
+        private void finish () {
+            if (pending.getAndSet(false) && !inBackoff()) {
+                start(false);
+                return;
+            }
+            inFlight.set(false);
+            // 释放后才到达的合并触发，由这里接手补跑
+            if (pending.get() && !inBackoff() && inFlight.compareAndSet(false, true)) {
+                pending.set(false);
+                start(false);
+            }
+        }
+
+        /**
+         * 记一次失败并计算退避时间
+         * 
+         * @return 本次退避时间（毫秒）
+         */
+        private long backOff () {
+            int failures = consecutiveFailures.incrementAndGet();
+            long backoff = Math.min(backoffMaxMillis,
+                    backoffInitialMillis << Math.min(failures - 1, MAX_BACKOFF_EXPONENT));
+            backoffUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+            backingOff = backoff > 0;
+            return backoff;
+        }
+
+        private boolean inBackoff () {
+            return backingOff && System.nanoTime() - backoffUntil < 0;
+        }
+
+        private Timer durationTimer (String outcome) {
+            return Timer.builder("trade.summary.job.duration")
+                    .tag("job", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+        private Counter skippedCounter (String reason) {
+            return Counter.builder("trade.summary.job.skipped")
+                    .tag("job", name)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.lcp.spb.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 主题消息
+ * 
+ * <p>同一条主题消息被该主题的所有订阅者共享，按需编码并缓存：
+ * 每种格式的完整消息和增量消息最多各编码一次，没有会话使用的格式不会被编码。
+ * 
+ * <p>消息格式（以 JSON 为例）：
+ * <pre>
+ * 完整：{"topic":"summary:BTC","seq":8,"data":{...}}
+ * 增量：{"topic":"summary:BTC","seq":8,"base":7,"delta":{"count":120,"windowEnd":...}}
+ * </pre>
+ * 增量只包含与 seq 为 base 的上一条消息相比发生变化的字段，被删除的字段以 null 表示。
+ * 会话只有在确实收到过 base 对应的消息时才会收到增量，否则收到完整消息。
+ * 
+ * @author lcp
+ */
+public final class TopicFrame {
+
+    /** 编码器 */
+    private final WebSocketCodecs codecs;
+    /** 主题名称 */
+    private final String topic;
+    /** 主题内的序号，从 1 开始 */
+    private final long seq;
+    /** 完整内容 */
+    private final JsonNode data;
+    /** 相对上一条消息的增量，无法计算时为 null */
+    private final ObjectNode delta;
+    /** 编码缓存，下标为 格式序号 * 2 + (是否增量 ? 1 : 0) */
+    private final byte[][] encoded = new byte[WireFormat.values().length * 2][];
+
+    /**
+     * 构造函数
+     * 
+     * @param codecs 编码器
+     * @param topic 主题名称
+     * @param seq 主题内的序号
+     * @param data 完整内容
+     * @param previous 上一条消息的完整内容，可为 null
+     */
+    TopicFrame (WebSocketCodecs codecs, String topic, long seq, JsonNode data, JsonNode previous) {
+        this.codecs = codecs;
+        this.topic = topic;
+        this.seq = seq;
+        this.data = data;
+        this.delta = diff(codecs, previous, data);
+    }
+
+    /**
+     * 获取主题名称
+     * 
+     * @return 主题名称
+     */
+    public String getTopic () {
+        return topic;
+    }
+
+    /**
+     * 获取主题内的序号
+     * 
+     * @return 序号
+     */
+    public long getSeq () {
+        return seq;
+    }
+
+    /**
+     * 是否可以对上一条消息（seq - 1）发送增量
+     * 
+     * @return 是否存在增量
+     */
+    public boolean hasDelta () {
+        return Objects.nonNull(delta);
+    }
+
+    /**
+     * 按格式编码，结果在消息内缓存
+     * 
+     * @param format 编码格式
+     * @param asDelta 是否编码为增量消息，需 {@link #hasDelta()} 为 true
+     * @return 编码后的字节，序列化失败时返回 null
+     */
+    public synchronized byte[] encode (WireFormat format, boolean asDelta) {
+        int index = format.ordinal() * 2 + (asDelta ? 1 : 0);
+        if (Objects.isNull(encoded[index])) {
+            ObjectNode envelope = codecs.objectNode();
+            envelope.put("topic", topic);
+            envelope.put("seq", seq);
+            if (asDelta) {
+                envelope.put("base", seq - 1);
+                envelope.set("delta", delta);
+            } else {
+                envelope.set("data", data);
+            }
+            try {
+                encoded[index] = codecs.encode(format, envelope, asDelta ? "delta" : "full");
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
+        return encoded[index];
+    }
+
+    /**
+     * 计算两个对象节点之间变化的字段
+     * 
+     * @param codecs 编码器
+     * @param previous 上一条内容
+     * @param current 当前内容
+     * @return 增量，任一方不是对象节点时返回 null
+     */
+    static ObjectNode diff (WebSocketCodecs codecs, JsonNode previous, JsonNode current) {
+        if (Objects.isNull(previous) || !previous.isObject() || !current.isObject()) {
+            return null;
+        }
+        ObjectNode changes = codecs.objectNode();
+        for (Map.Entry<String, JsonNode> field : current.properties()) {
+            if (!field.getValue().equals(previous.get(field.getKey()))) {
+                changes.set(field.getKey(), field.getValue());
+            }
+        }
+        for (Map.Entry<String, JsonNode> field : previous.properties()) {
+            if (!current.has(field.getKey())) {
+                changes.putNull(field.getKey());
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,441 @@
+package com.lcp.spb.config;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.bean.trade.enums.OrderStatus;
+import com.lcp.spb.bean.trade.enums.OrderType;
+import com.lcp.spb.bean.trade.enums.TradeSide;
+import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 模拟成交流量生成器（firehose）
+ * 
+ * <p>用于压测和长时间稳定性测试：按配置的速率生成逼真的 {@link CryptoTradeInfo}，
+ * 经由真实的 {@link ElasticsearchCryptoTradeService#save} 写入，完整覆盖写入、
+ * 写入监听器（行情、账本、排行、汇总推送等）和后续聚合查询的路径。
+ * 
+ * <p>流量模型：
+ * <ul>
+ *   <li>速率：trade.firehose.rate 笔/秒，按 10 毫秒一个节拍均匀发出</li>
+ *   <li>突发：每隔 burst-every-s 秒，有 burst-duration-s 秒速率乘以 burst-multiplier</li>
+ *   <li>用户：从 users 个用户中选取，user-skew 越大越集中在少数活跃用户（0 为均匀分布）</li>
+ *   <li>币种与交易所：按 symbols、exchanges 配置的权重选取，例如 BTC:70,USDT:30</li>
+ *   <li>价格：每个币种独立随机游走，数量、方向、订单类型随机</li>
+ * </ul>
+ * 
+ * <p>开环发压：写入不等待上一笔完成，同时在途的写入超过 max-in-flight 时本笔直接丢弃并计入 shed，
+ * 因此节点饱和时表现为 shed 增长和延迟升高，而不是发压速率被动下降。
+ * 
+ * <p>每隔 report-interval-s 秒输出目标速率、实际吞吐、失败数、丢弃数和写入延迟分位数；
+ * 同样的数据也通过指标 trade.firehose.save（按 outcome 区分）和 trade.firehose.shed 导出。
+ * 
+ * <p>启用条件：配置项 trade.firehose.enabled 为 true。
+ * 
+ * @author lcp
+ */
+@Component
+@ConditionalOnProperty(name = "trade.firehose.enabled", havingValue = "true")
+public class TradeFirehose {
+
+    /** 发压节拍（毫秒） */
+    private static final long TICK_MILLIS = 10;
+    /** 生成数据的标记，便于在索引中识别和清理 */
+    private static final String FIREHOSE_TAG = "firehose";
+    /** 延迟报告的分位数 */
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 加密货币交易服务，生成的交易经由其 save 写入 */
+    private final ElasticsearchCryptoTradeService cryptoTradeService;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 基础速率（笔/秒） */
+    private final double rate;
+
+    /** 用户数 */
+    private final int users;
+
+    /** 用户分布的偏斜程度，0 为均匀分布 */
+    private final double userSkew;
+
+    /** 币种权重 */
+    private final String symbols;
+
+    /** 交易所权重 */
+    private final String exchanges;
+
+    /** 突发时的速率倍数，1 表示没有突发 */
+    private final double burstMultiplier;
+
+    /** 突发周期（秒） */
+    private final long burstEverySeconds;
+
+    /** 每个周期内突发持续时间（秒） */
+    private final long burstDurationSeconds;
+
+    /** 同时在途的最大写入数 */
+    private final int maxInFlight;
+
+    /** 运行时长（秒），0 表示一直运行 */
+    private final long durationSeconds;
+
+    /** 报告间隔（秒） */
+    private final long reportIntervalSeconds;
+
+    /** 按权重选取的币种 */
+    private Weighted<CryptoCurrency> symbolMix;
+    /** 按权重选取的交易所 */
+    private Weighted<String> exchangeMix;
+    /** 各币种当前价格 */
+    private final Map<CryptoCurrency, Double> prices = new EnumMap<>(CryptoCurrency.class);
+    /** 随机数，只在发压线程上使用 */
+    private final Random random = new Random();
+    /** 订单号序列 */
+    private final AtomicLong orderSeq = new AtomicLong();
+
+    /** 同时在途的写入数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** 本报告周期内成功数 */
+    private final AtomicLong okInInterval = new AtomicLong();
+    /** 本报告周期内失败数 */
+    private final AtomicLong failedInInterval = new AtomicLong();
+    /** 本报告周期内丢弃数 */
+    private final AtomicLong shedInInterval = new AtomicLong();
+    /** 本报告周期内发出数 */
+    private final AtomicLong offeredInInterval = new AtomicLong();
+
+    private Timer saveOk;
+    private Timer saveFailed;
+    private Counter shed;
+
+    /** 发压线程 */
+    private Scheduler scheduler;
+    /** 发压与报告订阅 */
+    private Disposable running;
+    /** 启动时间（纳秒） */
+    private long startedAt;
+    /** 上次报告时间（纳秒） */
+    private long lastReportAt;
+    /** 尚未发出的小数笔数 */
+    private double credit;
+
+    /**
+     * 构造交易发压器
+     * 
+     * @param cryptoTradeService 加密货币交易服务，生成的交易经由其 save 写入
+     * @param meterRegistry 指标注册表
+     * @param rate 基础速率（笔/秒）
+     * @param users 用户数
+     * @param userSkew 用户分布的偏斜程度，0 为均匀分布
+     * @param symbols 币种权重
+     * @param exchanges 交易所权重
+     * @param burstMultiplier 突发时的速率倍数，1 表示没有突发
+     * @param burstEverySeconds 突发周期（秒）
+     * @param burstDurationSeconds 每个周期内突发持续时间（秒）
+     * @param maxInFlight 同时在途的最大写入数
+     * @param durationSeconds 运行时长（秒），0 表示一直运行
+     * @param reportIntervalSeconds 报告间隔（秒）
+     */
+    public TradeFirehose (ElasticsearchCryptoTradeService cryptoTradeService, MeterRegistry meterRegistry,
+            @Value("${trade.firehose.rate:100}") double rate,
+            @Value("${trade.firehose.users:10000}") int users,
+            @Value("${trade.firehose.user-skew:1.0}") double userSkew,
+            @Value("${trade.firehose.symbols:BTC:70,USDT:30}") String symbols,
+            @Value("${trade.firehose.exchanges:binance:50,okx:30,coinbase:20}") String exchanges,
+            @Value("${trade.firehose.burst-multiplier:1}") double burstMultiplier,
+            @Value("${trade.firehose.burst-every-s:60}") long burstEverySeconds,
+            @Value("${trade.firehose.burst-duration-s:5}") long burstDurationSeconds,
+            @Value("${trade.firehose.max-in-flight:256}") int maxInFlight,
+            @Value("${trade.firehose.duration-s:0}") long durationSeconds,
+            @Value("${trade.firehose.report-interval-s:10}") long reportIntervalSeconds) {
+        this.cryptoTradeService = cryptoTradeService;
+        this.meterRegistry = meterRegistry;
+        this.rate = rate;
+        this.users = users;
+        this.userSkew = userSkew;
+        this.symbols = symbols;
+        this.exchanges = exchanges;
+        this.burstMultiplier = burstMultiplier;
+        this.burstEverySeconds = burstEverySeconds;
+        this.burstDurationSeconds = burstDurationSeconds;
+        this.maxInFlight = maxInFlight;
+        this.durationSeconds = durationSeconds;
+        this.reportIntervalSeconds = reportIntervalSeconds;
+    }
+
+    /**
+     * 解析配置并开始发压
+     */
+    @PostConstruct
+    public void init () {
+        symbolMix = Weighted.parse(symbols, CryptoCurrency::valueOf);
+        exchangeMix = Weighted.parse(exchanges, Function.identity());
+        saveOk = saveTimer("ok");
+        saveFailed = saveTimer("error");
+        shed = Counter.builder("trade.firehose.shed").register(meterRegistry);
+        Gauge.builder("trade.firehose.in-flight", inFlight, AtomicInteger::get)
+                .register(meterRegistry);
+
+        scheduler = Schedulers.newSingle("trade-firehose");
+        startedAt = System.nanoTime();
+        lastReportAt = startedAt;
+        Flux<Long> ticks = Flux.interval(Duration.ofMillis(TICK_MILLIS), scheduler)
+                .onBackpressureDrop();
+        if (durationSeconds > 0) {
+            ticks = ticks.take(Duration.ofSeconds(durationSeconds), scheduler);
+        }
+        Disposable reporting = Flux.interval(Duration.ofSeconds(reportIntervalSeconds), scheduler)
+                .subscribe(tick -> report());
+        Disposable firing = ticks.subscribe(tick -> fire(), null, () -> {
+            reporting.dispose();
+            report();
+            logger.info("Trade firehose finished after {}s", durationSeconds);
+        });
+        running = Disposables.composite(firing, reporting);
+        logger.info("Trade firehose started: {} trades/s, {} users, symbols {}, exchanges {}, "
+                + "burst x{} for {}s every {}s, max in-flight {}", rate, users, symbols, exchanges,
+                burstMultiplier, burstDurationSeconds, burstEverySeconds, maxInFlight);
+    }
+
+    /**
+     * 停止发压
+     */
+    @PreDestroy
+    public void destroy () {
+        if (Objects.nonNull(running)) {
+            running.dispose();
+        }
+        if (Objects.nonNull(scheduler)) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * 当前目标速率（笔/秒）
+     * 
+     * @param elapsedMillis 启动后经过的时间（毫秒）
+     * @return 目标速率
+     */
+    double targetRate (long elapsedMillis) {
+        if (burstMultiplier == 1 || burstEverySeconds <= 0 || burstDurationSeconds <= 0) {
+            return rate;
+        }
+        long inPeriod = elapsedMillis % TimeUnit.SECONDS.toMillis(burstEverySeconds);
+        return inPeriod < TimeUnit.SECONDS.toMillis(burstDurationSeconds) ? rate * burstMultiplier
+                : rate;
+    }
+
+    /**
+     * 一个节拍：按目标速率发出本节拍应发出的笔数
+     */
+    private void fire () {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        credit += targetRate(elapsedMillis) * TICK_MILLIS / 1000.0;
+        int count = (int) credit;
+        credit -= count;
+        for (int i = 0; i < count; i++) {
+            offeredInInterval.incrementAndGet();
+            if (inFlight.get() >= maxInFlight) {
+                shed.increment();
+                shedInInterval.incrementAndGet();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long issuedAt = System.nanoTime();
+            cryptoTradeService.save(generate(System.currentTimeMillis()))
+                    .subscribe(
+                            saved -> { },
+                            error -> complete(saveFailed, failedInInterval, issuedAt),
+                            () -> complete(saveOk, okInInterval, issuedAt));
+        }
+    }
+
+    private void complete (Timer timer, AtomicLong counter, long issuedAt) {
+        inFlight.decrementAndGet();
+        timer.record(System.nanoTime() - issuedAt, TimeUnit.NANOSECONDS);
+        counter.incrementAndGet();
+    }
+
+    /**
+     * 生成一笔交易
+     * 
+     * @param now 当前时间（毫秒）
+     * @return 交易信息
+     */
+    CryptoTradeInfo generate (long now) {
+        CryptoCurrency symbol = symbolMix.pick(random);
+        double price = prices.merge(symbol, referencePrice(symbol),
+                (current, ignored) -> current * (1 + (random.nextDouble() - 0.5) * 0.001));
+        BigDecimal priceValue = BigDecimal.valueOf(price).setScale(4, RoundingMode.HALF_UP);
+        BigDecimal quantity = BigDecimal.valueOf(-Math.log(1 - random.nextDouble()) * 100 / price)
+                .setScale(8, RoundingMode.HALF_UP).max(new BigDecimal("0.00000001"));
+        BigDecimal total = priceValue.multiply(quantity).setScale(8, RoundingMode.HALF_UP);
+        BigDecimal feeRate = new BigDecimal("0.001");
+
+        CryptoTradeInfo trade = new CryptoTradeInfo();
+        trade.setUserId("firehose-user-" + pickUser());
+        trade.setSymbol(symbol);
+        trade.setSide(random.nextBoolean() ? TradeSide.BUY : TradeSide.SELL);
+        trade.setPrice(priceValue);
+        trade.setQuantity(quantity);
+        trade.setTotalAmount(total);
+        trade.setFeeRate(feeRate);
+        trade.setFee(total.multiply(feeRate).setScale(8, RoundingMode.HALF_UP));
+        trade.setFeeAsset("USDT");
+        trade.setOrderType(random.nextInt(4) == 0 ? OrderType.MARKET : OrderType.LIMIT);
+        trade.setStatus(random.nextInt(10) == 0 ? OrderStatus.PARTIAL : OrderStatus.FILLED);
+        trade.setExecutedAt(now);
+        trade.setCreatedAt(now);
+        trade.setExchange(exchangeMix.pick(random));
+        trade.setOrderId(FIREHOSE_TAG + "-" + orderSeq.incrementAndGet());
+        trade.setMarginTrade(false);
+        trade.setTag(FIREHOSE_TAG);
+        trade.setCreatedBy(FIREHOSE_TAG);
+        return trade;
+    }
+
+    /**
+     * 选取用户序号，偏斜时序号越小越活跃
+     * 
+     * @return 用户序号，范围 [0, users)
+     */
+    int pickUser () {
+        double u = random.nextDouble();
+        return (int) Math.min(users - 1, users * Math.pow(u, 1 + userSkew));
+    }
+
+    /**
+     * 输出一次报告并重置周期计数
+     */
+    private void report () {
+        long ok = okInInterval.getAndSet(0);
+        long failed = failedInInterval.getAndSet(0);
+        long dropped = shedInInterval.getAndSet(0);
+        long offered = offeredInInterval.getAndSet(0);
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastReportAt) / 1e9;
+        lastReportAt = now;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - startedAt);
+        logger.info("Firehose: target {}/s, offered {}/s, achieved {}/s, errors {}, shed {}, "
+                + "in-flight {}, latency ms {}", Math.round(targetRate(elapsedMillis)),
+                Math.round(offered / seconds), Math.round(ok / seconds), failed, dropped,
+                inFlight.get(), latencySummary());
+    }
+
+    private String latencySummary () {
+        StringBuilder sb = new StringBuilder();
+        for (ValueAtPercentile value : saveOk.takeSnapshot().percentileValues()) {
+            sb.append(String.format("p%s=%.1f ",
+                    BigDecimal.valueOf(value.percentile() * 100).stripTrailingZeros()
+                            .toPlainString(),
+                    value.value(TimeUnit.MILLISECONDS)));
+        }
+        sb.append(String.format("max=%.1f", saveOk.max(TimeUnit.MILLISECONDS)));
+        return sb.toString();
+    }
+
+    private Timer saveTimer (String outcome) {
+        return Timer.builder("trade.firehose.save")
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .distributionStatisticExpiry(Duration.ofSeconds(reportIntervalSeconds))
+                .distributionStatisticBufferLength(2)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 币种的初始参考价格
+     */
+    private static double referencePrice (CryptoCurrency symbol) {
+        return switch (symbol) {
+            case BTC -> 60_000;
+            case USDT -> 1;
+        };
+    }
+
+    /**
+     * 按权重选取
+     * 
+     * @param <T> 选项类型
+     */
+    static final class Weighted<T> {
+
+        private final List<T> values = new ArrayList<>();
+        private final List<Double> cumulative = new ArrayList<>();
+        private double total;
+
+        /**
+         * 解析 "A:70,B:30" 形式的权重配置，省略权重时为 1
+         * 
+         * @param spec 权重配置
+         * @param parser 选项解析器
+         * @return 权重选取器
+         * @throws IllegalArgumentException 配置为空、权重非正数或选项无法解析
+         */
+        static <T> Weighted<T> parse (String spec, Function<String, T> parser) {
+            Weighted<T> weighted = new Weighted<>();
+            for (String entry : StringUtils.commaDelimitedListToStringArray(spec)) {
+                if (!StringUtils.hasText(entry)) {
+                    continue;
+                }
+                String[] parts = entry.trim().split(":");
+                double weight = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1;
+                if (weight <= 0) {
+                    throw new IllegalArgumentException("Weight must be positive: " + entry);
+                }
+                weighted.total += weight;
+                weighted.values.add(parser.apply(parts[0].trim()));
+                weighted.cumulative.add(weighted.total);
+            }
+            if (weighted.values.isEmpty()) {
+                throw new IllegalArgumentException("No weighted values in: " + spec);
+            }
+            return weighted;
+        }
+
+        T pick (Random random) {
+            double r = random.nextDouble() * total;
+            for (int i = 0; i < values.size(); i++) {
+                if (r < cumulative.get(i)) {
+                    return values.get(i);
+                }
+            }
+            return values.get(values.size() - 1);
+        }
+    }
+}
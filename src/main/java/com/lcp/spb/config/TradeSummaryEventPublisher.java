@@ -0,0 +1,180 @@
+package com.lcp.spb.config;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.services.TradeSummaryClusterService;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 交易汇总事件驱动推送器（合并推送）
+ * 
+ * <p>交易写入时只把汇总标记为"已变化"，由本组件合并后推送，而不是等待每分钟的定时任务：
+ * <ul>
+ *   <li>空闲时不做任何事情：没有写入就没有调度，也不查询 Elasticsearch</li>
+ *   <li>繁忙时限流：两次推送之间至少间隔 trade.summary.push.event.interval-ms，
+ *       间隔内的所有写入合并为一次查询和一次推送</li>
+ *   <li>同一时刻最多只有一个汇总查询在执行，查询期间的新写入会在查询结束后再触发一次推送</li>
+ *   <li>写入停止后，再等待 trade.summary.push.event.settle-ms 补推一次，
+ *       确保 Elasticsearch 刷新（refresh）后的最终结果也能推送给客户端</li>
+ * </ul>
+ * 
+ * <p>每分钟的 {@link TradeSummaryScheduler} 仍然保留，负责在没有写入时让时间窗口继续滑动。
+ * 
+ * <p>开启 trade.summary.cluster.enabled 后与定时任务一样只在 leader 上执行，
+ * follower 不查询也不推送本地汇总，由 {@link TradeSummaryClusterService} 转发 leader 写入的共享文档。
+ * 
+ * <p>启用条件：配置项 trade.summary.push.event.enabled 为 true，且未开启模拟数据模式
+ * （trade.summary.mock.enabled，模拟模式下由 {@link TradeSummaryMockScheduler} 推送）。
+ * 
+ * @author lcp
+ */
+@Component
+@ConditionalOnProperty(name = "trade.summary.push.event.enabled", havingValue = "true")
+@ConditionalOnProperty(name = "trade.summary.mock.enabled", havingValue = "false", matchIfMissing = true)
+public class TradeSummaryEventPublisher implements TradeIngestListener {
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 加密货币交易服务，用于查询交易汇总数据 */
+    private final ElasticsearchCryptoTradeService cryptoTradeService;
+
+    /** 交易汇总数据流源，用于推送数据到 WebSocket */
+    private final Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
+
+    /** Sink 发布结果统计 */
+    private final SinkEmitMetrics sinkEmitMetrics;
+
+    /** 集群协调服务，仅在 trade.summary.cluster.enabled 开启时存在，否则为 null */
+    private final TradeSummaryClusterService tradeSummaryClusterService;
+
+    /** 两次推送之间的最小间隔（毫秒） */
+    private final long intervalMillis;
+
+    /** 写入停止后的补推延迟（毫秒），0 表示不补推 */
+    private final long settleMillis;
+
+    /** 写入版本号，每次写入递增 */
+    private final AtomicLong version = new AtomicLong();
+
+    /** 是否已有待执行或执行中的推送 */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** 已补推过的版本号 */
+    private volatile long settledVersion;
+
+    /** 上一次推送完成的时间 */
+    private volatile long lastEmitAt;
+
+    /**
+     * 构造事件驱动推送器
+     * 
+     * @param cryptoTradeService 加密货币交易服务（延迟注入，避免与写入监听器列表形成循环依赖）
+     * @param tradeSummarySink 交易汇总数据流源
+     * @param sinkEmitMetrics Sink 发布结果统计
+     * @param tradeSummaryClusterService 集群协调服务，未开启集群模式时为空
+     * @param intervalMillis 两次推送之间的最小间隔（毫秒）
+     * @param settleMillis 写入停止后的补推延迟（毫秒），0 表示不补推
+     */
+    public TradeSummaryEventPublisher (@Lazy ElasticsearchCryptoTradeService cryptoTradeService,
+            Sinks.Many<RecentHourTradeSummary> tradeSummarySink, SinkEmitMetrics sinkEmitMetrics,
+            Optional<TradeSummaryClusterService> tradeSummaryClusterService,
+            @Value("${trade.summary.push.event.interval-ms:250}") long intervalMillis,
+            @Value("${trade.summary.push.event.settle-ms:1000}") long settleMillis) {
+        this.cryptoTradeService = cryptoTradeService;
+        this.tradeSummarySink = tradeSummarySink;
+        this.sinkEmitMetrics = sinkEmitMetrics;
+        this.tradeSummaryClusterService = tradeSummaryClusterService.orElse(null);
+        this.intervalMillis = intervalMillis;
+        this.settleMillis = settleMillis;
+    }
+
+    /**
+     * 新交易写入后标记汇总已变化
+     * 
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        if (!isLeader()) {
+            return;
+        }
+        version.incrementAndGet();
+        schedule(Math.max(0, lastEmitAt + intervalMillis - System.currentTimeMillis()), false);
+    }
+
+    /**
+     * 调度一次推送，已有待执行的推送时直接合并
+     * 
+     * @param delayMillis 延迟（毫秒）
+     * @param settle 是否为写入停止后的补推
+     */
+    private void schedule (long delayMillis, boolean settle) {
+        if (scheduled.compareAndSet(false, true)) {
+            Schedulers.parallel().schedule(() -> emit(settle), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 查询并推送汇总，完成后根据期间是否有新写入决定是否继续调度
+     * 
+     * @param settle 是否为写入停止后的补推
+     */
+    private void emit (boolean settle) {
+        long target = version.get();
+        if (settle) {
+            settledVersion = target;
+        }
+        long start = System.currentTimeMillis();
+        // 调度期间可能已失去 leader 身份
+        Mono.defer(() -> isLeader() ? cryptoTradeService.recentHourSummary() : Mono.empty())
+                .doOnNext(summary -> {
+                    sinkEmitMetrics.record("trade-summary", tradeSummarySink.tryEmitNext(summary));
+                    logger.debug("event push summary in {} ms, version {}",
+                            System.currentTimeMillis() - start, target);
+                })
+                .doOnError(error -> logger.warn("event push summary failed in {} ms: {}",
+                        System.currentTimeMillis() - start, error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> {
+                    lastEmitAt = System.currentTimeMillis();
+                    scheduled.set(false);
+                    if (version.get() != target) {
+                        schedule(intervalMillis, false);
+                    } else if (settleMillis > 0 && settledVersion != target) {
+                        // 补推定时器独立于推送调度，期间有新写入时由写入路径正常推送，不会被补推延迟
+                        Schedulers.parallel().schedule(() -> {
+                            if (version.get() == target) {
+                                schedule(0, true);
+                            }
+                        }, settleMillis, TimeUnit.MILLISECONDS);
+                    }
+                })
+                .subscribe();
+    }
+
+    /**
+     * 是否由本实例推送汇总：未开启集群模式，或本实例持有租约
+     * 
+     * @return 是否推送
+     */
+    private boolean isLeader () {
+        return Objects.isNull(tradeSummaryClusterService) || tradeSummaryClusterService.isLeader();
+    }
+}
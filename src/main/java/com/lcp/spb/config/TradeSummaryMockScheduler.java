@@ -1,6 +1,7 @@
 package com.lcp.spb.config;
 
 import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
 import java.math.BigDecimal;
 import java.util.concurrent.ThreadLocalRandom;
 import org.slf4j.Logger;
@@ -18,7 +19,7 @@ import reactor.core.publisher.Sinks;
  * 
  * <p>功能特性：
  * <ul>
- *   <li>定时执行：每分钟执行一次（cron: "0 * * * * ?"）</li>
+ *   <li>定时执行：默认每分钟执行一次，间隔可通过 trade.summary.mock.interval-ms 调整</li>
  *   <li>随机数据生成：生成随机的交易笔数和总金额</li>
  *   <li>数据推送：将模拟数据推送到 Sink，由 WebSocket 处理器广播给客户端</li>
  *   <li>性能监控：记录每次执行的耗时</li>
@@ -42,6 +43,8 @@ import reactor.core.publisher.Sinks;
  *   <li>时间窗口：当前时间往前推一小时</li>
  * </ul>
  * 
+ * <p>windowEnd 即推送时刻，压测工具（WebSocketFanoutLoadTest）据此计算端到端推送延迟。
+ * 
  * @author lcp
  */
 @Configuration
@@ -55,10 +58,15 @@ public class TradeSummaryMockScheduler {
     @Autowired
     private Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
 
+    /** Sink 发布结果统计 */
+    @Autowired
+    private SinkEmitMetrics sinkEmitMetrics;
+
     /**
      * 定时推送模拟交易汇总数据
      * 
-     * <p>每分钟执行一次，生成随机的交易汇总数据并推送到 WebSocket。
+     * <p>按 trade.summary.mock.interval-ms 间隔（默认 60000 毫秒）执行，
+     * 生成随机的交易汇总数据并推送到 WebSocket。
      * 
      * <p>执行流程：
      * <ol>
@@ -69,10 +77,8 @@ public class TradeSummaryMockScheduler {
      *   <li>将数据推送到 Sink</li>
      *   <li>记录执行耗时和推送的数据</li>
      * </ol>
-     * 
-     * <p>定时表达式：0 * * * * ?（每分钟的第0秒执行）
      */
-    @Scheduled(cron = "0 * * * * ?")
+    @Scheduled(fixedRateString = "${trade.summary.mock.interval-ms:60000}")
     public void pushMockSummary () {
         long start = System.currentTimeMillis();
         long now = System.currentTimeMillis();
@@ -82,7 +88,7 @@ public class TradeSummaryMockScheduler {
         BigDecimal amount = BigDecimal.valueOf(random.nextDouble(0, 100_000));
         RecentHourTradeSummary summary =
                 new RecentHourTradeSummary(count, amount, windowStart, now, false);
-        tradeSummarySink.tryEmitNext(summary);
+        sinkEmitMetrics.record("trade-summary", tradeSummarySink.tryEmitNext(summary));
         long cost = System.currentTimeMillis() - start;
         log.info("Mock push summary: count={}, amount={}, window {}~{}, cost {} ms", count,
                 summary.getTotalAmount(), windowStart, now, cost);
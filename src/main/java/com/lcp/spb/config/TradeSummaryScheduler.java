@@ -1,7 +1,11 @@
 package com.lcp.spb.config;
 
 import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
 import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import com.lcp.spb.logic.services.TradeSummaryClusterService;
+import jakarta.annotation.PostConstruct;
+import java.util.Objects;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
 /**
@@ -23,12 +28,20 @@ import reactor.core.publisher.Sinks;
  *   <li>数据推送：将汇总数据推送到 Sink，由 WebSocket 处理器广播给客户端</li>
  *   <li>异常处理：查询失败时推送空汇总数据，确保系统稳定性</li>
  *   <li>性能监控：记录每次执行的耗时</li>
+ *   <li>执行控制：防重叠、截止时间、随机延迟和失败退避，见 {@link SummaryJobRunner}</li>
  * </ul>
  * 
  * <p>启用条件：
  * 只有当配置项 trade.summary.mock.enabled 为 false 或未配置时才会启用。
  * 如果该配置为 true，则使用 {@link TradeSummaryMockScheduler} 进行模拟数据推送。
  * 
+ * <p>开启 trade.summary.push.event.enabled 后，交易写入会由 {@link TradeSummaryEventPublisher}
+ * 合并后实时推送，本定时任务只负责在没有写入时让时间窗口继续滑动。
+ * 
+ * <p>开启 trade.summary.cluster.enabled 后，多个副本中只有持有租约的 leader 执行汇总查询，
+ * 并把结果写入共享文档；其余副本跳过本任务，由 {@link TradeSummaryClusterService}
+ * 读取共享文档推送到本地 Sink。
+ * 
  * @author lcp
  */
 @Configuration
@@ -46,6 +59,30 @@ public class TradeSummaryScheduler {
     @Autowired
     private Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
 
+    /** Sink 发布结果统计 */
+    @Autowired
+    private SinkEmitMetrics sinkEmitMetrics;
+
+    /** 汇总任务执行器，负责防重叠、截止时间和退避 */
+    @Autowired
+    private SummaryJobRunner summaryJobRunner;
+
+    /** 集群协调服务，仅在 trade.summary.cluster.enabled 开启时存在 */
+    @Autowired(required = false)
+    private TradeSummaryClusterService tradeSummaryClusterService;
+
+    /** 最近一小时汇总任务 */
+    private SummaryJobRunner.Job summaryJob;
+
+    /**
+     * 创建汇总任务
+     */
+    @PostConstruct
+    public void init () {
+        summaryJob = summaryJobRunner.job("recent-hour-summary", this::runSummary,
+                this::onSummaryFailure);
+    }
+
     /**
      * 获取交易汇总数据流源
      * 
@@ -62,31 +99,63 @@ public class TradeSummaryScheduler {
      * 
      * <p>执行流程：
      * <ol>
-     *   <li>记录开始时间，用于性能监控</li>
-     *   <li>调用服务层查询最近一小时交易汇总</li>
+     *   <li>交给 {@link SummaryJobRunner} 触发：上一次查询未结束时跳过或合并，退避中时跳过</li>
+     *   <li>随机延迟后调用服务层查询最近一小时交易汇总，超过截止时间即取消</li>
      *   <li>查询成功：将数据推送到 Sink，记录执行耗时</li>
-     *   <li>查询失败：推送空汇总数据，记录错误日志和耗时</li>
+     *   <li>查询失败或超时：推送空汇总数据，执行器记录错误日志并进入退避</li>
      * </ol>
      * 
      * <p>定时表达式：0 * * * * ?（每分钟的第0秒执行）
      */
     @Scheduled(cron = "0 * * * * ?")
     public void pushSummary () {
+        if (Objects.nonNull(tradeSummaryClusterService) && !tradeSummaryClusterService.isLeader()) {
+            // follower 不查询，由共享文档获得汇总
+            return;
+        }
+        summaryJob.trigger();
+    }
+
+    /**
+     * 执行一次汇总查询并推送
+     * 
+     * @return Mono 对象，表示查询和推送完成
+     */
+    private Mono<RecentHourTradeSummary> runSummary () {
         long start = System.currentTimeMillis();
-        cryptoTradeService.recentHourSummary()
+        return cryptoTradeService.recentHourSummary()
                 .doOnNext(summary -> {
-                    tradeSummarySink.tryEmitNext(summary);
+                    sinkEmitMetrics.record("trade-summary", tradeSummarySink.tryEmitNext(summary));
+                    publishToCluster(summary);
                     long cost = System.currentTimeMillis() - start;
                     logger.info("pushSummary executed in {} ms, window {}~{}", cost,
                             summary.getWindowStart(), summary.getWindowEnd());
-                })
-                .doOnError(error -> {
-                    long cost = System.currentTimeMillis() - start;
-                    logger.warn("pushSummary failed in {} ms: {}", cost, error.getMessage());
-                    // 推送空汇总数据，确保系统稳定性
-                    tradeSummarySink.tryEmitNext(
-                            new RecentHourTradeSummary(0, null, 0, 0, false));
-                })
-                .subscribe(); // 触发执行
+                });
+    }
+
+    /**
+     * 汇总查询失败或超时：推送空汇总数据，确保系统稳定性
+     * 
+     * @param error 失败原因
+     */
+    private void onSummaryFailure (Throwable error) {
+        sinkEmitMetrics.record("trade-summary",
+                tradeSummarySink.tryEmitNext(new RecentHourTradeSummary(0, null, 0, 0, false)));
+    }
+
+    /**
+     * 集群模式下把汇总写入共享文档，写入失败只记录日志
+     * 
+     * @param summary 交易汇总
+     */
+    private void publishToCluster (RecentHourTradeSummary summary) {
+        if (Objects.isNull(tradeSummaryClusterService)) {
+            return;
+        }
+        tradeSummaryClusterService.publishLatest(summary)
+                .doOnError(error -> logger.warn("Publishing shared trade summary failed: {}",
+                        error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .subscribe();
     }
 }
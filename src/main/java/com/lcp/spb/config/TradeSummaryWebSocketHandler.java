@@ -1,33 +1,63 @@
 package com.lcp.spb.config;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
 import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
 
 /**
  * 交易汇总 WebSocket 处理器
  * 
- * <p>处理 WebSocket 连接，向连接的客户端实时广播最近一小时交易汇总数据。
+ * <p>处理 WebSocket 连接，向连接的客户端实时广播交易汇总数据，并支持按主题订阅。
  * 
  * <p>工作流程：
  * <ol>
- *   <li>客户端建立 WebSocket 连接</li>
- *   <li>处理器订阅交易汇总数据流（Sink）</li>
- *   <li>当有新的交易汇总数据时，自动转换为 JSON 并发送给客户端</li>
- *   <li>保持连接直到客户端断开</li>
+ *   <li>客户端建立 WebSocket 连接后，默认收到全局最近一小时交易汇总（兼容旧客户端，消息为汇总对象本身）</li>
+ *   <li>客户端发送第一条订阅命令后切换为主题模式：停止默认推送，只推送已订阅主题的消息</li>
+ *   <li>保持连接直到客户端断开，断开时释放该会话的全部订阅</li>
  * </ol>
  * 
+ * <p>订阅协议（客户端发送）：
+ * <pre>
+ * {"action":"subscribe","topic":"summary:BTC"}
+ * {"action":"unsubscribe","topic":"summary:BTC"}
+ * </pre>
+ * 服务端回复 {"event":"subscribed","topic":...}、{"event":"unsubscribed","topic":...}
+ * 或 {"event":"error","message":...}；主题消息格式见 {@link TopicFrame}。
+ * 
+ * <p>编码协商：客户端可通过 WebSocket 子协议选择 json、cbor、smile 及其 .delta 增量变体
+ * （见 {@link WebSocketCodecs}）。协商了子协议的会话默认推送改为 summary 主题消息，
+ * 所有消息（包括命令回复）使用协商的格式，二进制格式的客户端也可以用同一格式发送命令。
+ * 未协商的会话保持原有的 JSON 文本行为。
+ * 
  * <p>特性：
  * <ul>
- *   <li>自动 JSON 序列化：将交易汇总对象转换为 JSON 字符串</li>
- *   <li>异常处理：序列化失败时返回默认的空汇总数据</li>
+ *   <li>服务端过滤：客户端只收到自己订阅的主题，没有订阅者的主题不会被序列化</li>
+ *   <li>只序列化一次：每条汇总和主题消息按格式最多编码一次，所有会话共享同一份字节</li>
+ *   <li>单会话订阅数受 trade.ws.max-topics-per-session 限制；等待发送的内部数据流（主要是命令回复）
+ *       也有上限，客户端只发命令不读取时连接会被关闭，而不是无限占用内存</li>
+ *   <li>慢消费者隔离：每条数据流都有有界缓冲区，策略见 {@link WebSocketOutboundPolicy}</li>
+ *   <li>失联回收：ping/pong 探测半开连接，超时或空闲的会话被关闭，见 {@link WebSocketKeepAlive}</li>
  *   <li>错误恢复：数据流异常时自动恢复，不影响连接</li>
  * </ul>
  * 
@@ -36,6 +66,14 @@ import reactor.core.publisher.Sinks;
 @Component
 public class TradeSummaryWebSocketHandler implements WebSocketHandler {
 
+    /** 除订阅主题外，单个会话允许积压的内部数据流数（看门狗、默认推送和命令回复） */
+    private static final int MAX_PENDING_REPLIES = 32;
+
+    /** 序列化失败时推送的默认空汇总 */
+    private static final byte[] EMPTY_SUMMARY_JSON =
+            "{\"count\":0,\"totalAmount\":0,\"windowStart\":0,\"windowEnd\":0,\"fallback\":false}"
+                    .getBytes(StandardCharsets.UTF_8);
+
     /** JSON 序列化器，用于将对象转换为 JSON 字符串 */
     @Autowired
     private ObjectMapper objectMapper;
@@ -44,45 +82,293 @@ public class TradeSummaryWebSocketHandler implements WebSocketHandler {
     @Autowired
     private Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
 
+    /** 主题注册表 */
+    @Autowired
+    private TradeTopicRegistry tradeTopicRegistry;
+
+    /** WebSocket 编解码器 */
+    @Autowired
+    private WebSocketCodecs webSocketCodecs;
+
+    /** 发送背压策略，隔离慢消费者 */
+    @Autowired
+    private WebSocketOutboundPolicy webSocketOutboundPolicy;
+
+    /** 连接保活与空闲回收 */
+    @Autowired
+    private WebSocketKeepAlive webSocketKeepAlive;
+
+    /** 单个会话允许同时订阅的最大主题数 */
+    @Value("${trade.ws.max-topics-per-session:32}")
+    private int maxTopicsPerSession;
+
+    /** 所有会话共享的、已编码的默认汇总流 */
+    private Flux<byte[]> summaryFrames;
+
+    /**
+     * 构建共享的默认汇总流：每条汇总只编码一次，新会话先收到最近一次汇总
+     */
+    @PostConstruct
+    public void init () {
+        summaryFrames = tradeSummarySink.asFlux()
+                .map(this::toJsonSafely)
+                .replay(1)
+                .refCount();
+    }
+
+    /**
+     * 支持的子协议
+     * 
+     * @return 子协议名称列表
+     */
+    @Override
+    public List<String> getSubProtocols () {
+        return webSocketCodecs.subProtocols();
+    }
+
     /**
      * 处理 WebSocket 会话
      * 
-     * <p>当客户端建立 WebSocket 连接时，该方法会被调用。
-     * 处理器会订阅交易汇总数据流，并将数据实时发送给客户端。
+     * <p>每个会话维护一个"数据流的数据流"：默认推送、订阅回复和每个已订阅主题各是一条内部数据流，
+     * 合并后发送给客户端。取消订阅时通过对应的取消信号结束该主题的数据流，
+     * 注册表随之减少订阅计数。
      * 
-     * <p>处理逻辑：
-     * <ul>
-     *   <li>从 Sink 创建数据流（Flux）</li>
-     *   <li>将每个交易汇总对象转换为 JSON 字符串</li>
-     *   <li>通过 WebSocket 发送文本消息给客户端</li>
-     *   <li>监听客户端消息（用于保持连接）</li>
-     * </ul>
+     * <p>服务端定时 ping 静默的会话，失联或长时间空闲的会话会被回收，见 {@link WebSocketKeepAlive}。
      * 
      * @param session WebSocket 会话对象
      * @return Mono 对象，表示处理完成
      */
     @Override
     public Mono<Void> handle (WebSocketSession session) {
-        Flux<String> payloadFlux = tradeSummarySink.asFlux()
-                .map(this::toJsonSafely)
-                .onErrorResume(error -> Flux.empty());
-        return session.send(payloadFlux.map(session::textMessage))
-                .and(session.receive().then());
+        WebSocketKeepAlive.KeepAlive keepAlive = webSocketKeepAlive.forSession("trade-summary", session);
+        SessionTopics state = new SessionTopics(session,
+                webSocketOutboundPolicy.forSession("trade-summary", session),
+                webSocketCodecs.negotiate(session.getHandshakeInfo().getSubProtocol()),
+                maxTopicsPerSession + MAX_PENDING_REPLIES);
+        state.offer(state.guard.watchdog().takeUntilOther(state.closed.asMono()));
+        Flux<?> defaultStream = Objects.isNull(state.encoding) ? summaryFrames
+                : tradeTopicRegistry.subscribe(TradeTopicRegistry.SUMMARY);
+        state.offer(state.guard.guard(defaultStream
+                .onErrorResume(error -> Flux.empty())
+                .takeUntilOther(state.legacyCancel.asMono())));
+
+        // 每条内部数据流只预取 1 条，积压留在各自的有界缓冲区中
+        Flux<WebSocketMessage> output = state.streams.asFlux()
+                .flatMap(stream -> stream, maxTopicsPerSession + 3, 1)
+                .mapNotNull(item -> toMessage(session, state, item))
+                .mergeWith(keepAlive.pings());
+        Mono<Void> input = keepAlive.inbound(session.receive())
+                .doOnNext(message -> onCommand(state, message))
+                .doFinally(signal -> state.close())
+                .then();
+        return keepAlive.track(session.send(output).and(input));
+    }
+
+    /**
+     * 处理客户端命令
+     * 
+     * @param state 会话订阅状态
+     * @param message 客户端消息（ping/pong 控制帧已过滤），文本消息按 JSON 解析，二进制消息按协商的格式解析
+     */
+    private void onCommand (SessionTopics state, WebSocketMessage message) {
+        // 客户端开始使用订阅协议，停止默认推送
+        state.legacyCancel.tryEmitEmpty();
+        JsonNode command;
+        try {
+            if (message.getType() == WebSocketMessage.Type.BINARY) {
+                DataBuffer payload = message.getPayload();
+                byte[] bytes = new byte[payload.readableByteCount()];
+                payload.read(bytes);
+                command = webSocketCodecs.read(state.format(), bytes);
+            } else if (message.getType() == WebSocketMessage.Type.TEXT) {
+                command = objectMapper.readTree(message.getPayloadAsText());
+            } else {
+                return;
+            }
+        } catch (IOException e) {
+            reply(state, "error", null, "invalid command");
+            return;
+        }
+        String action = command.path("action").asText("");
+        String topic = command.path("topic").asText(null);
+        if (!TradeTopicRegistry.isValid(topic)) {
+            reply(state, "error", topic, "unsupported topic");
+            return;
+        }
+        if ("subscribe".equals(action) && !tradeTopicRegistry.isEnabled(topic)) {
+            reply(state, "error", topic, "topic disabled");
+            return;
+        }
+        switch (action) {
+            case "subscribe":
+                subscribe(state, topic);
+                break;
+            case "unsubscribe":
+                Sinks.Empty<Void> cancel = state.subscriptions.remove(topic);
+                if (Objects.nonNull(cancel)) {
+                    cancel.tryEmitEmpty();
+                }
+                state.lastSeq.remove(topic);
+                reply(state, "unsubscribed", topic, null);
+                break;
+            default:
+                reply(state, "error", topic, "unsupported action");
+        }
     }
 
     /**
-     * 安全地将交易汇总对象转换为 JSON 字符串
+     * 订阅主题，重复订阅只回复确认
+     * 
+     * @param state 会话订阅状态
+     * @param topic 主题名称
+     */
+    private void subscribe (SessionTopics state, String topic) {
+        if (!state.subscriptions.containsKey(topic)) {
+            if (state.subscriptions.size() >= maxTopicsPerSession) {
+                reply(state, "error", topic, "too many topics");
+                return;
+            }
+            Sinks.Empty<Void> cancel = Sinks.empty();
+            state.subscriptions.put(topic, cancel);
+            Flux<TopicFrame> frames = tradeTopicRegistry.subscribe(topic).takeUntilOther(cancel.asMono());
+            // 用户成交是逐条的，不能像汇总那样只保留最新一条
+            state.offer(TradeTopicRegistry.isConflatable(topic) ? state.guard.guard(frames)
+                    : state.guard.guardOrdered(frames));
+        }
+        reply(state, "subscribed", topic, null);
+    }
+
+    /**
+     * 向客户端回复命令结果
+     * 
+     * @param state 会话订阅状态
+     * @param event 事件类型
+     * @param topic 主题名称，可为 null
+     * @param message 错误信息，可为 null
+     */
+    private void reply (SessionTopics state, String event, String topic, String message) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("event", event);
+        if (Objects.nonNull(topic)) {
+            body.put("topic", topic);
+        }
+        if (Objects.nonNull(message)) {
+            body.put("message", message);
+        }
+        try {
+            state.offer(Flux.just(webSocketCodecs.encode(state.format(), body, "reply")));
+        } catch (JsonProcessingException e) {
+            // Map<String, String> 不会序列化失败
+        }
+    }
+
+    /**
+     * 将内部数据流中的元素转换为 WebSocket 消息
+     * 
+     * <p>主题消息在会话确实收到过上一条消息（seq - 1）且启用了增量编码时发送增量，否则发送完整消息。
+     * 
+     * @param session WebSocket 会话
+     * @param state 会话订阅状态
+     * @param item 预编码的字节或主题消息
+     * @return WebSocket 消息，编码失败时返回 null（该条被跳过）
+     */
+    private WebSocketMessage toMessage (WebSocketSession session, SessionTopics state, Object item) {
+        WireFormat format = state.format();
+        byte[] bytes;
+        if (item instanceof TopicFrame frame) {
+            Long lastSeq = state.lastSeq.get(frame.getTopic());
+            boolean asDelta = Objects.nonNull(state.encoding) && state.encoding.delta()
+                    && frame.hasDelta() && Objects.nonNull(lastSeq)
+                    && lastSeq == frame.getSeq() - 1;
+            bytes = frame.encode(format, asDelta);
+            if (Objects.isNull(bytes)) {
+                return null;
+            }
+            state.lastSeq.put(frame.getTopic(), frame.getSeq());
+        } else {
+            bytes = (byte[]) item;
+        }
+        return WebSocketFrames.of(session.bufferFactory(), format.getMessageType(), bytes);
+    }
+
+    /**
+     * 安全地将交易汇总对象编码为 UTF-8 JSON
      * 
      * <p>如果序列化失败，返回默认的空汇总数据，确保不会因为序列化错误而中断数据流。
      * 
      * @param summary 交易汇总对象
-     * @return JSON 字符串，如果序列化失败则返回默认的空汇总 JSON
+     * @return UTF-8 编码的 JSON，如果序列化失败则返回默认的空汇总 JSON
      */
-    private String toJsonSafely (RecentHourTradeSummary summary) {
+    private byte[] toJsonSafely (RecentHourTradeSummary summary) {
         try {
-            return objectMapper.writeValueAsString(summary);
+            return objectMapper.writeValueAsBytes(summary);
         } catch (JsonProcessingException e) {
-            return "{\"count\":0,\"totalAmount\":0,\"windowStart\":0,\"windowEnd\":0,\"fallback\":false}";
+            return EMPTY_SUMMARY_JSON;
+        }
+    }
+
+    /**
+     * 单个会话的订阅状态
+     */
+    private static final class SessionTopics {
+
+        /** WebSocket 会话 */
+        private final WebSocketSession session;
+        /** 会话级的发送保护 */
+        private final WebSocketOutboundPolicy.Guard guard;
+
+        /** 协商的编码方式，未协商时为 null */
+        private final WebSocketCodecs.SessionEncoding encoding;
+        /** 会话内的所有数据流：默认推送、命令回复和各主题；元素为预编码的字节或 {@link TopicFrame}，积压数有上限 */
+        private final Sinks.Many<Flux<?>> streams;
+        /** 每个主题最近一次发送给该会话的序号，用于判断能否发送增量 */
+        private final Map<String, Long> lastSeq = new ConcurrentHashMap<>();
+        /** 默认推送的取消信号 */
+        private final Sinks.Empty<Void> legacyCancel = Sinks.empty();
+        /** 会话结束信号 */
+        private final Sinks.Empty<Void> closed = Sinks.empty();
+        /** 已订阅主题及其取消信号 */
+        private final Map<String, Sinks.Empty<Void>> subscriptions = new ConcurrentHashMap<>();
+
+        SessionTopics(WebSocketSession session, WebSocketOutboundPolicy.Guard guard,
+                WebSocketCodecs.SessionEncoding encoding, int maxPendingStreams) {
+            this.session = session;
+            this.guard = guard;
+            this.encoding = encoding;
+            this.streams = Sinks.many().unicast().onBackpressureBuffer(
+                    Queues.<Flux<?>>get(maxPendingStreams).get());
+        }
+
+        /**
+         * 加入一条内部数据流，积压超过上限时关闭会话
+         * 
+         * @param stream 内部数据流
+         */
+        void offer (Flux<?> stream) {
+            if (streams.tryEmitNext(stream) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason("too many pending commands"))
+                        .subscribe();
+            }
+        }
+
+        /**
+         * 会话使用的编码格式
+         * 
+         * @return 协商的格式，未协商时为 JSON
+         */
+        WireFormat format () {
+            return Objects.isNull(encoding) ? WireFormat.JSON : encoding.format();
+        }
+
+        /**
+         * 会话结束，释放全部订阅
+         */
+        void close () {
+            closed.tryEmitEmpty();
+            legacyCancel.tryEmitEmpty();
+            subscriptions.values().forEach(Sinks.Empty::tryEmitEmpty);
+            subscriptions.clear();
+            streams.tryEmitComplete();
         }
     }
 }
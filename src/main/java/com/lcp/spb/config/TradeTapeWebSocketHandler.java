@@ -0,0 +1,177 @@
+package com.lcp.spb.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcp.spb.bean.trade.TradeTapeEntry;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.services.TradeTapeService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 成交明细 WebSocket 处理器
+ * 
+ * <p>向客户端实时推送新写入的成交，每条消息是一批成交组成的 JSON 数组。
+ * 
+ * <p>连接参数（可选）：
+ * <pre>
+ * /ws/trades?symbol=BTC&amp;exchange=binance
+ * </pre>
+ * 
+ * <p>特性：
+ * <ul>
+ *   <li>分批推送：每凑满 trade.tape.batch-size 笔或每隔 trade.tape.batch-interval-ms 推送一次，
+ *       以先到者为准，突发写入时消息数有上限</li>
+ *   <li>相同过滤条件的会话共享同一条分批数据流，每批只序列化一次；最后一个会话离开时该数据流被回收</li>
+ *   <li>使用精简投影 {@link TradeTapeEntry}，不推送完整的交易文档</li>
+ *   <li>慢消费者隔离：发送缓冲区有界，策略见 {@link WebSocketOutboundPolicy}</li>
+ *   <li>失联回收：ping/pong 探测半开连接，见 {@link WebSocketKeepAlive}</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class TradeTapeWebSocketHandler implements WebSocketHandler {
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** JSON 序列化器 */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** 成交明细服务 */
+    @Autowired
+    private TradeTapeService tradeTapeService;
+
+    /** 发送背压策略，隔离慢消费者 */
+    @Autowired
+    private WebSocketOutboundPolicy webSocketOutboundPolicy;
+
+    /** 连接保活与空闲回收 */
+    @Autowired
+    private WebSocketKeepAlive webSocketKeepAlive;
+
+    /** 每批最多包含的成交笔数 */
+    @Value("${trade.tape.batch-size:100}")
+    private int batchSize;
+
+    /** 每批最长等待时间（毫秒） */
+    @Value("${trade.tape.batch-interval-ms:200}")
+    private long batchIntervalMillis;
+
+    /** 按过滤条件共享的分批数据流 */
+    private final Map<TapeFilter, Flux<byte[]>> sharedBatches = new ConcurrentHashMap<>();
+
+    /**
+     * 处理 WebSocket 会话
+     * 
+     * @param session WebSocket 会话对象
+     * @return Mono 对象，表示处理完成
+     */
+    @Override
+    public Mono<Void> handle (WebSocketSession session) {
+        TapeFilter filter;
+        try {
+            filter = TapeFilter.from(session);
+        } catch (IllegalArgumentException ex) {
+            return session.close(CloseStatus.BAD_DATA.withReason("unsupported symbol"));
+        }
+        WebSocketOutboundPolicy.Guard guard = webSocketOutboundPolicy.forSession("trades", session);
+        WebSocketKeepAlive.KeepAlive keepAlive = webSocketKeepAlive.forSession("trades", session);
+        return keepAlive.track(session.send(guard.guardOrdered(batches(filter))
+                .mergeWith(guard.watchdog())
+                .map(frame -> WebSocketFrames.text(session.bufferFactory(), frame))
+                .mergeWith(keepAlive.pings()))
+                .and(keepAlive.inbound(session.receive()).then()));
+    }
+
+    /**
+     * 获取或创建指定过滤条件的共享分批数据流
+     * 
+     * @param filter 过滤条件
+     * @return 预编码的分批数据流
+     */
+    private Flux<byte[]> batches (TapeFilter filter) {
+        return Flux.defer(() -> sharedBatches.computeIfAbsent(filter, this::createBatches));
+    }
+
+    /**
+     * 创建共享分批数据流，没有订阅者时断开上游并从缓存中移除
+     * 
+     * @param filter 过滤条件
+     * @return 预编码的分批数据流
+     */
+    private Flux<byte[]> createBatches (TapeFilter filter) {
+        AtomicReference<Flux<byte[]>> self = new AtomicReference<>();
+        Flux<byte[]> shared = tradeTapeService.stream()
+                .filter(filter::matches)
+                .bufferTimeout(batchSize, Duration.ofMillis(batchIntervalMillis))
+                .map(this::toJsonSafely)
+                .filter(frame -> frame.length > 0)
+                .doFinally(signal -> sharedBatches.remove(filter, self.get()))
+                .publish()
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+
+    /**
+     * 安全地将一批成交编码为 UTF-8 JSON
+     * 
+     * @param batch 一批成交
+     * @return UTF-8 编码的 JSON，序列化失败时返回空数组（该批被跳过）
+     */
+    private byte[] toJsonSafely (List<TradeTapeEntry> batch) {
+        try {
+            return objectMapper.writeValueAsBytes(batch);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize trade tape batch of {}: {}", batch.size(),
+                    e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    /**
+     * 成交明细过滤条件
+     * 
+     * @param symbol 交易币种，null 表示不过滤
+     * @param exchange 交易所名称，null 表示不过滤
+     */
+    private record TapeFilter(CryptoCurrency symbol, String exchange) {
+
+        static TapeFilter from (WebSocketSession session) {
+            MultiValueMap<String, String> params = UriComponentsBuilder
+                    .fromUri(session.getHandshakeInfo().getUri())
+                    .build()
+                    .getQueryParams();
+            String symbol = params.getFirst("symbol");
+            String exchange = params.getFirst("exchange");
+            return new TapeFilter(
+                    StringUtils.hasText(symbol) ? CryptoCurrency.valueOf(symbol) : null,
+                    StringUtils.hasText(exchange) ? exchange : null);
+        }
+
+        boolean matches (TradeTapeEntry entry) {
+            return (Objects.isNull(symbol) || symbol == entry.getSymbol())
+                    && (Objects.isNull(exchange) || exchange.equals(entry.getExchange()));
+        }
+    }
+}
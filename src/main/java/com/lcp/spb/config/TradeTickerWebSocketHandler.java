@@ -0,0 +1,100 @@
+package com.lcp.spb.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcp.spb.bean.trade.TradeTicker;
+import com.lcp.spb.logic.services.TradeTickerService;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 实时行情 WebSocket 处理器
+ * 
+ * <p>向连接的客户端推送由交易写入流计算的行情快照（最新价、1 小时 VWAP、24 小时高低价和成交量）。
+ * 
+ * <p>特性：
+ * <ul>
+ *   <li>只在行情变化时推送，推送间隔由 trade.ticker.push-interval-ms 控制</li>
+ *   <li>每次快照只序列化一次，所有会话共享同一份 UTF-8 字节</li>
+ *   <li>新连接会立即收到最近一次快照</li>
+ *   <li>慢消费者隔离：发送缓冲区有界，策略见 {@link WebSocketOutboundPolicy}</li>
+ *   <li>失联回收：ping/pong 探测半开连接，见 {@link WebSocketKeepAlive}</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class TradeTickerWebSocketHandler implements WebSocketHandler {
+
+    /** 序列化失败时推送的空数组 */
+    private static final byte[] EMPTY_JSON_ARRAY = "[]".getBytes(StandardCharsets.UTF_8);
+
+    /** JSON 序列化器，用于将对象转换为 JSON 字符串 */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** 实时行情服务 */
+    @Autowired
+    private TradeTickerService tradeTickerService;
+
+    /** 发送背压策略，隔离慢消费者 */
+    @Autowired
+    private WebSocketOutboundPolicy webSocketOutboundPolicy;
+
+    /** 连接保活与空闲回收 */
+    @Autowired
+    private WebSocketKeepAlive webSocketKeepAlive;
+
+    /** 所有会话共享的、已编码的行情流 */
+    private Flux<byte[]> payloadFlux;
+
+    /**
+     * 构建共享的 JSON 行情流
+     */
+    @PostConstruct
+    public void init () {
+        payloadFlux = tradeTickerService.stream()
+                .map(this::toJsonSafely)
+                .replay(1)
+                .refCount();
+    }
+
+    /**
+     * 处理 WebSocket 会话
+     * 
+     * @param session WebSocket 会话对象
+     * @return Mono 对象，表示处理完成
+     */
+    @Override
+    public Mono<Void> handle (WebSocketSession session) {
+        WebSocketOutboundPolicy.Guard guard = webSocketOutboundPolicy.forSession("ticker", session);
+        WebSocketKeepAlive.KeepAlive keepAlive = webSocketKeepAlive.forSession("ticker", session);
+        Flux<byte[]> frames = guard.guard(payloadFlux.onErrorResume(error -> Flux.empty()));
+        return keepAlive.track(session.send(frames
+                .mergeWith(guard.watchdog())
+                .map(frame -> WebSocketFrames.text(session.bufferFactory(), frame))
+                .mergeWith(keepAlive.pings()))
+                .and(keepAlive.inbound(session.receive()).then()));
+    }
+
+    /**
+     * 安全地将行情快照编码为 UTF-8 JSON
+     * 
+     * @param tickers 行情快照列表
+     * @return UTF-8 编码的 JSON，如果序列化失败则返回空数组
+     */
+    private byte[] toJsonSafely (List<TradeTicker> tickers) {
+        try {
+            return objectMapper.writeValueAsBytes(tickers);
+        } catch (JsonProcessingException e) {
+            return EMPTY_JSON_ARRAY;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.lcp.spb.config;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.bean.trade.TradeTapeEntry;
+import com.lcp.spb.logic.hashing.IdHasher;
+import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * WebSocket 主题发布器
+ * 
+ * <p>把服务端的数据源分发到 {@link TradeTopicRegistry} 中的主题：
+ * <ul>
+ *   <li>全局汇总每次推送时发布到 summary 主题</li>
+ *   <li>存在 summary:{SYMBOL} 或 summary:exchange:{exchange} 订阅者时，
+ *       对同一时间窗口做一次分组聚合，只发布到被订阅的分组主题；没有订阅者时不查询。
+ *       推送用的分组聚合不统计去重用户数，需要时使用按需查询的分组汇总接口</li>
+ *   <li>新成交写入后发布到 trades:user:{用户ID的脱敏哈希} 主题（仅当该用户被订阅时），
+ *       消息为不含用户、钱包、备注等信息的 {@link TradeTapeEntry}</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class TradeTopicPublisher implements TradeIngestListener {
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 主题注册表 */
+    @Autowired
+    private TradeTopicRegistry tradeTopicRegistry;
+
+    /** 交易汇总数据流源 */
+    @Autowired
+    private Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
+
+    /** 加密货币交易服务，用于分组聚合（延迟注入，避免与写入监听器列表形成循环依赖） */
+    @Lazy
+    @Autowired
+    private ElasticsearchCryptoTradeService cryptoTradeService;
+
+    /** 用户ID脱敏哈希，作为用户成交主题的键 */
+    @Autowired
+    private IdHasher idHasher;
+
+    /** 对全局汇总流的订阅 */
+    private Disposable summarySubscription;
+
+    /**
+     * 订阅全局汇总流
+     */
+    @PostConstruct
+    public void init () {
+        summarySubscription = tradeSummarySink.asFlux()
+                .concatMap(this::publishSummary)
+                .subscribe();
+    }
+
+    /**
+     * 停止订阅全局汇总流
+     */
+    @PreDestroy
+    public void destroy () {
+        summarySubscription.dispose();
+    }
+
+    /**
+     * 新成交写入后发布到用户成交主题
+     * 
+     * <p>WebSocket 连接没有身份认证，主题以用户ID的脱敏哈希（{@link IdHasher#pseudonymize(String)}）为键，
+     * 只推送精简投影。只有配置了 trade.hash.hmac-key 时才发布，此时只有从服务端拿到哈希的客户端
+     * 才能订阅某个用户的成交；未配置时主题不开放，见 {@link TradeTopicRegistry#isEnabled(String)}。
+     * 
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        if (idHasher.isKeyed() && StringUtils.hasText(tradeInfo.getUserId())) {
+            String topic = TradeTopicRegistry.USER_TRADES_PREFIX
+                    + idHasher.pseudonymize(tradeInfo.getUserId());
+            if (tradeTopicRegistry.hasSubscribers(topic)) {
+                tradeTopicRegistry.publish(topic, TradeTapeEntry.of(tradeInfo));
+            }
+        }
+    }
+
+    /**
+     * 发布全局汇总，并按需发布分组汇总
+     * 
+     * @param summary 全局汇总
+     * @return 发布完成信号
+     */
+    private Mono<Void> publishSummary (RecentHourTradeSummary summary) {
+        tradeTopicRegistry.publish(TradeTopicRegistry.SUMMARY, summary);
+        if (!hasBreakdownSubscribers()) {
+            return Mono.empty();
+        }
+        // 每次推送都会执行分组聚合，不附带开销较大的 cardinality，分组主题的去重用户数为 null
+        return cryptoTradeService.summaryBreakdown(summary.getWindowStart(), summary.getWindowEnd(),
+                summary.isFallback(), false)
+                .doOnNext(breakdown -> {
+                    Map<String, RecentHourTradeSummary> byTopic = new HashMap<>();
+                    breakdown.getBySymbol().forEach((symbol, value) ->
+                            byTopic.put(TradeTopicRegistry.SUMMARY_PREFIX + symbol, value));
+                    breakdown.getByExchange().forEach((exchange, value) ->
+                            byTopic.put(TradeTopicRegistry.SUMMARY_EXCHANGE_PREFIX + exchange, value));
+                    for (String topic : tradeTopicRegistry.activeTopics()) {
+                        if (!topic.startsWith(TradeTopicRegistry.SUMMARY_PREFIX)) {
+                            continue;
+                        }
+                        // 窗口内没有成交的分组也推送一条空汇总，客户端据此知道数据已更新
+                        RecentHourTradeSummary value = byTopic.get(topic);
+                        tradeTopicRegistry.publish(topic, Objects.nonNull(value) ? value
+                                : new RecentHourTradeSummary(0L, BigDecimal.ZERO,
+                                        summary.getWindowStart(), summary.getWindowEnd(),
+                                        summary.isFallback()));
+                    }
+                })
+                .onErrorResume(error -> {
+                    logger.warn("Failed to publish summary breakdown: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * 是否存在分组汇总主题的订阅者
+     * 
+     * @return 是否存在
+     */
+    private boolean hasBreakdownSubscribers () {
+        for (String topic : tradeTopicRegistry.activeTopics()) {
+            if (topic.startsWith(TradeTopicRegistry.SUMMARY_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
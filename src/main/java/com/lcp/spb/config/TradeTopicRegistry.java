@@ -0,0 +1,270 @@
+package com.lcp.spb.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.hashing.IdHasher;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * WebSocket 主题注册表
+ * 
+ * <p>每个主题对应一个按需创建的 Sink：
+ * <ul>
+ *   <li>第一个订阅者到来时创建，最后一个订阅者离开时移除并完成，没有订阅者的主题不占用任何资源</li>
+ *   <li>订阅计数通过 ConcurrentHashMap.compute 原子维护，创建与回收不会相互覆盖</li>
+ *   <li>发布时只处理存在订阅者的主题，生成一条由该主题所有订阅者共享的 {@link TopicFrame}，
+ *       每种编码格式最多序列化一次</li>
+ * </ul>
+ * 
+ * <p>支持的主题：
+ * <ul>
+ *   <li>summary：全局最近一小时交易汇总</li>
+ *   <li>summary:{SYMBOL}：单个币种的交易汇总，例如 summary:BTC</li>
+ *   <li>summary:exchange:{exchange}：单个交易所的交易汇总，例如 summary:exchange:binance</li>
+ *   <li>trades:user:{hash}：指定用户的新成交，hash 为用户ID的脱敏哈希，见 {@link TradeTopicPublisher}。
+ *       WebSocket 连接没有身份认证，未配置 trade.hash.hmac-key 时哈希可由用户ID直接算出，
+ *       因此该主题只在配置了密钥时开放，见 {@link #isEnabled(String)}</li>
+ * </ul>
+ * 
+ * <p>推送给客户端的消息格式见 {@link TopicFrame}。
+ * 
+ * @author lcp
+ */
+@Component
+public class TradeTopicRegistry {
+
+    /** 全局汇总主题 */
+    public static final String SUMMARY = "summary";
+    /** 汇总主题前缀 */
+    public static final String SUMMARY_PREFIX = "summary:";
+    /** 交易所汇总主题前缀 */
+    public static final String SUMMARY_EXCHANGE_PREFIX = "summary:exchange:";
+    /** 用户成交主题前缀 */
+    public static final String USER_TRADES_PREFIX = "trades:user:";
+    /** 用户成交主题中脱敏哈希的长度（SHA-256 / HMAC-SHA256 的十六进制） */
+    private static final int USER_HASH_LENGTH = 64;
+    /** 主题名称最大长度 */
+    private static final int MAX_TOPIC_LENGTH = 128;
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** WebSocket 编解码器 */
+    private final WebSocketCodecs webSocketCodecs;
+
+    /** Sink 发布结果统计 */
+    private final SinkEmitMetrics sinkEmitMetrics;
+
+    /** 用户成交主题是否开放：只有配置了 HMAC 密钥时才开放 */
+    private final boolean userTradesEnabled;
+
+    /** 当前存在订阅者的主题 */
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    /**
+     * 构造主题注册表
+     * 
+     * @param webSocketCodecs WebSocket 编解码器
+     * @param sinkEmitMetrics Sink 发布结果统计
+     * @param idHasher 用户ID脱敏哈希，决定用户成交主题是否开放
+     */
+    public TradeTopicRegistry (WebSocketCodecs webSocketCodecs, SinkEmitMetrics sinkEmitMetrics,
+            IdHasher idHasher) {
+        this.webSocketCodecs = webSocketCodecs;
+        this.sinkEmitMetrics = sinkEmitMetrics;
+        this.userTradesEnabled = idHasher.isKeyed();
+        if (!userTradesEnabled) {
+            logger.info("trade.hash.hmac-key is not set, {}* topics are disabled", USER_TRADES_PREFIX);
+        }
+    }
+
+    /**
+     * 校验主题名称
+     * 
+     * @param topic 主题名称
+     * @return 是否为支持的主题
+     */
+    public static boolean isValid (String topic) {
+        if (Objects.isNull(topic) || topic.isEmpty() || topic.length() > MAX_TOPIC_LENGTH) {
+            return false;
+        }
+        if (SUMMARY.equals(topic)) {
+            return true;
+        }
+        if (topic.startsWith(SUMMARY_EXCHANGE_PREFIX)) {
+            return topic.length() > SUMMARY_EXCHANGE_PREFIX.length();
+        }
+        if (topic.startsWith(USER_TRADES_PREFIX)) {
+            return isUserHash(topic.substring(USER_TRADES_PREFIX.length()));
+        }
+        if (topic.startsWith(SUMMARY_PREFIX)) {
+            String symbol = topic.substring(SUMMARY_PREFIX.length());
+            for (CryptoCurrency currency : CryptoCurrency.values()) {
+                if (currency.name().equals(symbol)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 主题在当前配置下是否开放订阅：用户成交主题只在配置了 HMAC 密钥时开放，
+     * 否则任何客户端都能由用户ID算出主题名称，订阅他人的成交
+     * 
+     * @param topic 已通过 {@link #isValid(String)} 校验的主题名称
+     * @return 是否开放
+     */
+    public boolean isEnabled (String topic) {
+        return userTradesEnabled || !topic.startsWith(USER_TRADES_PREFIX);
+    }
+
+    /**
+     * 是否为小写十六进制的用户ID脱敏哈希
+     * 
+     * @param hash 主题中的用户部分
+     * @return 是否合法
+     */
+    private static boolean isUserHash (String hash) {
+        if (hash.length() != USER_HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 主题的消息是否可合并：汇总类主题每条都是完整快照，慢消费者只需最新一条；
+     * 用户成交主题逐条推送成交，不可合并
+     * 
+     * @param topic 主题名称
+     * @return 是否可合并
+     */
+    public static boolean isConflatable (String topic) {
+        return !topic.startsWith(USER_TRADES_PREFIX);
+    }
+
+    /**
+     * 订阅主题
+     * 
+     * <p>返回的数据流被订阅时计数加一，取消或结束时计数减一，计数归零时移除主题。
+     * 
+     * @param topic 主题名称，调用方需先通过 {@link #isValid(String)} 和 {@link #isEnabled(String)} 校验
+     * @return 该主题的消息流，主题未开放时为空流
+     */
+    public Flux<TopicFrame> subscribe (String topic) {
+        if (!isEnabled(topic)) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> {
+            Topic entry = topics.compute(topic, (key, current) -> {
+                Topic target = Objects.isNull(current) ? new Topic() : current;
+                target.subscribers++;
+                return target;
+            });
+            return entry.sink.asFlux().doFinally(signal -> release(topic, entry));
+        });
+    }
+
+    /**
+     * 主题当前是否有订阅者
+     * 
+     * @param topic 主题名称
+     * @return 是否有订阅者
+     */
+    public boolean hasSubscribers (String topic) {
+        return topics.containsKey(topic);
+    }
+
+    /**
+     * 当前有订阅者的主题
+     * 
+     * @return 主题名称集合（只读视图）
+     */
+    public Set<String> activeTopics () {
+        return topics.keySet();
+    }
+
+    /**
+     * 向主题发布一条消息，主题没有订阅者时直接返回，不做序列化
+     * 
+     * @param topic 主题名称
+     * @param payload 消息内容
+     */
+    public void publish (String topic, Object payload) {
+        Topic entry = topics.get(topic);
+        if (Objects.isNull(entry)) {
+            return;
+        }
+        JsonNode data;
+        try {
+            data = webSocketCodecs.toTree(payload);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to serialize payload for topic {}: {}", topic, e.getMessage());
+            return;
+        }
+        sinkEmitMetrics.record("topic", entry.emit(webSocketCodecs, topic, data));
+    }
+
+    /**
+     * 订阅者离开，计数归零时移除并完成主题
+     * 
+     * @param topic 主题名称
+     * @param entry 订阅时获取的主题对象
+     */
+    private void release (String topic, Topic entry) {
+        topics.computeIfPresent(topic, (key, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            if (--current.subscribers > 0) {
+                return current;
+            }
+            current.sink.tryEmitComplete();
+            return null;
+        });
+    }
+
+    /**
+     * 单个主题
+     */
+    private static final class Topic {
+
+        /** 主题的广播 Sink，订阅者消费过慢时只丢弃该订阅者的消息，不影响其他订阅者 */
+        private final Sinks.Many<TopicFrame> sink = Sinks.many().multicast().directBestEffort();
+        /** 订阅者数量，只在 compute 中修改 */
+        private int subscribers;
+        /** 上一条消息的序号 */
+        private long seq;
+        /** 上一条消息的完整内容，用于计算增量 */
+        private JsonNode previous;
+
+        /**
+         * 发布消息，不同线程的并发发布在此串行化，保证序号与增量基准一致
+         * 
+         * @param codecs 编码器
+         * @param topic 主题名称
+         * @param data 消息内容
+         * @return 发布结果
+         */
+        synchronized Sinks.EmitResult emit (WebSocketCodecs codecs, String topic, JsonNode data) {
+            TopicFrame frame = new TopicFrame(codecs, topic, ++seq, data, previous);
+            previous = data;
+            return sink.tryEmitNext(frame);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.lcp.spb.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket 编解码器
+ * 
+ * <p>支持的子协议（客户端在 Sec-WebSocket-Protocol 中按优先级列出，服务端选择第一个支持的）：
+ * <ul>
+ *   <li>json、cbor、smile：主题消息使用对应格式的完整消息</li>
+ *   <li>json.delta、cbor.delta、smile.delta：同一主题的后续消息只包含与上一条相比变化的字段</li>
+ * </ul>
+ * 未协商子协议的客户端保持原有行为（JSON 文本、默认推送汇总对象本身）。
+ * 
+ * <p>所有格式的序列化器都由 Spring 的 ObjectMapper 复制而来，模块和特性配置保持一致。
+ * 每次编码记录消息大小分布 trade.ws.frame.bytes（按 format、kind 区分）。
+ * 
+ * @author lcp
+ */
+@Component
+public class WebSocketCodecs {
+
+    /** 子协议中表示增量编码的后缀 */
+    private static final String DELTA_SUFFIX = ".delta";
+
+    /** JSON 序列化器 */
+    private final ObjectMapper objectMapper;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 各格式的序列化器 */
+    private final Map<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+
+    /** 各（格式, 消息类别）的消息大小分布，避免每次编码都重新注册 */
+    private final Map<FrameSizeKey, DistributionSummary> frameSizes = new ConcurrentHashMap<>();
+
+    /** 支持的子协议列表 */
+    private final List<String> subProtocols;
+
+    /**
+     * 构造编解码器，初始化各格式的序列化器和子协议列表
+     * 
+     * @param objectMapper Spring 的 JSON 序列化器
+     * @param meterRegistry 指标注册表
+     */
+    public WebSocketCodecs (ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        mappers.put(WireFormat.JSON, objectMapper);
+        mappers.put(WireFormat.CBOR, objectMapper.copyWith(new CBORFactory()));
+        mappers.put(WireFormat.SMILE, objectMapper.copyWith(new SmileFactory()));
+        List<String> names = new ArrayList<>();
+        for (WireFormat format : WireFormat.values()) {
+            names.add(format.getSubProtocol());
+            names.add(format.getSubProtocol() + DELTA_SUFFIX);
+        }
+        subProtocols = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 支持的子协议列表
+     * 
+     * @return 子协议名称
+     */
+    public List<String> subProtocols () {
+        return subProtocols;
+    }
+
+    /**
+     * 解析协商结果
+     * 
+     * @param subProtocol 握手时选定的子协议，可为 null
+     * @return 会话编码方式，未协商时返回 null
+     */
+    public SessionEncoding negotiate (String subProtocol) {
+        if (Objects.isNull(subProtocol)) {
+            return null;
+        }
+        boolean delta = subProtocol.endsWith(DELTA_SUFFIX);
+        String name = delta
+                ? subProtocol.substring(0, subProtocol.length() - DELTA_SUFFIX.length())
+                : subProtocol;
+        for (WireFormat format : WireFormat.values()) {
+            if (format.getSubProtocol().equals(name)) {
+                return new SessionEncoding(format, delta);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将对象转换为树模型，用于计算增量
+     * 
+     * @param payload 消息内容
+     * @return 树模型
+     */
+    public JsonNode toTree (Object payload) {
+        return objectMapper.valueToTree(payload);
+    }
+
+    /**
+     * 按指定格式编码并记录消息大小
+     * 
+     * @param format 编码格式
+     * @param value 要编码的对象
+     * @param kind 消息类别，用作指标标签，例如 full、delta、reply
+     * @return 编码后的字节
+     * @throws JsonProcessingException 序列化失败
+     */
+    public byte[] encode (WireFormat format, Object value, String kind) throws JsonProcessingException {
+        byte[] bytes = mappers.get(format).writeValueAsBytes(value);
+        frameSizes.computeIfAbsent(new FrameSizeKey(format, kind),
+                key -> DistributionSummary.builder("trade.ws.frame.bytes")
+                        .baseUnit("bytes")
+                        .tag("format", key.format().getSubProtocol())
+                        .tag("kind", key.kind())
+                        .register(meterRegistry))
+                .record(bytes.length);
+        return bytes;
+    }
+
+    /**
+     * 按指定格式解码客户端消息
+     * 
+     * @param format 编码格式
+     * @param bytes 消息字节
+     * @return 树模型
+     * @throws IOException 解码失败
+     */
+    public JsonNode read (WireFormat format, byte[] bytes) throws IOException {
+        return mappers.get(format).readTree(bytes);
+    }
+
+    /**
+     * 创建空的对象节点
+     * 
+     * @return 对象节点
+     */
+    public ObjectNode objectNode () {
+        return objectMapper.createObjectNode();
+    }
+
+    /**
+     * 消息大小分布键
+     * 
+     * @param format 编码格式
+     * @param kind 消息类别
+     */
+    private record FrameSizeKey(WireFormat format, String kind) {
+    }
+
+    /**
+     * 会话编码方式
+     * 
+     * @param format 编码格式
+     * @param delta 是否启用增量编码
+     */
+    public record SessionEncoding(WireFormat format, boolean delta) {
+    }
+}
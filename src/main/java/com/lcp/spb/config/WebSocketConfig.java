@@ -2,12 +2,15 @@ package com.lcp.spb.config;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
+import org.springframework.web.server.WebFilter;
 
 /**
  * WebSocket 配置类
@@ -17,29 +20,43 @@ import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAd
  * <p>主要功能：
  * <ul>
  *   <li>注册 WebSocket 处理器：将交易汇总 WebSocket 处理器映射到 /ws/trade-summary 路径</li>
+ *   <li>注册行情 WebSocket 处理器：将实时行情处理器映射到 /ws/ticker 路径</li>
+ *   <li>注册成交明细 WebSocket 处理器：将成交明细处理器映射到 /ws/trades 路径</li>
  *   <li>配置 WebSocket 适配器：提供 WebSocket 请求处理支持</li>
+ *   <li>规范化子协议请求头：去掉 Sec-WebSocket-Protocol 列表中的空白，保证子协议协商可用</li>
  * </ul>
  * 
- * <p>WebSocket 路径：/ws/trade-summary
+ * <p>WebSocket 路径：/ws/trade-summary、/ws/ticker、/ws/trades
  * 
  * @author lcp
  */
 @Configuration
 public class WebSocketConfig {
 
+    /** WebSocket 子协议请求头 */
+    private static final String SEC_WEBSOCKET_PROTOCOL = "Sec-WebSocket-Protocol";
+
     /**
      * 配置 WebSocket 路径映射
      * 
-     * <p>将交易汇总 WebSocket 处理器注册到 /ws/trade-summary 路径。
+     * <p>将交易汇总 WebSocket 处理器注册到 /ws/trade-summary 路径，
+     * 将实时行情 WebSocket 处理器注册到 /ws/ticker 路径，
+     * 将成交明细 WebSocket 处理器注册到 /ws/trades 路径。
      * 设置优先级为 -1，确保 WebSocket 映射优先于其他 HTTP 处理器。
      * 
-     * @param handler 交易汇总 WebSocket 处理器
+     * @param tradeSummaryWebSocketHandler 交易汇总 WebSocket 处理器
+     * @param tradeTickerWebSocketHandler 实时行情 WebSocket 处理器
+     * @param tradeTapeWebSocketHandler 成交明细 WebSocket 处理器
      * @return HandlerMapping 对象，包含 WebSocket 路径映射配置
      */
     @Bean
-    HandlerMapping webSocketMapping (TradeSummaryWebSocketHandler tradeSummaryWebSocketHandler) {
+    HandlerMapping webSocketMapping (TradeSummaryWebSocketHandler tradeSummaryWebSocketHandler,
+            TradeTickerWebSocketHandler tradeTickerWebSocketHandler,
+            TradeTapeWebSocketHandler tradeTapeWebSocketHandler) {
         Map<String, WebSocketHandler> map = new HashMap<>();
         map.put("/ws/trade-summary", tradeSummaryWebSocketHandler);
+        map.put("/ws/ticker", tradeTickerWebSocketHandler);
+        map.put("/ws/trades", tradeTapeWebSocketHandler);
 
         SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping();
         mapping.setUrlMap(map);
@@ -58,4 +75,29 @@ public class WebSocketConfig {
     WebSocketHandlerAdapter handlerAdapter () {
         return new WebSocketHandlerAdapter();
     }
+
+    /**
+     * 规范化 WebSocket 子协议请求头
+     * 
+     * <p>浏览器发送的子协议列表形如 "cbor.delta, json"，而握手时按逗号拆分后不会去掉空白，
+     * 导致除第一个以外的子协议都无法匹配。这里在握手前去掉列表中的空白。
+     * 
+     * @return WebFilter 对象
+     */
+    @Bean
+    WebFilter webSocketProtocolHeaderFilter () {
+        return (exchange, chain) -> {
+            String protocols = exchange.getRequest().getHeaders()
+                    .getFirst(SEC_WEBSOCKET_PROTOCOL);
+            if (Objects.isNull(protocols) || !protocols.contains(" ")) {
+                return chain.filter(exchange);
+            }
+            String normalized = String.join(",",
+                    StringUtils.tokenizeToStringArray(protocols, ","));
+            return chain.filter(exchange.mutate()
+                    .request(request -> request.headers(
+                            headers -> headers.set(SEC_WEBSOCKET_PROTOCOL, normalized)))
+                    .build());
+        };
+    }
 }
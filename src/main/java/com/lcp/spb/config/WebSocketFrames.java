@@ -0,0 +1,44 @@
+package com.lcp.spb.config;
+
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+/**
+ * WebSocket 预编码消息工具
+ * 
+ * <p>广播场景下每条消息只序列化一次得到 UTF-8 字节数组，所有会话共享这份字节：
+ * 每个会话只包装（wrap）出一个轻量的缓冲区视图，不再重复序列化、也不复制字节。
+ * 
+ * <p>共享的字节数组在编码后不得再修改。
+ * 
+ * @author lcp
+ */
+public final class WebSocketFrames {
+
+    private WebSocketFrames () {
+    }
+
+    /**
+     * 将预编码的 UTF-8 字节包装为文本消息
+     * 
+     * @param bufferFactory 会话的缓冲区工厂
+     * @param payload 预编码的 UTF-8 JSON 字节
+     * @return 文本类型的 WebSocket 消息
+     */
+    public static WebSocketMessage text (DataBufferFactory bufferFactory, byte[] payload) {
+        return of(bufferFactory, WebSocketMessage.Type.TEXT, payload);
+    }
+
+    /**
+     * 将预编码的字节包装为指定类型的消息
+     * 
+     * @param bufferFactory 会话的缓冲区工厂
+     * @param type 消息类型，文本格式为 TEXT，二进制格式为 BINARY
+     * @param payload 预编码的字节
+     * @return WebSocket 消息
+     */
+    public static WebSocketMessage of (DataBufferFactory bufferFactory, WebSocketMessage.Type type,
+            byte[] payload) {
+        return new WebSocketMessage(type, bufferFactory.wrap(payload));
+    }
+}
@@ -0,0 +1,274 @@
+package com.lcp.spb.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * WebSocket 连接保活与空闲回收
+ * 
+ * <p>移动端断网等情况会留下半开的 TCP 连接：服务端感知不到断开，会话一直占着订阅、缓冲区和 Netty channel。
+ * 这里用协议层的 ping/pong 探测这类连接并主动关闭：
+ * <ul>
+ *   <li>会话在 ping-interval-ms 内没有收到任何帧时，服务端发送 ping（负载为发送时刻）</li>
+ *   <li>ping 发出后 pong-timeout-ms 内仍没有收到任何帧，关闭会话（原因 pong-timeout）</li>
+ *   <li>会话超过 idle-timeout-ms 没有收到任何帧，无论是否发送过 ping 都关闭（原因 idle）</li>
+ * </ul>
+ * 浏览器和常见客户端库都会自动回复 pong，正常连接不受影响；任何入站帧（命令、pong）都视为存活。
+ * 以上时间为 0 表示关闭对应的检查。
+ * 
+ * <p>回收时先发送关闭帧，再结束会话的处理流，由 Netty 直接关闭 channel，不等待对端回应。
+ * 
+ * <p>指标（按 endpoint 区分）：
+ * <ul>
+ *   <li>trade.ws.sessions：当前存活的会话数</li>
+ *   <li>trade.ws.sessions.reaped：被回收的会话数，按 reason 区分</li>
+ *   <li>trade.ws.ping.rtt：ping 到 pong 的往返时间</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class WebSocketKeepAlive {
+
+    /** 回收原因：ping 后未在截止时间内收到回应 */
+    static final String REASON_PONG_TIMEOUT = "pong-timeout";
+    /** 回收原因：长时间没有任何入站帧 */
+    static final String REASON_IDLE = "idle";
+    /** 检查周期的下限（毫秒） */
+    private static final long MIN_CHECK_INTERVAL_MILLIS = 100;
+    /** 回收时等待关闭帧写出的最长时间，对端已失联时写出可能一直挂起 */
+    private static final Duration CLOSE_GRACE = Duration.ofSeconds(1);
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 会话静默多久后发送 ping（毫秒） */
+    private final long pingIntervalMillis;
+
+    /** 发送 ping 后等待回应的截止时间（毫秒） */
+    private final long pongTimeoutMillis;
+
+    /** 没有任何入站帧的最长时间（毫秒） */
+    private final long idleTimeoutMillis;
+
+    /** 各 endpoint 的指标 */
+    private final Map<String, EndpointMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * 构造连接保活
+     * 
+     * @param meterRegistry 指标注册表
+     * @param pingIntervalMillis 会话静默多久后发送 ping（毫秒）
+     * @param pongTimeoutMillis 发送 ping 后等待回应的截止时间（毫秒）
+     * @param idleTimeoutMillis 没有任何入站帧的最长时间（毫秒）
+     */
+    public WebSocketKeepAlive (MeterRegistry meterRegistry,
+            @Value("${trade.ws.keepalive.ping-interval-ms:25000}") long pingIntervalMillis,
+            @Value("${trade.ws.keepalive.pong-timeout-ms:10000}") long pongTimeoutMillis,
+            @Value("${trade.ws.keepalive.idle-timeout-ms:120000}") long idleTimeoutMillis) {
+        this.meterRegistry = meterRegistry;
+        this.pingIntervalMillis = pingIntervalMillis;
+        this.pongTimeoutMillis = pongTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * 为会话创建保活状态
+     * 
+     * @param endpoint endpoint 名称，用作指标标签，例如 trade-summary
+     * @param session WebSocket 会话
+     * @return 会话级的保活状态
+     */
+    public KeepAlive forSession (String endpoint, WebSocketSession session) {
+        return new KeepAlive(meters.computeIfAbsent(endpoint, EndpointMeters::new), session);
+    }
+
+    /**
+     * 单个 endpoint 的指标
+     */
+    private final class EndpointMeters {
+
+        /** endpoint 名称 */
+        private final String endpoint;
+        /** 存活会话数 */
+        private final AtomicInteger sessions = new AtomicInteger();
+        /** 因 pong 超时回收的会话数 */
+        private final Counter reapedPongTimeout;
+        /** 因空闲回收的会话数 */
+        private final Counter reapedIdle;
+        /** ping 往返时间 */
+        private final Timer rtt;
+
+        EndpointMeters(String endpoint) {
+            this.endpoint = endpoint;
+            Gauge.builder("trade.ws.sessions", sessions, AtomicInteger::get)
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            this.reapedPongTimeout = reapedCounter(endpoint, REASON_PONG_TIMEOUT);
+            this.reapedIdle = reapedCounter(endpoint, REASON_IDLE);
+            this.rtt = Timer.builder("trade.ws.ping.rtt")
+                    .tag("endpoint", endpoint)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+
+        private Counter reapedCounter (String endpoint, String reason) {
+            return Counter.builder("trade.ws.sessions.reaped")
+                    .tag("endpoint", endpoint)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 会话级的保活状态
+     */
+    public final class KeepAlive {
+
+        /** 指标 */
+        private final EndpointMeters endpointMeters;
+        /** 会话 */
+        private final WebSocketSession session;
+        /** 回收信号，触发后会话的处理流结束 */
+        private final Sinks.Empty<Void> reaped = Sinks.empty();
+        /** 是否已回收 */
+        private final AtomicBoolean closing = new AtomicBoolean();
+        /** 最近一次收到入站帧的时间（纳秒） */
+        private volatile long lastInboundAt = System.nanoTime();
+        /** 最近一次发送 ping 的时间（纳秒），0 表示没有等待中的 ping */
+        private volatile long pingSentAt;
+
+        KeepAlive(EndpointMeters endpointMeters, WebSocketSession session) {
+            this.endpointMeters = endpointMeters;
+            this.session = session;
+        }
+
+        /**
+         * 包装会话的处理流：计入存活会话数，回收时提前结束
+         * 
+         * @param handling 会话的处理流（send 与 receive 的组合）
+         * @return 包装后的处理流
+         */
+        public Mono<Void> track (Mono<Void> handling) {
+            return Mono.defer(() -> {
+                endpointMeters.sessions.incrementAndGet();
+                return handling.takeUntilOther(reaped.asMono())
+                        .doFinally(signal -> endpointMeters.sessions.decrementAndGet());
+            });
+        }
+
+        /**
+         * 观察入站消息：刷新存活时间，记录 ping 往返时间，并过滤掉 ping/pong 控制帧
+         * 
+         * @param inbound 会话的入站消息流
+         * @return 只包含文本和二进制消息的入站流
+         */
+        public Flux<WebSocketMessage> inbound (Flux<WebSocketMessage> inbound) {
+            return inbound
+                    .doOnNext(this::onInbound)
+                    .filter(message -> message.getType() == WebSocketMessage.Type.TEXT
+                            || message.getType() == WebSocketMessage.Type.BINARY);
+        }
+
+        /**
+         * 保活数据流：按检查周期发送 ping 并判断是否需要回收，应与会话的发送流合并
+         * 
+         * @return 只包含 ping 消息的数据流，所有检查都关闭时为空流
+         */
+        public Flux<WebSocketMessage> pings () {
+            long checkInterval = LongStream.of(pingIntervalMillis, pongTimeoutMillis, idleTimeoutMillis)
+                    .filter(millis -> millis > 0)
+                    .min()
+                    .orElse(0) / 2;
+            if (checkInterval == 0) {
+                return Flux.empty();
+            }
+            return Flux.interval(Duration.ofMillis(Math.max(MIN_CHECK_INTERVAL_MILLIS, checkInterval)))
+                    .onBackpressureDrop()
+                    .concatMap(tick -> check(System.nanoTime()), 1)
+                    .takeUntilOther(reaped.asMono());
+        }
+
+        /**
+         * 一次检查，需要时返回一个 ping 消息
+         * 
+         * @param now 当前时间（纳秒）
+         * @return ping 消息，或空
+         */
+        Mono<WebSocketMessage> check (long now) {
+            long silentNanos = now - lastInboundAt;
+            long sentAt = pingSentAt;
+            if (pongTimeoutMillis > 0 && sentAt != 0
+                    && now - sentAt > TimeUnit.MILLISECONDS.toNanos(pongTimeoutMillis)) {
+                reap(REASON_PONG_TIMEOUT, endpointMeters.reapedPongTimeout);
+                return Mono.empty();
+            }
+            if (idleTimeoutMillis > 0 && silentNanos > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)) {
+                reap(REASON_IDLE, endpointMeters.reapedIdle);
+                return Mono.empty();
+            }
+            if (pingIntervalMillis > 0 && sentAt == 0
+                    && silentNanos >= TimeUnit.MILLISECONDS.toNanos(pingIntervalMillis)) {
+                pingSentAt = now;
+                return Mono.just(session.pingMessage(factory ->
+                        factory.wrap(ByteBuffer.allocate(Long.BYTES).putLong(0, now))));
+            }
+            return Mono.empty();
+        }
+
+        private void onInbound (WebSocketMessage message) {
+            long now = System.nanoTime();
+            lastInboundAt = now;
+            if (message.getType() == WebSocketMessage.Type.PONG) {
+                DataBuffer payload = message.getPayload();
+                if (payload.readableByteCount() == Long.BYTES) {
+                    byte[] bytes = new byte[Long.BYTES];
+                    payload.read(bytes);
+                    long rtt = now - ByteBuffer.wrap(bytes).getLong();
+                    if (rtt >= 0) {
+                        endpointMeters.rtt.record(rtt, TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+            pingSentAt = 0;
+        }
+
+        private void reap (String reason, Counter counter) {
+            if (!closing.compareAndSet(false, true)) {
+                return;
+            }
+            counter.increment();
+            logger.info("Reaping WebSocket session {} on {}: {}", session.getId(),
+                    endpointMeters.endpoint, reason);
+            session.close(CloseStatus.GOING_AWAY.withReason(reason))
+                    .timeout(CLOSE_GRACE)
+                    .onErrorResume(error -> Mono.empty())
+                    .doFinally(signal -> reaped.tryEmitEmpty())
+                    .subscribe();
+        }
+    }
+}
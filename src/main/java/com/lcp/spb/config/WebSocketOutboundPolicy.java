@@ -0,0 +1,301 @@
+package com.lcp.spb.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+/**
+ * WebSocket 发送背压策略
+ * 
+ * <p>为每个会话的发送数据流加上有界缓冲区，隔离慢消费者：
+ * <ul>
+ *   <li>每条数据流的缓冲区都有上限，超出时按 {@link SlowConsumerPolicy} 丢弃，
+ *       单个卡住的客户端占用的内存有固定上界，不会拖慢其他会话</li>
+ *   <li>LATEST 策略的缓冲区大小为 1，即按主题只保留最新一条；只适用于汇总、行情这类可合并的快照流</li>
+ *   <li>成交明细、用户成交这类逐条的数据流用 {@link Guard#guardOrdered(Flux)}，缓冲区大小总是 buffer-size，
+ *       溢出时按 ordered-policy 处理：DISCONNECT 立即断开连接，DROP_OLDEST 丢弃最旧一条并计数，
+ *       不会像 LATEST 那样悄悄只留最新一条</li>
+ *   <li>DISCONNECT 策略下，消息在缓冲区中等待超过 deadline-ms、缓冲区溢出，或会话在 deadline-ms
+ *       内没有任何发送进展，都记为一次错过截止时间；连续错过 max-missed-deadlines 次后关闭连接</li>
+ * </ul>
+ * 
+ * <p>指标（按 endpoint 区分）：
+ * <ul>
+ *   <li>trade.ws.outbound.lag：消息从进入缓冲区到被发送的等待时间</li>
+ *   <li>trade.ws.outbound.dropped：因缓冲区满被丢弃的消息数</li>
+ *   <li>trade.ws.outbound.pending：所有会话缓冲区中尚未发送的消息总数</li>
+ *   <li>trade.ws.outbound.disconnected：因慢消费被断开的会话数</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class WebSocketOutboundPolicy {
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 慢消费者处理策略 */
+    private final SlowConsumerPolicy policy;
+
+    /** DROP_OLDEST 与 DISCONNECT 策略下每条数据流的缓冲区大小 */
+    private final int bufferSize;
+
+    /** 发送截止时间（毫秒） */
+    private final long deadlineMillis;
+
+    /** 逐条数据流（不可合并）溢出时的处理策略，只支持 DROP_OLDEST 与 DISCONNECT */
+    private final SlowConsumerPolicy orderedPolicy;
+
+    /** DISCONNECT 策略下允许连续错过截止时间的次数 */
+    private final int maxMissedDeadlines;
+
+    /** 各 endpoint 的指标 */
+    private final Map<String, EndpointMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * 构造发送背压策略
+     * 
+     * @param meterRegistry 指标注册表
+     * @param policy 慢消费者处理策略
+     * @param bufferSize 每条数据流的缓冲区大小
+     * @param deadlineMillis 发送截止时间（毫秒）
+     * @param orderedPolicy 逐条数据流溢出时的处理策略
+     * @param maxMissedDeadlines 允许连续错过截止时间的次数
+     */
+    public WebSocketOutboundPolicy (MeterRegistry meterRegistry,
+            @Value("${trade.ws.slow-consumer.policy:LATEST}") SlowConsumerPolicy policy,
+            @Value("${trade.ws.slow-consumer.buffer-size:64}") int bufferSize,
+            @Value("${trade.ws.slow-consumer.deadline-ms:5000}") long deadlineMillis,
+            @Value("${trade.ws.slow-consumer.ordered-policy:DISCONNECT}") SlowConsumerPolicy orderedPolicy,
+            @Value("${trade.ws.slow-consumer.max-missed-deadlines:3}") int maxMissedDeadlines) {
+        this.meterRegistry = meterRegistry;
+        this.policy = policy;
+        this.bufferSize = bufferSize;
+        this.deadlineMillis = deadlineMillis;
+        this.orderedPolicy = orderedPolicy;
+        this.maxMissedDeadlines = maxMissedDeadlines;
+    }
+
+    /**
+     * 为会话创建发送保护
+     * 
+     * @param endpoint endpoint 名称，用作指标标签，例如 trade-summary
+     * @param session WebSocket 会话
+     * @return 会话级的发送保护
+     */
+    public Guard forSession (String endpoint, WebSocketSession session) {
+        return new Guard(meters.computeIfAbsent(endpoint, EndpointMeters::new), session);
+    }
+
+    /**
+     * 时间戳包装的消息
+     * 
+     * @param frame 预编码的消息
+     * @param enqueuedAt 进入缓冲区的时间（纳秒）
+     */
+    private record Stamped<T>(T frame, long enqueuedAt) {
+    }
+
+    /**
+     * 单个 endpoint 的指标
+     */
+    private final class EndpointMeters {
+
+        /** endpoint 名称 */
+        private final String endpoint;
+        /** 等待时间 */
+        private final Timer lag;
+        /** 丢弃数 */
+        private final Counter dropped;
+        /** 断开数 */
+        private final Counter disconnected;
+        /** 待发送总数 */
+        private final AtomicLong pending = new AtomicLong();
+
+        EndpointMeters(String endpoint) {
+            this.endpoint = endpoint;
+            this.lag = Timer.builder("trade.ws.outbound.lag")
+                    .tag("endpoint", endpoint)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.dropped = Counter.builder("trade.ws.outbound.dropped")
+                    .tag("endpoint", endpoint)
+                    .tag("policy", policy.name())
+                    .register(meterRegistry);
+            this.disconnected = Counter.builder("trade.ws.outbound.disconnected")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            Gauge.builder("trade.ws.outbound.pending", pending, AtomicLong::get)
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 会话级的发送保护
+     * 
+     * <p>同一会话的多条数据流（例如多个主题）共享错过截止时间的计数。
+     */
+    public final class Guard {
+
+        /** 指标 */
+        private final EndpointMeters endpointMeters;
+        /** 会话 */
+        private final WebSocketSession session;
+        /** 会话缓冲区中待发送的消息数 */
+        private final AtomicInteger pending = new AtomicInteger();
+        /** 连续错过截止时间的次数 */
+        private final AtomicInteger missed = new AtomicInteger();
+        /** 是否已因慢消费关闭 */
+        private final AtomicBoolean closed = new AtomicBoolean();
+        /** 最近一次发送进展的时间（纳秒） */
+        private volatile long lastProgressAt = System.nanoTime();
+
+        Guard(EndpointMeters endpointMeters, WebSocketSession session) {
+            this.endpointMeters = endpointMeters;
+            this.session = session;
+        }
+
+        /**
+         * 为一条可合并的发送数据流（每条消息都是完整快照，如汇总、行情）加上有界缓冲区
+         * 
+         * @param <T> 消息类型
+         * @param source 消息流
+         * @return 受保护的消息流
+         */
+        public <T> Flux<T> guard (Flux<T> source) {
+            int size = policy == SlowConsumerPolicy.LATEST ? 1 : bufferSize;
+            return buffered(source, size, BufferOverflowStrategy.DROP_OLDEST);
+        }
+
+        /**
+         * 为一条逐条的发送数据流（如成交明细）加上有界缓冲区
+         * 
+         * <p>这类消息不能合并，缓冲区大小不受 LATEST 策略影响。ordered-policy 为 DISCONNECT 时溢出即断开连接，
+         * 客户端可以据此重连补数；为 DROP_OLDEST 时丢弃最旧一条并计入 dropped 指标。
+         * 
+         * @param <T> 消息类型
+         * @param source 消息流
+         * @return 受保护的消息流
+         */
+        public <T> Flux<T> guardOrdered (Flux<T> source) {
+            if (orderedPolicy != SlowConsumerPolicy.DISCONNECT) {
+                return buffered(source, bufferSize, BufferOverflowStrategy.DROP_OLDEST);
+            }
+            return buffered(source, bufferSize, BufferOverflowStrategy.ERROR)
+                    .onErrorResume(Exceptions::isOverflow, overflow -> {
+                        disconnect("buffer overflow");
+                        return Flux.empty();
+                    });
+        }
+
+        private <T> Flux<T> buffered (Flux<T> source, int size, BufferOverflowStrategy strategy) {
+            return Flux.defer(() -> {
+                AtomicInteger streamPending = new AtomicInteger();
+                return source
+                        .map(frame -> {
+                            addPending(streamPending, 1);
+                            return new Stamped<>(frame, System.nanoTime());
+                        })
+                        .onBackpressureBuffer(size, dropped -> {
+                            addPending(streamPending, -1);
+                            onDropped(strategy);
+                        }, strategy)
+                        .map(stamped -> {
+                            addPending(streamPending, -1);
+                            return onDequeued(stamped);
+                        })
+                        // 数据流结束或取消时缓冲区中的消息随之丢弃，从待发送数中扣除
+                        .doFinally(signal -> addPending(streamPending, -streamPending.get()));
+            });
+        }
+
+        /**
+         * DISCONNECT 策略下的看门狗：会话有待发送消息却在截止时间内没有任何进展时记一次错过；
+         * 其他策略下返回空流。返回的数据流不发出任何消息，应与会话的其他数据流合并。
+         * 
+         * @return 看门狗数据流
+         */
+        public <T> Flux<T> watchdog () {
+            if (policy != SlowConsumerPolicy.DISCONNECT) {
+                return Flux.empty();
+            }
+            long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+            return Flux.interval(Duration.ofMillis(deadlineMillis))
+                    .doOnNext(tick -> {
+                        if (pending.get() > 0 && System.nanoTime() - lastProgressAt > deadlineNanos) {
+                            miss();
+                        }
+                    })
+                    .thenMany(Flux.empty());
+        }
+
+        private void onDropped (BufferOverflowStrategy strategy) {
+            endpointMeters.dropped.increment();
+            // 逐条数据流溢出时由 guardOrdered 直接断开，不再计入错过截止时间
+            if (strategy == BufferOverflowStrategy.DROP_OLDEST && policy == SlowConsumerPolicy.DISCONNECT) {
+                miss();
+            }
+        }
+
+        private <T> T onDequeued (Stamped<T> stamped) {
+            long now = System.nanoTime();
+            lastProgressAt = now;
+            long lagNanos = now - stamped.enqueuedAt;
+            endpointMeters.lag.record(lagNanos, TimeUnit.NANOSECONDS);
+            if (policy == SlowConsumerPolicy.DISCONNECT) {
+                if (lagNanos > TimeUnit.MILLISECONDS.toNanos(deadlineMillis)) {
+                    miss();
+                } else {
+                    missed.set(0);
+                }
+            }
+            return stamped.frame;
+        }
+
+        private void addPending (AtomicInteger streamPending, int delta) {
+            if (delta == 0) {
+                return;
+            }
+            streamPending.addAndGet(delta);
+            pending.addAndGet(delta);
+            endpointMeters.pending.addAndGet(delta);
+        }
+
+        private void miss () {
+            if (missed.incrementAndGet() >= maxMissedDeadlines) {
+                disconnect(maxMissedDeadlines + " missed deadlines");
+            }
+        }
+
+        private void disconnect (String reason) {
+            if (closed.compareAndSet(false, true)) {
+                endpointMeters.disconnected.increment();
+                logger.info("Closing slow WebSocket session {} on {} after {}",
+                        session.getId(), endpointMeters.endpoint, reason);
+                session.close(CloseStatus.POLICY_VIOLATION).subscribe();
+            }
+        }
+    }
+}
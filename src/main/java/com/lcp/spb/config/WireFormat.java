@@ -0,0 +1,47 @@
+package com.lcp.spb.config;
+
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+/**
+ * WebSocket 消息编码格式
+ * 
+ * <p>通过 WebSocket 子协议（Sec-WebSocket-Protocol）协商，详见 {@link WebSocketCodecs}。
+ * 
+ * @author lcp
+ */
+public enum WireFormat {
+    /** JSON 文本，默认格式 */
+    JSON("json", WebSocketMessage.Type.TEXT),
+    /** CBOR 二进制（RFC 8949） */
+    CBOR("cbor", WebSocketMessage.Type.BINARY),
+    /** Smile 二进制（Jackson 的二进制 JSON） */
+    SMILE("smile", WebSocketMessage.Type.BINARY);
+
+    /** 子协议名称 */
+    private final String subProtocol;
+    /** WebSocket 消息类型 */
+    private final WebSocketMessage.Type messageType;
+
+    WireFormat(String subProtocol, WebSocketMessage.Type messageType) {
+        this.subProtocol = subProtocol;
+        this.messageType = messageType;
+    }
+
+    /**
+     * 获取子协议名称
+     * 
+     * @return 子协议名称
+     */
+    public String getSubProtocol () {
+        return subProtocol;
+    }
+
+    /**
+     * 获取 WebSocket 消息类型
+     * 
+     * @return 文本或二进制
+     */
+    public WebSocketMessage.Type getMessageType () {
+        return messageType;
+    }
+}
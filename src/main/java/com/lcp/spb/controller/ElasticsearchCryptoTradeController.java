@@ -3,18 +3,37 @@ package com.lcp.spb.controller;
 import com.lcp.spb.bean.trade.CryptoTradeInfo;
 import com.lcp.spb.bean.trade.RecentHourTradeSummary;
 import com.lcp.spb.bean.trade.SearchTradesResponse;
+import com.lcp.spb.bean.trade.TradeDistinctUsers;
+import com.lcp.spb.bean.trade.TradeRankResponse;
+import com.lcp.spb.bean.trade.TradeSummaryBreakdown;
+import com.lcp.spb.bean.trade.TradeTicker;
+import com.lcp.spb.bean.trade.TradeWatermark;
+import com.lcp.spb.bean.trade.UserTradeLedger;
 import com.lcp.spb.bean.trade.enums.CryptoCurrency;
 import com.lcp.spb.bean.trade.enums.OrderStatus;
 import com.lcp.spb.bean.trade.enums.OrderType;
+import com.lcp.spb.bean.trade.enums.TradeRankDimension;
 import com.lcp.spb.bean.trade.enums.TradeSide;
 import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import com.lcp.spb.logic.services.TradeDistinctUserService;
+import com.lcp.spb.logic.services.TradeHeavyHitterService;
+import com.lcp.spb.logic.services.TradeLedgerService;
+import com.lcp.spb.logic.services.TradeSummaryStreamService;
+import com.lcp.spb.logic.services.TradeTickerService;
+import com.lcp.spb.logic.services.TradeWatermarkService;
+import java.util.Objects;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -24,7 +43,9 @@ import reactor.core.publisher.Mono;
  * <ul>
  *   <li>交易数据保存：支持新增和更新交易记录</li>
  *   <li>交易数据查询：支持多条件组合查询和分页</li>
- *   <li>交易汇总统计：获取最近一小时的交易汇总信息</li>
+ *   <li>交易汇总统计：获取最近一小时的交易汇总信息，或通过 Server-Sent Events 持续接收</li>
+ *   <li>用户账本：获取用户按币种累计的成交金额、手续费和已实现盈亏</li>
+ *   <li>实时行情：获取按币种、交易所划分的最新价、VWAP 和 24 小时统计</li>
  * </ul>
  * 
  * <p>所有接口均基于响应式编程模型（Reactor），返回 Mono 或 Flux 类型，
@@ -41,6 +62,30 @@ public class ElasticsearchCryptoTradeController extends AbstractController {
   @Autowired
   private ElasticsearchCryptoTradeService elasticsearchCryptoTradeService;
 
+  /** 用户交易账本服务，提供按用户累计的成交金额、手续费和盈亏 */
+  @Autowired
+  private TradeLedgerService tradeLedgerService;
+
+  /** 最新成交时间水位线服务 */
+  @Autowired
+  private TradeWatermarkService tradeWatermarkService;
+
+  /** 交易排行服务，基于写入流实时统计成交金额 Top N */
+  @Autowired
+  private TradeHeavyHitterService tradeHeavyHitterService;
+
+  /** 活跃用户去重计数服务 */
+  @Autowired
+  private TradeDistinctUserService tradeDistinctUserService;
+
+  /** 实时行情服务，基于写入流维护最新价和 VWAP */
+  @Autowired
+  private TradeTickerService tradeTickerService;
+
+  /** 交易汇总 Server-Sent Events 推送服务 */
+  @Autowired
+  private TradeSummaryStreamService tradeSummaryStreamService;
+
   /**
    * 保存交易数据
    * 
@@ -118,6 +163,8 @@ public class ElasticsearchCryptoTradeController extends AbstractController {
    *   <li>交易总金额（totalAmount）</li>
    *   <li>时间窗口（windowStart 和 windowEnd）</li>
    *   <li>是否使用了回退窗口（fallback）</li>
+   *   <li>最新成交时间（latestExecutedAt），来自内存水位线</li>
+   *   <li>活跃用户数（distinctUsers），HyperLogLog 近似值，可能为 null</li>
    * </ul>
    * 
    * <p>回退机制：
@@ -132,4 +179,144 @@ public class ElasticsearchCryptoTradeController extends AbstractController {
   public Mono<RecentHourTradeSummary> recentHourSummary () {
     return elasticsearchCryptoTradeService.recentHourSummary();
   }
+
+  /**
+   * 以 Server-Sent Events 持续推送最近一小时的交易汇总
+   * 
+   * <p>与 WebSocket /ws/trade-summary 使用同一数据源，适用于无法建立 WebSocket 的客户端，
+   * 替代轮询 /summary/recent-hour。每个事件带有递增的 ID；浏览器 EventSource 重连时会自动携带
+   * Last-Event-ID 请求头，服务端从回放环中补发断线期间的事件，超出回放范围时只发送最新汇总。
+   * 
+   * <p>请求方式：GET /es/trades/summary/stream（text/event-stream）
+   * 
+   * @param lastEventId 客户端最后收到的事件 ID，可选，非数字时按首次连接处理
+   * @return Flux 流式返回汇总事件
+   */
+  @GetMapping(value = "/summary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<RecentHourTradeSummary>> summaryStream (
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    Long resumeFrom = null;
+    if (Objects.nonNull(lastEventId)) {
+      try {
+        resumeFrom = Long.valueOf(lastEventId.trim());
+      } catch (NumberFormatException e) {
+        logger.debug("Ignoring malformed Last-Event-ID: {}", lastEventId);
+      }
+    }
+    return tradeSummaryStreamService.stream(resumeFrom);
+  }
+
+  /**
+   * 获取最近一小时按币种和交易所分组的交易汇总
+   * 
+   * <p>时间窗口和回退逻辑与 /summary/recent-hour 一致。
+   * 实时推送请通过 WebSocket 订阅 summary:{SYMBOL} 或 summary:exchange:{exchange} 主题。
+   * 
+   * <p>请求方式：GET /es/trades/summary/recent-hour/breakdown
+   * 
+   * @return Mono 包装的分组汇总对象
+   */
+  @GetMapping("/summary/recent-hour/breakdown")
+  public Mono<TradeSummaryBreakdown> recentHourBreakdown () {
+    return elasticsearchCryptoTradeService.recentHourBreakdown();
+  }
+
+  /**
+   * 获取最新成交时间水位线
+   * 
+   * <p>返回全局及每个币种最近一笔交易的成交时间，直接读取内存，不访问 Elasticsearch。
+   * 客户端可据此自行计算回退窗口（latestExecutedAt 往前推一小时）。
+   * 
+   * <p>请求方式：GET /es/trades/summary/watermark
+   * 
+   * @return Mono 包装的水位线快照
+   */
+  @GetMapping("/summary/watermark")
+  public Mono<TradeWatermark> summaryWatermark () {
+    return Mono.fromSupplier(tradeWatermarkService::snapshot);
+  }
+
+  /**
+   * 获取按成交金额排序的 Top N
+   * 
+   * <p>基于写入流的近似统计，直接读取内存，不访问 Elasticsearch。
+   * 响应中的每个条目都给出了真实值所在的区间，并附带全局误差上界。
+   * 
+   * <p>请求方式：GET /es/trades/summary/top
+   * 
+   * <p>示例请求：
+   * <pre>
+   * GET /es/trades/summary/top?dimension=USER&limit=20&minutes=60
+   * </pre>
+   * 
+   * @param dimension 排行维度（USER、EXCHANGE、SYMBOL），默认为 USER
+   * @param limit 返回条目数，默认为20
+   * @param minutes 时间窗口长度（分钟），默认为60，最大为60
+   * @return Mono 包装的排行结果
+   */
+  @GetMapping("/summary/top")
+  public Mono<TradeRankResponse> summaryTop (
+      @RequestParam(value = "dimension", defaultValue = "USER") TradeRankDimension dimension,
+      @RequestParam(value = "limit", defaultValue = "20") int limit,
+      @RequestParam(value = "minutes", defaultValue = "60") int minutes) {
+    return Mono.fromSupplier(() -> tradeHeavyHitterService.top(dimension, limit, minutes));
+  }
+
+  /**
+   * 获取用户交易账本
+   * 
+   * <p>返回用户按币种累计的成交笔数、成交金额、手续费和已实现盈亏。
+   * 常驻内存的用户直接读取内存账本，其余用户首次访问时从 Elasticsearch 聚合加载。
+   * 
+   * <p>请求方式：GET /es/trades/users/{userId}/ledger
+   * 
+   * @param userId 用户ID，作为路径变量
+   * @return Mono 包装的用户交易账本
+   */
+  @GetMapping("/users/{userId}/ledger")
+  public Mono<UserTradeLedger> userLedger (@PathVariable String userId) {
+    return tradeLedgerService.ledger(userId);
+  }
+
+  /**
+   * 获取最近一段时间的去重活跃用户数
+   * 
+   * <p>基于 HyperLogLog 的近似值，窗口按分钟对齐，支持 1 分钟到 24 小时。
+   * 响应中附带精度和相对标准误差。
+   * 
+   * <p>请求方式：GET /es/trades/summary/distinct-users
+   * 
+   * @param minutes 时间窗口长度（分钟），默认为60，最大为1440
+   * @return Mono 包装的活跃用户数统计对象
+   */
+  @GetMapping("/summary/distinct-users")
+  public Mono<TradeDistinctUsers> summaryDistinctUsers (
+      @RequestParam(value = "minutes", defaultValue = "60") int minutes) {
+    return Mono.fromSupplier(() -> tradeDistinctUserService.recent(minutes));
+  }
+
+  /**
+   * 获取实时行情
+   * 
+   * <p>返回最新成交价、最近一小时 VWAP 以及最近 24 小时最高价、最低价和成交量。
+   * 数据由交易写入流在内存中维护，读取不访问 Elasticsearch。
+   * 实时推送请使用 WebSocket：/ws/ticker。
+   * 
+   * <p>请求方式：GET /es/trades/ticker
+   * 
+   * <p>示例请求：
+   * <pre>
+   * GET /es/trades/ticker?symbol=BTC&exchange=binance
+   * </pre>
+   * 
+   * @param symbol 交易币种，可选，不传则返回所有币种
+   * @param exchange 交易所名称，可选，不传则返回各币种跨交易所的汇总行情
+   * @return Flux 流式返回行情快照
+   */
+  @GetMapping("/ticker")
+  public Flux<TradeTicker> ticker (
+      @RequestParam(value = "symbol", required = false) CryptoCurrency symbol,
+      @RequestParam(value = "exchange", required = false) String exchange) {
+    return Flux.defer(() -> Flux.fromIterable(tradeTickerService.tickers(symbol, exchange)));
+  }
 }
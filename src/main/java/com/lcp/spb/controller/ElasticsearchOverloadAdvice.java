@@ -0,0 +1,43 @@
+package com.lcp.spb.controller;
+
+import com.lcp.spb.logic.resilience.ElasticsearchOverloadException;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Elasticsearch 过载响应处理
+ * 
+ * <p>把 {@link ElasticsearchOverloadException} 转换为 503 Service Unavailable，
+ * 并通过 Retry-After（秒，向上取整，至少 1 秒）告知客户端何时重试。
+ * 响应体为 RFC 7807 格式，附带被拒绝的索引、操作类型和原因，便于排查。
+ * 
+ * @author lcp
+ */
+@RestControllerAdvice
+public class ElasticsearchOverloadAdvice {
+
+  /**
+   * 处理 Elasticsearch 过载异常
+   * 
+   * @param ex 过载异常
+   * @return 503 响应
+   */
+  @ExceptionHandler(ElasticsearchOverloadException.class)
+  public ResponseEntity<ProblemDetail> handleOverload (ElasticsearchOverloadException ex) {
+    long retryAfterSeconds = Math.max(1,
+        TimeUnit.MILLISECONDS.toSeconds(ex.getRetryAfter().toMillis() + 999));
+    ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE,
+        "Elasticsearch is overloaded, retry later");
+    problem.setProperty("index", ex.getIndex());
+    problem.setProperty("operation", ex.getOperation());
+    problem.setProperty("reason", ex.getReason());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+        .body(problem);
+  }
+}
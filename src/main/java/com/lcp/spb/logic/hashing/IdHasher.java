@@ -0,0 +1,170 @@
+package com.lcp.spb.logic.hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * 标识哈希组件
+ *
+ * <p>用于在热点请求路径上对用户 ID 等标识做脱敏（日志、缓存键），避免每次调用都创建摘要对象和逐字节格式化：
+ * <ul>
+ *   <li>摘要对象按线程复用：{@link MessageDigest} 和 {@link Mac} 都不是线程安全的，每个线程各持有一个，
+ *       {@code digest()} / {@code doFinal()} 之后自动重置，可直接复用</li>
+ *   <li>十六进制编码使用 {@link HexFormat}，一次生成结果字符串</li>
+ *   <li>配置了 trade.hash.hmac-key 时 {@link #pseudonymize(String)} 使用 HMAC-SHA256，
+ *       没有密钥就无法由 ID 推算出哈希，防止通过枚举 ID 反查日志</li>
+ *   <li>{@link #pseudonymize(String)} 的结果缓存在定长的直接映射表中（trade.hash.memo-size 个槽，向上取 2 的幂），
+ *       按 ID 的 hashCode 定位槽位，冲突时直接覆盖；命中时不做任何分配，表的大小固定不需要淘汰</li>
+ * </ul>
+ *
+ * @author lcp
+ */
+@Component
+public class IdHasher {
+
+    /** 摘要算法 */
+    private static final String SHA_256 = "SHA-256";
+    /** HMAC 算法 */
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+    /** 十六进制编码（小写） */
+    private static final HexFormat HEX = HexFormat.of();
+
+    /** 每个线程的 SHA-256 摘要 */
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(IdHasher::newSha256);
+
+    /** 每个线程的 HMAC，未配置密钥时为 null */
+    private final ThreadLocal<Mac> hmac;
+
+    /** 直接映射缓存，未开启时为 null */
+    private final AtomicReferenceArray<Memo> memo;
+
+    /** 缓存槽位掩码 */
+    private final int memoMask;
+
+    /**
+     * 根据配置准备 HMAC 和缓存
+     *
+     * @param hmacKey HMAC 密钥，为空时 pseudonymize 退化为 SHA-256
+     * @param memoSize 缓存槽数，0 表示不缓存
+     */
+    public IdHasher (@Value("${trade.hash.hmac-key:}") String hmacKey,
+            @Value("${trade.hash.memo-size:4096}") int memoSize) {
+        if (StringUtils.hasText(hmacKey)) {
+            SecretKeySpec key = new SecretKeySpec(hmacKey.getBytes(StandardCharsets.UTF_8),
+                    HMAC_SHA_256);
+            hmac = ThreadLocal.withInitial(() -> newMac(key));
+            hmac.get();
+        } else {
+            hmac = null;
+        }
+        if (memoSize > 0) {
+            int slots = Integer.highestOneBit(Math.min(memoSize, 1 << 20) * 2 - 1);
+            memo = new AtomicReferenceArray<>(slots);
+            memoMask = slots - 1;
+        } else {
+            memo = null;
+            memoMask = 0;
+        }
+    }
+
+    /**
+     * 是否配置了 HMAC 密钥
+     *
+     * <p>未配置时 {@link #pseudonymize(String)} 的结果任何人都能由 ID 算出，不能用作访问凭据。
+     *
+     * @return 是否使用 HMAC-SHA256
+     */
+    public boolean isKeyed () {
+        return Objects.nonNull(hmac);
+    }
+
+    /**
+     * 计算字符串的 SHA-256 哈希值
+     *
+     * @param value 待计算哈希值的字符串，可以为 null
+     * @return 十六进制字符串（小写），输入为 null 时返回空字符串
+     */
+    public String sha256Hex (String value) {
+        if (Objects.isNull(value)) {
+            return "";
+        }
+        return HEX.formatHex(sha256.get().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 计算标识的脱敏哈希：配置了密钥时为 HMAC-SHA256，否则为 SHA-256，结果经过缓存
+     *
+     * @param id 标识，可以为 null
+     * @return 十六进制字符串（小写），输入为 null 时返回空字符串
+     */
+    public String pseudonymize (String id) {
+        if (Objects.isNull(id)) {
+            return "";
+        }
+        if (Objects.isNull(memo)) {
+            return keyedHex(id);
+        }
+        int slot = spread(id.hashCode()) & memoMask;
+        Memo cached = memo.get(slot);
+        if (Objects.nonNull(cached) && cached.id.equals(id)) {
+            return cached.hash;
+        }
+        String hash = keyedHex(id);
+        memo.set(slot, new Memo(id, hash));
+        return hash;
+    }
+
+    /**
+     * 未经缓存的脱敏哈希
+     */
+    private String keyedHex (String id) {
+        if (Objects.isNull(hmac)) {
+            return sha256Hex(id);
+        }
+        return HEX.formatHex(hmac.get().doFinal(id.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 打散 hashCode 的高位，避免相近的 ID 落到相同槽位
+     */
+    private static int spread (int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static MessageDigest newSha256 () {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Mac newMac (SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA_256);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * 缓存条目
+     *
+     * @param id 标识
+     * @param hash 哈希值
+     */
+    private record Memo(String id, String hash) {
+    }
+}
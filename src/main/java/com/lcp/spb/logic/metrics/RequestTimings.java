@@ -0,0 +1,163 @@
+package com.lcp.spb.logic.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import reactor.util.context.ContextView;
+
+/**
+ * 单个请求的分阶段耗时
+ *
+ * <p>由 Web 过滤器在请求开始时创建并放入 Reactor Context 和请求属性（key 均为 {@link #CONTEXT_KEY}），
+ * 服务层在同一个响应式链路中通过 {@link #from(ContextView)} 取出并记录各阶段耗时，
+ * 响应提交前由过滤器输出为 Server-Timing 请求头。常用阶段：
+ * <ul>
+ *   <li>queue：Elasticsearch 调用在 boundedElastic 上等待线程的时间</li>
+ *   <li>es：客户端观察到的 Elasticsearch 调用时间（含网络和响应反序列化）</li>
+ *   <li>es-took：Elasticsearch 响应中的 took，即服务端执行时间</li>
+ *   <li>hits：把命中结果转换为文档对象的时间</li>
+ * </ul>
+ * 同一阶段多次记录时累加耗时和次数（如分页查询加计数、对冲读取的两次尝试），
+ * Elasticsearch 调用另外保留单次明细，供慢请求日志使用。
+ * 记录可能来自弹性线程池的任意线程，所有方法都是线程安全的。
+ *
+ * @author lcp
+ */
+public final class RequestTimings {
+
+    /** Reactor Context 及请求属性中的 key */
+    public static final String CONTEXT_KEY = RequestTimings.class.getName();
+
+    /** 单个请求最多保留的 Elasticsearch 调用明细数 */
+    private static final int MAX_ES_CALLS = 32;
+
+    /** 请求开始时间（纳秒） */
+    private final long startedAt = System.nanoTime();
+
+    /** 各阶段累计值，按首次记录的顺序输出 */
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /** Elasticsearch 调用明细 */
+    private final List<EsCall> esCalls = new ArrayList<>();
+
+    /** 最近一次阶段结束的时间（纳秒），用于推算之后的渲染时间 */
+    private long lastPhaseEndAt = startedAt;
+
+    /**
+     * 从 Reactor Context 中取出当前请求的耗时记录
+     *
+     * @param context Reactor Context
+     * @return 耗时记录，不在被计时的请求中时为 null
+     */
+    public static RequestTimings from (ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /**
+     * 记录一次阶段耗时
+     *
+     * @param phase 阶段名称，需符合 Server-Timing 的 token 语法（字母、数字、连字符）
+     * @param nanos 耗时（纳秒）
+     */
+    public synchronized void record (String phase, long nanos) {
+        phases.computeIfAbsent(phase, key -> new Phase()).add(nanos);
+        lastPhaseEndAt = Math.max(lastPhaseEndAt, System.nanoTime());
+    }
+
+    /**
+     * 记录一次 Elasticsearch 调用：计入 queue、es、es-took 阶段，并保留单次调用明细
+     *
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param queueNanos 等待线程的时间（纳秒）
+     * @param elapsedNanos 客户端观察到的调用时间（纳秒）
+     * @param tookMillis 响应中的 took（毫秒），响应不带 took 时为 -1
+     * @param success 是否成功
+     */
+    public synchronized void recordEsCall (String index, String operation, long queueNanos,
+            long elapsedNanos, long tookMillis, boolean success) {
+        record("queue", queueNanos);
+        record("es", elapsedNanos);
+        if (tookMillis >= 0) {
+            record("es-took", tookMillis * 1_000_000L);
+        }
+        if (esCalls.size() < MAX_ES_CALLS) {
+            esCalls.add(new EsCall(index, operation, queueNanos, elapsedNanos, tookMillis, success));
+        }
+    }
+
+    /**
+     * 本次请求的 Elasticsearch 调用明细，最多保留 {@value #MAX_ES_CALLS} 条
+     *
+     * @return 调用明细（副本）
+     */
+    public synchronized List<EsCall> esCalls () {
+        return List.copyOf(esCalls);
+    }
+
+    /**
+     * 请求开始到此刻的时间
+     *
+     * @return 耗时（纳秒）
+     */
+    public long elapsedNanos () {
+        return System.nanoTime() - startedAt;
+    }
+
+    /**
+     * 生成 Server-Timing 请求头的值
+     *
+     * <p>在各阶段之后追加 render（最后一个阶段结束到此刻，包括控制器后续处理和响应序列化）
+     * 和 total（请求开始到此刻）。
+     *
+     * @return 请求头的值
+     */
+    public synchronized String toHeader () {
+        long now = System.nanoTime();
+        StringJoiner joiner = new StringJoiner(", ");
+        phases.forEach((name, phase) -> joiner.add(metric(name, phase.nanos, phase.count)));
+        if (!phases.isEmpty()) {
+            joiner.add(metric("render", now - lastPhaseEndAt, 1));
+        }
+        joiner.add(metric("total", now - startedAt, 1));
+        return joiner.toString();
+    }
+
+    /**
+     * 格式化单个指标，次数大于 1 时附带说明
+     */
+    private static String metric (String name, long nanos, int count) {
+        String value = String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / 1_000_000.0);
+        return count > 1 ? value + ";desc=\"" + count + " calls\"" : value;
+    }
+
+    /**
+     * 单次 Elasticsearch 调用
+     *
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param queueNanos 等待线程的时间（纳秒）
+     * @param elapsedNanos 客户端观察到的调用时间（纳秒）
+     * @param tookMillis 响应中的 took（毫秒），-1 表示没有
+     * @param success 是否成功
+     */
+    public record EsCall(String index, String operation, long queueNanos, long elapsedNanos,
+            long tookMillis, boolean success) {
+    }
+
+    /**
+     * 单个阶段的累计值
+     */
+    private static final class Phase {
+        long nanos;
+        int count;
+
+        void add (long value) {
+            nanos += value;
+            count++;
+        }
+    }
+}
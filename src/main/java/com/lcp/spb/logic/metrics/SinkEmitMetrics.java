@@ -0,0 +1,71 @@
+package com.lcp.spb.logic.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Sink 发布结果统计
+ *
+ * <p>推送链路统一使用 {@code tryEmitNext}，失败时不抛异常也不重试，消息被静默丢弃。
+ * 发布方把返回的 {@link Sinks.EmitResult} 交给这里，失败结果按 Sink 名称和失败类型计入
+ * trade.sink.emit.failures：
+ * <ul>
+ *   <li>FAIL_NON_SERIALIZED：多个线程并发发布，说明发布方缺少串行化</li>
+ *   <li>FAIL_OVERFLOW：订阅者消费过慢，缓冲区已满</li>
+ *   <li>FAIL_ZERO_SUBSCRIBER：best-effort 多播没有订阅者，属于正常丢弃</li>
+ *   <li>FAIL_TERMINATED / FAIL_CANCELLED：Sink 已结束</li>
+ * </ul>
+ * Sink 名称应为固定的少量取值（如 trade-summary、topic），不要带主题名或会话 ID。
+ *
+ * @author lcp
+ */
+@Component
+public class SinkEmitMetrics {
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 各（Sink 名称, 失败类型）的计数器，避免每次失败都重新注册 */
+    private final Map<FailureKey, Counter> failures = new ConcurrentHashMap<>();
+
+    /**
+     * 构造发布结果统计
+     *
+     * @param meterRegistry 指标注册表
+     */
+    public SinkEmitMetrics (MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录一次发布结果，成功时不做任何事
+     *
+     * @param sink Sink 名称
+     * @param result 发布结果
+     * @return 原发布结果，便于调用方继续判断
+     */
+    public Sinks.EmitResult record (String sink, Sinks.EmitResult result) {
+        if (result.isFailure()) {
+            failures.computeIfAbsent(new FailureKey(sink, result),
+                    key -> Counter.builder("trade.sink.emit.failures")
+                            .tag("sink", key.sink())
+                            .tag("result", key.result().name())
+                            .register(meterRegistry))
+                    .increment();
+        }
+        return result;
+    }
+
+    /**
+     * 失败计数器键
+     *
+     * @param sink Sink 名称
+     * @param result 失败类型
+     */
+    private record FailureKey(String sink, Sinks.EmitResult result) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.lcp.spb.logic.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发上限（AIMD）
+ * 
+ * <p>根据观察到的延迟调整允许同时在途的请求数：
+ * <ul>
+ *   <li>加性增：请求在延迟阈值内完成，且在途数已接近上限（上限确实是瓶颈）时，
+ *       上限增加 1/limit，即大约每一轮请求增加 1</li>
+ *   <li>乘性减：请求超过延迟阈值或因过载失败时，上限乘以 backoff-ratio</li>
+ * </ul>
+ * 
+ * <p>超出上限的请求由 {@link #tryAcquire()} 立即拒绝，不排队。
+ * 
+ * @author lcp
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** 最小上限 */
+    private final int minLimit;
+    /** 最大上限 */
+    private final int maxLimit;
+    /** 延迟阈值（纳秒），超过视为过载信号 */
+    private final long latencyThresholdNanos;
+    /** 乘性减的系数 */
+    private final double backoffRatio;
+
+    /** 当前上限，只在 synchronized 方法中修改 */
+    private volatile double limit;
+    /** 在途请求数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 构造并发上限
+     * 
+     * @param initialLimit 初始上限
+     * @param minLimit 最小上限
+     * @param maxLimit 最大上限
+     * @param latencyThresholdNanos 延迟阈值（纳秒）
+     * @param backoffRatio 乘性减的系数，取值 (0, 1)
+     */
+    public AdaptiveConcurrencyLimiter (int initialLimit, int minLimit, int maxLimit,
+            long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid limiter settings: min=" + minLimit
+                    + ", max=" + maxLimit + ", backoffRatio=" + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 尝试占用一个并发额度
+     * 
+     * @return 占用成功返回 true，已达到上限返回 false
+     */
+    public boolean tryAcquire () {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求完成，释放额度并根据延迟调整上限
+     * 
+     * @param latencyNanos 请求耗时（纳秒）
+     */
+    public void onSuccess (long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (current * 2 >= limit) {
+            increase();
+        }
+    }
+
+    /**
+     * 请求因过载失败（超时、5xx、429 等），释放额度并降低上限
+     */
+    public void onOverload () {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    /**
+     * 请求被取消或因业务错误失败，只释放额度
+     */
+    public void onIgnore () {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 当前上限
+     * 
+     * @return 当前允许的最大在途数
+     */
+    public int limit () {
+        return (int) limit;
+    }
+
+    /**
+     * 当前在途数
+     * 
+     * @return 在途请求数
+     */
+    public int inFlight () {
+        return inFlight.get();
+    }
+
+    private synchronized void increase () {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+
+    private synchronized void decrease () {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
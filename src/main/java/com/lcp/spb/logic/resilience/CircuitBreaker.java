@@ -0,0 +1,190 @@
+package com.lcp.spb.logic.resilience;
+
+/**
+ * 熔断器
+ * 
+ * <p>状态转换：
+ * <ul>
+ *   <li>CLOSED：正常放行，按最近 window-size 次调用统计失败率；调用数不少于 minimum-calls
+ *       且失败率达到阈值时转为 OPEN</li>
+ *   <li>OPEN：在 open-duration 内直接拒绝所有调用，到期后转为 HALF_OPEN</li>
+ *   <li>HALF_OPEN：只放行 half-open-calls 个探测调用；全部成功转为 CLOSED，任何一个失败重新 OPEN</li>
+ * </ul>
+ * 
+ * <p>状态变化都在 synchronized 方法内完成，调用频率与 Elasticsearch 请求相同，竞争可以忽略。
+ * 
+ * @author lcp
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态，ordinal 用作指标值
+     */
+    public enum State {
+        /** 关闭（正常放行） */
+        CLOSED,
+        /** 半开（放行少量探测调用） */
+        HALF_OPEN,
+        /** 打开（拒绝所有调用） */
+        OPEN
+    }
+
+    /** 失败率阈值，取值 (0, 1] */
+    private final double failureRateThreshold;
+    /** 计算失败率所需的最少调用数 */
+    private final int minimumCalls;
+    /** 打开状态的持续时间（纳秒） */
+    private final long openNanos;
+    /** 半开状态放行的探测调用数 */
+    private final int halfOpenCalls;
+
+    /** 最近调用结果的环形窗口，true 表示失败 */
+    private final boolean[] window;
+    /** 窗口写入位置 */
+    private int position;
+    /** 窗口内的调用数 */
+    private int calls;
+    /** 窗口内的失败数 */
+    private int failures;
+
+    /** 当前状态 */
+    private volatile State state = State.CLOSED;
+    /** 打开状态的结束时间（纳秒） */
+    private long openUntil;
+    /** 半开状态剩余可放行的探测数 */
+    private int probesLeft;
+    /** 半开状态已成功的探测数 */
+    private int probesSucceeded;
+
+    /**
+     * 构造熔断器
+     * 
+     * @param failureRateThreshold 失败率阈值，取值 (0, 1]
+     * @param minimumCalls 计算失败率所需的最少调用数
+     * @param windowSize 统计窗口大小（调用次数）
+     * @param openNanos 打开状态的持续时间（纳秒）
+     * @param halfOpenCalls 半开状态放行的探测调用数
+     */
+    public CircuitBreaker (double failureRateThreshold, int minimumCalls, int windowSize,
+            long openNanos, int halfOpenCalls) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || windowSize < 1
+                || minimumCalls < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.window = new boolean[windowSize];
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * 尝试放行一次调用
+     * 
+     * @param now 当前时间（纳秒）
+     * @return 放行返回 true，拒绝返回 false
+     */
+    public synchronized boolean tryAcquire (long now) {
+        if (state == State.OPEN) {
+            if (now - openUntil < 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesLeft = halfOpenCalls;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesLeft == 0) {
+                return false;
+            }
+            probesLeft--;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次成功调用
+     */
+    public synchronized void onSuccess () {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= halfOpenCalls) {
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * 记录一次失败调用
+     * 
+     * @param now 当前时间（纳秒）
+     */
+    public synchronized void onFailure (long now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && calls >= minimumCalls
+                && failures >= failureRateThreshold * calls) {
+            open(now);
+        }
+    }
+
+    /**
+     * 放行后调用被取消，归还半开状态的探测名额
+     */
+    public synchronized void onIgnore () {
+        if (state == State.HALF_OPEN && probesLeft < halfOpenCalls) {
+            probesLeft++;
+        }
+    }
+
+    /**
+     * 当前状态
+     * 
+     * @return 熔断器状态
+     */
+    public State state () {
+        return state;
+    }
+
+    /**
+     * 距离打开状态结束的剩余时间
+     * 
+     * @param now 当前时间（纳秒）
+     * @return 剩余纳秒数，不处于打开状态时为 0
+     */
+    public synchronized long remainingOpenNanos (long now) {
+        return state == State.OPEN ? Math.max(0, openUntil - now) : 0;
+    }
+
+    private void record (boolean failed) {
+        if (calls == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open (long now) {
+        state = State.OPEN;
+        openUntil = now + openNanos;
+        resetWindow();
+    }
+
+    private void resetWindow () {
+        position = 0;
+        calls = 0;
+        failures = 0;
+    }
+}
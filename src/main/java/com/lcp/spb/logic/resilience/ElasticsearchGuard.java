@@ -0,0 +1,321 @@
+package com.lcp.spb.logic.resilience;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Elasticsearch 调用保护
+ * 
+ * <p>为每个（索引, 操作类型）维护一个 {@link AdaptiveConcurrencyLimiter} 和一个 {@link CircuitBreaker}，
+ * 在请求进入 boundedElastic 线程池之前做准入判断：
+ * <ul>
+ *   <li>熔断器打开时立即拒绝，Retry-After 为熔断器剩余的打开时间</li>
+ *   <li>在途数达到自适应上限时立即拒绝，Retry-After 为 trade.es.limiter.retry-after-ms</li>
+ * </ul>
+ * 被拒绝的请求以 {@link ElasticsearchOverloadException} 结束，不会排队等待，
+ * 因此 Elasticsearch 变慢时堆积的只有上限以内的请求，其余请求快速失败。
+ * 
+ * <p>结果分类：5xx、429、I/O 异常和超时视为过载（降低上限并计入熔断器失败），
+ * 其余 4xx（如 404、409 版本冲突）属于正常的业务结果，按成功处理。
+ * 
+ * <p>指标（按 index、operation 区分）：
+ * <ul>
+ *   <li>trade.es.limit：当前并发上限</li>
+ *   <li>trade.es.in-flight：在途请求数</li>
+ *   <li>trade.es.breaker.state：熔断器状态，0 关闭、1 半开、2 打开</li>
+ *   <li>trade.es.rejected：被拒绝的请求数，reason 为 limit 或 breaker</li>
+ * </ul>
+ * 
+ * @author lcp
+ */
+@Component
+public class ElasticsearchGuard {
+
+    /** 调用状态：等待执行 */
+    private static final int PENDING = 0;
+    /** 调用状态：正在执行，额度在执行结束时释放 */
+    private static final int RUNNING = 1;
+    /** 调用状态：开始执行前已取消，额度已释放 */
+    private static final int CANCELLED = 2;
+
+    /** 日志记录器 */
+    protected Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 是否启用保护，关闭时直接执行调用 */
+    private final boolean enabled;
+
+    /** 初始并发上限 */
+    private final int initialLimit;
+
+    /** 最小并发上限 */
+    private final int minLimit;
+
+    /** 最大并发上限 */
+    private final int maxLimit;
+
+    /** 延迟阈值（毫秒），超过时降低上限 */
+    private final long latencyThresholdMillis;
+
+    /** 降低上限时的乘数 */
+    private final double backoffRatio;
+
+    /** 因并发上限被拒绝时建议的重试等待时间（毫秒） */
+    private final long limitRetryAfterMillis;
+
+    /** 熔断的失败率阈值（百分比） */
+    private final int failureRateThreshold;
+
+    /** 计算失败率所需的最少调用数 */
+    private final int minimumCalls;
+
+    /** 统计失败率的窗口大小（调用次数） */
+    private final int windowSize;
+
+    /** 熔断器打开的持续时间（毫秒） */
+    private final long openMillis;
+
+    /** 半开状态放行的探测调用数 */
+    private final int halfOpenCalls;
+
+    /** 各（索引, 操作类型）的保护状态 */
+    private final Map<GuardKey, Guard> guards = new ConcurrentHashMap<>();
+
+    /**
+     * 构造 Elasticsearch 调用保护
+     * 
+     * @param meterRegistry 指标注册表
+     * @param enabled 是否启用保护，关闭时直接执行调用
+     * @param initialLimit 初始并发上限
+     * @param minLimit 最小并发上限
+     * @param maxLimit 最大并发上限
+     * @param latencyThresholdMillis 延迟阈值（毫秒），超过时降低上限
+     * @param backoffRatio 降低上限时的乘数
+     * @param limitRetryAfterMillis 因并发上限被拒绝时建议的重试等待时间（毫秒）
+     * @param failureRateThreshold 熔断的失败率阈值（百分比）
+     * @param minimumCalls 计算失败率所需的最少调用数
+     * @param windowSize 统计失败率的窗口大小（调用次数）
+     * @param openMillis 熔断器打开的持续时间（毫秒）
+     * @param halfOpenCalls 半开状态放行的探测调用数
+     */
+    public ElasticsearchGuard (MeterRegistry meterRegistry,
+            @Value("${trade.es.guard.enabled:true}") boolean enabled,
+            @Value("${trade.es.limiter.initial-limit:20}") int initialLimit,
+            @Value("${trade.es.limiter.min-limit:2}") int minLimit,
+            @Value("${trade.es.limiter.max-limit:200}") int maxLimit,
+            @Value("${trade.es.limiter.latency-threshold-ms:1000}") long latencyThresholdMillis,
+            @Value("${trade.es.limiter.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${trade.es.limiter.retry-after-ms:1000}") long limitRetryAfterMillis,
+            @Value("${trade.es.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${trade.es.breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${trade.es.breaker.window-size:100}") int windowSize,
+            @Value("${trade.es.breaker.open-ms:10000}") long openMillis,
+            @Value("${trade.es.breaker.half-open-calls:3}") int halfOpenCalls) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.backoffRatio = backoffRatio;
+        this.limitRetryAfterMillis = limitRetryAfterMillis;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.windowSize = windowSize;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * 为一次 Elasticsearch 调用加上准入控制
+     * 
+     * <p>准入判断在订阅时进行，被拒绝时不会执行 action。通过时并发额度一直占用到 action 在执行器中
+     * 实际返回或抛出异常为止，并把延迟和结果反馈给上限与熔断器。订阅者取消（对冲落败、截止时间到达、
+     * 客户端断开）不会提前释放额度，因为阻塞调用仍在弹性线程池中执行，Elasticsearch 仍在处理该请求；
+     * 只有在 action 开始执行之前取消时才立即释放，action 也不再执行。
+     * 
+     * @param <T> 返回值的类型
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param action 实际的阻塞调用
+     * @param executor 执行 action 的方式，通常是在弹性线程池中执行的 fromBlocking
+     * @return 带准入控制的调用
+     */
+    public <T> Mono<T> guard (String index, ElasticsearchOperation operation, Callable<T> action,
+            Function<Callable<T>, Mono<T>> executor) {
+        if (!enabled) {
+            return executor.apply(action);
+        }
+        return Mono.defer(() -> {
+            Guard guard = guardOf(new GuardKey(index, operation));
+            long startedAt = System.nanoTime();
+            if (!guard.breaker.tryAcquire(startedAt)) {
+                return Mono.error(guard.reject(ElasticsearchOverloadException.REASON_BREAKER,
+                        Duration.ofNanos(guard.breaker.remainingOpenNanos(startedAt))));
+            }
+            if (!guard.limiter.tryAcquire()) {
+                guard.breaker.onIgnore();
+                return Mono.error(guard.reject(ElasticsearchOverloadException.REASON_LIMIT,
+                        Duration.ofMillis(limitRetryAfterMillis)));
+            }
+            AtomicInteger state = new AtomicInteger(PENDING);
+            // 先启动执行，再以不传播取消的方式等待结果：取消时不中断执行线程，
+            // 否则被中断的线程会提前结束等待、释放额度，而 Elasticsearch 仍在处理该请求
+            CompletableFuture<T> execution = executor.apply(() -> {
+                if (!state.compareAndSet(PENDING, RUNNING)) {
+                    // 开始执行之前已被取消，额度已在取消时释放
+                    return null;
+                }
+                boolean succeeded = false;
+                Throwable failure = null;
+                try {
+                    T result = action.call();
+                    succeeded = true;
+                    return result;
+                } catch (Throwable error) {
+                    failure = error;
+                    throw error;
+                } finally {
+                    if (succeeded) {
+                        guard.onSuccess(System.nanoTime() - startedAt);
+                    } else {
+                        guard.onError(failure);
+                    }
+                }
+            }).toFuture();
+            return Mono.fromFuture(execution, true).doOnCancel(() -> {
+                if (state.compareAndSet(PENDING, CANCELLED)) {
+                    guard.onCancel();
+                }
+            });
+        });
+    }
+
+    /**
+     * 判断异常是否表示 Elasticsearch 过载或不可用
+     * 
+     * @param error 调用异常
+     * @return 过载返回 true，业务性错误返回 false
+     */
+    static boolean isOverload (Throwable error) {
+        if (error instanceof ElasticsearchException elasticsearchException) {
+            int status = elasticsearchException.status();
+            return status >= 500 || status == 429;
+        }
+        return error instanceof IOException || error instanceof TimeoutException;
+    }
+
+    private Guard guardOf (GuardKey key) {
+        Guard guard = guards.get(key);
+        return Objects.nonNull(guard) ? guard : guards.computeIfAbsent(key, this::newGuard);
+    }
+
+    private Guard newGuard (GuardKey key) {
+        Guard guard = new Guard(key,
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                        TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis), backoffRatio),
+                new CircuitBreaker(failureRateThreshold / 100.0, minimumCalls, windowSize,
+                        TimeUnit.MILLISECONDS.toNanos(openMillis), halfOpenCalls));
+        Tags tags = Tags.of("index", key.index, "operation", key.operation.name());
+        Gauge.builder("trade.es.limit", guard.limiter, AdaptiveConcurrencyLimiter::limit)
+                .tags(tags).register(meterRegistry);
+        Gauge.builder("trade.es.in-flight", guard.limiter, AdaptiveConcurrencyLimiter::inFlight)
+                .tags(tags).register(meterRegistry);
+        Gauge.builder("trade.es.breaker.state", guard.breaker, b -> b.state().ordinal())
+                .tags(tags).register(meterRegistry);
+        guard.rejectedByLimit = Counter.builder("trade.es.rejected").tags(tags)
+                .tag("reason", ElasticsearchOverloadException.REASON_LIMIT)
+                .register(meterRegistry);
+        guard.rejectedByBreaker = Counter.builder("trade.es.rejected").tags(tags)
+                .tag("reason", ElasticsearchOverloadException.REASON_BREAKER)
+                .register(meterRegistry);
+        return guard;
+    }
+
+    /**
+     * 保护状态键
+     * 
+     * @param index 索引名称
+     * @param operation 操作类型
+     */
+    private record GuardKey(String index, ElasticsearchOperation operation) {
+    }
+
+    /**
+     * 单个（索引, 操作类型）的保护状态
+     */
+    private final class Guard {
+
+        private final GuardKey key;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final CircuitBreaker breaker;
+        private Counter rejectedByLimit;
+        private Counter rejectedByBreaker;
+
+        Guard (GuardKey key, AdaptiveConcurrencyLimiter limiter, CircuitBreaker breaker) {
+            this.key = key;
+            this.limiter = limiter;
+            this.breaker = breaker;
+        }
+
+        ElasticsearchOverloadException reject (String reason, Duration retryAfter) {
+            (ElasticsearchOverloadException.REASON_LIMIT.equals(reason) ? rejectedByLimit
+                    : rejectedByBreaker).increment();
+            return new ElasticsearchOverloadException(key.index, key.operation, reason,
+                    retryAfter);
+        }
+
+        void onSuccess (long latencyNanos) {
+            limiter.onSuccess(latencyNanos);
+            CircuitBreaker.State before = breaker.state();
+            breaker.onSuccess();
+            if (before != CircuitBreaker.State.CLOSED
+                    && breaker.state() == CircuitBreaker.State.CLOSED) {
+                logger.info("Elasticsearch circuit closed for {} on {}", key.operation,
+                        key.index);
+            }
+        }
+
+        void onError (Throwable error) {
+            if (!isOverload(error)) {
+                limiter.onIgnore();
+                breaker.onSuccess();
+                return;
+            }
+            limiter.onOverload();
+            CircuitBreaker.State before = breaker.state();
+            breaker.onFailure(System.nanoTime());
+            if (before != CircuitBreaker.State.OPEN
+                    && breaker.state() == CircuitBreaker.State.OPEN) {
+                logger.warn("Elasticsearch circuit opened for {} on {} (limit {}): {}",
+                        key.operation, key.index, limiter.limit(), error.toString());
+            }
+        }
+
+        void onCancel () {
+            limiter.onIgnore();
+            breaker.onIgnore();
+        }
+    }
+}
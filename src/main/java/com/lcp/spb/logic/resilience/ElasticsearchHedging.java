@@ -0,0 +1,202 @@
+package com.lcp.spb.logic.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Elasticsearch 对冲读取
+ * 
+ * <p>幂等的读取（查询、计数、按 ID 读取、聚合）在原请求发出后等待一段时间仍未返回时，
+ * 再发出一个带不同 preference 的相同请求，哪个先返回就用哪个，另一个的结果被丢弃。
+ * 用于削减个别分片变慢或某个节点 GC 停顿造成的长尾延迟。
+ * 
+ * <p>落败的请求只是被取消订阅，Elasticsearch 上的请求不会被中止：它继续执行到返回为止，
+ * 期间仍占用 {@link ElasticsearchGuard} 的并发额度，因此对冲的额外负载会如实反映在并发上限上。
+ * 
+ * <ul>
+ *   <li>等待时间：按（索引, 操作类型）统计最近请求延迟的分位数（默认 p95），不低于 min-delay-ms；
+ *       样本不足时使用 initial-delay-ms</li>
+ *   <li>预算：对冲请求受 {@link RetryBudget} 限制，默认不超过原始请求的 10%，
+ *       Elasticsearch 整体变慢时对冲自动停止</li>
+ *   <li>对冲请求同样经过 {@link ElasticsearchGuard} 的准入控制；对冲请求失败或被拒绝时忽略，以原请求的结果为准</li>
+ * </ul>
+ * 
+ * <p>指标（按 index、operation 区分）：
+ * <ul>
+ *   <li>trade.es.hedge.reads：可对冲的原始读取数</li>
+ *   <li>trade.es.hedge.sent：发出的对冲请求数，与 reads 之比即对冲率</li>
+ *   <li>trade.es.hedge.won：对冲请求先于原请求返回的次数，与 sent 之比即对冲胜率</li>
+ *   <li>trade.es.hedge.budget-exhausted：因预算耗尽而没有发出对冲的次数</li>
+ * </ul>
+ * 
+ * <p>启用条件：配置项 trade.es.hedge.enabled 为 true，关闭时直接执行原请求。
+ * 
+ * @author lcp
+ */
+@Component
+public class ElasticsearchHedging {
+
+    /** 对冲请求 preference 的前缀，后接序号使每次对冲尽量落到不同副本 */
+    private static final String HEDGE_PREFERENCE_PREFIX = "hedge-";
+    /** 延迟统计窗口大小 */
+    private static final int LATENCY_WINDOW = 512;
+    /** 计算分位数所需的最少样本数 */
+    private static final int MINIMUM_SAMPLES = 50;
+
+    /** 指标注册表 */
+    private final MeterRegistry meterRegistry;
+
+    /** 是否启用对冲 */
+    private final boolean enabled;
+
+    /** 触发对冲的延迟分位数 */
+    private final double percentile;
+
+    /** 对冲等待时间的下限（毫秒） */
+    private final long minDelayMillis;
+
+    /** 样本不足时的对冲等待时间（毫秒） */
+    private final long initialDelayMillis;
+
+    /** 每个原始请求存入的预算令牌数 */
+    private final double budgetRatio;
+
+    /** 预算令牌上限 */
+    private final double budgetMaxTokens;
+
+    /** 各（索引, 操作类型）的对冲状态 */
+    private final Map<HedgeKey, Hedge> hedges = new ConcurrentHashMap<>();
+
+    /** 对冲序号 */
+    private final AtomicLong hedgeSeq = new AtomicLong();
+
+    /**
+     * 构造对冲读取
+     * 
+     * @param meterRegistry 指标注册表
+     * @param enabled 是否启用对冲
+     * @param percentile 触发对冲的延迟分位数
+     * @param minDelayMillis 对冲等待时间的下限（毫秒）
+     * @param initialDelayMillis 样本不足时的对冲等待时间（毫秒）
+     * @param budgetRatio 每个原始请求存入的预算令牌数
+     * @param budgetMaxTokens 预算令牌上限
+     */
+    public ElasticsearchHedging (MeterRegistry meterRegistry,
+            @Value("${trade.es.hedge.enabled:false}") boolean enabled,
+            @Value("${trade.es.hedge.percentile:0.95}") double percentile,
+            @Value("${trade.es.hedge.min-delay-ms:10}") long minDelayMillis,
+            @Value("${trade.es.hedge.initial-delay-ms:200}") long initialDelayMillis,
+            @Value("${trade.es.hedge.budget-ratio:0.1}") double budgetRatio,
+            @Value("${trade.es.hedge.budget-max-tokens:10}") double budgetMaxTokens) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.initialDelayMillis = initialDelayMillis;
+        this.budgetRatio = budgetRatio;
+        this.budgetMaxTokens = budgetMaxTokens;
+    }
+
+    /**
+     * 执行可对冲的读取
+     * 
+     * @param <T> 返回值的类型
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param attempt 按 preference 构造一次读取，原请求的 preference 为 null
+     * @return 先返回的读取结果
+     */
+    public <T> Mono<T> read (String index, ElasticsearchOperation operation,
+            Function<String, Mono<T>> attempt) {
+        if (!enabled) {
+            return attempt.apply(null);
+        }
+        return Mono.defer(() -> {
+            Hedge hedge = hedgeOf(new HedgeKey(index, operation));
+            hedge.reads.increment();
+            hedge.budget.deposit();
+            Duration delay = Duration.ofNanos(Math.max(TimeUnit.MILLISECONDS.toNanos(minDelayMillis),
+                    hedge.latency.percentileNanos()));
+            Mono<T> primary = timed(attempt.apply(null), hedge);
+            Mono<T> secondary = Mono.delay(delay)
+                    .flatMap(tick -> {
+                        if (!hedge.budget.tryWithdraw()) {
+                            hedge.budgetExhausted.increment();
+                            return Mono.<T>never();
+                        }
+                        hedge.sent.increment();
+                        return timed(attempt.apply(HEDGE_PREFERENCE_PREFIX
+                                + hedgeSeq.incrementAndGet()), hedge)
+                                .doOnSuccess(value -> hedge.won.increment());
+                    })
+                    .onErrorResume(error -> Mono.never());
+            return Mono.firstWithSignal(primary, secondary);
+        });
+    }
+
+    /**
+     * 记录单次请求的延迟，用于计算对冲等待时间
+     * 
+     * <p>落败被取消的请求记录取消时已等待的时间。它是实际延迟的下界，但不记录的话慢请求会从样本中消失，
+     * 统计出的分位数偏低，对冲越发越多。
+     */
+    private <T> Mono<T> timed (Mono<T> call, Hedge hedge) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return call.doOnSuccess(value -> hedge.latency.record(System.nanoTime() - startedAt))
+                    .doOnCancel(() -> hedge.latency.record(System.nanoTime() - startedAt));
+        });
+    }
+
+    private Hedge hedgeOf (HedgeKey key) {
+        Hedge hedge = hedges.get(key);
+        return Objects.nonNull(hedge) ? hedge : hedges.computeIfAbsent(key, this::newHedge);
+    }
+
+    private Hedge newHedge (HedgeKey key) {
+        Tags tags = Tags.of("index", key.index, "operation", key.operation.name());
+        return new Hedge(
+                new LatencyTracker(percentile, LATENCY_WINDOW, MINIMUM_SAMPLES,
+                        TimeUnit.MILLISECONDS.toNanos(initialDelayMillis)),
+                new RetryBudget(budgetRatio, budgetMaxTokens),
+                Counter.builder("trade.es.hedge.reads").tags(tags).register(meterRegistry),
+                Counter.builder("trade.es.hedge.sent").tags(tags).register(meterRegistry),
+                Counter.builder("trade.es.hedge.won").tags(tags).register(meterRegistry),
+                Counter.builder("trade.es.hedge.budget-exhausted").tags(tags)
+                        .register(meterRegistry));
+    }
+
+    /**
+     * 对冲状态键
+     * 
+     * @param index 索引名称
+     * @param operation 操作类型
+     */
+    private record HedgeKey(String index, ElasticsearchOperation operation) {
+    }
+
+    /**
+     * 单个（索引, 操作类型）的对冲状态
+     * 
+     * @param latency 请求延迟分位数
+     * @param budget 对冲预算
+     * @param reads 原始读取计数
+     * @param sent 对冲请求计数
+     * @param won 对冲胜出计数
+     * @param budgetExhausted 预算耗尽计数
+     */
+    private record Hedge(LatencyTracker latency, RetryBudget budget, Counter reads, Counter sent,
+            Counter won, Counter budgetExhausted) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.lcp.spb.logic.resilience;
+
+/**
+ * Elasticsearch 操作类型
+ * 
+ * <p>并发上限和熔断器按（索引, 操作类型）分别维护，读写之间、不同查询之间互不影响，
+ * 例如聚合查询变慢不会挤占写入的并发额度。操作类型同时用作 trade.es.requests 指标的 operation 标签。
+ * 
+ * @author lcp
+ */
+public enum ElasticsearchOperation {
+    /** 文档查询 */
+    SEARCH,
+    /** 聚合查询（size 为 0，只取聚合结果） */
+    AGGREGATE,
+    /** 计数查询 */
+    COUNT,
+    /** 按 ID 读取 */
+    GET,
+    /** 写入（新建或覆盖） */
+    INDEX,
+    /** 删除 */
+    DELETE
+}
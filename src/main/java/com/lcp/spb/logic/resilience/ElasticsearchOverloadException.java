@@ -0,0 +1,50 @@
+package com.lcp.spb.logic.resilience;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Elasticsearch 过载异常
+ * 
+ * <p>请求在发往 Elasticsearch 之前就被拒绝时抛出：并发已达到当前上限，或熔断器处于打开状态。
+ * 控制器层将其转换为 503 响应，并通过 Retry-After 告知客户端何时重试。
+ * 
+ * @author lcp
+ */
+@Getter
+public class ElasticsearchOverloadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 拒绝原因：并发上限 */
+    public static final String REASON_LIMIT = "limit";
+    /** 拒绝原因：熔断器打开 */
+    public static final String REASON_BREAKER = "breaker";
+
+    /** 索引名称 */
+    private final String index;
+    /** 操作类型 */
+    private final ElasticsearchOperation operation;
+    /** 拒绝原因 */
+    private final String reason;
+    /** 建议的重试等待时间 */
+    private final Duration retryAfter;
+
+    /**
+     * 构造过载异常
+     * 
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param reason 拒绝原因，{@link #REASON_LIMIT} 或 {@link #REASON_BREAKER}
+     * @param retryAfter 建议的重试等待时间
+     */
+    public ElasticsearchOverloadException (String index, ElasticsearchOperation operation,
+            String reason, Duration retryAfter) {
+        super("Elasticsearch " + operation + " on " + index + " rejected: " + reason, null,
+                false, false);
+        this.index = index;
+        this.operation = operation;
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,23 @@
+package com.lcp.spb.logic.resilience;
+
+/**
+ * 可对冲的 Elasticsearch 读取调用
+ * 
+ * <p>对冲请求与原请求内容相同，只是带上不同的 preference，使其尽量落到另一组分片副本上。
+ * 实现方应把参数原样设置到请求的 preference 上；参数为 null 时表示不指定，由 Elasticsearch 自行选择副本。
+ * 
+ * @param <T> 返回值的类型
+ * @author lcp
+ */
+@FunctionalInterface
+public interface ElasticsearchRead<T> {
+
+    /**
+     * 执行读取
+     * 
+     * @param preference 分片副本选择偏好，可以为 null
+     * @return 读取结果
+     * @throws Exception 调用失败
+     */
+    T execute (String preference) throws Exception;
+}
@@ -0,0 +1,68 @@
+package com.lcp.spb.logic.resilience;
+
+import java.util.Arrays;
+
+/**
+ * 滑动窗口延迟分位数
+ * 
+ * <p>在固定大小的环形缓冲区中保存最近的延迟样本，每写入 {@link #REFRESH_EVERY} 个样本重新排序计算一次分位数，
+ * 读取时只是一次 volatile 读。样本不足时返回默认值。
+ * 
+ * @author lcp
+ */
+public class LatencyTracker {
+
+    /** 每写入多少个样本重新计算一次分位数 */
+    static final int REFRESH_EVERY = 32;
+
+    /** 分位数，取值 (0, 1) */
+    private final double percentile;
+    /** 计算分位数所需的最少样本数 */
+    private final int minimumSamples;
+    /** 最近的延迟样本（纳秒） */
+    private final long[] samples;
+    /** 已写入的样本总数 */
+    private long count;
+    /** 当前的分位数（纳秒） */
+    private volatile long current;
+
+    /**
+     * 构造延迟分位数
+     * 
+     * @param percentile 分位数，取值 (0, 1)
+     * @param windowSize 窗口大小（样本数）
+     * @param minimumSamples 计算分位数所需的最少样本数
+     * @param defaultNanos 样本不足时使用的默认值（纳秒）
+     */
+    public LatencyTracker (double percentile, int windowSize, int minimumSamples,
+            long defaultNanos) {
+        this.percentile = percentile;
+        this.samples = new long[windowSize];
+        this.minimumSamples = Math.min(minimumSamples, windowSize);
+        this.current = defaultNanos;
+    }
+
+    /**
+     * 记录一个延迟样本
+     * 
+     * @param latencyNanos 延迟（纳秒）
+     */
+    public synchronized void record (long latencyNanos) {
+        samples[(int) (count % samples.length)] = latencyNanos;
+        count++;
+        if (count == minimumSamples || (count > minimumSamples && count % REFRESH_EVERY == 0)) {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            current = sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+        }
+    }
+
+    /**
+     * 当前分位数
+     * 
+     * @return 分位数（纳秒），样本不足时为默认值
+     */
+    public long percentileNanos () {
+        return current;
+    }
+}
@@ -0,0 +1,52 @@
+package com.lcp.spb.logic.resilience;
+
+/**
+ * 重试预算（令牌桶）
+ * 
+ * <p>每个原始请求存入 ratio 个令牌，每次重试或对冲取出 1 个令牌，令牌数不超过 maxTokens。
+ * 因此长期来看额外请求不超过原始请求的 ratio 倍；Elasticsearch 整体变慢时，
+ * 令牌很快耗尽，对冲自动停止，不会把故障放大。
+ * 
+ * @author lcp
+ */
+public class RetryBudget {
+
+    /** 每个原始请求存入的令牌数 */
+    private final double ratio;
+    /** 令牌上限 */
+    private final double maxTokens;
+    /** 当前令牌数 */
+    private double tokens;
+
+    /**
+     * 构造重试预算
+     * 
+     * @param ratio 每个原始请求存入的令牌数
+     * @param maxTokens 令牌上限，初始时桶是满的
+     */
+    public RetryBudget (double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    /**
+     * 记录一个原始请求，存入令牌
+     */
+    public synchronized void deposit () {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * 尝试为一次重试取出令牌
+     * 
+     * @return 令牌足够返回 true，预算耗尽返回 false
+     */
+    public synchronized boolean tryWithdraw () {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -1,17 +1,31 @@
 package com.lcp.spb.logic.services;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.lcp.spb.logic.metrics.RequestTimings;
+import com.lcp.spb.logic.resilience.ElasticsearchGuard;
+import com.lcp.spb.logic.resilience.ElasticsearchHedging;
+import com.lcp.spb.logic.resilience.ElasticsearchOperation;
+import com.lcp.spb.logic.resilience.ElasticsearchOverloadException;
+import com.lcp.spb.logic.resilience.ElasticsearchRead;
+
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
-import reactor.core.publisher.Flux;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -23,12 +37,19 @@ import reactor.core.scheduler.Schedulers;
  *   <li>Elasticsearch 客户端：用于与 Elasticsearch 集群进行交互</li>
  *   <li>日志记录器：统一的日志记录能力</li>
  *   <li>阻塞调用包装：将同步阻塞操作转换为响应式非阻塞操作</li>
+ *   <li>过载保护：Elasticsearch 调用按索引和操作类型限制并发，并在不可用时熔断</li>
+ *   <li>对冲读取：幂等读取变慢时向其他副本发出对冲请求，削减长尾延迟</li>
+ *   <li>调用计时：每次 Elasticsearch 调用按索引、操作类型和结果记录到 trade.es.requests</li>
  * </ul>
  * 
  * <p>由于 Elasticsearch 客户端是同步阻塞的，而本应用使用响应式编程模型（WebFlux），
  * 因此需要通过 {@link #fromBlocking(Callable)} 方法将阻塞调用包装到弹性线程池中执行，
  * 避免阻塞事件循环线程，保证系统的响应性能。
  * 
+ * <p>Elasticsearch 调用应使用 {@link #fromBlocking(String, ElasticsearchOperation, Callable)}，
+ * 在进入弹性线程池之前经过 {@link ElasticsearchGuard} 的准入控制，过载时快速失败而不是排队；
+ * 幂等的读取使用 {@link #hedgedRead(String, ElasticsearchOperation, ElasticsearchRead)}。
+ * 
  * @author lcp
  */
 public abstract class BaseService {
@@ -40,6 +61,21 @@ public abstract class BaseService {
     @Autowired
     protected ElasticsearchClient elasticsearchClient;
 
+    /** Elasticsearch 调用保护，提供自适应并发上限和熔断 */
+    @Autowired
+    protected ElasticsearchGuard elasticsearchGuard;
+
+    /** Elasticsearch 对冲读取 */
+    @Autowired
+    protected ElasticsearchHedging elasticsearchHedging;
+
+    /** 指标注册表，用于记录 Elasticsearch 调用耗时 */
+    @Autowired
+    protected MeterRegistry meterRegistry;
+
+    /** 各（索引, 操作类型, 结果）的调用计时器，避免每次调用都重新注册 */
+    private final Map<RequestTimerKey, Timer> requestTimers = new ConcurrentHashMap<>();
+
     /**
      * 将阻塞调用包装为响应式 Mono
      * 
@@ -69,21 +105,118 @@ public abstract class BaseService {
     }
 
     /**
-     * 从 Elasticsearch 查询响应中提取命中结果
+     * 将 Elasticsearch 阻塞调用包装为带过载保护的响应式 Mono
+     * 
+     * <p>与 {@link #fromBlocking(Callable)} 相同地在弹性线程池中执行，但在订阅时先经过
+     * （索引, 操作类型）对应的熔断器和并发上限检查。被拒绝时直接以
+     * {@link ElasticsearchOverloadException} 结束，不会占用弹性线程池。
+     * 
+     * <p>计时只覆盖在弹性线程池中实际执行调用的时间，不包含排队等待线程的时间，
+     * 被拒绝的调用也不计入；结果标签为 success 或 error。
+     * 
+     * <p>当前请求带有 {@link RequestTimings} 时，同时记录排队时间（queue）、调用时间（es）
+     * 以及查询响应中的 took（es-took），用于 Server-Timing 请求头和慢请求日志。
+     * 
+     * @param <T> 返回值的类型
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param action 需要执行的 Elasticsearch 调用
+     * @return 包装后的 Mono
+     */
+    protected <T> Mono<T> fromBlocking (String index, ElasticsearchOperation operation,
+            Callable<T> action) {
+        return Mono.deferContextual(context -> {
+            RequestTimings timings = RequestTimings.from(context);
+            long submittedAt = System.nanoTime();
+            return elasticsearchGuard.guard(index, operation, () -> {
+                long startedAt = System.nanoTime();
+                String outcome = "error";
+                T result = null;
+                try {
+                    result = action.call();
+                    outcome = "success";
+                    return result;
+                } finally {
+                    long elapsed = System.nanoTime() - startedAt;
+                    requestTimer(index, operation, outcome)
+                            .record(elapsed, TimeUnit.NANOSECONDS);
+                    if (Objects.nonNull(timings)) {
+                        long took = result instanceof SearchResponse<?> response
+                                ? response.took()
+                                : -1;
+                        timings.recordEsCall(index, operation.name(), startedAt - submittedAt,
+                                elapsed, took, "success".equals(outcome));
+                    }
+                }
+            }, this::fromBlocking);
+        });
+    }
+
+    /**
+     * 获取（索引, 操作类型, 结果）对应的 trade.es.requests 计时器
+     * 
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param outcome 调用结果，success 或 error
+     * @return 计时器
+     */
+    private Timer requestTimer (String index, ElasticsearchOperation operation, String outcome) {
+        return requestTimers.computeIfAbsent(new RequestTimerKey(index, operation, outcome),
+                key -> Timer.builder("trade.es.requests")
+                        .tag("index", key.index())
+                        .tag("operation", key.operation().name())
+                        .tag("outcome", key.outcome())
+                        .register(meterRegistry));
+    }
+
+    /**
+     * 将幂等的 Elasticsearch 读取包装为可对冲的响应式 Mono
+     * 
+     * <p>每次尝试都经过 {@link #fromBlocking(String, ElasticsearchOperation, Callable)} 的过载保护。
+     * 原请求迟迟未返回时，{@link ElasticsearchHedging} 会以不同的 preference 再发出一次相同的请求，
+     * 先返回的结果胜出。只能用于没有副作用的读取（查询、计数、按 ID 读取、聚合）。
+     * 
+     * @param <T> 返回值的类型
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param action 按 preference 执行的读取，应把 preference 设置到请求上
+     * @return 包装后的 Mono
+     */
+    protected <T> Mono<T> hedgedRead (String index, ElasticsearchOperation operation,
+            ElasticsearchRead<T> action) {
+        return elasticsearchHedging.read(index, operation,
+                preference -> fromBlocking(index, operation, () -> action.execute(preference)));
+    }
+
+    /**
+     * 把查询响应中的命中结果转换为文档列表
      * 
-     * <p>通用的方法，用于从 SearchResponse 中提取 hits 列表并转换为 Flux 流。
-     * 如果响应中没有 hits 或 hits 为空，则返回空的 Flux。
+     * <p>响应中没有 hits 时返回空列表，转换结果为 null 的命中会被跳过。当前请求带有 {@link RequestTimings} 时，转换耗时记为 hits 阶段。
      * 
      * @param <T> 文档类型
+     * @param <R> 转换结果类型
      * @param response Elasticsearch 查询响应
-     * @return Flux 流式返回命中结果
+     * @param mapper 单个命中的转换函数
+     * @return Mono 包装的转换结果列表
      */
-    protected <T> Flux<Hit<T>> extractHits (
-            co.elastic.clients.elasticsearch.core.SearchResponse<T> response) {
-        return Flux.fromIterable(
-                Optional.ofNullable(response.hits())
-                        .map(searchHits -> searchHits.hits())
-                        .orElseGet(List::of));
+    protected <T, R> Mono<List<R>> mapHits (
+            SearchResponse<T> response,
+            Function<Hit<T>, R> mapper) {
+        return Mono.deferContextual(context -> {
+            long startedAt = System.nanoTime();
+            List<R> documents = Optional.ofNullable(response.hits())
+                    .map(searchHits -> searchHits.hits())
+                    .orElseGet(List::of)
+                    .stream()
+                    .map(mapper)
+                    .filter(Objects::nonNull)
+                    .toList();
+            RequestTimings timings = RequestTimings.from(context);
+            if (Objects.nonNull(timings)) {
+                timings.record("hits", System.nanoTime() - startedAt);
+            }
+            return Mono.just(documents);
+        });
     }
 
     /**
@@ -111,17 +244,37 @@ public abstract class BaseService {
             T document,
             Function<T, String> getIdFunc,
             BiConsumer<T, String> setIdFunc) {
-        return fromBlocking(() -> elasticsearchClient.index(builder -> {
+        return indexDocument(indexName, document, getIdFunc).map(response -> {
+            setIdFunc.accept(document, response.id());
+            return document;
+        });
+    }
+
+    /**
+     * 通用的索引文档方法，返回原始的 IndexResponse
+     * 
+     * <p>与 {@link #saveDocument(String, Object, Function, BiConsumer)} 相同的写入逻辑，
+     * 但保留 Elasticsearch 的响应，便于调用方根据 {@code result()} 区分新建与覆盖写入。
+     * 
+     * @param <T> 文档类型
+     * @param indexName 索引名称
+     * @param document 要保存的文档对象
+     * @param getIdFunc 从文档中获取ID的函数，如果返回null则自动生成ID
+     * @return Mono 包装的索引响应
+     */
+    protected <T> Mono<IndexResponse> indexDocument (
+            String indexName,
+            T document,
+            Function<T, String> getIdFunc) {
+        return fromBlocking(indexName, ElasticsearchOperation.INDEX,
+                () -> elasticsearchClient.index(builder -> {
             builder.index(indexName).document(document);
             String id = getIdFunc.apply(document);
             if (id != null && !id.isEmpty()) {
                 builder.id(id);
             }
             return builder;
-        })).map(response -> {
-            setIdFunc.accept(document, response.id());
-            return document;
-        });
+        }));
     }
 
     /**
@@ -141,8 +294,9 @@ public abstract class BaseService {
             String id,
             Class<T> documentClass,
             BiConsumer<T, String> setIdFunc) {
-        return fromBlocking(() -> elasticsearchClient.get(
-                g -> g.index(indexName).id(id), documentClass))
+        return hedgedRead(indexName, ElasticsearchOperation.GET,
+                preference -> elasticsearchClient.get(
+                        g -> g.index(indexName).id(id).preference(preference), documentClass))
                 .flatMap(response -> response.found()
                         ? Mono.justOrEmpty(applyId(response.source(), response.id(), setIdFunc))
                         : Mono.empty());
@@ -158,7 +312,8 @@ public abstract class BaseService {
      * @return Mono 包装的布尔值，true 表示删除成功，false 表示文档不存在
      */
     protected Mono<Boolean> deleteDocumentById (String indexName, String id) {
-        return fromBlocking(() -> elasticsearchClient.delete(d -> d.index(indexName).id(id)))
+        return fromBlocking(indexName, ElasticsearchOperation.DELETE,
+                () -> elasticsearchClient.delete(d -> d.index(indexName).id(id)))
                 .map(response -> response.result() == co.elastic.clients.elasticsearch._types.Result.Deleted);
     }
 
@@ -203,4 +358,14 @@ public abstract class BaseService {
         }
         return document;
     }
+
+    /**
+     * 调用计时器键
+     * 
+     * @param index 索引名称
+     * @param operation 操作类型
+     * @param outcome 调用结果
+     */
+    private record RequestTimerKey(String index, ElasticsearchOperation operation, String outcome) {
+    }
 }
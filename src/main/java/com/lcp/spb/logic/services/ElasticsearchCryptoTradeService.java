@@ -3,6 +3,7 @@ package com.lcp.spb.logic.services;
 import com.lcp.spb.bean.trade.CryptoTradeInfo;
 import com.lcp.spb.bean.trade.RecentHourTradeSummary;
 import com.lcp.spb.bean.trade.SearchTradesResponse;
+import com.lcp.spb.bean.trade.TradeSummaryBreakdown;
 import com.lcp.spb.bean.trade.enums.CryptoCurrency;
 import com.lcp.spb.bean.trade.enums.OrderStatus;
 import com.lcp.spb.bean.trade.enums.OrderType;
@@ -69,8 +70,30 @@ public interface ElasticsearchCryptoTradeService {
      * 
      * <p>统计最近一小时内的交易数据，包括交易笔数和总金额。
      * 如果最近一小时没有数据，会自动回退到最近有数据的一小时窗口。
+     * 聚合查询失败时以错误结束，由调用方决定是否兜底。
      * 
      * @return Mono 包装的最近一小时交易汇总对象
      */
     Mono<RecentHourTradeSummary> recentHourSummary ();
+
+    /**
+     * 获取最近一小时按币种和交易所分组的交易汇总
+     * 
+     * <p>与 {@link #recentHourSummary()} 相同，最近一小时没有数据时回退到最近有数据的一小时窗口。
+     * 
+     * @return Mono 包装的分组汇总对象
+     */
+    Mono<TradeSummaryBreakdown> recentHourBreakdown ();
+
+    /**
+     * 获取指定时间窗口内按币种和交易所分组的交易汇总
+     * 
+     * @param windowStart 时间窗口开始时间（毫秒时间戳）
+     * @param windowEnd 时间窗口结束时间（毫秒时间戳）
+     * @param fallback 是否为回退窗口，原样写入结果
+     * @param distinctUsers 是否统计各分组的去重用户数；cardinality 子聚合开销较大，高频推送时应传 false
+     * @return Mono 包装的分组汇总对象
+     */
+    Mono<TradeSummaryBreakdown> summaryBreakdown (long windowStart, long windowEnd, boolean fallback,
+            boolean distinctUsers);
 }
@@ -0,0 +1,30 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.TradeDistinctUsers;
+
+/**
+ * 活跃用户去重计数服务接口
+ *
+ * <p>基于写入流按分钟维护 HyperLogLog，可合并出 1 分钟到 24 小时内任意窗口的活跃用户数。
+ *
+ * @author lcp
+ */
+public interface TradeDistinctUserService {
+
+    /**
+     * 估计指定时间窗口内的去重活跃用户数
+     *
+     * @param windowStart 时间窗口开始时间（毫秒时间戳）
+     * @param windowEnd 时间窗口结束时间（毫秒时间戳）
+     * @return 去重用户数估计值；窗口超出保留范围或早于本实例开始统计的时间时返回 null
+     */
+    Long estimate (long windowStart, long windowEnd);
+
+    /**
+     * 估计最近若干分钟内的去重活跃用户数
+     *
+     * @param minutes 时间窗口长度（分钟），取值范围 [1, 1440]
+     * @return 去重用户数统计对象
+     */
+    TradeDistinctUsers recent (int minutes);
+}
@@ -0,0 +1,25 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.TradeRankResponse;
+import com.lcp.spb.bean.trade.enums.TradeRankDimension;
+
+/**
+ * 交易排行（Heavy Hitter）服务接口
+ *
+ * <p>基于写入流实时维护按用户、交易所、币种统计的成交金额排行，
+ * 内存占用有上界，与不同用户的数量无关。
+ *
+ * @author lcp
+ */
+public interface TradeHeavyHitterService {
+
+    /**
+     * 获取指定维度最近一段时间按成交金额排序的 Top N
+     *
+     * @param dimension 排行维度
+     * @param limit 返回条目数
+     * @param minutes 时间窗口长度（分钟），超出保留范围时按最大值处理
+     * @return 排行结果，包含误差说明
+     */
+    TradeRankResponse top (TradeRankDimension dimension, int limit, int minutes);
+}
@@ -0,0 +1,28 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+
+/**
+ * 交易写入监听器
+ *
+ * <p>{@link ElasticsearchCryptoTradeService#save(CryptoTradeInfo)} 成功写入一笔新交易后，
+ * 会依次回调所有注册为 Spring Bean 的监听器，用于增量维护各类内存统计。
+ *
+ * <p>约定：
+ * <ul>
+ *   <li>只有新建的文档会触发回调，覆盖写入（相同 tradeId 再次保存）不会重复通知</li>
+ *   <li>回调在 Elasticsearch 写入完成的线程上同步执行，实现必须足够轻量且不可阻塞</li>
+ *   <li>单个监听器抛出的异常会被记录并忽略，不影响保存结果和其他监听器</li>
+ * </ul>
+ *
+ * @author lcp
+ */
+public interface TradeIngestListener {
+
+    /**
+     * 新交易写入成功后的回调
+     *
+     * @param tradeInfo 已写入的交易信息，tradeId 已回填
+     */
+    void onTradeSaved (CryptoTradeInfo tradeInfo);
+}
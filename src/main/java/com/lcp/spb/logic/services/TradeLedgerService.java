@@ -0,0 +1,23 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.UserTradeLedger;
+import reactor.core.publisher.Mono;
+
+/**
+ * 用户交易账本服务接口
+ *
+ * <p>提供按用户、按币种的累计成交金额、手续费和已实现盈亏查询。
+ * 账本由交易写入增量维护，冷用户按需从 Elasticsearch 加载。
+ *
+ * @author lcp
+ */
+public interface TradeLedgerService {
+
+    /**
+     * 获取用户交易账本
+     *
+     * @param userId 用户ID
+     * @return Mono 包装的用户账本，用户没有任何交易时返回空账本
+     */
+    Mono<UserTradeLedger> ledger (String userId);
+}
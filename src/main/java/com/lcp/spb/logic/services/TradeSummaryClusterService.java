@@ -0,0 +1,60 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import reactor.core.publisher.Mono;
+
+/**
+ * 交易汇总集群协调服务接口
+ *
+ * <p>多副本部署时，通过 Elasticsearch 中的租约文档选出唯一的汇总计算者（leader）：
+ * leader 执行汇总聚合查询并写入共享的最新汇总文档，其余副本（follower）只读取该文档，
+ * 使聚合查询次数不再随副本数增加。
+ *
+ * @author lcp
+ */
+public interface TradeSummaryClusterService {
+
+    /**
+     * 当前副本的节点 ID
+     *
+     * @return 节点 ID
+     */
+    String nodeId ();
+
+    /**
+     * 当前副本是否持有有效租约
+     *
+     * <p>只读取本地状态，不访问 Elasticsearch。
+     *
+     * @return true 表示当前副本是 leader
+     */
+    boolean isLeader ();
+
+    /**
+     * 获取或续约租约
+     *
+     * <p>租约不存在或已过期时尝试获取，已持有时续约；并发竞争失败不视为错误。
+     *
+     * @return Mono 包装的布尔值，true 表示操作后当前副本持有租约
+     */
+    Mono<Boolean> acquireOrRenew ();
+
+    /**
+     * 发布最新汇总
+     *
+     * <p>只有 leader 会写入共享文档，follower 调用时直接完成。
+     *
+     * @param summary 交易汇总
+     * @return Mono 对象，表示写入完成
+     */
+    Mono<Void> publishLatest (RecentHourTradeSummary summary);
+
+    /**
+     * 读取共享的最新汇总
+     *
+     * <p>只有文档自上次读取后发生变化时才返回，用于 follower 追踪 leader 的写入。
+     *
+     * @return Mono 包装的最新汇总，未变化或文档不存在时为空
+     */
+    Mono<RecentHourTradeSummary> latestIfChanged ();
+}
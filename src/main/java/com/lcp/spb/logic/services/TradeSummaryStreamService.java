@@ -0,0 +1,27 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+/**
+ * 交易汇总 Server-Sent Events 推送服务接口
+ *
+ * <p>为无法使用 WebSocket 的客户端（例如位于会中断 WebSocket 的代理之后）提供与 WebSocket
+ * 相同数据源的汇总推送，替代轮询 /summary/recent-hour。
+ *
+ * @author lcp
+ */
+public interface TradeSummaryStreamService {
+
+    /**
+     * 汇总事件流
+     *
+     * <p>每个事件带有单调递增的 ID。客户端重连时携带 Last-Event-ID，若该 ID 之后的事件仍在回放环中，
+     * 则从断点补发；否则（或首次连接）只发送最近一次汇总，再继续推送新事件。
+     *
+     * @param lastEventId 客户端最后收到的事件 ID，可为 null
+     * @return 汇总事件流
+     */
+    Flux<ServerSentEvent<RecentHourTradeSummary>> stream (Long lastEventId);
+}
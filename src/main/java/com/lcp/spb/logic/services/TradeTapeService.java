@@ -0,0 +1,23 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.TradeTapeEntry;
+import reactor.core.publisher.Flux;
+
+/**
+ * 成交明细（trade tape）服务接口
+ *
+ * <p>把通过 save 写入的新成交实时广播给订阅者，订阅者无需轮询检索接口。
+ *
+ * @author lcp
+ */
+public interface TradeTapeService {
+
+    /**
+     * 新成交数据流
+     *
+     * <p>热数据流：只包含订阅之后写入的成交；订阅者消费过慢时丢弃该订阅者的数据，不影响写入和其他订阅者。
+     *
+     * @return 成交明细数据流
+     */
+    Flux<TradeTapeEntry> stream ();
+}
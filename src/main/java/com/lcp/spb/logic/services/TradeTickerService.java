@@ -0,0 +1,35 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.TradeTicker;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import java.util.List;
+import reactor.core.publisher.Flux;
+
+/**
+ * 实时行情服务接口
+ *
+ * <p>基于交易写入流在内存中维护每个币种、每个交易所的最新价、VWAP 和 24 小时统计，
+ * 读取为内存查找，不访问 Elasticsearch。
+ *
+ * @author lcp
+ */
+public interface TradeTickerService {
+
+    /**
+     * 查询行情快照
+     *
+     * @param symbol 交易币种，可选，为 null 时返回所有币种
+     * @param exchange 交易所名称，可选，为 null 时只返回各币种的汇总行情
+     * @return 行情快照列表
+     */
+    List<TradeTicker> tickers (CryptoCurrency symbol, String exchange);
+
+    /**
+     * 行情推送流
+     *
+     * <p>按固定间隔检查行情是否变化，变化时推送全部行情快照；没有订阅者时不做任何计算。
+     *
+     * @return 行情快照列表的数据流
+     */
+    Flux<List<TradeTicker>> stream ();
+}
@@ -0,0 +1,38 @@
+package com.lcp.spb.logic.services;
+
+import com.lcp.spb.bean.trade.TradeWatermark;
+import reactor.core.publisher.Mono;
+
+/**
+ * 最新成交时间水位线服务接口
+ *
+ * <p>在内存中维护全局及每个币种的最新成交时间，替代按 executedAt 倒序排序的查询。
+ * 水位线只增不减，由交易写入路径更新，启动时通过 max 聚合初始化一次。
+ *
+ * @author lcp
+ */
+public interface TradeWatermarkService {
+
+    /**
+     * 获取全局最新成交时间
+     *
+     * <p>水位线已初始化时直接返回内存值；否则先尝试通过 Elasticsearch 初始化。
+     *
+     * @return Mono 包装的最新成交时间（毫秒时间戳），没有任何交易时返回空 Mono
+     */
+    Mono<Long> latestExecutedAt ();
+
+    /**
+     * 获取当前内存中的全局最新成交时间，不触发任何查询
+     *
+     * @return 最新成交时间（毫秒时间戳），未知时返回 null
+     */
+    Long currentLatestExecutedAt ();
+
+    /**
+     * 获取水位线快照
+     *
+     * @return 包含全局和各币种最新成交时间的快照
+     */
+    TradeWatermark snapshot ();
+}
@@ -1,21 +1,31 @@
 package com.lcp.spb.logic.services.impls;
 
-import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import com.lcp.spb.bean.trade.CryptoTradeInfo;
 import com.lcp.spb.bean.trade.RecentHourTradeSummary;
 import com.lcp.spb.bean.trade.SearchTradesResponse;
+import com.lcp.spb.bean.trade.TradeSummaryBreakdown;
 import com.lcp.spb.bean.trade.enums.CryptoCurrency;
 import com.lcp.spb.bean.trade.enums.OrderStatus;
 import com.lcp.spb.bean.trade.enums.OrderType;
 import com.lcp.spb.bean.trade.enums.TradeSide;
+import com.lcp.spb.logic.resilience.ElasticsearchOperation;
 import com.lcp.spb.logic.services.BaseService;
 import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import com.lcp.spb.logic.services.TradeDistinctUserService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.services.TradeWatermarkService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
@@ -44,9 +54,29 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
     private static final long ONE_HOUR_MILLIS = 60 * 60 * 1000L;
     /** 聚合查询中总金额聚合的键名 */
     private static final String TOTAL_AMOUNT_AGG = "total_amount";
+    /** 分组汇总中按币种分组的聚合键名 */
+    private static final String BY_SYMBOL_AGG = "by_symbol";
+    /** 分组汇总中按交易所分组的聚合键名 */
+    private static final String BY_EXCHANGE_AGG = "by_exchange";
+    /** 分组汇总中去重用户数的聚合键名 */
+    private static final String DISTINCT_USERS_AGG = "distinct_users";
+    /** 按交易所分组时返回的最大分组数 */
+    private static final int MAX_EXCHANGE_BUCKETS = 100;
     /** 分页查询的最大每页记录数，防止查询过大导致性能问题 */
     private static final int MAX_PAGE_SIZE = 1000;
 
+    /** 交易写入监听器，新交易保存成功后依次回调 */
+    @Autowired(required = false)
+    private List<TradeIngestListener> ingestListeners = List.of();
+
+    /** 最新成交时间水位线，用于构造回退窗口 */
+    @Autowired
+    private TradeWatermarkService tradeWatermarkService;
+
+    /** 活跃用户去重计数服务，为汇总补充活跃用户数 */
+    @Autowired
+    private TradeDistinctUserService tradeDistinctUserService;
+
     /**
      * 保存或更新交易文档
      * 
@@ -54,16 +84,46 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
      * 则使用该 ID 作为文档 ID（可用于更新操作）；否则由 Elasticsearch 自动生成。
      * 
      * <p>保存成功后，会将 Elasticsearch 返回的文档 ID 回填到交易对象中，
-     * 便于后续使用。
+     * 便于后续使用。新建的交易还会通知所有 {@link TradeIngestListener}，
+     * 用于增量维护内存中的统计数据。写入前未带 ingestedAt 的交易由服务端填写当前时间，
+     * 内存统计据此判断一笔交易是否已被某次 Elasticsearch 聚合计入。
      * 
      * @param tradeInfo 交易信息对象，包含交易的所有详细信息
      * @return Mono 包装的交易信息对象，包含保存后的 tradeId
      */
     @Override
     public Mono<CryptoTradeInfo> save (CryptoTradeInfo tradeInfo) {
-        return saveDocument(INDEX, tradeInfo,
-                CryptoTradeInfo::getTradeId,
-                CryptoTradeInfo::setTradeId);
+        if (Objects.isNull(tradeInfo.getIngestedAt())) {
+            tradeInfo.setIngestedAt(System.currentTimeMillis());
+        }
+        return indexDocument(INDEX, tradeInfo, CryptoTradeInfo::getTradeId)
+                .map(response -> {
+                    tradeInfo.setTradeId(response.id());
+                    if (response.result() == Result.Created) {
+                        // 只有新建文档才通知监听器，避免覆盖写入导致内存统计重复累加
+                        notifyIngestListeners(tradeInfo);
+                    }
+                    return tradeInfo;
+                });
+    }
+
+    /**
+     * 通知所有交易写入监听器
+     * 
+     * <p>单个监听器的异常只记录日志，不影响保存结果和其他监听器。
+     * 
+     * @param tradeInfo 已写入的交易信息
+     */
+    private void notifyIngestListeners (CryptoTradeInfo tradeInfo) {
+        for (TradeIngestListener listener : ingestListeners) {
+            try {
+                listener.onTradeSaved(tradeInfo);
+            } catch (RuntimeException ex) {
+                logger.warn("Trade ingest listener {} failed for trade {}: {}",
+                        listener.getClass().getSimpleName(), tradeInfo.getTradeId(),
+                        ex.getMessage());
+            }
+        }
     }
 
     /**
@@ -156,8 +216,9 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
      * @return Mono 包装的总记录数，受 MAX_PAGE_SIZE 限制
      */
     private Mono<Long> countTotal (Query filters) {
-        return fromBlocking(
-                () -> elasticsearchClient.count(c -> c.index(INDEX).query(filters)).count())
+        return hedgedRead(INDEX, ElasticsearchOperation.COUNT,
+                preference -> elasticsearchClient.count(
+                        c -> c.index(INDEX).preference(preference).query(filters)).count())
                 .map(count -> Math.min(count, (long) MAX_PAGE_SIZE));
     }
 
@@ -169,17 +230,16 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
      * @return Mono 包装的交易列表
      */
     private Mono<List<CryptoTradeInfo>> searchTrades (Query filters, PageParams pageParams) {
-        return fromBlocking(
-                () -> elasticsearchClient.search(searchRequest -> {
+        return hedgedRead(INDEX, ElasticsearchOperation.SEARCH,
+                preference -> elasticsearchClient.search(searchRequest -> {
                     searchRequest.index(INDEX)
+                            .preference(preference)
                             .from(pageParams.from)
                             .size(pageParams.size)
                             .query(filters);
                     return searchRequest;
                 }, CryptoTradeInfo.class))
-                .flatMapMany(this::extractHits)
-                .map(this::attachIdSafely)
-                .collectList();
+                .flatMap(response -> mapHits(response, this::attachIdSafely));
     }
 
 
@@ -197,11 +257,15 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
      *   <li>计算最近一小时的时间窗口（当前时间往前推一小时）</li>
      *   <li>查询该时间窗口内的交易汇总数据</li>
      *   <li>如果有数据，直接返回</li>
-     *   <li>如果没有数据，查找最近一笔交易的成交时间</li>
+     *   <li>如果没有数据，从内存水位线读取最近一笔交易的成交时间（无需排序查询）</li>
      *   <li>以该时间为结束点，往前推一小时作为回退窗口</li>
      *   <li>查询回退窗口内的交易汇总数据并返回</li>
+     *   <li>附带水位线中的最新成交时间，便于客户端自行判断数据新鲜度</li>
+     *   <li>附带窗口内的去重活跃用户数（HyperLogLog 近似值，超出内存统计范围时为 null）</li>
      * </ol>
      * 
+     * <p>聚合查询失败时返回错误，不以空汇总代替。
+     * 
      * @return Mono 包装的最近一小时交易汇总对象，包含交易笔数、总金额、时间窗口和回退标志
      */
     @Override
@@ -215,17 +279,115 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
                         // 有数据则直接返回
                         return Mono.just(summary);
                     }
-                    // 没有数据则查找最新成交时间，构造回退窗口
-                    return findLatestExecutedAt()
+                    // 没有数据则读取内存水位线中的最新成交时间，构造回退窗口
+                    return tradeWatermarkService.latestExecutedAt()
                             .flatMap(latest -> {
-                                if (Objects.isNull(latest)) {
-                                    // 如果没有任何交易记录，返回空汇总
-                                    return Mono.just(summary);
-                                }
                                 // 以最新交易时间为结束点，往前推一小时作为回退窗口
                                 long fallbackStart = Math.max(0, latest - ONE_HOUR_MILLIS);
                                 return aggregateWindow(fallbackStart, latest, true);
-                            });
+                            })
+                            // 如果没有任何交易记录，返回空汇总
+                            .defaultIfEmpty(summary);
+                })
+                .map(summary -> {
+                    summary.setLatestExecutedAt(
+                            tradeWatermarkService.currentLatestExecutedAt());
+                    summary.setDistinctUsers(tradeDistinctUserService.estimate(
+                            summary.getWindowStart(), summary.getWindowEnd()));
+                    return summary;
+                });
+    }
+
+    /**
+     * 获取最近一小时按币种和交易所分组的交易汇总
+     * 
+     * <p>回退逻辑与 {@link #recentHourSummary()} 一致：最近一小时没有任何分组时，
+     * 以内存水位线中的最新成交时间为结束点往前推一小时重新聚合。
+     * 
+     * <p>不向 Elasticsearch 请求各分组的 cardinality，窗口的去重用户数与 {@link #recentHourSummary()}
+     * 一样来自内存中的 HyperLogLog，各分组的去重用户数为 null。
+     * 
+     * @return Mono 包装的分组汇总对象
+     */
+    @Override
+    public Mono<TradeSummaryBreakdown> recentHourBreakdown () {
+        long now = System.currentTimeMillis();
+        long windowStart = now - ONE_HOUR_MILLIS;
+        return summaryBreakdown(windowStart, now, false, false)
+                .flatMap(breakdown -> {
+                    if (!breakdown.getBySymbol().isEmpty()) {
+                        return Mono.just(breakdown);
+                    }
+                    return tradeWatermarkService.latestExecutedAt()
+                            .flatMap(latest -> summaryBreakdown(
+                                    Math.max(0, latest - ONE_HOUR_MILLIS), latest, true, false))
+                            .defaultIfEmpty(breakdown);
+                })
+                .map(breakdown -> {
+                    breakdown.setDistinctUsers(tradeDistinctUserService.estimate(
+                            breakdown.getWindowStart(), breakdown.getWindowEnd()));
+                    return breakdown;
+                });
+    }
+
+    /**
+     * 获取指定时间窗口内按币种和交易所分组的交易汇总
+     * 
+     * <p>一次查询完成两个 terms 聚合，每个分组带 sum(totalAmount) 子聚合；
+     * distinctUsers 为 true 时再加 cardinality(userId) 子聚合，否则结果中的去重用户数为 null。
+     * 聚合失败时返回空分组，不影响调用方。
+     * 
+     * @param windowStart 时间窗口开始时间（毫秒时间戳）
+     * @param windowEnd 时间窗口结束时间（毫秒时间戳）
+     * @param fallback 是否为回退窗口
+     * @param distinctUsers 是否统计各分组的去重用户数
+     * @return Mono 包装的分组汇总对象
+     */
+    @Override
+    public Mono<TradeSummaryBreakdown> summaryBreakdown (long windowStart, long windowEnd,
+            boolean fallback, boolean distinctUsers) {
+        return hedgedRead(INDEX, ElasticsearchOperation.AGGREGATE,
+                preference -> elasticsearchClient.search(searchRequest -> {
+                    searchRequest.index(INDEX);
+                    searchRequest.preference(preference);
+                    searchRequest.size(0);
+                    searchRequest.query(queryBuilder -> queryBuilder.range(rangeBuilder -> rangeBuilder
+                            .date(dateRange -> dateRange.field("executedAt")
+                                    .gte(String.valueOf(windowStart))
+                                    .lte(String.valueOf(windowEnd)))));
+                    searchRequest.aggregations(BY_SYMBOL_AGG, aggregationBuilder -> {
+                        aggregationBuilder
+                                .terms(terms -> terms.field("symbol").size(CryptoCurrency.values().length))
+                                .aggregations(TOTAL_AMOUNT_AGG,
+                                        sub -> sub.sum(sum -> sum.field("totalAmount")));
+                        if (distinctUsers) {
+                            aggregationBuilder.aggregations(DISTINCT_USERS_AGG,
+                                    sub -> sub.cardinality(card -> card.field("userId")));
+                        }
+                        return aggregationBuilder;
+                    });
+                    searchRequest.aggregations(BY_EXCHANGE_AGG, aggregationBuilder -> {
+                        aggregationBuilder
+                                .terms(terms -> terms.field("exchange").size(MAX_EXCHANGE_BUCKETS))
+                                .aggregations(TOTAL_AMOUNT_AGG,
+                                        sub -> sub.sum(sum -> sum.field("totalAmount")));
+                        if (distinctUsers) {
+                            aggregationBuilder.aggregations(DISTINCT_USERS_AGG,
+                                    sub -> sub.cardinality(card -> card.field("userId")));
+                        }
+                        return aggregationBuilder;
+                    });
+                    return searchRequest;
+                }, CryptoTradeInfo.class))
+                .map(response -> new TradeSummaryBreakdown(windowStart, windowEnd, fallback,
+                        extractBuckets(response, BY_SYMBOL_AGG, windowStart, windowEnd, fallback),
+                        extractBuckets(response, BY_EXCHANGE_AGG, windowStart, windowEnd,
+                                fallback), null))
+                .onErrorResume(ex -> {
+                    logger.warn("Failed to break down trades window {}~{}, fallback={}: {}",
+                            windowStart, windowEnd, fallback, ex.getMessage());
+                    return Mono.just(new TradeSummaryBreakdown(windowStart, windowEnd, fallback,
+                            Map.of(), Map.of(), null));
                 });
     }
 
@@ -349,8 +511,9 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
      * </ul>
      * 
      * <p>异常处理：
-     * 如果聚合查询失败，会记录警告日志并返回空汇总（笔数为0，总金额为0），
-     * 确保系统不会因为查询异常而崩溃。
+     * 聚合查询失败（包括 {@link com.lcp.spb.logic.resilience.ElasticsearchOverloadException}）时原样向上传递错误，
+     * 不以空汇总代替，否则定时任务会把失败当作成功，并向客户端推送全 0 的汇总。
+     * 需要兜底的调用方自行处理，例如 {@link com.lcp.spb.config.TradeSummaryScheduler} 在失败回调中推送空汇总。
      * 
      * @param windowStart 时间窗口开始时间（毫秒时间戳）
      * @param windowEnd 时间窗口结束时间（毫秒时间戳）
@@ -359,32 +522,26 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
      */
     private Mono<RecentHourTradeSummary> aggregateWindow (long windowStart, long windowEnd,
             boolean fallback) {
-        return fromBlocking( () -> elasticsearchClient.search(searchRequest -> {
-            searchRequest.index(INDEX);
-            searchRequest.size(0);
-            searchRequest.trackTotalHits(track -> track.enabled(true));
-            searchRequest.query(queryBuilder -> queryBuilder.range(rangeBuilder -> rangeBuilder
-                    .date(dateRange -> dateRange.field("executedAt")
-                            .gte(String.valueOf(windowStart))
-                            .lte(String.valueOf(windowEnd)))));
-            // sum 聚合计算总成交金额
-            searchRequest.aggregations(TOTAL_AMOUNT_AGG,
-                    aggregationBuilder -> aggregationBuilder.sum(sum -> sum.field("totalAmount")));
-            return searchRequest;
-        }, CryptoTradeInfo.class))
+        return hedgedRead(INDEX, ElasticsearchOperation.AGGREGATE,
+                preference -> elasticsearchClient.search(searchRequest -> {
+                    searchRequest.index(INDEX);
+                    searchRequest.preference(preference);
+                    searchRequest.size(0);
+                    searchRequest.trackTotalHits(track -> track.enabled(true));
+                    searchRequest.query(queryBuilder -> queryBuilder.range(rangeBuilder -> rangeBuilder
+                            .date(dateRange -> dateRange.field("executedAt")
+                                    .gte(String.valueOf(windowStart))
+                                    .lte(String.valueOf(windowEnd)))));
+                    // sum 聚合计算总成交金额
+                    searchRequest.aggregations(TOTAL_AMOUNT_AGG,
+                            aggregationBuilder -> aggregationBuilder.sum(sum -> sum.field("totalAmount")));
+                    return searchRequest;
+                }, CryptoTradeInfo.class))
                 .map(response -> {
                     long totalHits = extractTotalHits(response);
                     BigDecimal totalAmount = extractTotalAmount(response);
                     return new RecentHourTradeSummary(totalHits, totalAmount, windowStart,
                             windowEnd, fallback);
-                })
-                .onErrorResume(ex -> {
-                    // 聚合异常时记录并兜底返回 0
-                    logger.warn("Failed to aggregate trades window {}~{}, fallback={}: {}",
-                            windowStart,
-                            windowEnd, fallback, ex.getMessage());
-                    return Mono.just(new RecentHourTradeSummary(0L, BigDecimal.ZERO, windowStart,
-                            windowEnd, fallback));
                 });
     }
 
@@ -420,34 +577,54 @@ public class ElasticsearchCryptoTradeServiceImpl extends BaseService
     }
 
     /**
-     * 查找最新一笔交易的成交时间
+     * 将 terms 聚合的分组转换为每组的汇总对象
      * 
-     * <p>用于回退机制：当最近一小时没有交易数据时，需要找到最近一笔交易的成交时间，
-     * 以便构造回退窗口进行统计。
+     * @param response 查询响应
+     * @param name terms 聚合名称
+     * @param windowStart 时间窗口开始时间
+     * @param windowEnd 时间窗口结束时间
+     * @param fallback 是否为回退窗口
+     * @return 分组汇总，按文档数降序，缺失时为空
+     */
+    private Map<String, RecentHourTradeSummary> extractBuckets (
+            co.elastic.clients.elasticsearch.core.SearchResponse<CryptoTradeInfo> response,
+            String name, long windowStart, long windowEnd, boolean fallback) {
+        Map<String, RecentHourTradeSummary> result = new LinkedHashMap<>();
+        Optional.ofNullable(response.aggregations())
+                .map(aggs -> aggs.get(name))
+                .filter(Aggregate::isSterms)
+                .map(aggregate -> aggregate.sterms().buckets().array())
+                .orElseGet(List::of)
+                .forEach(bucket -> result.put(bucket.key().stringValue(),
+                        new RecentHourTradeSummary(bucket.docCount(), bucketAmount(bucket),
+                                windowStart, windowEnd, fallback, null,
+                                bucketDistinctUsers(bucket))));
+        return result;
+    }
+
+    /**
+     * 从分组中读取总金额
      * 
-     * <p>查询方式：
-     * <ul>
-     *   <li>按 executedAt 字段倒序排序</li>
-     *   <li>只查询一条记录（size=1）</li>
-     *   <li>提取该记录的 executedAt 字段值</li>
-     * </ul>
+     * @param bucket terms 分组
+     * @return 总金额，缺失时返回 0
+     */
+    private static BigDecimal bucketAmount (StringTermsBucket bucket) {
+        return Optional.ofNullable(bucket.aggregations().get(TOTAL_AMOUNT_AGG))
+                .map(Aggregate::sum)
+                .map(sum -> BigDecimal.valueOf(sum.value()))
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * 从分组中读取去重用户数
      * 
-     * @return Mono 包装的最新成交时间（毫秒时间戳），如果没有交易记录则返回 null
+     * @param bucket terms 分组
+     * @return 去重用户数（ES cardinality 近似值），缺失时返回 null
      */
-    private Mono<Long> findLatestExecutedAt () {
-        return fromBlocking( () -> elasticsearchClient.search(searchRequest -> {
-            searchRequest.index(INDEX)
-                    .size(1)
-                    .sort(sort -> sort.field(fieldSort -> fieldSort.field("executedAt")
-                            .order(SortOrder.Desc)));
-            return searchRequest;
-        }, CryptoTradeInfo.class))
-                .flatMapMany(this::extractHits)
-                .map(Hit::source)
-                .filter(Objects::nonNull)
-                .map(CryptoTradeInfo::getExecutedAt)
-                .filter(Objects::nonNull)
-                .next() // 获取第一个元素，如果没有则返回空 Mono
-                .cast(Long.class);
+    private static Long bucketDistinctUsers (StringTermsBucket bucket) {
+        return Optional.ofNullable(bucket.aggregations().get(DISTINCT_USERS_AGG))
+                .filter(Aggregate::isCardinality)
+                .map(aggregate -> aggregate.cardinality().value())
+                .orElse(null);
     }
 }
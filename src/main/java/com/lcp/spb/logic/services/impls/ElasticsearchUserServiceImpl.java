@@ -1,10 +1,10 @@
 package com.lcp.spb.logic.services.impls;
 
 import com.lcp.spb.bean.EsUser;
+import com.lcp.spb.logic.resilience.ElasticsearchOperation;
 import com.lcp.spb.logic.services.ElasticsearchUserService;
 import com.lcp.spb.logic.services.BaseService;
 import co.elastic.clients.elasticsearch.core.search.Hit;
-import java.util.Objects;
 
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
@@ -24,7 +24,7 @@ import reactor.core.publisher.Mono;
  *   <li>删除用户：根据ID删除文档</li>
  * </ul>
  * 
- * <p>所有操作均通过 {@link BaseService#fromBlocking(Callable)} 方法包装为响应式操作，
+ * <p>所有操作均通过 {@link BaseService#fromBlocking(String, ElasticsearchOperation, Callable)} 方法包装为响应式操作，
  * 确保不会阻塞事件循环线程。
  * 
  * @author lcp
@@ -44,13 +44,12 @@ public class ElasticsearchUserServiceImpl extends BaseService implements Elastic
    */
   @Override
   public Flux<EsUser> findAll () {
-    return fromBlocking( () -> elasticsearchClient.search(
-        searchRequest -> searchRequest.index(INDEX)
+    return hedgedRead(INDEX, ElasticsearchOperation.SEARCH, preference -> elasticsearchClient.search(
+        searchRequest -> searchRequest.index(INDEX).preference(preference)
                 .query(queryBuilder -> queryBuilder.matchAll(matchAll -> matchAll)),
         EsUser.class))
-            .flatMapMany(this::extractHits)
-            .map(this::mapHit)
-            .filter(Objects::nonNull);
+            .flatMap(response -> mapHits(response, this::mapHit))
+            .flatMapIterable(users -> users);
   }
 
 
@@ -0,0 +1,151 @@
+package com.lcp.spb.logic.services.impls;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeDistinctUsers;
+import com.lcp.spb.logic.services.TradeDistinctUserService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.sketch.HyperLogLog;
+import jakarta.annotation.PostConstruct;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * 活跃用户去重计数服务实现类
+ *
+ * <p>实现方式：
+ * <ul>
+ *   <li>保留最近 24 小时共 1440 个分钟桶，每个桶按需分配一个 {@link HyperLogLog}</li>
+ *   <li>写入时按 executedAt 将 userId 记入对应分钟桶</li>
+ *   <li>查询时把窗口覆盖的分钟桶按寄存器取最大值合并，因此窗口边界按分钟对齐</li>
+ * </ul>
+ *
+ * <p>精度与内存：由 trade.distinct-users.precision 控制，每个分钟桶占用 2^precision 字节，
+ * 默认 precision=12 时单桶 4KB、24 小时满载约 5.6MB，相对标准误差约 1.6%。
+ *
+ * <p>只统计本实例启动后写入的交易，窗口早于启动时间时不返回估计值，避免给出偏低的结果。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeDistinctUserServiceImpl implements TradeDistinctUserService, TradeIngestListener {
+
+    /** 保留的分钟桶数量（24 小时） */
+    private static final int RETENTION_MINUTES = 24 * 60;
+    /** 一分钟的毫秒数 */
+    private static final long ONE_MINUTE_MILLIS = 60 * 1000L;
+
+    /** HyperLogLog 精度，越大误差越小、内存越高 */
+    @Value("${trade.distinct-users.precision:12}")
+    private int precision;
+
+    /** 分钟桶环形数组 */
+    private final MinuteSketch[] ring = new MinuteSketch[RETENTION_MINUTES];
+
+    /** 开始统计的时间，早于该时间的窗口数据不完整 */
+    private final long startedAt = System.currentTimeMillis();
+
+    /**
+     * 校验精度并初始化分钟桶
+     */
+    @PostConstruct
+    public void init () {
+        if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalStateException("trade.distinct-users.precision must be in ["
+                    + HyperLogLog.MIN_PRECISION + ", " + HyperLogLog.MAX_PRECISION + "]");
+        }
+        for (int i = 0; i < RETENTION_MINUTES; i++) {
+            ring[i] = new MinuteSketch();
+        }
+    }
+
+    /**
+     * 新交易写入后记录活跃用户
+     *
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        if (!StringUtils.hasText(tradeInfo.getUserId())) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long executedAt = Objects.isNull(tradeInfo.getExecutedAt()) ? now : tradeInfo.getExecutedAt();
+        long minute = Math.min(executedAt, now) / ONE_MINUTE_MILLIS;
+        if (minute <= now / ONE_MINUTE_MILLIS - RETENTION_MINUTES) {
+            return;
+        }
+        ring[(int) (minute % RETENTION_MINUTES)].add(minute, tradeInfo.getUserId(), precision);
+    }
+
+    /**
+     * 估计指定时间窗口内的去重活跃用户数
+     *
+     * @param windowStart 时间窗口开始时间（毫秒时间戳）
+     * @param windowEnd 时间窗口结束时间（毫秒时间戳）
+     * @return 去重用户数估计值，无法估计时返回 null
+     */
+    @Override
+    public Long estimate (long windowStart, long windowEnd) {
+        long nowMinute = System.currentTimeMillis() / ONE_MINUTE_MILLIS;
+        long startMinute = windowStart / ONE_MINUTE_MILLIS;
+        long endMinute = Math.min(windowEnd / ONE_MINUTE_MILLIS, nowMinute);
+        if (windowStart < startedAt || startMinute <= nowMinute - RETENTION_MINUTES
+                || endMinute < startMinute) {
+            return null;
+        }
+        HyperLogLog merged = new HyperLogLog(precision);
+        for (long minute = startMinute; minute <= endMinute; minute++) {
+            ring[(int) (minute % RETENTION_MINUTES)].mergeInto(minute, merged);
+        }
+        return merged.estimate();
+    }
+
+    /**
+     * 估计最近若干分钟内的去重活跃用户数
+     *
+     * @param minutes 时间窗口长度（分钟）
+     * @return 去重用户数统计对象
+     */
+    @Override
+    public TradeDistinctUsers recent (int minutes) {
+        int safeMinutes = Math.min(Math.max(minutes, 1), RETENTION_MINUTES);
+        long now = System.currentTimeMillis();
+        long windowStart = (now / ONE_MINUTE_MILLIS - safeMinutes + 1) * ONE_MINUTE_MILLIS;
+        return new TradeDistinctUsers(windowStart, now, estimate(windowStart, now), precision,
+                HyperLogLog.relativeStandardError(precision));
+    }
+
+    /**
+     * 单个分钟桶
+     *
+     * <p>估计器按需分配，桶被新分钟复用时清空寄存器而不是重新分配。
+     */
+    private static final class MinuteSketch {
+
+        /** 当前桶对应的分钟序号，-1 表示空桶 */
+        private long minute = -1;
+        /** 当前分钟的估计器，首次写入时分配 */
+        private HyperLogLog sketch;
+
+        synchronized void add (long targetMinute, String userId, int precision) {
+            if (targetMinute < minute) {
+                return;
+            }
+            if (Objects.isNull(sketch)) {
+                sketch = new HyperLogLog(precision);
+            } else if (targetMinute > minute) {
+                sketch.clear();
+            }
+            minute = targetMinute;
+            sketch.add(userId);
+        }
+
+        synchronized void mergeInto (long targetMinute, HyperLogLog target) {
+            if (minute == targetMinute && Objects.nonNull(sketch)) {
+                target.merge(sketch);
+            }
+        }
+    }
+}
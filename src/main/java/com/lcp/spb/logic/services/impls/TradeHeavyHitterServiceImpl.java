@@ -0,0 +1,203 @@
+package com.lcp.spb.logic.services.impls;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeRankEntry;
+import com.lcp.spb.bean.trade.TradeRankResponse;
+import com.lcp.spb.bean.trade.enums.TradeRankDimension;
+import com.lcp.spb.logic.services.TradeDistinctUserService;
+import com.lcp.spb.logic.services.TradeHeavyHitterService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.sketch.SpaceSaving;
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 交易排行（Heavy Hitter）服务实现类
+ *
+ * <p>实现方式：
+ * <ul>
+ *   <li>每个维度维护 60 个分钟桶组成的环形数组，每个桶是一个带权重的 {@link SpaceSaving} 摘要，
+ *       以成交金额（totalAmount，缺失时为 price * quantity）作为权重</li>
+ *   <li>写入时按 executedAt 落入对应分钟桶，超出保留范围的过期交易直接忽略</li>
+ *   <li>查询时复制窗口内的分钟桶并合并，窗口滑动时旧分钟整体过期，实现按时间衰减</li>
+ * </ul>
+ *
+ * <p>内存上界：维度数 × 60 × trade.top.capacity 个计数器，与不同用户数量无关。
+ * 每个桶以自身为锁，不同维度、不同分钟之间互不阻塞。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeHeavyHitterServiceImpl implements TradeHeavyHitterService, TradeIngestListener {
+
+    /** 保留的分钟桶数量，即支持的最大窗口长度（分钟） */
+    private static final int WINDOW_MINUTES = 60;
+    /** 一分钟的毫秒数 */
+    private static final long ONE_MINUTE_MILLIS = 60 * 1000L;
+
+    /** 每个分钟桶保留的计数器数量，越大误差越小、内存越高 */
+    @Value("${trade.top.capacity:512}")
+    private int capacity;
+
+    /** 活跃用户去重计数服务，为排行结果补充活跃用户数 */
+    @Autowired
+    private TradeDistinctUserService tradeDistinctUserService;
+
+    /** 每个维度的分钟桶环形数组 */
+    private final Map<TradeRankDimension, MinuteBucket[]> buckets =
+            new EnumMap<>(TradeRankDimension.class);
+
+    /**
+     * 初始化各维度的分钟桶
+     */
+    @PostConstruct
+    public void init () {
+        for (TradeRankDimension dimension : TradeRankDimension.values()) {
+            MinuteBucket[] ring = new MinuteBucket[WINDOW_MINUTES];
+            for (int i = 0; i < WINDOW_MINUTES; i++) {
+                ring[i] = new MinuteBucket(capacity);
+            }
+            buckets.put(dimension, ring);
+        }
+    }
+
+    /**
+     * 新交易写入后更新各维度的分钟桶
+     *
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        BigDecimal notional = notionalOf(tradeInfo);
+        if (Objects.isNull(notional)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long executedAt = Objects.isNull(tradeInfo.getExecutedAt()) ? now : tradeInfo.getExecutedAt();
+        long minute = Math.min(executedAt, now) / ONE_MINUTE_MILLIS;
+        if (minute <= now / ONE_MINUTE_MILLIS - WINDOW_MINUTES) {
+            return;
+        }
+        double weight = notional.doubleValue();
+        offer(TradeRankDimension.USER, minute, tradeInfo.getUserId(), weight);
+        offer(TradeRankDimension.EXCHANGE, minute, tradeInfo.getExchange(), weight);
+        if (Objects.nonNull(tradeInfo.getSymbol())) {
+            offer(TradeRankDimension.SYMBOL, minute, tradeInfo.getSymbol().name(), weight);
+        }
+    }
+
+    /**
+     * 获取指定维度最近一段时间按成交金额排序的 Top N
+     *
+     * @param dimension 排行维度
+     * @param limit 返回条目数
+     * @param minutes 时间窗口长度（分钟）
+     * @return 排行结果
+     */
+    @Override
+    public TradeRankResponse top (TradeRankDimension dimension, int limit, int minutes) {
+        int safeMinutes = Math.min(Math.max(minutes, 1), WINDOW_MINUTES);
+        int safeLimit = Math.min(Math.max(limit, 1), capacity);
+        long now = System.currentTimeMillis();
+        long nowMinute = now / ONE_MINUTE_MILLIS;
+        long firstMinute = nowMinute - safeMinutes + 1;
+
+        List<SpaceSaving> snapshots = new ArrayList<>(safeMinutes);
+        for (MinuteBucket bucket : buckets.get(dimension)) {
+            SpaceSaving snapshot = bucket.snapshotIfWithin(firstMinute, nowMinute);
+            if (Objects.nonNull(snapshot)) {
+                snapshots.add(snapshot);
+            }
+        }
+        double total = 0;
+        for (SpaceSaving snapshot : snapshots) {
+            total += snapshot.getTotalWeight();
+        }
+        SpaceSaving merged = SpaceSaving.merge(snapshots, capacity);
+        List<TradeRankEntry> entries = new ArrayList<>(safeLimit);
+        for (SpaceSaving.Counter counter : merged.top(safeLimit)) {
+            entries.add(new TradeRankEntry(
+                    counter.getKey(),
+                    BigDecimal.valueOf(counter.getCount()),
+                    BigDecimal.valueOf(counter.getError()),
+                    BigDecimal.valueOf(Math.max(0, counter.getCount() - counter.getError()))));
+        }
+        long windowStart = firstMinute * ONE_MINUTE_MILLIS;
+        return new TradeRankResponse(dimension, windowStart, now, BigDecimal.valueOf(total),
+                capacity, BigDecimal.valueOf(total / capacity), entries,
+                tradeDistinctUserService.estimate(windowStart, now));
+    }
+
+    /**
+     * 写入某个维度的分钟桶
+     *
+     * @param dimension 维度
+     * @param minute 分钟序号
+     * @param key 维度取值
+     * @param weight 成交金额
+     */
+    private void offer (TradeRankDimension dimension, long minute, String key, double weight) {
+        if (Objects.isNull(key) || key.isEmpty()) {
+            return;
+        }
+        buckets.get(dimension)[(int) (minute % WINDOW_MINUTES)].offer(minute, key, weight);
+    }
+
+    /**
+     * 计算交易的成交金额
+     *
+     * @param tradeInfo 交易信息
+     * @return 成交金额，无法计算时返回 null
+     */
+    private BigDecimal notionalOf (CryptoTradeInfo tradeInfo) {
+        if (Objects.nonNull(tradeInfo.getTotalAmount())) {
+            return tradeInfo.getTotalAmount();
+        }
+        if (Objects.nonNull(tradeInfo.getPrice()) && Objects.nonNull(tradeInfo.getQuantity())) {
+            return tradeInfo.getPrice().multiply(tradeInfo.getQuantity());
+        }
+        return null;
+    }
+
+    /**
+     * 单个分钟桶
+     *
+     * <p>桶被复用：写入的分钟比当前桶新时先清空；比当前桶旧（已过期）时丢弃。
+     */
+    private static final class MinuteBucket {
+
+        /** 计数器数量 */
+        private final int capacity;
+        /** 当前桶对应的分钟序号，-1 表示空桶 */
+        private long minute = -1;
+        /** 当前分钟的摘要 */
+        private SpaceSaving sketch;
+
+        MinuteBucket(int capacity) {
+            this.capacity = capacity;
+            this.sketch = new SpaceSaving(capacity);
+        }
+
+        synchronized void offer (long targetMinute, String key, double weight) {
+            if (targetMinute > minute) {
+                minute = targetMinute;
+                sketch = new SpaceSaving(capacity);
+            } else if (targetMinute < minute) {
+                return;
+            }
+            sketch.offer(key, weight);
+        }
+
+        synchronized SpaceSaving snapshotIfWithin (long fromMinute, long toMinute) {
+            return minute >= fromMinute && minute <= toMinute ? sketch.copy() : null;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.lcp.spb.logic.services.impls;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.UserSymbolLedger;
+import com.lcp.spb.bean.trade.UserTradeLedger;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.resilience.ElasticsearchOperation;
+import com.lcp.spb.logic.services.BaseService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.services.TradeLedgerService;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * 用户交易账本服务实现类
+ *
+ * <p>在内存中按用户维护各币种的累计成交笔数、成交金额、手续费和已实现盈亏：
+ * <ul>
+ *   <li>增量维护：作为 {@link TradeIngestListener}，每笔新交易写入后更新已常驻内存的用户</li>
+ *   <li>懒加载：不在内存中的用户首次读取时，通过按 userId 过滤、按 symbol 分桶的 sum 聚合从
+ *       Elasticsearch 加载，同一用户的并发加载只会发起一次查询</li>
+ *   <li>淘汰：放入新用户后常驻用户数超过 trade.ledger.max-users 时立即淘汰，按 CLOCK 近似 LRU：
+ *       按放入顺序检查，自上次检查以来被读取过的用户放回队尾，否则淘汰；内存上界固定，不需要排序</li>
+ * </ul>
+ *
+ * <p>一致性说明：
+ * 加载时以 cutoff = 当前时间 - trade.ledger.settle-ms 为界，聚合只统计 ingestedAt 早于 cutoff 的交易
+ * （settle-ms 需大于 Elasticsearch 的刷新间隔，这部分交易已可被搜索到）。
+ * 不早于 cutoff 的交易由内存补齐：最近 settle-ms 内写入的交易按用户暂存，加载期间写入的交易也进入暂存，
+ * 加载完成后与放入内存在同一个原子操作中回放，因此不会漏算，也不会与聚合结果重复计数。
+ * 写入耗时超过 settle-ms 的交易在加载时可能尚未可见，这种情况下会少算，直到该用户被淘汰后重新加载。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeLedgerServiceImpl extends BaseService
+        implements TradeLedgerService, TradeIngestListener {
+
+    /** Elasticsearch 索引名称，用于存储加密货币交易数据 */
+    private static final String INDEX = "crypto-trade-info";
+    /** 按币种分桶的聚合键名 */
+    private static final String BY_SYMBOL_AGG = "by_symbol";
+    /** 成交金额求和聚合键名 */
+    private static final String VOLUME_AGG = "volume";
+    /** 手续费求和聚合键名 */
+    private static final String FEES_AGG = "fees";
+    /** 已实现盈亏求和聚合键名 */
+    private static final String PNL_AGG = "realized_pnl";
+
+    /** 常驻内存的最大用户数，超过后立即淘汰 */
+    private final int maxResidentUsers;
+
+    /** 加载时聚合结果的对账窗口（毫秒），须大于 Elasticsearch 刷新间隔 */
+    private final long settleMillis;
+
+    /** 常驻内存的用户账本，key 为 userId */
+    private final Map<String, LedgerEntry> residentLedgers = new ConcurrentHashMap<>();
+
+    /** 常驻用户的 CLOCK 队列，按放入顺序排列，每个常驻用户恰好出现一次 */
+    private final Queue<String> residencyOrder = new ConcurrentLinkedQueue<>();
+
+    /** 正在从 Elasticsearch 加载的用户，用于合并同一用户的并发加载请求 */
+    private final Map<String, Mono<LedgerEntry>> loadingLedgers = new ConcurrentHashMap<>();
+
+    /** 按用户暂存最近 settle-ms 内及加载期间写入的交易，按写入顺序排列，只在 compute 中读写 */
+    private final Map<String, Deque<CryptoTradeInfo>> recentTrades = new ConcurrentHashMap<>();
+
+    /**
+     * 构造账本服务
+     *
+     * @param maxResidentUsers 常驻内存的最大用户数
+     * @param settleMillis 加载时的对账窗口（毫秒）
+     */
+    public TradeLedgerServiceImpl (@Value("${trade.ledger.max-users:10000}") int maxResidentUsers,
+            @Value("${trade.ledger.settle-ms:2000}") long settleMillis) {
+        this.maxResidentUsers = maxResidentUsers;
+        this.settleMillis = settleMillis;
+    }
+
+    /**
+     * 获取用户交易账本
+     *
+     * <p>命中内存时直接返回快照；否则从 Elasticsearch 聚合加载并放入内存。
+     *
+     * @param userId 用户ID
+     * @return Mono 包装的用户账本
+     */
+    @Override
+    public Mono<UserTradeLedger> ledger (String userId) {
+        LedgerEntry resident = residentLedgers.get(userId);
+        if (Objects.nonNull(resident)) {
+            return Mono.just(resident.snapshot(userId, true));
+        }
+        return loadingLedgers.computeIfAbsent(userId, this::loadFromElasticsearch)
+                .map(entry -> entry.snapshot(userId, false));
+    }
+
+    /**
+     * 新交易写入后增量更新账本
+     *
+     * <p>交易先进入该用户的暂存，供之后 settle-ms 内的加载对账；用户已常驻内存时同时累加。
+     * 暂存与常驻检查在同一个 compute 中完成，与加载完成时的回放互斥。
+     *
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        if (!StringUtils.hasText(tradeInfo.getUserId()) || Objects.isNull(tradeInfo.getSymbol())) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        recentTrades.compute(tradeInfo.getUserId(), (userId, trades) -> {
+            Deque<CryptoTradeInfo> pending = Objects.isNull(trades) ? new ArrayDeque<>() : trades;
+            prune(userId, pending, now);
+            pending.addLast(tradeInfo);
+            LedgerEntry entry = residentLedgers.get(userId);
+            if (Objects.nonNull(entry)) {
+                entry.apply(tradeInfo);
+            }
+            return pending;
+        });
+    }
+
+    /**
+     * 定时清理暂存中超出对账窗口的交易
+     */
+    @Scheduled(fixedDelayString = "${trade.ledger.settle-ms:2000}")
+    public void pruneRecentTrades () {
+        long now = System.currentTimeMillis();
+        for (String userId : recentTrades.keySet()) {
+            recentTrades.computeIfPresent(userId, (key, trades) -> {
+                prune(key, trades, now);
+                return trades.isEmpty() ? null : trades;
+            });
+        }
+    }
+
+    /**
+     * 从 Elasticsearch 加载用户账本并放入内存
+     *
+     * <p>返回的 Mono 会被缓存，加载完成（无论成功失败）后从加载表中移除。
+     *
+     * @param userId 用户ID
+     * @return 缓存的加载 Mono
+     */
+    private Mono<LedgerEntry> loadFromElasticsearch (String userId) {
+        long cutoff = System.currentTimeMillis() - settleMillis;
+        return queryLedger(userId, cutoff)
+                .map(response -> toLedgerEntry(response, cutoff))
+                .map(loaded -> install(userId, loaded))
+                .doFinally(signal -> loadingLedgers.remove(userId))
+                .cache();
+    }
+
+    /**
+     * 按币种聚合用户在 cutoff 之前写入的交易
+     *
+     * @param userId 用户ID
+     * @param cutoff 写入时间上界（毫秒，不含），没有 ingestedAt 的历史交易总是计入
+     * @return 聚合查询响应
+     */
+    Mono<SearchResponse<CryptoTradeInfo>> queryLedger (String userId, long cutoff) {
+        return hedgedRead(INDEX, ElasticsearchOperation.AGGREGATE,
+                preference -> elasticsearchClient.search(searchRequest -> {
+                    searchRequest.index(INDEX);
+                    searchRequest.preference(preference);
+                    searchRequest.size(0);
+                    searchRequest.query(queryBuilder -> queryBuilder.bool(bool -> bool
+                            .filter(filter -> filter.term(
+                                    term -> term.field("userId").value(v -> v.stringValue(userId))))
+                            .filter(filter -> filter.bool(settled -> settled
+                                    .should(should -> should.range(range -> range.number(
+                                            number -> number.field("ingestedAt").lt((double) cutoff))))
+                                    .should(should -> should.bool(legacy -> legacy.mustNot(
+                                            mustNot -> mustNot.exists(exists -> exists.field("ingestedAt")))))))));
+                    searchRequest.aggregations(BY_SYMBOL_AGG, aggregationBuilder -> aggregationBuilder
+                            .terms(terms -> terms.field("symbol").size(CryptoCurrency.values().length))
+                            .aggregations(VOLUME_AGG, sub -> sub.sum(sum -> sum.field("totalAmount")))
+                            .aggregations(FEES_AGG, sub -> sub.sum(sum -> sum.field("fee")))
+                            .aggregations(PNL_AGG, sub -> sub.sum(sum -> sum.field("realizedPnl"))));
+                    return searchRequest;
+                }, CryptoTradeInfo.class));
+    }
+
+    /**
+     * 回放暂存的交易并放入内存
+     *
+     * <p>与 {@link #onTradeSaved(CryptoTradeInfo)} 在同一个 compute 中互斥：
+     * 之前写入的交易在这里回放，之后写入的交易直接累加到已放入的账本，每笔只计一次。
+     *
+     * @param userId 用户ID
+     * @param loaded 从聚合结果构建的账本
+     * @return 内存中的账本，加载期间已有其他路径放入时保留先到者
+     */
+    private LedgerEntry install (String userId, LedgerEntry loaded) {
+        LedgerEntry[] installed = new LedgerEntry[1];
+        recentTrades.compute(userId, (key, trades) -> {
+            LedgerEntry existing = residentLedgers.putIfAbsent(key, loaded);
+            if (Objects.nonNull(existing)) {
+                installed[0] = existing;
+                return trades;
+            }
+            if (Objects.nonNull(trades)) {
+                trades.forEach(loaded::apply);
+            }
+            installed[0] = loaded;
+            return trades;
+        });
+        if (installed[0] == loaded) {
+            // 新放入的用户先获得一次机会，避免刚加载就被淘汰
+            loaded.referenced = true;
+            residencyOrder.add(userId);
+            evictOverflow();
+        }
+        return installed[0];
+    }
+
+    /**
+     * 常驻用户数超过上限时按 CLOCK 淘汰
+     *
+     * <p>每个用户最多被放回一次就会被再次检查到，因此最多遍历两轮队列即可淘汰足够的用户。
+     */
+    private void evictOverflow () {
+        int evicted = 0;
+        while (residentLedgers.size() > maxResidentUsers) {
+            String candidate = residencyOrder.poll();
+            if (Objects.isNull(candidate)) {
+                break;
+            }
+            LedgerEntry entry = residentLedgers.get(candidate);
+            if (Objects.isNull(entry)) {
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                residencyOrder.add(candidate);
+                continue;
+            }
+            residentLedgers.remove(candidate, entry);
+            evicted++;
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} cold ledgers, resident {}", evicted, residentLedgers.size());
+        }
+    }
+
+    /**
+     * 移除暂存中超出对账窗口的交易；用户正在加载时保留，加载完成后再回放
+     *
+     * @param userId 用户ID
+     * @param trades 用户的暂存交易
+     * @param now 当前时间（毫秒）
+     */
+    private void prune (String userId, Deque<CryptoTradeInfo> trades, long now) {
+        if (loadingLedgers.containsKey(userId)) {
+            return;
+        }
+        // 保留两倍窗口，覆盖 cutoff 计算与加载完成之间的时间
+        long expireBefore = now - 2 * settleMillis;
+        while (!trades.isEmpty() && ingestedAt(trades.peekFirst()) < expireBefore) {
+            trades.pollFirst();
+        }
+    }
+
+    /**
+     * 将聚合响应转换为账本条目
+     *
+     * @param response 聚合查询响应
+     * @param cutoff 聚合统计的写入时间上界
+     * @return 账本条目
+     */
+    private LedgerEntry toLedgerEntry (SearchResponse<CryptoTradeInfo> response, long cutoff) {
+        LedgerEntry entry = new LedgerEntry(cutoff);
+        Optional.ofNullable(response.aggregations())
+                .map(aggs -> aggs.get(BY_SYMBOL_AGG))
+                .filter(Aggregate::isSterms)
+                .map(aggregate -> aggregate.sterms().buckets().array())
+                .orElseGet(List::of)
+                .forEach(bucket -> entry.load(bucket));
+        return entry;
+    }
+
+    /**
+     * 从聚合子结果中读取 sum 值
+     *
+     * @param bucket 币种分桶
+     * @param name 子聚合名称
+     * @return 求和结果，缺失时返回 0
+     */
+    private static BigDecimal sumOf (StringTermsBucket bucket, String name) {
+        return Optional.ofNullable(bucket.aggregations().get(name))
+                .map(Aggregate::sum)
+                .map(sum -> BigDecimal.valueOf(sum.value()))
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * 交易的写入时间，缺失时视为最早
+     *
+     * @param tradeInfo 交易信息
+     * @return 写入时间（毫秒）
+     */
+    private static long ingestedAt (CryptoTradeInfo tradeInfo) {
+        return Objects.isNull(tradeInfo.getIngestedAt()) ? Long.MIN_VALUE : tradeInfo.getIngestedAt();
+    }
+
+    /**
+     * 空值安全的 BigDecimal 取值
+     *
+     * @param value 原始值
+     * @return 原始值，null 时返回 0
+     */
+    private static BigDecimal orZero (BigDecimal value) {
+        return Objects.isNull(value) ? BigDecimal.ZERO : value;
+    }
+
+    /**
+     * 单个用户的内存账本
+     *
+     * <p>以对象自身作为锁，写入与快照互斥；不同用户之间互不影响，没有全局锁。
+     */
+    private static final class LedgerEntry {
+
+        /** 按币种划分的累计值 */
+        private final Map<CryptoCurrency, SymbolTotals> totals = new EnumMap<>(CryptoCurrency.class);
+        /** 聚合结果已统计的写入时间上界，写入时间早于它的交易不再回放 */
+        private final long cutoff;
+        /** 自上次 CLOCK 检查以来是否被读取过 */
+        private volatile boolean referenced;
+        /** 最近更新时间 */
+        private long updatedAt = System.currentTimeMillis();
+
+        LedgerEntry(long cutoff) {
+            this.cutoff = cutoff;
+        }
+
+        /**
+         * 从 Elasticsearch 分桶结果初始化一个币种
+         *
+         * @param bucket 币种分桶
+         */
+        synchronized void load (StringTermsBucket bucket) {
+            CryptoCurrency symbol;
+            try {
+                symbol = CryptoCurrency.valueOf(bucket.key().stringValue());
+            } catch (IllegalArgumentException ex) {
+                return;
+            }
+            SymbolTotals symbolTotals = totals.computeIfAbsent(symbol, s -> new SymbolTotals());
+            symbolTotals.tradeCount += bucket.docCount();
+            symbolTotals.volume = symbolTotals.volume.add(sumOf(bucket, VOLUME_AGG));
+            symbolTotals.fees = symbolTotals.fees.add(sumOf(bucket, FEES_AGG));
+            symbolTotals.realizedPnl = symbolTotals.realizedPnl.add(sumOf(bucket, PNL_AGG));
+        }
+
+        /**
+         * 增量累加一笔交易，写入时间早于 cutoff 的已被聚合结果统计，跳过
+         *
+         * @param tradeInfo 交易信息
+         */
+        synchronized void apply (CryptoTradeInfo tradeInfo) {
+            if (ingestedAt(tradeInfo) < cutoff) {
+                return;
+            }
+            SymbolTotals symbolTotals =
+                    totals.computeIfAbsent(tradeInfo.getSymbol(), s -> new SymbolTotals());
+            symbolTotals.tradeCount++;
+            symbolTotals.volume = symbolTotals.volume.add(orZero(tradeInfo.getTotalAmount()));
+            symbolTotals.fees = symbolTotals.fees.add(orZero(tradeInfo.getFee()));
+            symbolTotals.realizedPnl =
+                    symbolTotals.realizedPnl.add(orZero(tradeInfo.getRealizedPnl()));
+            updatedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * 生成对外返回的账本快照
+         *
+         * @param userId 用户ID
+         * @param resident 是否命中内存
+         * @return 账本快照
+         */
+        synchronized UserTradeLedger snapshot (String userId, boolean resident) {
+            referenced = true;
+            List<UserSymbolLedger> symbols = new ArrayList<>(totals.size());
+            totals.forEach((symbol, t) -> symbols.add(
+                    new UserSymbolLedger(symbol, t.tradeCount, t.volume, t.fees, t.realizedPnl)));
+            return new UserTradeLedger(userId, symbols, resident, updatedAt);
+        }
+    }
+
+    /**
+     * 单个币种的累计值
+     */
+    private static final class SymbolTotals {
+        long tradeCount;
+        BigDecimal volume = BigDecimal.ZERO;
+        BigDecimal fees = BigDecimal.ZERO;
+        BigDecimal realizedPnl = BigDecimal.ZERO;
+    }
+}
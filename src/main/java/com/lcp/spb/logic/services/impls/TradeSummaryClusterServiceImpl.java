@@ -0,0 +1,355 @@
+package com.lcp.spb.logic.services.impls;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.CreateResponse;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.bean.trade.TradeSummaryLease;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.resilience.ElasticsearchOperation;
+import com.lcp.spb.logic.services.BaseService;
+import com.lcp.spb.logic.services.TradeSummaryClusterService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 交易汇总集群协调服务实现类
+ *
+ * <p>租约保存在 {@value #LEASE_INDEX} 索引的单个文档中：
+ * <ul>
+ *   <li>文档不存在：以 create 写入，多个副本同时创建时只有一个成功</li>
+ *   <li>持有者是自己：带 if_seq_no / if_primary_term 续约</li>
+ *   <li>持有者是其他副本但已过期：同样带 if_seq_no / if_primary_term 接管，
+ *       并发接管时只有一个写入成功，其余得到 409 版本冲突</li>
+ * </ul>
+ *
+ * <p>本地判断 leader 身份时比租约到期时间提前一个续约间隔失效：续约连续失败时，
+ * 当前 leader 会在其他副本认为租约过期之前先停止计算，为节点间的时钟偏差留出余量。
+ *
+ * <p>leader 把每次计算的汇总写入 {@value #LATEST_INDEX} 的单个文档。写入以持有的租约 seq_no
+ * 作为外部版本号（version_type=external_gte）：每次获取或续约租约都会让 seq_no 增大，
+ * 因此停顿超过租约有效期的旧 leader（GC 停顿、弹性线程池排队）醒来后写入的版本号小于新 leader 的，
+ * 会被 Elasticsearch 以版本冲突拒绝，不会覆盖新 leader 的汇总；
+ * follower 按 trade.summary.cluster.follow-interval-ms 间隔读取该文档，
+ * 根据 seq_no 判断是否有更新，有更新时推送到本地的交易汇总 Sink。
+ * 应用关闭时 leader 主动删除租约，其他副本无需等待过期即可接管。
+ *
+ * @author lcp
+ */
+@Service
+@ConditionalOnProperty(name = "trade.summary.cluster.enabled", havingValue = "true")
+public class TradeSummaryClusterServiceImpl extends BaseService implements TradeSummaryClusterService {
+
+    /** 租约索引名称 */
+    private static final String LEASE_INDEX = "trade-summary-lease";
+    /** 租约文档 ID */
+    private static final String LEASE_ID = "summary-scheduler";
+    /** 最新汇总索引名称 */
+    private static final String LATEST_INDEX = "trade-summary-latest";
+    /** 最新汇总文档 ID */
+    private static final String LATEST_ID = "latest";
+    /** Elasticsearch 版本冲突状态码 */
+    private static final int STATUS_CONFLICT = 409;
+    /** Elasticsearch 文档或索引不存在状态码 */
+    private static final int STATUS_NOT_FOUND = 404;
+
+    /** 交易汇总数据流源，follower 读取到的最新汇总推送到这里 */
+    @Autowired
+    private Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
+
+    /** Sink 发布结果统计 */
+    @Autowired
+    private SinkEmitMetrics sinkEmitMetrics;
+
+    /** 配置的节点 ID，为空时使用主机名加随机后缀 */
+    @Value("${trade.summary.cluster.node-id:}")
+    private String configuredNodeId;
+
+    /** 租约有效期（毫秒） */
+    @Value("${trade.summary.cluster.lease-ttl-ms:30000}")
+    private long leaseTtlMillis;
+
+    /** 续约间隔（毫秒），应明显小于租约有效期 */
+    @Value("${trade.summary.cluster.renew-interval-ms:10000}")
+    private long renewIntervalMillis;
+
+    /** 当前副本的节点 ID */
+    private String nodeId;
+
+    /** 本地认定的 leader 身份截止时间（毫秒时间戳），0 表示不是 leader */
+    private volatile long leaderUntil;
+
+    /** 当前持有的租约文档 seq_no，用于续约和释放 */
+    private volatile long leaseSeqNo = -1;
+    /** 当前持有的租约文档 primary_term */
+    private volatile long leasePrimaryTerm = -1;
+
+    /** 最近一次读取到的最新汇总文档 seq_no */
+    private volatile long latestSeqNo = -1;
+    /** 最近一次读取到的最新汇总文档 primary_term */
+    private volatile long latestPrimaryTerm = -1;
+
+    /**
+     * 确定节点 ID
+     */
+    @PostConstruct
+    public void init () {
+        nodeId = StringUtils.hasText(configuredNodeId) ? configuredNodeId : defaultNodeId();
+        logger.info("Trade summary cluster mode enabled, node {}", nodeId);
+    }
+
+    /**
+     * 应用关闭时释放租约
+     */
+    @PreDestroy
+    public void destroy () {
+        if (!isLeader()) {
+            return;
+        }
+        leaderUntil = 0;
+        try {
+            elasticsearchClient.delete(d -> d.index(LEASE_INDEX).id(LEASE_ID)
+                    .ifSeqNo(leaseSeqNo).ifPrimaryTerm(leasePrimaryTerm));
+            logger.info("Released trade summary lease held by {}", nodeId);
+        } catch (IOException | ElasticsearchException ex) {
+            logger.warn("Failed to release trade summary lease: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 当前副本的节点 ID
+     *
+     * @return 节点 ID
+     */
+    @Override
+    public String nodeId () {
+        return nodeId;
+    }
+
+    /**
+     * 当前副本是否持有有效租约
+     *
+     * @return true 表示当前副本是 leader
+     */
+    @Override
+    public boolean isLeader () {
+        return System.currentTimeMillis() < leaderUntil;
+    }
+
+    /**
+     * 定时获取或续约租约
+     */
+    @Scheduled(fixedDelayString = "${trade.summary.cluster.renew-interval-ms:10000}")
+    public void renewLease () {
+        acquireOrRenew()
+                .timeout(Duration.ofMillis(renewIntervalMillis))
+                .onErrorResume(error -> {
+                    logger.warn("Trade summary lease renewal failed: {}", error.getMessage());
+                    return Mono.just(false);
+                })
+                .subscribe();
+    }
+
+    /**
+     * follower 定时读取 leader 写入的最新汇总并推送到本地 Sink
+     */
+    @Scheduled(fixedDelayString = "${trade.summary.cluster.follow-interval-ms:5000}")
+    public void followLatest () {
+        if (isLeader()) {
+            return;
+        }
+        latestIfChanged()
+                .doOnNext(summary -> sinkEmitMetrics.record("trade-summary",
+                        tradeSummarySink.tryEmitNext(summary)))
+                .onErrorResume(error -> {
+                    logger.debug("Reading shared trade summary failed: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .subscribe();
+    }
+
+    /**
+     * 获取或续约租约
+     *
+     * @return Mono 包装的布尔值，true 表示操作后当前副本持有租约
+     */
+    @Override
+    public Mono<Boolean> acquireOrRenew () {
+        return fromBlocking(this::acquireOrRenewBlocking);
+    }
+
+    /**
+     * 发布最新汇总，只有 leader 写入共享文档
+     *
+     * <p>以判断 leader 身份时持有的租约 seq_no 作为防护令牌，过期 leader 的写入被忽略，见类注释。
+     *
+     * @param summary 交易汇总
+     * @return Mono 对象，表示写入完成或被忽略
+     */
+    @Override
+    public Mono<Void> publishLatest (RecentHourTradeSummary summary) {
+        if (!isLeader()) {
+            return Mono.empty();
+        }
+        long fencingToken = leaseSeqNo;
+        return fromBlocking(LATEST_INDEX, ElasticsearchOperation.INDEX,
+                () -> writeLatest(summary, fencingToken))
+                .then();
+    }
+
+    /**
+     * 读取共享的最新汇总，未变化时返回空
+     *
+     * @return Mono 包装的最新汇总
+     */
+    @Override
+    public Mono<RecentHourTradeSummary> latestIfChanged () {
+        return fromBlocking(LATEST_INDEX, ElasticsearchOperation.GET,
+                () -> getOrNull(LATEST_INDEX, LATEST_ID, RecentHourTradeSummary.class))
+                .flatMap(response -> {
+                    if (!response.found() || (response.seqNo() == latestSeqNo
+                            && response.primaryTerm() == latestPrimaryTerm)) {
+                        return Mono.empty();
+                    }
+                    latestSeqNo = response.seqNo();
+                    latestPrimaryTerm = response.primaryTerm();
+                    return Mono.justOrEmpty(response.source());
+                });
+    }
+
+    /**
+     * 获取或续约租约（阻塞）
+     *
+     * @return true 表示操作后当前副本持有租约
+     * @throws IOException 访问 Elasticsearch 失败
+     */
+    private boolean acquireOrRenewBlocking () throws IOException {
+        long now = System.currentTimeMillis();
+        GetResponse<TradeSummaryLease> current =
+                getOrNull(LEASE_INDEX, LEASE_ID, TradeSummaryLease.class);
+        try {
+            if (Objects.isNull(current) || !current.found()) {
+                TradeSummaryLease lease = new TradeSummaryLease(nodeId, now, now + leaseTtlMillis);
+                CreateResponse created = elasticsearchClient.create(c -> c
+                        .index(LEASE_INDEX).id(LEASE_ID).document(lease));
+                return becomeLeader(now, created.seqNo(), created.primaryTerm(), true);
+            }
+            TradeSummaryLease lease = current.source();
+            boolean mine = Objects.nonNull(lease) && nodeId.equals(lease.getHolder());
+            if (!mine && Objects.nonNull(lease) && lease.getExpiresAt() > now) {
+                return stepDown();
+            }
+            TradeSummaryLease next = new TradeSummaryLease(nodeId,
+                    mine ? lease.getAcquiredAt() : now, now + leaseTtlMillis);
+            IndexResponse written = elasticsearchClient.index(i -> i
+                    .index(LEASE_INDEX).id(LEASE_ID).document(next)
+                    .ifSeqNo(current.seqNo()).ifPrimaryTerm(current.primaryTerm()));
+            return becomeLeader(now, written.seqNo(), written.primaryTerm(), !mine);
+        } catch (ElasticsearchException ex) {
+            if (ex.status() == STATUS_CONFLICT) {
+                // 其他副本抢先写入了租约
+                return stepDown();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 写入共享汇总文档（阻塞），共享文档的版本号大于防护令牌时放弃写入并退出 leader 身份
+     *
+     * @param summary 交易汇总
+     * @param fencingToken 写入时持有的租约 seq_no
+     * @return true 表示已写入，false 表示已有更新的 leader 写入过
+     * @throws IOException 访问 Elasticsearch 失败
+     */
+    private boolean writeLatest (RecentHourTradeSummary summary, long fencingToken)
+            throws IOException {
+        try {
+            elasticsearchClient.index(i -> i.index(LATEST_INDEX).id(LATEST_ID).document(summary)
+                    .version(fencingToken).versionType(VersionType.ExternalGte));
+            return true;
+        } catch (ElasticsearchException ex) {
+            if (ex.status() == STATUS_CONFLICT) {
+                logger.info("Node {} skipped a stale shared summary write, fencing token {}", nodeId,
+                        fencingToken);
+                stepDown();
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 根据 ID 读取文档，索引不存在时视为文档不存在
+     */
+    private <T> GetResponse<T> getOrNull (String index, String id, Class<T> type) throws IOException {
+        try {
+            return elasticsearchClient.get(g -> g.index(index).id(id), type);
+        } catch (ElasticsearchException ex) {
+            if (ex.status() == STATUS_NOT_FOUND) {
+                return null;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 记录持有的租约
+     *
+     * @param requestedAt 发起写入的时间，本地 leader 身份从这里开始计算
+     * @param seqNo 写入后的 seq_no
+     * @param primaryTerm 写入后的 primary_term
+     * @param acquired 是否为新获取（而非续约）
+     * @return 总是 true
+     */
+    private boolean becomeLeader (long requestedAt, long seqNo, long primaryTerm, boolean acquired) {
+        leaseSeqNo = seqNo;
+        leasePrimaryTerm = primaryTerm;
+        leaderUntil = requestedAt + leaseTtlMillis - renewIntervalMillis;
+        if (acquired) {
+            logger.info("Node {} acquired the trade summary lease", nodeId);
+        }
+        return true;
+    }
+
+    /**
+     * 放弃 leader 身份
+     *
+     * @return 总是 false
+     */
+    private boolean stepDown () {
+        if (leaderUntil > 0) {
+            logger.info("Node {} lost the trade summary lease", nodeId);
+        }
+        leaderUntil = 0;
+        return false;
+    }
+
+    /**
+     * 默认节点 ID：主机名加随机后缀，保证同一主机上的多个实例互不相同
+     */
+    private static String defaultNodeId () {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException ex) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,160 @@
+package com.lcp.spb.logic.services.impls;
+
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.services.TradeSummaryStreamService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 交易汇总 Server-Sent Events 推送服务实现类
+ *
+ * <p>订阅 WebSocket 推送所用的同一个汇总 Sink，为每条汇总分配递增的事件 ID，
+ * 写入一个容量为 trade.summary.sse.replay-size 的回放环（replay().limit(n)）。
+ * 事件 ID 连续，因此回放环中最早的 ID 可由最新 ID 直接算出，无需额外索引：
+ * <ul>
+ *   <li>Last-Event-ID 仍在回放环内：补发其后的所有事件</li>
+ *   <li>首次连接或 Last-Event-ID 已被覆盖：只发送最新一条（汇总本身是全量快照，等同于刷新）</li>
+ * </ul>
+ *
+ * <p>连接建立后立即发送一条注释行（让响应头尽快到达客户端），之后按 trade.summary.sse.heartbeat-ms
+ * 间隔发送注释行作为心跳，避免代理因连接空闲而断开。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeSummaryStreamServiceImpl implements TradeSummaryStreamService {
+
+    /** SSE 事件名称 */
+    private static final String EVENT_NAME = "summary";
+
+    /** 交易汇总数据流源，与 WebSocket 推送共用 */
+    private final Sinks.Many<RecentHourTradeSummary> tradeSummarySink;
+
+    /** Sink 发布结果统计 */
+    private final SinkEmitMetrics sinkEmitMetrics;
+
+    /** 回放环容量（事件数） */
+    private final int replaySize;
+
+    /** 心跳间隔（毫秒），0 表示不发送心跳 */
+    private final long heartbeatMillis;
+
+    /** 已编号的汇总事件回放环 */
+    private final Sinks.Many<NumberedEvent> events;
+
+    /** 最新事件 ID，0 表示尚无事件；只由汇总 Sink 的订阅线程串行写入，先于事件写入回放环更新 */
+    private volatile long latestId;
+
+    /** 对汇总 Sink 的订阅 */
+    private Disposable subscription;
+
+    /**
+     * 构造汇总推送服务并创建回放环
+     *
+     * @param tradeSummarySink 交易汇总数据流源
+     * @param sinkEmitMetrics Sink 发布结果统计
+     * @param replaySize 回放环容量（事件数）
+     * @param heartbeatMillis 心跳间隔（毫秒），0 表示不发送心跳
+     */
+    public TradeSummaryStreamServiceImpl (Sinks.Many<RecentHourTradeSummary> tradeSummarySink,
+            SinkEmitMetrics sinkEmitMetrics,
+            @Value("${trade.summary.sse.replay-size:256}") int replaySize,
+            @Value("${trade.summary.sse.heartbeat-ms:15000}") long heartbeatMillis) {
+        this.tradeSummarySink = tradeSummarySink;
+        this.sinkEmitMetrics = sinkEmitMetrics;
+        this.replaySize = replaySize;
+        this.heartbeatMillis = heartbeatMillis;
+        this.events = Sinks.many().replay().limit(Math.max(1, replaySize));
+    }
+
+    /**
+     * 开始为汇总事件编号
+     */
+    @PostConstruct
+    public void init () {
+        subscription = tradeSummarySink.asFlux().subscribe(this::append);
+    }
+
+    /**
+     * 停止订阅汇总 Sink
+     */
+    @PreDestroy
+    public void destroy () {
+        if (Objects.nonNull(subscription)) {
+            subscription.dispose();
+        }
+        events.tryEmitComplete();
+    }
+
+    /**
+     * 汇总事件流
+     *
+     * @param lastEventId 客户端最后收到的事件 ID，可为 null
+     * @return 汇总事件流
+     */
+    @Override
+    public Flux<ServerSentEvent<RecentHourTradeSummary>> stream (Long lastEventId) {
+        Flux<ServerSentEvent<RecentHourTradeSummary>> summaries = Flux.defer(() -> {
+            long after = resumeAfter(lastEventId, latestId);
+            return events.asFlux()
+                    .filter(numbered -> numbered.id() > after)
+                    .map(NumberedEvent::event);
+        });
+        if (heartbeatMillis <= 0) {
+            return summaries;
+        }
+        Flux<ServerSentEvent<RecentHourTradeSummary>> heartbeats = Flux
+                .interval(Duration.ZERO, Duration.ofMillis(heartbeatMillis))
+                .map(tick -> ServerSentEvent.<RecentHourTradeSummary>builder().comment("").build());
+        return Flux.merge(summaries, heartbeats);
+    }
+
+    /**
+     * 计算补发起点：返回的 ID 之后的事件才会发送给客户端
+     *
+     * @param lastEventId 客户端最后收到的事件 ID，可为 null
+     * @param latest 当前最新事件 ID
+     * @return 补发起点（不含）
+     */
+    long resumeAfter (Long lastEventId, long latest) {
+        long oldest = Math.max(1, latest - replaySize + 1);
+        if (Objects.nonNull(lastEventId) && lastEventId >= oldest - 1 && lastEventId <= latest) {
+            return lastEventId;
+        }
+        return latest - 1;
+    }
+
+    /**
+     * 为汇总分配事件 ID 并写入回放环
+     *
+     * @param summary 交易汇总
+     */
+    private void append (RecentHourTradeSummary summary) {
+        long id = latestId + 1;
+        // 先更新最新 ID：此时连接的客户端从 id - 1 之后补发，稍后写入的本事件会实时收到，不会重复
+        latestId = id;
+        sinkEmitMetrics.record("summary-sse", events.tryEmitNext(new NumberedEvent(id,
+                ServerSentEvent.builder(summary)
+                        .id(Long.toString(id))
+                        .event(EVENT_NAME)
+                        .build())));
+    }
+
+    /**
+     * 带数值 ID 的汇总事件，补发时直接比较 ID，无需逐条解析事件的字符串 ID
+     *
+     * @param id 事件 ID
+     * @param event SSE 事件
+     */
+    private record NumberedEvent(long id, ServerSentEvent<RecentHourTradeSummary> event) {
+    }
+}
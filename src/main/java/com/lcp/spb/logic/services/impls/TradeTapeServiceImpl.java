@@ -0,0 +1,56 @@
+package com.lcp.spb.logic.services.impls;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeTapeEntry;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.services.TradeTapeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 成交明细服务实现类
+ *
+ * <p>写入监听器把新成交投影为 {@link TradeTapeEntry} 后发布到一个 best-effort 的多播 Sink：
+ * 没有订阅者时发布即丢弃，不缓存任何数据；多个写入线程的并发发布在此串行化。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeTapeServiceImpl implements TradeTapeService, TradeIngestListener {
+
+    /** 成交明细广播 Sink */
+    private final Sinks.Many<TradeTapeEntry> sink = Sinks.many().multicast().directBestEffort();
+
+    /** Sink 发布结果统计 */
+    @Autowired
+    private SinkEmitMetrics sinkEmitMetrics;
+
+    /**
+     * 新交易写入后发布成交明细
+     *
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        if (sink.currentSubscriberCount() == 0) {
+            return;
+        }
+        TradeTapeEntry entry = TradeTapeEntry.of(tradeInfo);
+        synchronized (sink) {
+            sinkEmitMetrics.record("trade-tape", sink.tryEmitNext(entry));
+        }
+    }
+
+    /**
+     * 新成交数据流
+     *
+     * @return 成交明细数据流
+     */
+    @Override
+    public Flux<TradeTapeEntry> stream () {
+        return sink.asFlux();
+    }
+}
@@ -0,0 +1,293 @@
+package com.lcp.spb.logic.services.impls;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeTicker;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.services.TradeTickerService;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+/**
+ * 实时行情服务实现类
+ *
+ * <p>每个（币种, 交易所）组合以及每个币种的跨交易所汇总各对应一个行情单元，单元内部全部无锁：
+ * <ul>
+ *   <li>最新成交：AtomicReference 保存不可变快照，只有成交时间不早于当前值时才 CAS 替换</li>
+ *   <li>1 小时 VWAP：60 个分钟槽的 AtomicReferenceArray，槽内是不可变的累计值，CAS 更新</li>
+ *   <li>24 小时高低价和成交量：24 个小时槽，同样以 CAS 更新</li>
+ * </ul>
+ * 写入路径上没有任何共享锁，不同币种、不同交易所之间互不竞争；同一单元的并发写入通过 CAS 重试。
+ *
+ * <p>推送流按 trade.ticker.push-interval-ms 间隔检查版本号，只有行情变化时才生成快照，
+ * 并通过 replay(1).refCount() 在所有订阅者之间共享（新订阅者先收到最近一次快照），
+ * 没有订阅者时不做任何计算。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeTickerServiceImpl implements TradeTickerService, TradeIngestListener {
+
+    /** 1 小时窗口的分钟槽数量 */
+    private static final int MINUTE_SLOTS = 60;
+    /** 24 小时窗口的小时槽数量 */
+    private static final int HOUR_SLOTS = 24;
+    /** 一分钟的毫秒数 */
+    private static final long ONE_MINUTE_MILLIS = 60 * 1000L;
+    /** 一小时的毫秒数 */
+    private static final long ONE_HOUR_MILLIS = 60 * ONE_MINUTE_MILLIS;
+    /** 汇总单元使用的交易所占位符 */
+    private static final String ALL_EXCHANGES = "*";
+    /** 行情排序：币种，再按交易所（汇总行情在前） */
+    private static final Comparator<TradeTicker> TICKER_ORDER = Comparator
+            .comparing(TradeTicker::getSymbol)
+            .thenComparing(TradeTicker::getExchange,
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** 行情单元，key 为 币种 + 交易所 */
+    private final Map<TickerKey, TickerCell> cells = new ConcurrentHashMap<>();
+
+    /** 行情版本号，每次写入递增，用于推送流判断是否有变化 */
+    private final AtomicLong version = new AtomicLong();
+
+    /** 共享的推送流 */
+    private final Flux<List<TradeTicker>> sharedStream;
+
+    /**
+     * 构造行情服务并构建共享推送流
+     *
+     * @param pushIntervalMillis 推送流检查行情变化的间隔（毫秒）
+     */
+    public TradeTickerServiceImpl (
+            @Value("${trade.ticker.push-interval-ms:1000}") long pushIntervalMillis) {
+        sharedStream = Flux.interval(Duration.ofMillis(pushIntervalMillis))
+                .map(tick -> version.get())
+                .distinctUntilChanged()
+                .map(changed -> allTickers())
+                .onBackpressureLatest()
+                .replay(1)
+                .refCount();
+    }
+
+    /**
+     * 新交易写入后更新行情
+     *
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        if (Objects.isNull(tradeInfo.getSymbol()) || Objects.isNull(tradeInfo.getPrice())
+                || Objects.isNull(tradeInfo.getQuantity())) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // 成交时间晚于当前时间时按当前时间计，否则它会一直占据最新成交，并重置仍在窗口内的时间槽
+        long executedAt = Objects.isNull(tradeInfo.getExecutedAt())
+                ? now : Math.min(tradeInfo.getExecutedAt(), now);
+        cellOf(new TickerKey(tradeInfo.getSymbol(), ALL_EXCHANGES)).apply(tradeInfo, executedAt);
+        if (StringUtils.hasText(tradeInfo.getExchange())) {
+            cellOf(new TickerKey(tradeInfo.getSymbol(), tradeInfo.getExchange()))
+                    .apply(tradeInfo, executedAt);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * 查询行情快照
+     *
+     * @param symbol 交易币种，可选
+     * @param exchange 交易所名称，可选
+     * @return 行情快照列表
+     */
+    @Override
+    public List<TradeTicker> tickers (CryptoCurrency symbol, String exchange) {
+        String exchangeKey = StringUtils.hasText(exchange) ? exchange : ALL_EXCHANGES;
+        long now = System.currentTimeMillis();
+        List<TradeTicker> result = new ArrayList<>();
+        cells.forEach((key, cell) -> {
+            if ((Objects.isNull(symbol) || key.symbol == symbol) && key.exchange.equals(exchangeKey)) {
+                result.add(cell.snapshot(key, now));
+            }
+        });
+        result.sort(TICKER_ORDER);
+        return result;
+    }
+
+    /**
+     * 行情推送流
+     *
+     * @return 共享的行情快照数据流
+     */
+    @Override
+    public Flux<List<TradeTicker>> stream () {
+        return sharedStream;
+    }
+
+    /**
+     * 所有行情单元的快照（汇总行情 + 各交易所行情）
+     *
+     * @return 行情快照列表
+     */
+    private List<TradeTicker> allTickers () {
+        long now = System.currentTimeMillis();
+        List<TradeTicker> result = new ArrayList<>(cells.size());
+        cells.forEach((key, cell) -> result.add(cell.snapshot(key, now)));
+        result.sort(TICKER_ORDER);
+        return result;
+    }
+
+    /**
+     * 获取或创建行情单元，已存在时只做一次无锁读取
+     *
+     * @param key 单元键
+     * @return 行情单元
+     */
+    private TickerCell cellOf (TickerKey key) {
+        TickerCell cell = cells.get(key);
+        return Objects.nonNull(cell) ? cell : cells.computeIfAbsent(key, k -> new TickerCell());
+    }
+
+    /**
+     * 行情单元键
+     *
+     * @param symbol 币种
+     * @param exchange 交易所，汇总单元为 {@link #ALL_EXCHANGES}
+     */
+    private record TickerKey(CryptoCurrency symbol, String exchange) {
+    }
+
+    /**
+     * 最新成交快照
+     *
+     * @param price 成交价
+     * @param executedAt 成交时间
+     */
+    private record LastTrade(BigDecimal price, long executedAt) {
+    }
+
+    /**
+     * 时间槽内的累计值（不可变）
+     *
+     * @param slot 槽对应的分钟或小时序号
+     * @param notional 成交金额之和（price * quantity）
+     * @param quantity 成交数量之和
+     * @param high 最高价
+     * @param low 最低价
+     */
+    private record SlotStats(long slot, BigDecimal notional, BigDecimal quantity, BigDecimal high,
+            BigDecimal low) {
+
+        static SlotStats first (long slot, BigDecimal price, BigDecimal quantity) {
+            return new SlotStats(slot, price.multiply(quantity), quantity, price, price);
+        }
+
+        SlotStats add (BigDecimal price, BigDecimal qty) {
+            return new SlotStats(slot, notional.add(price.multiply(qty)), quantity.add(qty),
+                    high.max(price), low.min(price));
+        }
+    }
+
+    /**
+     * 单个行情单元
+     */
+    private static final class TickerCell {
+
+        /** 最新成交 */
+        private final AtomicReference<LastTrade> last = new AtomicReference<>();
+        /** 分钟槽，用于 1 小时 VWAP */
+        private final AtomicReferenceArray<SlotStats> minutes =
+                new AtomicReferenceArray<>(MINUTE_SLOTS);
+        /** 小时槽，用于 24 小时统计 */
+        private final AtomicReferenceArray<SlotStats> hours = new AtomicReferenceArray<>(HOUR_SLOTS);
+
+        void apply (CryptoTradeInfo tradeInfo, long executedAt) {
+            BigDecimal price = tradeInfo.getPrice();
+            BigDecimal quantity = tradeInfo.getQuantity();
+            LastTrade candidate = new LastTrade(price, executedAt);
+            last.accumulateAndGet(candidate,
+                    (current, next) -> Objects.isNull(current)
+                            || next.executedAt >= current.executedAt ? next : current);
+            accumulate(minutes, executedAt / ONE_MINUTE_MILLIS, price, quantity);
+            accumulate(hours, executedAt / ONE_HOUR_MILLIS, price, quantity);
+        }
+
+        TradeTicker snapshot (TickerKey key, long now) {
+            LastTrade lastTrade = last.get();
+            Window hourWindow = collect(minutes, now / ONE_MINUTE_MILLIS);
+            Window dayWindow = collect(hours, now / ONE_HOUR_MILLIS);
+            BigDecimal vwap = hourWindow.quantity.signum() > 0
+                    ? hourWindow.notional.divide(hourWindow.quantity, MathContext.DECIMAL64)
+                    : null;
+            return new TradeTicker(
+                    key.symbol,
+                    ALL_EXCHANGES.equals(key.exchange) ? null : key.exchange,
+                    Objects.isNull(lastTrade) ? null : lastTrade.price,
+                    Objects.isNull(lastTrade) ? null : lastTrade.executedAt,
+                    vwap,
+                    dayWindow.high,
+                    dayWindow.low,
+                    dayWindow.quantity,
+                    dayWindow.notional);
+        }
+
+        /**
+         * 以 CAS 方式把一笔成交累加到对应槽：槽已过期则重置，槽比成交更新则忽略该成交
+         */
+        private static void accumulate (AtomicReferenceArray<SlotStats> slots, long slot,
+                BigDecimal price, BigDecimal quantity) {
+            int index = (int) (slot % slots.length());
+            slots.updateAndGet(index, current -> {
+                if (Objects.isNull(current) || current.slot < slot) {
+                    return SlotStats.first(slot, price, quantity);
+                }
+                return current.slot == slot ? current.add(price, quantity) : current;
+            });
+        }
+
+        /**
+         * 汇总最近 slots.length() 个槽
+         */
+        private static Window collect (AtomicReferenceArray<SlotStats> slots, long currentSlot) {
+            Window window = new Window();
+            for (int i = 0; i < slots.length(); i++) {
+                SlotStats stats = slots.get(i);
+                if (Objects.nonNull(stats) && stats.slot > currentSlot - slots.length()
+                        && stats.slot <= currentSlot) {
+                    window.merge(stats);
+                }
+            }
+            return window;
+        }
+    }
+
+    /**
+     * 读取时使用的窗口累计值
+     */
+    private static final class Window {
+        BigDecimal notional = BigDecimal.ZERO;
+        BigDecimal quantity = BigDecimal.ZERO;
+        BigDecimal high;
+        BigDecimal low;
+
+        void merge (SlotStats stats) {
+            notional = notional.add(stats.notional);
+            quantity = quantity.add(stats.quantity);
+            high = Objects.isNull(high) ? stats.high : high.max(stats.high);
+            low = Objects.isNull(low) ? stats.low : low.min(stats.low);
+        }
+    }
+}
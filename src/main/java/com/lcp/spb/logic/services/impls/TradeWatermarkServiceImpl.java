@@ -0,0 +1,238 @@
+package com.lcp.spb.logic.services.impls;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeWatermark;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.resilience.ElasticsearchOperation;
+import com.lcp.spb.logic.services.BaseService;
+import com.lcp.spb.logic.services.TradeIngestListener;
+import com.lcp.spb.logic.services.TradeWatermarkService;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * 最新成交时间水位线服务实现类
+ *
+ * <p>实现要点：
+ * <ul>
+ *   <li>无锁更新：全局和每个币种各持有一个 AtomicLong，写入时以 max 方式原子推进</li>
+ *   <li>启动初始化：应用就绪后异步执行一次 max(executedAt) 聚合（全局 + 按 symbol 分桶），
+ *       与初始化期间已写入的水位取最大值合并</li>
+ *   <li>失败重试：初始化失败时不影响启动，下一次 {@link #latestExecutedAt()} 调用会重新尝试</li>
+ * </ul>
+ *
+ * <p>注意：水位线只感知本实例的写入，多实例部署时其他实例在本实例启动后写入的交易
+ * 只会在下一次初始化时被计入。
+ *
+ * @author lcp
+ */
+@Service
+public class TradeWatermarkServiceImpl extends BaseService
+        implements TradeWatermarkService, TradeIngestListener {
+
+    /** Elasticsearch 索引名称，用于存储加密货币交易数据 */
+    private static final String INDEX = "crypto-trade-info";
+    /** 最新成交时间聚合键名 */
+    private static final String LATEST_AGG = "latest_executed_at";
+    /** 按币种分桶的聚合键名 */
+    private static final String BY_SYMBOL_AGG = "by_symbol";
+    /** 水位未知时的哨兵值 */
+    private static final long UNKNOWN = 0L;
+
+    /** 全局水位 */
+    private final AtomicLong globalLatest = new AtomicLong(UNKNOWN);
+
+    /** 每个币种的水位，初始化后键集合不再变化，读写无需加锁 */
+    private final Map<CryptoCurrency, AtomicLong> symbolLatest = initSymbolWatermarks();
+
+    /** 当前的初始化任务，成功后保留，失败后清空以便重试 */
+    private final AtomicReference<Mono<Void>> seeding = new AtomicReference<>();
+
+    /** 是否已完成初始化 */
+    private volatile boolean seeded;
+
+    /**
+     * 应用就绪后异步初始化水位线
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup () {
+        // 失败已在 seed() 中记录，这里只需吞掉错误信号
+        seed().onErrorResume(ex -> Mono.empty()).subscribe();
+    }
+
+    /**
+     * 获取全局最新成交时间
+     *
+     * @return Mono 包装的最新成交时间，没有任何交易时返回空 Mono
+     */
+    @Override
+    public Mono<Long> latestExecutedAt () {
+        if (seeded) {
+            return Mono.justOrEmpty(currentLatestExecutedAt());
+        }
+        // 初始化失败时退化为本实例已知的水位，不让汇总接口因此报错
+        return seed().onErrorResume(ex -> Mono.empty())
+                .then(Mono.fromSupplier(this::currentLatestExecutedAt));
+    }
+
+    /**
+     * 获取当前内存中的全局最新成交时间
+     *
+     * @return 最新成交时间，未知时返回 null
+     */
+    @Override
+    public Long currentLatestExecutedAt () {
+        long latest = globalLatest.get();
+        return latest == UNKNOWN ? null : latest;
+    }
+
+    /**
+     * 获取水位线快照
+     *
+     * @return 水位线快照
+     */
+    @Override
+    public TradeWatermark snapshot () {
+        Map<CryptoCurrency, Long> bySymbol = new EnumMap<>(CryptoCurrency.class);
+        symbolLatest.forEach((symbol, latest) -> {
+            long value = latest.get();
+            if (value != UNKNOWN) {
+                bySymbol.put(symbol, value);
+            }
+        });
+        return new TradeWatermark(currentLatestExecutedAt(), bySymbol, seeded);
+    }
+
+    /**
+     * 新交易写入后推进水位
+     *
+     * @param tradeInfo 已写入的交易信息
+     */
+    @Override
+    public void onTradeSaved (CryptoTradeInfo tradeInfo) {
+        Long executedAt = tradeInfo.getExecutedAt();
+        if (Objects.isNull(executedAt)) {
+            return;
+        }
+        advance(globalLatest, executedAt);
+        if (Objects.nonNull(tradeInfo.getSymbol())) {
+            advance(symbolLatest.get(tradeInfo.getSymbol()), executedAt);
+        }
+    }
+
+    /**
+     * 获取或发起初始化任务
+     *
+     * <p>并发调用共享同一次聚合查询；失败时清空任务，后续调用会重新发起。
+     *
+     * @return 初始化完成信号
+     */
+    private Mono<Void> seed () {
+        Mono<Void> current = seeding.get();
+        if (Objects.nonNull(current)) {
+            return current;
+        }
+        Mono<Void> created = fromBlocking(INDEX, ElasticsearchOperation.AGGREGATE,
+                () -> elasticsearchClient.search(searchRequest -> {
+                    searchRequest.index(INDEX);
+                    searchRequest.size(0);
+                    searchRequest.aggregations(LATEST_AGG,
+                            aggregationBuilder -> aggregationBuilder.max(max -> max.field("executedAt")));
+                    searchRequest.aggregations(BY_SYMBOL_AGG, aggregationBuilder -> aggregationBuilder
+                            .terms(terms -> terms.field("symbol").size(CryptoCurrency.values().length))
+                            .aggregations(LATEST_AGG, sub -> sub.max(max -> max.field("executedAt"))));
+                    return searchRequest;
+                }, CryptoTradeInfo.class))
+                .doOnNext(this::applySeed)
+                .doOnError(ex -> {
+                    logger.warn("Failed to seed trade watermark: {}", ex.getMessage());
+                    seeding.set(null);
+                })
+                .then()
+                .cache();
+        return seeding.compareAndSet(null, created) ? created : seeding.get();
+    }
+
+    /**
+     * 将聚合结果合并到水位线
+     *
+     * @param response 聚合查询响应
+     */
+    private void applySeed (SearchResponse<CryptoTradeInfo> response) {
+        Map<String, Aggregate> aggregations =
+                Optional.ofNullable(response.aggregations()).orElseGet(Map::of);
+        maxOf(aggregations).ifPresent(latest -> advance(globalLatest, latest));
+        Optional.ofNullable(aggregations.get(BY_SYMBOL_AGG))
+                .filter(Aggregate::isSterms)
+                .map(aggregate -> aggregate.sterms().buckets().array())
+                .orElseGet(List::of)
+                .forEach(this::applySymbolSeed);
+        seeded = true;
+        logger.info("Trade watermark seeded, latest executedAt {}", currentLatestExecutedAt());
+    }
+
+    /**
+     * 合并单个币种的初始化结果
+     *
+     * @param bucket 币种分桶
+     */
+    private void applySymbolSeed (StringTermsBucket bucket) {
+        AtomicLong target;
+        try {
+            target = symbolLatest.get(CryptoCurrency.valueOf(bucket.key().stringValue()));
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+        maxOf(bucket.aggregations()).ifPresent(latest -> advance(target, latest));
+    }
+
+    /**
+     * 读取 max 聚合的值
+     *
+     * @param aggregations 聚合结果
+     * @return 最大成交时间，没有数据时返回空
+     */
+    private Optional<Long> maxOf (Map<String, Aggregate> aggregations) {
+        return Optional.ofNullable(aggregations.get(LATEST_AGG))
+                .filter(Aggregate::isMax)
+                .map(aggregate -> aggregate.max().value())
+                .filter(value -> !Double.isNaN(value) && !Double.isInfinite(value) && value > 0)
+                .map(Double::longValue);
+    }
+
+    /**
+     * 以 max 方式原子推进水位，保证单调不减
+     *
+     * @param watermark 水位
+     * @param candidate 候选时间
+     */
+    private static void advance (AtomicLong watermark, long candidate) {
+        watermark.accumulateAndGet(candidate, Math::max);
+    }
+
+    /**
+     * 为所有币种创建水位
+     *
+     * @return 不可变的币种水位映射
+     */
+    private static Map<CryptoCurrency, AtomicLong> initSymbolWatermarks () {
+        Map<CryptoCurrency, AtomicLong> watermarks = new EnumMap<>(CryptoCurrency.class);
+        for (CryptoCurrency symbol : CryptoCurrency.values()) {
+            watermarks.put(symbol, new AtomicLong(UNKNOWN));
+        }
+        return Collections.unmodifiableMap(watermarks);
+    }
+}
@@ -0,0 +1,230 @@
+package com.lcp.spb.logic.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * 带权重的 Space-Saving 频繁项（Heavy Hitter）摘要
+ *
+ * <p>最多只保留 capacity 个计数器，内存与不同 key 的数量无关。当计数器已满而新 key 到来时，
+ * 复用当前计数最小的计数器：新 key 继承其计数（记为误差）再加上本次权重。
+ *
+ * <p>误差保证（N 为写入的总权重，k 为 capacity）：
+ * <ul>
+ *   <li>任意被保留 key 的估计值 count 不小于真实值，且 count - error 不大于真实值</li>
+ *   <li>error 不超过 N / k；未被保留的 key 的真实值不超过 {@link #minCount()}</li>
+ *   <li>真实值大于 N / k 的 key 一定会被保留</li>
+ * </ul>
+ *
+ * <p>该类不是线程安全的，并发访问需要由调用方加锁。
+ *
+ * @author lcp
+ */
+public final class SpaceSaving {
+
+    /** 排序规则：计数升序，计数相同时按 key 排序，保证 TreeSet 中元素唯一 */
+    private static final Comparator<Counter> BY_COUNT =
+            Comparator.comparingDouble(Counter::getCount).thenComparing(Counter::getKey);
+
+    /** 最大计数器数量 */
+    private final int capacity;
+    /** key 到计数器的索引 */
+    private final Map<String, Counter> counters;
+    /** 按计数排序的计数器，用于 O(log k) 找到最小计数器 */
+    private final TreeSet<Counter> ordered = new TreeSet<>(BY_COUNT);
+    /** 写入的总权重 */
+    private double totalWeight;
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 最大计数器数量，至少为 1
+     */
+    public SpaceSaving (int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 写入一个带权重的 key
+     *
+     * @param key 统计对象，例如 userId
+     * @param weight 权重，例如成交金额，必须为非负数
+     */
+    public void offer (String key, double weight) {
+        if (Objects.isNull(key) || !(weight >= 0)) {
+            return;
+        }
+        totalWeight += weight;
+        Counter counter = counters.get(key);
+        if (Objects.nonNull(counter)) {
+            ordered.remove(counter);
+            counter.count += weight;
+            ordered.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, weight, 0);
+        } else {
+            // 复用最小计数器，新 key 继承其计数作为误差
+            Counter evicted = ordered.pollFirst();
+            counters.remove(evicted.key);
+            counter = new Counter(key, evicted.count + weight, evicted.count);
+        }
+        counters.put(key, counter);
+        ordered.add(counter);
+    }
+
+    /**
+     * 当前未被保留 key 的计数上界
+     *
+     * @return 计数器未满时为 0，否则为最小计数
+     */
+    public double minCount () {
+        return counters.size() < capacity || ordered.isEmpty() ? 0 : ordered.first().count;
+    }
+
+    /**
+     * 按估计值降序返回前 limit 个计数器
+     *
+     * @param limit 返回数量
+     * @return 计数器副本列表
+     */
+    public List<Counter> top (int limit) {
+        List<Counter> result = new ArrayList<>(Math.min(limit, counters.size()));
+        for (Counter counter : ordered.descendingSet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(counter.copy());
+        }
+        return result;
+    }
+
+    /**
+     * 复制当前摘要
+     *
+     * @return 独立的副本
+     */
+    public SpaceSaving copy () {
+        SpaceSaving copy = new SpaceSaving(capacity);
+        counters.values().forEach(counter -> {
+            Counter cloned = counter.copy();
+            copy.counters.put(cloned.key, cloned);
+            copy.ordered.add(cloned);
+        });
+        copy.totalWeight = totalWeight;
+        return copy;
+    }
+
+    /**
+     * 合并多个摘要
+     *
+     * <p>对任一 key，在某个摘要中缺失时以该摘要的 {@link #minCount()} 作为其计数和误差的上界，
+     * 因此合并结果仍满足 count 不小于真实值、count - error 不大于真实值。
+     * 合并后只保留估计值最大的 capacity 个计数器。
+     *
+     * @param sketches 待合并的摘要
+     * @param capacity 合并结果的最大计数器数量
+     * @return 合并后的新摘要
+     */
+    public static SpaceSaving merge (List<SpaceSaving> sketches, int capacity) {
+        Map<String, Counter> union = new HashMap<>();
+        double minTotal = 0;
+        double total = 0;
+        for (SpaceSaving sketch : sketches) {
+            minTotal += sketch.minCount();
+            total += sketch.totalWeight;
+        }
+        final double minSum = minTotal;
+        for (SpaceSaving sketch : sketches) {
+            double min = sketch.minCount();
+            for (Counter counter : sketch.counters.values()) {
+                // 先按“所有摘要都缺失”初始化，再用实际值替换本摘要贡献的 min
+                Counter merged = union.computeIfAbsent(counter.key,
+                        key -> new Counter(key, minSum, minSum));
+                merged.count += counter.count - min;
+                merged.error += counter.error - min;
+            }
+        }
+        SpaceSaving result = new SpaceSaving(capacity);
+        union.values().stream()
+                .sorted(BY_COUNT.reversed())
+                .limit(capacity)
+                .forEach(counter -> {
+                    result.counters.put(counter.key, counter);
+                    result.ordered.add(counter);
+                });
+        result.totalWeight = total;
+        return result;
+    }
+
+    /**
+     * 获取写入的总权重
+     *
+     * @return 总权重
+     */
+    public double getTotalWeight () {
+        return totalWeight;
+    }
+
+    /**
+     * 获取最大计数器数量
+     *
+     * @return capacity
+     */
+    public int getCapacity () {
+        return capacity;
+    }
+
+    /**
+     * 单个 key 的计数器
+     */
+    public static final class Counter {
+        /** 统计对象 */
+        private final String key;
+        /** 估计值（上界） */
+        private double count;
+        /** 最大高估量 */
+        private double error;
+
+        Counter(String key, double count, double error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        Counter copy () {
+            return new Counter(key, count, error);
+        }
+
+        /**
+         * @return 统计对象
+         */
+        public String getKey () {
+            return key;
+        }
+
+        /**
+         * @return 估计值，不小于真实值
+         */
+        public double getCount () {
+            return count;
+        }
+
+        /**
+         * @return 最大高估量，count - error 不大于真实值
+         */
+        public double getError () {
+            return error;
+        }
+    }
+}
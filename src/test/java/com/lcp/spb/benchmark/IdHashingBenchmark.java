@@ -0,0 +1,117 @@
+package com.lcp.spb.benchmark;
+
+import com.lcp.spb.logic.hashing.IdHasher;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 用户 ID 哈希基准测试
+ *
+ * <p>对比以下几种方式对同一组用户 ID 计算哈希的耗时和分配：
+ * <ul>
+ *   <li>legacy：原 AbstractController.sha256 的做法，每次 MessageDigest.getInstance，逐字节 String.format</li>
+ *   <li>sha256Hex：{@link IdHasher#sha256Hex(String)}，按线程复用摘要对象，HexFormat 编码</li>
+ *   <li>hmacUncached：{@link IdHasher#pseudonymize(String)}，HMAC-SHA256，不开启缓存</li>
+ *   <li>hmacMemo：同上，开启 4096 槽的缓存；distinctIds 不超过槽数时基本全部命中，远大于槽数时基本全部未命中</li>
+ * </ul>
+ * 以 4 个线程运行，体现按线程复用摘要对象在并发下的效果。
+ *
+ * <p>运行方式（附带 GC 分配统计，结果中的 gc.alloc.rate.norm 即每次哈希的分配字节数）：
+ * <pre>
+ * mvn -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.lcp.spb.benchmark.IdHashingBenchmark
+ * </pre>
+ *
+ * @author lcp
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class IdHashingBenchmark {
+
+  /** 参与哈希的不同用户 ID 数量 */
+  @Param({"1000", "100000"})
+  private int distinctIds;
+
+  private String[] ids;
+  private IdHasher sha256Hasher;
+  private IdHasher hmacHasher;
+  private IdHasher memoHasher;
+
+  @Setup
+  public void setup () {
+    ids = new String[distinctIds];
+    for (int i = 0; i < distinctIds; i++) {
+      ids[i] = "user-" + (100_000_000L + i * 7919L);
+    }
+    sha256Hasher = new IdHasher("", 0);
+    hmacHasher = new IdHasher("benchmark-secret", 0);
+    memoHasher = new IdHasher("benchmark-secret", 4096);
+  }
+
+  /** 每个线程独立的 ID 游标 */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next;
+
+    String nextId (String[] ids) {
+      next = next + 1 == ids.length ? 0 : next + 1;
+      return ids[next];
+    }
+  }
+
+  @Benchmark
+  public String legacy (Cursor cursor) throws NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    byte[] hashed = digest.digest(cursor.nextId(ids).getBytes(StandardCharsets.UTF_8));
+    StringBuilder sb = new StringBuilder(hashed.length * 2);
+    for (byte b : hashed) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  @Benchmark
+  public String sha256Hex (Cursor cursor) {
+    return sha256Hasher.sha256Hex(cursor.nextId(ids));
+  }
+
+  @Benchmark
+  public String hmacUncached (Cursor cursor) {
+    return hmacHasher.pseudonymize(cursor.nextId(ids));
+  }
+
+  @Benchmark
+  public String hmacMemo (Cursor cursor) {
+    return memoHasher.pseudonymize(cursor.nextId(ids));
+  }
+
+  public static void main (String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(IdHashingBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
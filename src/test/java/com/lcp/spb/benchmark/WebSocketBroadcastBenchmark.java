@@ -0,0 +1,96 @@
+package com.lcp.spb.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.config.WebSocketFrames;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+/**
+ * WebSocket 广播基准测试
+ *
+ * <p>对比一条汇总广播给 N 个会话时两种方式的耗时和分配：
+ * <ul>
+ *   <li>perSession：每个会话各自序列化一次（原 session.textMessage(toJson(summary)) 的做法）</li>
+ *   <li>encodeOnce：只序列化一次，每个会话包装共享字节（{@link WebSocketFrames}）</li>
+ * </ul>
+ *
+ * <p>运行方式（附带 GC 分配统计，结果中的 gc.alloc.rate.norm 即每次广播的分配字节数）：
+ * <pre>
+ * mvn -DskipTests test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.lcp.spb.benchmark.WebSocketBroadcastBenchmark
+ * </pre>
+ *
+ * @author lcp
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketBroadcastBenchmark {
+
+  /** 连接的会话数 */
+  @Param({"1", "100", "1000", "5000"})
+  private int subscribers;
+
+  private ObjectMapper objectMapper;
+  private DataBufferFactory bufferFactory;
+  private RecentHourTradeSummary summary;
+
+  @Setup
+  public void setup () {
+    objectMapper = new ObjectMapper();
+    bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+    long now = System.currentTimeMillis();
+    summary = new RecentHourTradeSummary(12_345L, new BigDecimal("98765432.10"),
+        now - 3_600_000L, now, false, now - 1_000L, 321L);
+  }
+
+  @Benchmark
+  public void perSession (Blackhole blackhole) throws JsonProcessingException {
+    for (int i = 0; i < subscribers; i++) {
+      String json = objectMapper.writeValueAsString(summary);
+      blackhole.consume(new WebSocketMessage(WebSocketMessage.Type.TEXT,
+          bufferFactory.wrap(json.getBytes(StandardCharsets.UTF_8))));
+    }
+  }
+
+  @Benchmark
+  public void encodeOnce (Blackhole blackhole) throws JsonProcessingException {
+    byte[] frame = objectMapper.writeValueAsBytes(summary);
+    for (int i = 0; i < subscribers; i++) {
+      blackhole.consume(WebSocketFrames.text(bufferFactory, frame));
+    }
+  }
+
+  public static void main (String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(WebSocketBroadcastBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
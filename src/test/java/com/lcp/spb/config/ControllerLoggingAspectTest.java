@@ -0,0 +1,130 @@
+package com.lcp.spb.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ControllerLoggingAspectTest {
+
+  private final Logger aspectLogger = (Logger) LoggerFactory.getLogger(ControllerLoggingAspect.class);
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+  private Level previousLevel;
+
+  /** 测试用控制器 */
+  @RestController
+  static class SampleController {
+
+    public String quiet (String value) {
+      return value;
+    }
+
+    public String loud (String value) {
+      return value;
+    }
+
+    public String fail (String value) {
+      throw new IllegalStateException(value);
+    }
+
+    public Mono<String> later (StringBuilder value, Mono<String> result) {
+      return result;
+    }
+  }
+
+  @BeforeEach
+  void attachAppender () {
+    previousLevel = aspectLogger.getLevel();
+    aspectLogger.setLevel(Level.INFO);
+    appender.start();
+    aspectLogger.addAppender(appender);
+  }
+
+  @AfterEach
+  void detachAppender () {
+    aspectLogger.detachAppender(appender);
+    aspectLogger.setLevel(previousLevel);
+  }
+
+  private static SampleController proxy (double sampleRate, String endpoints, int maxArgLength) {
+    AspectJProxyFactory factory = new AspectJProxyFactory(new SampleController());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new ControllerLoggingAspect(sampleRate, endpoints, maxArgLength));
+    return factory.getProxy();
+  }
+
+  private static Map<String, Object> fields (ILoggingEvent event) {
+    return event.getKeyValuePairs().stream()
+        .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+  }
+
+  private List<String> loggedEndpoints () {
+    return appender.list.stream().map(event -> (String) fields(event).get("endpoint")).toList();
+  }
+
+  @Test
+  void unsampledSuccessIsSkippedButFailureIsAlwaysLogged () {
+    SampleController controller = proxy(0, "", 256);
+    controller.quiet("q");
+    assertThrows(IllegalStateException.class, () -> controller.fail("boom"));
+
+    assertEquals(List.of("SampleController.fail"), loggedEndpoints());
+    ILoggingEvent event = appender.list.get(0);
+    assertEquals(Level.WARN, event.getLevel());
+    assertEquals("error", fields(event).get("outcome"));
+    assertEquals("boom", fields(event).get("args"));
+    assertEquals("IllegalStateException", fields(event).get("error"));
+  }
+
+  @Test
+  void endpointOverridesTakePrecedenceOverControllerAndDefault () {
+    SampleController controller =
+        proxy(0, "SampleController.*=1, SampleController.quiet=0", 256);
+    controller.quiet("q");
+    controller.loud("l");
+
+    assertEquals(List.of("SampleController.loud"), loggedEndpoints());
+    ILoggingEvent event = appender.list.get(0);
+    assertEquals(Level.INFO, event.getLevel());
+    assertEquals("success", fields(event).get("outcome"));
+  }
+
+  @Test
+  void longArgumentsAreTruncated () {
+    SampleController controller = proxy(1, "", 10);
+    controller.loud("x".repeat(100));
+
+    assertEquals("xxxxxxx...", fields(appender.list.get(0)).get("args"));
+  }
+
+  @Test
+  void sampledArgumentsAreFormattedAtInvocation () {
+    SampleController controller = proxy(1, "", 256);
+    StringBuilder value = new StringBuilder("before");
+    Sinks.One<String> result = Sinks.one();
+    controller.later(value, result.asMono()).subscribe();
+
+    value.setLength(0);
+    value.append("after");
+    result.tryEmitValue("done");
+
+    assertEquals(1, appender.list.size());
+    String args = (String) fields(appender.list.get(0)).get("args");
+    assertTrue(args.startsWith("before, "), args);
+  }
+}
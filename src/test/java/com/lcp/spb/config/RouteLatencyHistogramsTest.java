@@ -0,0 +1,49 @@
+package com.lcp.spb.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RouteLatencyHistogramsTest {
+
+  @Test
+  void reportsPercentilesPerRouteAcrossSnapshots () {
+    RouteLatencyHistograms histograms = new RouteLatencyHistograms();
+    for (int i = 1; i <= 99; i++) {
+      histograms.record("GET /es/trades", TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    histograms.snapshot();
+    histograms.record("GET /es/trades", TimeUnit.SECONDS.toNanos(2));
+    histograms.record("GET /es/users", TimeUnit.MILLISECONDS.toNanos(5));
+
+    Map<String, RouteLatencyHistograms.RouteLatency> snapshot = histograms.snapshot();
+    RouteLatencyHistograms.RouteLatency trades = snapshot.get("GET /es/trades");
+    assertEquals(100, trades.count());
+    assertEquals(10.0, trades.p50(), 0.1);
+    assertEquals(2000.0, trades.max(), 20.0);
+    assertEquals(1, snapshot.get("GET /es/users").count());
+  }
+
+  @Test
+  void resetClearsCountsButKeepsRoutes () {
+    RouteLatencyHistograms histograms = new RouteLatencyHistograms();
+    histograms.record("GET /es/trades", TimeUnit.MILLISECONDS.toNanos(3));
+    histograms.reset();
+
+    assertEquals(0, histograms.snapshot().get("GET /es/trades").count());
+  }
+
+  @Test
+  void foldsRoutesBeyondCapacityIntoOther () {
+    RouteLatencyHistograms histograms = new RouteLatencyHistograms();
+    for (int i = 0; i < 300; i++) {
+      histograms.record("GET /route-" + i, 1_000);
+    }
+    Map<String, RouteLatencyHistograms.RouteLatency> snapshot = histograms.snapshot();
+    assertTrue(snapshot.size() <= 257);
+    assertEquals(300 - 256, snapshot.get("OTHER").count());
+  }
+}
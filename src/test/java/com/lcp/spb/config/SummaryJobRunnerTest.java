@@ -0,0 +1,107 @@
+package com.lcp.spb.config;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class SummaryJobRunnerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private SummaryJobRunner newRunner (JobOverlapPolicy overlap, long deadlineMillis) {
+    return new SummaryJobRunner(meterRegistry, overlap, deadlineMillis, 0L, 60_000L, 60_000L);
+  }
+
+  private double skipped (String reason) {
+    return meterRegistry.get("trade.summary.job.skipped").tag("reason", reason).counter().count();
+  }
+
+  private long runs (String outcome) {
+    return meterRegistry.get("trade.summary.job.duration").tag("outcome", outcome).timer().count();
+  }
+
+  @Test
+  void coalescesTicksWhileRunIsInFlight () {
+    AtomicInteger invocations = new AtomicInteger();
+    List<Sinks.Empty<Void>> runs = new CopyOnWriteArrayList<>();
+    SummaryJobRunner.Job job = newRunner(JobOverlapPolicy.COALESCE, 10_000).job("test", () -> {
+      invocations.incrementAndGet();
+      Sinks.Empty<Void> run = Sinks.empty();
+      runs.add(run);
+      return run.asMono();
+    }, error -> { });
+
+    job.trigger();
+    await().atMost(Duration.ofSeconds(2)).until(() -> invocations.get() == 1);
+    job.trigger();
+    job.trigger();
+    job.trigger();
+    assertEquals(1, skipped(SummaryJobRunner.SKIP_COALESCED));
+    assertEquals(2, skipped(SummaryJobRunner.SKIP_IN_FLIGHT));
+
+    runs.get(0).tryEmitEmpty();
+    // 三次重叠的触发合并为一次补跑
+    await().atMost(Duration.ofSeconds(2)).until(() -> invocations.get() == 2);
+    runs.get(1).tryEmitEmpty();
+    await().atMost(Duration.ofSeconds(2)).until(() -> runs("success") == 2);
+    assertEquals(2, invocations.get());
+  }
+
+  @Test
+  void skipPolicyDropsOverlappingTicks () {
+    AtomicInteger invocations = new AtomicInteger();
+    Sinks.Empty<Void> run = Sinks.empty();
+    SummaryJobRunner.Job job = newRunner(JobOverlapPolicy.SKIP, 10_000).job("test", () -> {
+      invocations.incrementAndGet();
+      return run.asMono();
+    }, error -> { });
+
+    job.trigger();
+    await().atMost(Duration.ofSeconds(2)).until(() -> invocations.get() == 1);
+    job.trigger();
+    run.tryEmitEmpty();
+    await().atMost(Duration.ofSeconds(2)).until(() -> runs("success") == 1);
+    assertEquals(1, invocations.get());
+    assertEquals(1, skipped(SummaryJobRunner.SKIP_IN_FLIGHT));
+  }
+
+  @Test
+  void timesOutAndBacksOff () {
+    List<Throwable> failures = new CopyOnWriteArrayList<>();
+    SummaryJobRunner.Job job = newRunner(JobOverlapPolicy.COALESCE, 100)
+        .job("test", Mono::never, failures::add);
+
+    job.trigger();
+    await().atMost(Duration.ofSeconds(2)).until(() -> failures.size() == 1);
+    assertInstanceOf(TimeoutException.class, failures.get(0));
+    assertEquals(1, runs("timeout"));
+    assertEquals(1.0,
+        meterRegistry.get("trade.summary.job.consecutive-failures").gauge().value());
+
+    job.trigger();
+    assertEquals(1, skipped(SummaryJobRunner.SKIP_BACKOFF));
+  }
+
+  @Test
+  void errorCountsAsFailure () {
+    List<Throwable> failures = new CopyOnWriteArrayList<>();
+    SummaryJobRunner.Job job = newRunner(JobOverlapPolicy.COALESCE, 10_000)
+        .job("test", () -> Mono.error(new IllegalStateException("overloaded")), failures::add);
+
+    job.trigger();
+    await().atMost(Duration.ofSeconds(2)).until(() -> failures.size() == 1);
+    assertInstanceOf(IllegalStateException.class, failures.get(0));
+    assertEquals(1, runs("failure"));
+    assertEquals(0, runs("success"));
+  }
+}
@@ -0,0 +1,81 @@
+package com.lcp.spb.config;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.RoundingMode;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+class TradeFirehoseTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ElasticsearchCryptoTradeService tradeService =
+      mock(ElasticsearchCryptoTradeService.class);
+
+  private TradeFirehose newFirehose (double rate, int maxInFlight) {
+    return new TradeFirehose(tradeService, meterRegistry, rate, 100, 1.0, "BTC:70, USDT:30",
+        "binance:1,okx", 4.0, 60L, 5L, maxInFlight, 0L, 60L);
+  }
+
+  @Test
+  void rejectsInvalidMix () {
+    assertThrows(IllegalArgumentException.class,
+        () -> TradeFirehose.Weighted.parse("BTC:0", CryptoCurrency::valueOf));
+    assertThrows(IllegalArgumentException.class,
+        () -> TradeFirehose.Weighted.parse("DOGE:1", CryptoCurrency::valueOf));
+    assertThrows(IllegalArgumentException.class,
+        () -> TradeFirehose.Weighted.parse(" , ", CryptoCurrency::valueOf));
+  }
+
+  @Test
+  void generatesNewTradesWithinBurstProfile () {
+    TradeFirehose firehose = newFirehose(100, 10);
+    when(tradeService.save(any())).thenReturn(Mono.empty());
+    firehose.init();
+    firehose.destroy();
+
+    assertEquals(400, firehose.targetRate(4_999));
+    assertEquals(100, firehose.targetRate(5_000));
+    assertEquals(400, firehose.targetRate(60_000));
+
+    for (int i = 0; i < 1000; i++) {
+      CryptoTradeInfo trade = firehose.generate(1_000L);
+      assertNull(trade.getTradeId());
+      assertNotNull(trade.getSymbol());
+      assertTrue(trade.getPrice().signum() > 0);
+      assertTrue(trade.getQuantity().signum() > 0);
+      assertEquals(trade.getPrice().multiply(trade.getQuantity()).setScale(8,
+          RoundingMode.HALF_UP), trade.getTotalAmount());
+      assertTrue(trade.getExchange().equals("binance") || trade.getExchange().equals("okx"));
+      int user = firehose.pickUser();
+      assertTrue(user >= 0 && user < 100);
+    }
+  }
+
+  @Test
+  void shedsTradesBeyondMaxInFlight () {
+    TradeFirehose firehose = newFirehose(1000, 5);
+    when(tradeService.save(any())).thenReturn(Mono.never());
+    firehose.init();
+    try {
+      await().atMost(Duration.ofSeconds(5))
+          .until(() -> meterRegistry.get("trade.firehose.shed").counter().count() > 0);
+      assertEquals(5, meterRegistry.get("trade.firehose.in-flight").gauge().value());
+    } finally {
+      firehose.destroy();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.lcp.spb.config;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.services.ElasticsearchCryptoTradeService;
+import com.lcp.spb.logic.services.TradeSummaryClusterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class TradeSummaryEventPublisherTest {
+
+  private final ElasticsearchCryptoTradeService tradeService = mock(ElasticsearchCryptoTradeService.class);
+  private final Sinks.Many<RecentHourTradeSummary> sink = Sinks.many().replay().all();
+  /** 每次汇总查询的开始时间（nanoTime） */
+  private final List<Long> queriedAt = new CopyOnWriteArrayList<>();
+  /** 每次汇总查询对应的结果，由测试控制完成时机 */
+  private final List<Sinks.One<RecentHourTradeSummary>> queries = new CopyOnWriteArrayList<>();
+
+  private TradeSummaryEventPublisher newPublisher (long intervalMillis, long settleMillis,
+      TradeSummaryClusterService clusterService) {
+    when(tradeService.recentHourSummary()).thenAnswer(invocation -> {
+      queriedAt.add(System.nanoTime());
+      Sinks.One<RecentHourTradeSummary> query = Sinks.one();
+      queries.add(query);
+      return query.asMono();
+    });
+    return new TradeSummaryEventPublisher(tradeService, sink,
+        new SinkEmitMetrics(new SimpleMeterRegistry()), Optional.ofNullable(clusterService),
+        intervalMillis, settleMillis);
+  }
+
+  private static RecentHourTradeSummary summary (long count) {
+    return new RecentHourTradeSummary(count, BigDecimal.ONE, 0, 1, false);
+  }
+
+  private void complete (int query, long count) {
+    await().atMost(Duration.ofSeconds(2)).until(() -> queries.size() > query);
+    queries.get(query).tryEmitValue(summary(count));
+  }
+
+  private List<Long> pushedCounts () {
+    return sink.asFlux().take(Duration.ofMillis(50)).map(RecentHourTradeSummary::getCount)
+        .collectList().block();
+  }
+
+  @Test
+  void writesDuringQueryAreCoalescedIntoOneFollowUp () throws Exception {
+    TradeSummaryEventPublisher publisher = newPublisher(50, 0, null);
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    await().atMost(Duration.ofSeconds(2)).until(() -> queries.size() == 1);
+    for (int i = 0; i < 10; i++) {
+      publisher.onTradeSaved(new CryptoTradeInfo());
+    }
+
+    complete(0, 1);
+    complete(1, 11);
+    TimeUnit.MILLISECONDS.sleep(300);
+    assertEquals(2, queries.size());
+    assertEquals(List.of(1L, 11L), pushedCounts());
+  }
+
+  @Test
+  void pushesAreSpacedByInterval () {
+    TradeSummaryEventPublisher publisher = newPublisher(300, 0, null);
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    complete(0, 1);
+    await().atMost(Duration.ofSeconds(2)).until(() -> pushedCounts().size() == 1);
+
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    complete(1, 2);
+    long gapMillis = TimeUnit.NANOSECONDS.toMillis(queriedAt.get(1) - queriedAt.get(0));
+    assertTrue(gapMillis >= 250, () -> "second query after " + gapMillis + " ms");
+  }
+
+  @Test
+  void settlesOnceAfterWritesStop () throws Exception {
+    TradeSummaryEventPublisher publisher = newPublisher(0, 100, null);
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    complete(0, 1);
+    // 写入停止 settle-ms 后补推一次，补推之后不再继续
+    complete(1, 2);
+    TimeUnit.MILLISECONDS.sleep(400);
+    assertEquals(2, queries.size());
+    assertEquals(List.of(1L, 2L), pushedCounts());
+  }
+
+  @Test
+  void failedQueryDoesNotBlockLaterPushes () {
+    TradeSummaryEventPublisher publisher = newPublisher(0, 0, null);
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    await().atMost(Duration.ofSeconds(2)).until(() -> queries.size() == 1);
+    queries.get(0).tryEmitError(new IllegalStateException("overloaded"));
+
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    complete(1, 2);
+    await().atMost(Duration.ofSeconds(2)).until(() -> pushedCounts().equals(List.of(2L)));
+  }
+
+  @Test
+  void followerDoesNotQuery () throws Exception {
+    TradeSummaryClusterService clusterService = mock(TradeSummaryClusterService.class);
+    when(clusterService.isLeader()).thenReturn(false);
+    TradeSummaryEventPublisher publisher = newPublisher(0, 0, clusterService);
+
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertTrue(queries.isEmpty());
+
+    when(clusterService.isLeader()).thenReturn(true);
+    publisher.onTradeSaved(new CryptoTradeInfo());
+    complete(0, 1);
+    await().atMost(Duration.ofSeconds(2)).until(() -> pushedCounts().equals(List.of(1L)));
+  }
+}
@@ -0,0 +1,193 @@
+package com.lcp.spb.config;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeTapeEntry;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.services.impls.TradeTapeServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@SpringJUnitConfig(classes = {TradeTapeWebSocketHandler.class, TradeTapeServiceImpl.class,
+    SinkEmitMetrics.class, WebSocketOutboundPolicy.class, WebSocketKeepAlive.class,
+    TradeTapeWebSocketHandlerTest.Beans.class})
+@TestPropertySource(properties = {
+    "trade.tape.batch-size=3",
+    "trade.tape.batch-interval-ms=100"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TradeTapeWebSocketHandlerTest {
+
+  @TestConfiguration
+  static class Beans {
+
+    @Bean
+    MeterRegistry meterRegistry () {
+      return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    ObjectMapper objectMapper () {
+      return new ObjectMapper();
+    }
+  }
+
+  @MockitoSpyBean
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private TradeTapeWebSocketHandler handler;
+
+  @Autowired
+  private TradeTapeServiceImpl tradeTapeService;
+
+  /** 解码推送内容，不计入被测序列化器的调用次数 */
+  private static final ObjectMapper READER = new ObjectMapper();
+
+  private static List<TradeTapeEntry> decode (WebSocketMessage message) {
+    try {
+      return Arrays.asList(READER.readValue(message.getPayloadAsText(), TradeTapeEntry[].class));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** 模拟会话，收集发送给客户端的每一批成交 */
+  private WebSocketSession session (String query, List<List<TradeTapeEntry>> received) {
+    WebSocketSession session = mock(WebSocketSession.class);
+    when(session.getId()).thenReturn("s-" + query);
+    when(session.getHandshakeInfo()).thenReturn(new HandshakeInfo(
+        URI.create("ws://localhost/ws/trades" + query), new HttpHeaders(), Mono.empty(), null));
+    when(session.bufferFactory()).thenReturn(DefaultDataBufferFactory.sharedInstance);
+    when(session.receive()).thenReturn(Flux.never());
+    when(session.close(any())).thenReturn(Mono.empty());
+    when(session.send(any())).thenAnswer(invocation -> {
+      Publisher<WebSocketMessage> messages = invocation.getArgument(0);
+      return Flux.from(messages)
+          .filter(message -> message.getType() == WebSocketMessage.Type.TEXT)
+          .doOnNext(message -> received.add(decode(message)))
+          .then();
+    });
+    return session;
+  }
+
+  private static CryptoTradeInfo trade (String tradeId, CryptoCurrency symbol, String exchange) {
+    CryptoTradeInfo info = new CryptoTradeInfo();
+    info.setTradeId(tradeId);
+    info.setUserId("user-1");
+    info.setSymbol(symbol);
+    info.setPrice(BigDecimal.TEN);
+    info.setQuantity(BigDecimal.ONE);
+    info.setExchange(exchange);
+    info.setExecutedAt(1000L);
+    return info;
+  }
+
+  private static List<String> tradeIds (List<List<TradeTapeEntry>> batches) {
+    return batches.stream().flatMap(List::stream).map(TradeTapeEntry::getTradeId).toList();
+  }
+
+  @Test
+  void tradesWithoutSessionsAreDropped () throws Exception {
+    tradeTapeService.onTradeSaved(trade("t-0", CryptoCurrency.BTC, "binance"));
+
+    List<List<TradeTapeEntry>> received = new CopyOnWriteArrayList<>();
+    Disposable connection = handler.handle(session("", received)).subscribe();
+    tradeTapeService.onTradeSaved(trade("t-1", CryptoCurrency.BTC, "binance"));
+    await().atMost(Duration.ofSeconds(2)).until(() -> tradeIds(received).equals(List.of("t-1")));
+    connection.dispose();
+  }
+
+  @Test
+  void filtersAndBatchesBySizeOrInterval () {
+    List<List<TradeTapeEntry>> received = new CopyOnWriteArrayList<>();
+    Disposable connection = handler.handle(session("?symbol=BTC&exchange=okx", received))
+        .subscribe();
+
+    for (int i = 1; i <= 4; i++) {
+      tradeTapeService.onTradeSaved(trade("t-" + i, CryptoCurrency.BTC, "okx"));
+    }
+    tradeTapeService.onTradeSaved(trade("u-1", CryptoCurrency.USDT, "okx"));
+    tradeTapeService.onTradeSaved(trade("b-1", CryptoCurrency.BTC, "binance"));
+
+    // 凑满 batch-size 立即推送，剩余一笔在 batch-interval-ms 后推送
+    await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 2);
+    assertEquals(3, received.get(0).size());
+    assertEquals(List.of("t-1", "t-2", "t-3", "t-4"), tradeIds(received));
+    TradeTapeEntry entry = received.get(0).get(0);
+    assertEquals(CryptoCurrency.BTC, entry.getSymbol());
+    assertEquals(0, BigDecimal.TEN.compareTo(entry.getPrice()));
+    connection.dispose();
+  }
+
+  @Test
+  void sessionsWithSameFilterShareOneEncodedStream () throws Exception {
+    List<List<TradeTapeEntry>> first = new CopyOnWriteArrayList<>();
+    List<List<TradeTapeEntry>> second = new CopyOnWriteArrayList<>();
+    Disposable a = handler.handle(session("?symbol=BTC", first)).subscribe();
+    Disposable b = handler.handle(session("?symbol=BTC", second)).subscribe();
+
+    tradeTapeService.onTradeSaved(trade("t-1", CryptoCurrency.BTC, "binance"));
+    await().atMost(Duration.ofSeconds(2))
+        .until(() -> !first.isEmpty() && !second.isEmpty());
+    assertEquals(tradeIds(first), tradeIds(second));
+    verify(objectMapper, times(1)).writeValueAsBytes(anyList());
+
+    // 最后一个会话离开后共享数据流被回收，新会话重新订阅
+    a.dispose();
+    b.dispose();
+    List<List<TradeTapeEntry>> third = new CopyOnWriteArrayList<>();
+    Disposable c = handler.handle(session("?symbol=BTC", third)).subscribe();
+    tradeTapeService.onTradeSaved(trade("t-2", CryptoCurrency.BTC, "binance"));
+    await().atMost(Duration.ofSeconds(2)).until(() -> tradeIds(third).equals(List.of("t-2")));
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertEquals(List.of("t-1"), tradeIds(first));
+    c.dispose();
+  }
+
+  @Test
+  void unsupportedSymbolClosesSession () {
+    List<List<TradeTapeEntry>> received = new CopyOnWriteArrayList<>();
+    WebSocketSession session = session("?symbol=DOGE", received);
+
+    handler.handle(session).block(Duration.ofSeconds(2));
+    verify(session).close(CloseStatus.BAD_DATA.withReason("unsupported symbol"));
+    assertTrue(received.isEmpty());
+  }
+}
@@ -0,0 +1,117 @@
+package com.lcp.spb.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcp.spb.logic.hashing.IdHasher;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+class TradeTopicRegistryTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final WebSocketCodecs codecs = new WebSocketCodecs(objectMapper, meterRegistry);
+  private final TradeTopicRegistry registry = newRegistry("test-key");
+
+  private TradeTopicRegistry newRegistry (String hmacKey) {
+    return new TradeTopicRegistry(codecs, new SinkEmitMetrics(meterRegistry),
+        new IdHasher(hmacKey, 0));
+  }
+
+  private static String json (TopicFrame frame, boolean asDelta) {
+    return new String(frame.encode(WireFormat.JSON, asDelta), StandardCharsets.UTF_8);
+  }
+
+  private static Map<String, Object> summary (long count, long windowEnd) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("count", count);
+    summary.put("windowEnd", windowEnd);
+    return summary;
+  }
+
+  @Test
+  void validatesTopics () {
+    assertTrue(TradeTopicRegistry.isValid("summary"));
+    assertTrue(TradeTopicRegistry.isValid("summary:BTC"));
+    assertTrue(TradeTopicRegistry.isValid("summary:exchange:binance"));
+    assertTrue(TradeTopicRegistry.isValid("trades:user:" + "ab12".repeat(16)));
+    assertFalse(TradeTopicRegistry.isValid("summary:DOGE"));
+    assertFalse(TradeTopicRegistry.isValid("trades:user:"));
+    // 用户成交主题只接受脱敏哈希，不接受原始用户ID
+    assertFalse(TradeTopicRegistry.isValid("trades:user:u1"));
+    assertFalse(TradeTopicRegistry.isValid("trades:user:" + "AB12".repeat(16)));
+    assertFalse(TradeTopicRegistry.isValid(null));
+  }
+
+  @Test
+  void topicIsCreatedLazilyAndRemovedWithLastSubscriber () {
+    assertFalse(registry.hasSubscribers("summary:BTC"));
+
+    Disposable first = registry.subscribe("summary:BTC").subscribe();
+    Disposable second = registry.subscribe("summary:BTC").subscribe();
+    assertTrue(registry.hasSubscribers("summary:BTC"));
+
+    first.dispose();
+    assertTrue(registry.hasSubscribers("summary:BTC"));
+    second.dispose();
+    assertFalse(registry.hasSubscribers("summary:BTC"));
+  }
+
+  @Test
+  void userTopicsAreDisabledWithoutHmacKey () {
+    String userTopic = "trades:user:" + "ab12".repeat(16);
+    assertTrue(registry.isEnabled(userTopic));
+
+    TradeTopicRegistry unkeyed = newRegistry("");
+    assertTrue(unkeyed.isEnabled("summary:BTC"));
+    assertFalse(unkeyed.isEnabled(userTopic));
+    StepVerifier.create(unkeyed.subscribe(userTopic)).verifyComplete();
+    assertFalse(unkeyed.hasSubscribers(userTopic));
+  }
+
+  @Test
+  void deliversOnlySubscribedTopics () {
+    StepVerifier.create(registry.subscribe("trades:user:u1").take(1))
+        .then(() -> {
+          registry.publish("trades:user:u2", Map.of("tradeId", "t-2"));
+          registry.publish("trades:user:u1", Map.of("tradeId", "t-1"));
+        })
+        .assertNext(frame -> assertEquals(
+            "{\"topic\":\"trades:user:u1\",\"seq\":1,\"data\":{\"tradeId\":\"t-1\"}}",
+            json(frame, false)))
+        .verifyComplete();
+    assertFalse(registry.hasSubscribers("trades:user:u1"));
+  }
+
+  @Test
+  void deltaCarriesOnlyChangedFieldsAndBinaryFormatsRoundTrip () throws Exception {
+    List<TopicFrame> frames = new ArrayList<>();
+    Disposable subscription = registry.subscribe("summary:BTC").subscribe(frames::add);
+    registry.publish("summary:BTC", summary(10, 1_000));
+    registry.publish("summary:BTC", summary(10, 2_000));
+    subscription.dispose();
+
+    assertEquals(2, frames.size());
+    assertFalse(frames.get(0).hasDelta());
+    assertTrue(frames.get(1).hasDelta());
+    assertEquals("{\"topic\":\"summary:BTC\",\"seq\":2,\"base\":1,\"delta\":{\"windowEnd\":2000}}",
+        json(frames.get(1), true));
+
+    for (WireFormat format : List.of(WireFormat.CBOR, WireFormat.SMILE)) {
+      byte[] binary = frames.get(1).encode(format, false);
+      assertEquals(objectMapper.readTree(json(frames.get(1), false)), codecs.read(format, binary));
+      assertTrue(binary.length < json(frames.get(1), false).getBytes(StandardCharsets.UTF_8).length);
+    }
+  }
+}
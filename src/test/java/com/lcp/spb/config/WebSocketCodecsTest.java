@@ -0,0 +1,109 @@
+package com.lcp.spb.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+class WebSocketCodecsTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final WebSocketCodecs codecs = new WebSocketCodecs(objectMapper, meterRegistry);
+
+  private JsonNode tree (Object value) {
+    return codecs.toTree(value);
+  }
+
+  private long frames (WireFormat format, String kind) {
+    return meterRegistry.get("trade.ws.frame.bytes")
+        .tag("format", format.getSubProtocol()).tag("kind", kind)
+        .summary().count();
+  }
+
+  @Test
+  void negotiatesSupportedSubProtocols () {
+    assertEquals(List.of("json", "json.delta", "cbor", "cbor.delta", "smile", "smile.delta"),
+        codecs.subProtocols());
+    assertEquals(new WebSocketCodecs.SessionEncoding(WireFormat.JSON, false),
+        codecs.negotiate("json"));
+    assertEquals(new WebSocketCodecs.SessionEncoding(WireFormat.CBOR, true),
+        codecs.negotiate("cbor.delta"));
+    assertEquals(new WebSocketCodecs.SessionEncoding(WireFormat.SMILE, true),
+        codecs.negotiate("smile.delta"));
+    assertNull(codecs.negotiate(null));
+    assertNull(codecs.negotiate("msgpack"));
+    assertNull(codecs.negotiate(".delta"));
+  }
+
+  @Test
+  void everyFormatRoundTripsAndRecordsFrameSize () throws Exception {
+    JsonNode value = tree(Map.of("action", "subscribe", "topic", "summary:BTC", "seq", 42));
+    for (WireFormat format : WireFormat.values()) {
+      byte[] bytes = codecs.encode(format, value, "reply");
+      assertEquals(value, codecs.read(format, bytes));
+      assertEquals(1, frames(format, "reply"));
+    }
+    assertEquals(WebSocketMessage.Type.TEXT, WireFormat.JSON.getMessageType());
+    assertEquals(WebSocketMessage.Type.BINARY, WireFormat.CBOR.getMessageType());
+    assertEquals(WebSocketMessage.Type.BINARY, WireFormat.SMILE.getMessageType());
+  }
+
+  @Test
+  void diffReportsChangedAddedAndRemovedFields () {
+    JsonNode previous = tree(Map.of("count", 10, "amount", "1.5", "windowEnd", 1_000));
+    JsonNode current = tree(Map.of("count", 10, "amount", "2.5", "distinctUsers", 3));
+
+    ObjectNode delta = TopicFrame.diff(codecs, previous, current);
+    // 被删除的字段以 null 表示
+    ObjectNode expected = codecs.objectNode().put("amount", "2.5").put("distinctUsers", 3)
+        .putNull("windowEnd");
+    assertEquals(expected, delta);
+
+    assertTrue(TopicFrame.diff(codecs, current, current).isEmpty());
+    assertNull(TopicFrame.diff(codecs, null, current));
+    assertNull(TopicFrame.diff(codecs, tree(List.of(1)), current));
+  }
+
+  @Test
+  void frameIsEncodedOncePerFormatAndKind () throws Exception {
+    JsonNode previous = tree(Map.of("count", 10, "windowEnd", 1_000));
+    JsonNode current = tree(Map.of("count", 11, "windowEnd", 1_000));
+    TopicFrame frame = new TopicFrame(codecs, "summary:BTC", 8, current, previous);
+    assertTrue(frame.hasDelta());
+
+    for (WireFormat format : WireFormat.values()) {
+      byte[] full = frame.encode(format, false);
+      byte[] delta = frame.encode(format, true);
+      assertSame(full, frame.encode(format, false));
+      assertSame(delta, frame.encode(format, true));
+      assertEquals(1, frames(format, "full"));
+      assertEquals(1, frames(format, "delta"));
+
+      JsonNode decoded = codecs.read(format, delta);
+      assertEquals(8, decoded.get("seq").asLong());
+      assertEquals(7, decoded.get("base").asLong());
+      assertEquals(tree(Map.of("count", 11)), decoded.get("delta"));
+      assertFalse(decoded.has("data"));
+      assertEquals(current, codecs.read(format, full).get("data"));
+    }
+  }
+
+  @Test
+  void firstFrameHasNoDelta () {
+    TopicFrame frame = new TopicFrame(codecs, "summary", 1, tree(Map.of("count", 1)), null);
+    assertFalse(frame.hasDelta());
+    assertEquals("summary", frame.getTopic());
+    assertEquals(1, frame.getSeq());
+  }
+}
@@ -0,0 +1,97 @@
+package com.lcp.spb.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class WebSocketKeepAliveTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final WebSocketSession session = mock(WebSocketSession.class);
+
+  private final WebSocketKeepAlive webSocketKeepAlive =
+      new WebSocketKeepAlive(meterRegistry, 1000L, 500L, 10_000L);
+
+  @BeforeEach
+  void stubSession () {
+    when(session.getId()).thenReturn("s-1");
+    when(session.pingMessage(any())).thenReturn(ping());
+    when(session.close(any())).thenReturn(Mono.empty());
+  }
+
+  private static WebSocketMessage ping () {
+    return new WebSocketMessage(WebSocketMessage.Type.PING,
+        DefaultDataBufferFactory.sharedInstance.wrap(new byte[8]));
+  }
+
+  private static WebSocketMessage message (WebSocketMessage.Type type) {
+    return new WebSocketMessage(type, DefaultDataBufferFactory.sharedInstance.wrap(new byte[1]));
+  }
+
+  private static long after (long millis) {
+    return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  private double reaped (String reason) {
+    return meterRegistry.get("trade.ws.sessions.reaped").tag("reason", reason).counter().count();
+  }
+
+  @Test
+  void pingsSilentSessionAndReapsWhenPongIsMissing () {
+    WebSocketKeepAlive.KeepAlive keepAlive = webSocketKeepAlive.forSession("test", session);
+
+    StepVerifier.create(keepAlive.check(after(100))).verifyComplete();
+    StepVerifier.create(keepAlive.check(after(1_100)))
+        .expectNextMatches(message -> message.getType() == WebSocketMessage.Type.PING)
+        .verifyComplete();
+    // 等待 pong 期间不重复发送 ping
+    StepVerifier.create(keepAlive.check(after(1_400))).verifyComplete();
+    StepVerifier.create(keepAlive.check(after(1_700))).verifyComplete();
+
+    assertEquals(1, reaped(WebSocketKeepAlive.REASON_PONG_TIMEOUT));
+    verify(session).close(any(CloseStatus.class));
+  }
+
+  @Test
+  void inboundFrameClearsPendingPingAndControlFramesAreFiltered () {
+    WebSocketKeepAlive.KeepAlive keepAlive = webSocketKeepAlive.forSession("test", session);
+    StepVerifier.create(keepAlive.check(after(1_100))).expectNextCount(1).verifyComplete();
+
+    StepVerifier.create(keepAlive.inbound(Flux.just(
+            message(WebSocketMessage.Type.PONG),
+            message(WebSocketMessage.Type.TEXT))))
+        .expectNextMatches(message -> message.getType() == WebSocketMessage.Type.TEXT)
+        .verifyComplete();
+
+    StepVerifier.create(keepAlive.check(after(800))).verifyComplete();
+    assertEquals(0, reaped(WebSocketKeepAlive.REASON_PONG_TIMEOUT));
+    verify(session, never()).close(any(CloseStatus.class));
+  }
+
+  @Test
+  void tracksLiveSessionsAndEndsHandlingWhenReaped () {
+    WebSocketKeepAlive.KeepAlive keepAlive = webSocketKeepAlive.forSession("test", session);
+
+    StepVerifier.create(keepAlive.track(Mono.never()))
+        .then(() -> assertEquals(1.0, meterRegistry.get("trade.ws.sessions").gauge().value()))
+        .then(() -> keepAlive.check(after(20_000)).subscribe())
+        .verifyComplete();
+    assertEquals(1, reaped(WebSocketKeepAlive.REASON_IDLE));
+    assertEquals(0.0, meterRegistry.get("trade.ws.sessions").gauge().value());
+  }
+}
@@ -0,0 +1,108 @@
+package com.lcp.spb.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class WebSocketOutboundPolicyTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private WebSocketOutboundPolicy newPolicy (SlowConsumerPolicy policy, int bufferSize) {
+    return new WebSocketOutboundPolicy(meterRegistry, policy, bufferSize, 5000L,
+        SlowConsumerPolicy.DISCONNECT, 3);
+  }
+
+  private double dropped () {
+    return meterRegistry.get("trade.ws.outbound.dropped").counter().count();
+  }
+
+  @Test
+  void latestKeepsOnlyNewestFrameForStalledConsumer () {
+    WebSocketOutboundPolicy.Guard guard = newPolicy(SlowConsumerPolicy.LATEST, 64)
+        .forSession("test", Mockito.mock(WebSocketSession.class));
+    Sinks.Many<byte[]> source = Sinks.many().multicast().directBestEffort();
+
+    StepVerifier.create(guard.guard(source.asFlux()), 0)
+        .then(() -> {
+          for (byte i = 1; i <= 5; i++) {
+            source.tryEmitNext(new byte[] {i});
+          }
+        })
+        .thenRequest(1)
+        .assertNext(frame -> assertArrayEquals(new byte[] {5}, frame))
+        .thenCancel()
+        .verify();
+    assertEquals(4, dropped());
+  }
+
+  @Test
+  void dropOldestBoundsBufferedFrames () {
+    WebSocketOutboundPolicy.Guard guard = newPolicy(SlowConsumerPolicy.DROP_OLDEST, 2)
+        .forSession("test", Mockito.mock(WebSocketSession.class));
+    Sinks.Many<byte[]> source = Sinks.many().multicast().directBestEffort();
+
+    StepVerifier.create(guard.guard(source.asFlux()), 0)
+        .then(() -> {
+          for (byte i = 1; i <= 5; i++) {
+            source.tryEmitNext(new byte[] {i});
+          }
+        })
+        .thenRequest(2)
+        .assertNext(frame -> assertArrayEquals(new byte[] {4}, frame))
+        .assertNext(frame -> assertArrayEquals(new byte[] {5}, frame))
+        .thenCancel()
+        .verify();
+    assertEquals(3, dropped());
+    assertEquals(0, meterRegistry.get("trade.ws.outbound.pending").gauge().value());
+  }
+
+  @Test
+  void orderedStreamIsNotConflatedAndOverflowClosesSession () {
+    WebSocketSession session = Mockito.mock(WebSocketSession.class);
+    Mockito.when(session.close(Mockito.any())).thenReturn(Mono.empty());
+    WebSocketOutboundPolicy.Guard guard = newPolicy(SlowConsumerPolicy.LATEST, 3)
+        .forSession("test", session);
+    Sinks.Many<byte[]> source = Sinks.many().multicast().directBestEffort();
+    List<byte[]> received = new ArrayList<>();
+
+    StepVerifier.create(guard.guardOrdered(source.asFlux()), 0)
+        .then(() -> {
+          for (byte i = 1; i <= 3; i++) {
+            source.tryEmitNext(new byte[] {i});
+          }
+        })
+        .thenRequest(3)
+        .assertNext(received::add)
+        .assertNext(received::add)
+        .assertNext(received::add)
+        .then(() -> {
+          for (byte i = 4; i <= 8; i++) {
+            source.tryEmitNext(new byte[] {i});
+          }
+        })
+        .thenRequest(Long.MAX_VALUE)
+        .thenConsumeWhile(frame -> received.add(frame))
+        .verifyComplete();
+
+    // 慢消费者收到的消息从第一条起连续，没有被合并；溢出后连接被关闭，而不是悄悄丢弃
+    for (int i = 0; i < received.size(); i++) {
+      assertArrayEquals(new byte[] {(byte) (i + 1)}, received.get(i));
+    }
+    assertTrue(received.size() >= 3);
+    Mockito.verify(session).close(CloseStatus.POLICY_VIOLATION);
+    assertEquals(1, meterRegistry.get("trade.ws.outbound.disconnected").counter().count());
+  }
+}
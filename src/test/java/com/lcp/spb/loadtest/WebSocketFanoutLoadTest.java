@@ -0,0 +1,237 @@
+package com.lcp.spb.loadtest;
+
+import com.lcp.spb.SpbApiApplication;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import io.netty.channel.ChannelOption;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * /ws/trade-summary 扇出压测工具
+ *
+ * <p>在当前 JVM 中以模拟数据模式启动应用（不依赖 Elasticsearch 等外部服务），
+ * 由 {@code TradeSummaryMockScheduler} 按 load.push-interval-ms 推送汇总，
+ * 再用 reactor-netty 建立 load.connections 个 WebSocket 客户端，统计：
+ * <ul>
+ *   <li>连接建立耗时：从发起连接到握手完成</li>
+ *   <li>端到端推送延迟：汇总写入 Sink 到客户端收到消息（同一 JVM 内以 nanoTime 计时）</li>
+ *   <li>每连接堆内存：全部连接建立前后 GC 后已用堆之差除以连接数，包含服务端和客户端两侧</li>
+ *   <li>丢失消息：测量期间推送的汇总中，客户端没有收到的条数（慢消费者策略丢弃的消息计入这里）</li>
+ * </ul>
+ *
+ * <p>运行方式（参数均可省略，括号内为默认值）：
+ * <pre>
+ * mvn -Pload-test test-compile exec:exec \
+ *     -Dload.connections=5000 (1000) -Dload.connect-concurrency=200 (100) \
+ *     -Dload.push-interval-ms=50 (100) -Dload.duration-s=60 (30) -Dload.heap=2g (1g)
+ * </pre>
+ * 连接数较多时需要调大文件句柄上限（ulimit -n）。
+ *
+ * @author lcp
+ */
+public class WebSocketFanoutLoadTest {
+
+  private static final String WINDOW_END_FIELD = "\"windowEnd\":";
+
+  private final int connections = Integer.getInteger("load.connections", 1000);
+  private final int connectConcurrency = Integer.getInteger("load.connect-concurrency", 100);
+  private final long pushIntervalMillis = Long.getLong("load.push-interval-ms", 100L);
+  private final long durationSeconds = Long.getLong("load.duration-s", 30L);
+
+  /** 连接建立耗时（微秒） */
+  private final Histogram connectMicros = new ConcurrentHistogram(3);
+  /** 端到端推送延迟（微秒） */
+  private final Histogram latencyMicros = new ConcurrentHistogram(3);
+
+  /** 推送时刻：windowEnd -> 写入 Sink 时的 nanoTime */
+  private final Map<Long, Long> emittedAt = new ConcurrentHashMap<>();
+  /** 测量期间推送的汇总条数 */
+  private final AtomicLong measuredEmissions = new AtomicLong();
+  /** 测量期间客户端收到的汇总条数（所有客户端合计） */
+  private final AtomicLong measuredDeliveries = new AtomicLong();
+  /** 测量开始时刻（nanoTime），0 表示尚未开始 */
+  private volatile long measureFrom;
+  /** 测量结束时刻（nanoTime） */
+  private volatile long measureUntil = Long.MAX_VALUE;
+
+  private final AtomicInteger connected = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicInteger closedEarly = new AtomicInteger();
+
+  public static void main (String[] args) throws InterruptedException {
+    new WebSocketFanoutLoadTest().run();
+    System.exit(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void run () throws InterruptedException {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(SpbApiApplication.class)
+        .properties(
+            "server.port=0",
+            "management.server.port=0",
+            // 数千个连接同时优雅关闭会在 reactor-netty 内部嵌套过深，压测结束直接关闭即可
+            "server.shutdown=immediate",
+            "trade.summary.mock.enabled=true",
+            "trade.summary.mock.interval-ms=" + pushIntervalMillis,
+            "trade.summary.push.event.enabled=false",
+            "logging.level.root=WARN",
+            "logging.level.com.lcp.spb=WARN")
+        .run();
+    int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    Sinks.Many<RecentHourTradeSummary> sink = context.getBean("tradeSummarySink", Sinks.Many.class);
+    Disposable emissions = sink.asFlux().subscribe(this::onEmitted);
+
+    long heapBefore = usedHeapAfterGc();
+    List<Disposable> clients = connectAll(port);
+    long heapAfter = usedHeapAfterGc();
+
+    System.out.printf("Measuring %d connections for %d s at one push every %d ms...%n",
+        connected.get(), durationSeconds, pushIntervalMillis);
+    measureFrom = System.nanoTime();
+    TimeUnit.SECONDS.sleep(durationSeconds);
+    measureUntil = System.nanoTime();
+    // 给最后一条推送留出送达时间
+    TimeUnit.MILLISECONDS.sleep(Math.max(1000, pushIntervalMillis * 2));
+
+    report(heapBefore, heapAfter);
+    clients.forEach(Disposable::dispose);
+    emissions.dispose();
+    TimeUnit.SECONDS.sleep(1);
+    context.close();
+  }
+
+  private List<Disposable> connectAll (int port) {
+    List<Disposable> clients = new CopyOnWriteArrayList<>();
+    HttpClient httpClient = HttpClient.create(ConnectionProvider.newConnection())
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10_000)
+        .baseUrl("ws://localhost:" + port);
+    long start = System.nanoTime();
+    Flux.range(0, connections)
+        .flatMap(i -> connect(httpClient, clients), connectConcurrency)
+        .blockLast();
+    System.out.printf("Connected %d/%d clients in %d ms (%d failed)%n", connected.get(),
+        connections, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed.get());
+    return clients;
+  }
+
+  /**
+   * 建立一个客户端连接，握手完成后 Mono 完成，连接保持到被 dispose
+   */
+  private Mono<Void> connect (HttpClient httpClient, List<Disposable> clients) {
+    Sinks.Empty<Void> ready = Sinks.empty();
+    long start = System.nanoTime();
+    Disposable client = httpClient.websocket()
+        .uri("/ws/trade-summary")
+        .handle((inbound, outbound) -> {
+          connectMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+          connected.incrementAndGet();
+          ready.tryEmitEmpty();
+          return inbound.receive().asString().doOnNext(this::onMessage).then();
+        })
+        .subscribe(
+            ignored -> { },
+            error -> {
+              if (ready.tryEmitEmpty().isSuccess()) {
+                failed.incrementAndGet();
+              } else {
+                closedEarly.incrementAndGet();
+              }
+            },
+            () -> {
+              if (measureUntil == Long.MAX_VALUE) {
+                closedEarly.incrementAndGet();
+              }
+            });
+    clients.add(client);
+    return ready.asMono();
+  }
+
+  private void onEmitted (RecentHourTradeSummary summary) {
+    long now = System.nanoTime();
+    emittedAt.put(summary.getWindowEnd(), now);
+    if (inMeasurement(now)) {
+      measuredEmissions.incrementAndGet();
+    }
+  }
+
+  private void onMessage (String text) {
+    long now = System.nanoTime();
+    int index = text.indexOf(WINDOW_END_FIELD);
+    if (index < 0) {
+      return;
+    }
+    int from = index + WINDOW_END_FIELD.length();
+    int to = from;
+    while (to < text.length() && Character.isDigit(text.charAt(to))) {
+      to++;
+    }
+    Long sentAt = emittedAt.get(Long.parseLong(text, from, to, 10));
+    // 连接建立时回放的上一条汇总以及测量区间外的推送不计入统计
+    if (sentAt != null && inMeasurement(sentAt)) {
+      measuredDeliveries.incrementAndGet();
+      latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sentAt));
+    }
+  }
+
+  private boolean inMeasurement (long nanoTime) {
+    return measureFrom != 0 && nanoTime >= measureFrom && nanoTime < measureUntil;
+  }
+
+  private static long usedHeapAfterGc () throws InterruptedException {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(200);
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private void report (long heapBefore, long heapAfter) {
+    long expected = measuredEmissions.get() * connected.get();
+    long delivered = measuredDeliveries.get();
+    System.out.println();
+    System.out.println("=== /ws/trade-summary fan-out ===");
+    System.out.printf("connections        : %d ok, %d failed, %d closed early%n",
+        connected.get(), failed.get(), closedEarly.get());
+    System.out.printf("connect setup (ms) : %s%n", percentiles(connectMicros));
+    System.out.printf("push latency (ms)  : %s%n", percentiles(latencyMicros));
+    System.out.printf("pushes measured    : %d over %d s%n", measuredEmissions.get(),
+        durationSeconds);
+    System.out.printf("messages           : %d expected, %d delivered, %d dropped (%.3f%%)%n",
+        expected, delivered, expected - delivered,
+        expected == 0 ? 0.0 : 100.0 * (expected - delivered) / expected);
+    System.out.printf("heap / connection  : %.1f KB (server + client, %d MB total)%n",
+        connected.get() == 0 ? 0.0 : (heapAfter - heapBefore) / 1024.0 / connected.get(),
+        (heapAfter - heapBefore) / (1024 * 1024));
+  }
+
+  private static String percentiles (Histogram histogram) {
+    if (histogram.getTotalCount() == 0) {
+      return "no samples";
+    }
+    return String.format("p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f (n=%d)",
+        histogram.getValueAtPercentile(50) / 1000.0,
+        histogram.getValueAtPercentile(90) / 1000.0,
+        histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getValueAtPercentile(99.9) / 1000.0,
+        histogram.getMaxValue() / 1000.0,
+        histogram.getTotalCount());
+  }
+}
@@ -0,0 +1,40 @@
+package com.lcp.spb.logic.hashing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class IdHasherTest {
+
+  @Test
+  void sha256MatchesKnownVectors () {
+    IdHasher hasher = new IdHasher("", 0);
+    assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+        hasher.sha256Hex("abc"));
+    assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+        hasher.pseudonymize("abc"));
+    assertEquals("", hasher.sha256Hex(null));
+  }
+
+  @Test
+  void hmacMatchesRfc4231 () {
+    IdHasher hasher = new IdHasher("Jefe", 0);
+    assertEquals("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843",
+        hasher.pseudonymize("what do ya want for nothing?"));
+    assertEquals("", hasher.pseudonymize(null));
+  }
+
+  @Test
+  void memoReturnsCachedResultUntilSlotIsReused () {
+    IdHasher hasher = new IdHasher("Jefe", 1);
+    String first = hasher.pseudonymize("user-1");
+    assertSame(first, hasher.pseudonymize("user-1"));
+
+    hasher.pseudonymize("user-2");
+    String again = hasher.pseudonymize("user-1");
+    assertEquals(first, again);
+    assertNotSame(first, again);
+  }
+}
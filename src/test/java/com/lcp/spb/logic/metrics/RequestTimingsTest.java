@@ -0,0 +1,44 @@
+package com.lcp.spb.logic.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+class RequestTimingsTest {
+
+  @Test
+  void accumulatesRepeatedPhasesInFirstRecordedOrder () {
+    RequestTimings timings = new RequestTimings();
+    timings.recordEsCall("crypto-trade-info", "SEARCH", 200_000, 12_000_000, 8, true);
+    timings.recordEsCall("crypto-trade-info", "COUNT", 100_000, 3_000_000, -1, true);
+    timings.record("hits", 500_000);
+
+    String header = timings.toHeader();
+    assertTrue(header.startsWith("queue;dur=0.3;desc=\"2 calls\", es;dur=15.0;desc=\"2 calls\", "
+        + "es-took;dur=8.0, hits;dur=0.5, render;dur="), header);
+    assertTrue(header.contains(", total;dur="), header);
+    assertEquals(2, timings.esCalls().size());
+    assertEquals("COUNT", timings.esCalls().get(1).operation());
+  }
+
+  @Test
+  void onlyTotalWithoutRecordedPhases () {
+    assertTrue(new RequestTimings().toHeader().startsWith("total;dur="));
+  }
+
+  @Test
+  void resolvesFromReactorContext () {
+    RequestTimings timings = new RequestTimings();
+    StepVerifier.create(Mono.deferContextual(context -> Mono.just(RequestTimings.from(context)))
+        .contextWrite(Context.of(RequestTimings.CONTEXT_KEY, timings)))
+        .assertNext(resolved -> assertSame(timings, resolved))
+        .verifyComplete();
+    assertNull(RequestTimings.from(Context.empty()));
+  }
+}
@@ -0,0 +1,197 @@
+package com.lcp.spb.logic.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+class ElasticsearchGuardTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ElasticsearchGuard newGuard (int initialLimit) {
+    // 并发上限 [1, 100]，延迟阈值 1 秒，减半；失败率 50%、至少 4 次、窗口 10，打开 60 秒，半开探测 1 次
+    return new ElasticsearchGuard(meterRegistry, true, initialLimit, 1, 100, 1000L, 0.5, 1000L,
+        50, 4, 10, 60_000L, 1);
+  }
+
+  /** 在弹性线程池中执行，与 BaseService.fromBlocking 相同 */
+  private static <T> Mono<T> blocking (Callable<T> action) {
+    return Mono.fromCallable(action).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private static <T> Mono<T> call (ElasticsearchGuard guard, ElasticsearchOperation operation,
+      Callable<T> action) {
+    return guard.guard("idx", operation, action, Mono::fromCallable);
+  }
+
+  private static Callable<Integer> failing (Exception error) {
+    return () -> {
+      throw error;
+    };
+  }
+
+  private double inFlight () {
+    return meterRegistry.get("trade.es.in-flight").tag("operation", "SEARCH").gauge().value();
+  }
+
+  private double rejected (String reason) {
+    return meterRegistry.get("trade.es.rejected").tag("reason", reason).counter().count();
+  }
+
+  @Test
+  void rejectsBeyondLimitWithoutSubscribing () throws Exception {
+    ElasticsearchGuard guard = newGuard(2);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Integer> first = guard.guard("idx", ElasticsearchOperation.SEARCH, () -> {
+      release.await();
+      return 1;
+    }, ElasticsearchGuardTest::blocking).toFuture();
+    guard.guard("idx", ElasticsearchOperation.SEARCH, () -> {
+      release.await();
+      return 2;
+    }, ElasticsearchGuardTest::blocking).subscribe();
+
+    AtomicInteger subscribed = new AtomicInteger();
+    StepVerifier.create(call(guard, ElasticsearchOperation.SEARCH, subscribed::incrementAndGet))
+        .expectErrorSatisfies(error -> {
+          ElasticsearchOverloadException overload = (ElasticsearchOverloadException) error;
+          assertEquals(ElasticsearchOverloadException.REASON_LIMIT, overload.getReason());
+          assertEquals(Duration.ofSeconds(1), overload.getRetryAfter());
+        })
+        .verify();
+    assertEquals(0, subscribed.get());
+    assertEquals(1, rejected(ElasticsearchOverloadException.REASON_LIMIT));
+
+    // 其他操作类型的额度互不影响
+    StepVerifier.create(call(guard, ElasticsearchOperation.INDEX, () -> 1))
+        .expectNext(1).verifyComplete();
+
+    release.countDown();
+    assertEquals(1, first.get(5, TimeUnit.SECONDS));
+    StepVerifier.create(call(guard, ElasticsearchOperation.SEARCH, () -> 1))
+        .expectNext(1).verifyComplete();
+  }
+
+  @Test
+  void cancelledCallHoldsSlotUntilBlockingCallReturns () throws Exception {
+    ElasticsearchGuard guard = newGuard(1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Disposable subscription = guard.guard("idx", ElasticsearchOperation.SEARCH, () -> {
+      started.countDown();
+      release.await();
+      return 1;
+    }, ElasticsearchGuardTest::blocking).subscribe();
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // 订阅者取消（如对冲落败）后阻塞调用仍在执行，额度不能提前释放
+    subscription.dispose();
+    StepVerifier.create(call(guard, ElasticsearchOperation.SEARCH, () -> 1))
+        .expectError(ElasticsearchOverloadException.class)
+        .verify();
+    assertEquals(1, inFlight());
+
+    release.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (inFlight() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, inFlight());
+    StepVerifier.create(call(guard, ElasticsearchOperation.SEARCH, () -> 1))
+        .expectNext(1).verifyComplete();
+  }
+
+  @Test
+  void cancelBeforeStartReleasesSlotWithoutRunning () {
+    ElasticsearchGuard guard = newGuard(1);
+    AtomicInteger executed = new AtomicInteger();
+    Sinks.Empty<Void> gate = Sinks.empty();
+    guard.guard("idx", ElasticsearchOperation.SEARCH, executed::incrementAndGet,
+        action -> gate.asMono().then(Mono.fromCallable(action))).subscribe().dispose();
+
+    assertEquals(0, inFlight());
+    gate.tryEmitEmpty();
+    assertEquals(0, executed.get());
+  }
+
+  @Test
+  void opensBreakerOnOverloadButNotOnConflicts () {
+    ElasticsearchGuard guard = newGuard(10);
+    ElasticsearchException conflict = new ElasticsearchException("es/index", ErrorResponse.of(
+        e -> e.status(409).error(c -> c.type("version_conflict_engine_exception").reason("x"))));
+    for (int i = 0; i < 10; i++) {
+      call(guard, ElasticsearchOperation.INDEX, failing(conflict))
+          .onErrorResume(error -> Mono.empty()).block();
+    }
+    StepVerifier.create(call(guard, ElasticsearchOperation.INDEX, () -> 1))
+        .expectNext(1).verifyComplete();
+
+    for (int i = 0; i < 10; i++) {
+      call(guard, ElasticsearchOperation.INDEX, failing(new IOException("refused")))
+          .onErrorResume(error -> Mono.empty()).block();
+    }
+    StepVerifier.create(call(guard, ElasticsearchOperation.INDEX, () -> 1))
+        .expectErrorSatisfies(error -> {
+          ElasticsearchOverloadException overload = (ElasticsearchOverloadException) error;
+          assertEquals(ElasticsearchOverloadException.REASON_BREAKER, overload.getReason());
+          assertTrue(overload.getRetryAfter().toSeconds() > 50);
+        })
+        .verify();
+    assertEquals(2, meterRegistry.get("trade.es.breaker.state").tag("operation", "INDEX")
+        .gauge().value());
+  }
+
+  @Test
+  void breakerProbesAfterOpenDuration () {
+    long second = TimeUnit.SECONDS.toNanos(1);
+    CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 4, second, 1);
+    breaker.onFailure(0);
+    breaker.onFailure(0);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertFalse(breaker.tryAcquire(second / 2));
+
+    assertTrue(breaker.tryAcquire(second));
+    assertFalse(breaker.tryAcquire(second));
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  void limiterBacksOffOnSlowCallsAndGrowsWhenSaturated () {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100,
+        TimeUnit.MILLISECONDS.toNanos(100), 0.5);
+    assertTrue(limiter.tryAcquire());
+    limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(5, limiter.limit());
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+    assertFalse(limiter.tryAcquire());
+    for (int i = 0; i < 5; i++) {
+      limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    assertEquals(0, limiter.inFlight());
+    assertEquals(5, limiter.limit());
+    assertTrue(limiter.tryAcquire());
+    limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+    assertTrue(limiter.limit() >= 5);
+  }
+}
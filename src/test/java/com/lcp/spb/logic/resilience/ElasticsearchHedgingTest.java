@@ -0,0 +1,106 @@
+package com.lcp.spb.logic.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class ElasticsearchHedgingTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<String> preferences = new CopyOnWriteArrayList<>();
+
+  private ElasticsearchHedging newHedging (long initialDelayMillis, double budgetRatio,
+      double budgetMaxTokens) {
+    return new ElasticsearchHedging(meterRegistry, true, 0.95, 10L, initialDelayMillis, budgetRatio,
+        budgetMaxTokens);
+  }
+
+  /** 原请求 1 秒后返回，对冲请求 10 毫秒后返回 */
+  private Function<String, Mono<String>> slowPrimary () {
+    return preference -> {
+      preferences.add(String.valueOf(preference));
+      return preference == null ? Mono.delay(Duration.ofSeconds(1)).thenReturn("primary")
+          : Mono.delay(Duration.ofMillis(10)).thenReturn("hedge");
+    };
+  }
+
+  private double count (String name) {
+    return meterRegistry.get(name).counter().count();
+  }
+
+  @Test
+  void hedgeWinsWhenPrimaryIsSlow () {
+    ElasticsearchHedging hedging = newHedging(100L, 0.1, 10);
+    StepVerifier.withVirtualTime(
+        () -> hedging.read("idx", ElasticsearchOperation.SEARCH, slowPrimary()))
+        .thenAwait(Duration.ofMillis(110))
+        .expectNext("hedge")
+        .verifyComplete();
+
+    assertEquals(2, preferences.size());
+    assertEquals("null", preferences.get(0));
+    assertEquals(1, count("trade.es.hedge.sent"));
+    assertEquals(1, count("trade.es.hedge.won"));
+  }
+
+  @Test
+  void fastPrimaryIsNotHedged () {
+    ElasticsearchHedging hedging = newHedging(100L, 0.1, 10);
+    StepVerifier.withVirtualTime(() -> hedging.read("idx", ElasticsearchOperation.COUNT,
+        preference -> {
+          preferences.add(String.valueOf(preference));
+          return Mono.delay(Duration.ofMillis(50)).thenReturn(1L);
+        }))
+        .thenAwait(Duration.ofSeconds(1))
+        .expectNext(1L)
+        .verifyComplete();
+
+    assertEquals(1, preferences.size());
+    assertEquals(0, count("trade.es.hedge.sent"));
+  }
+
+  @Test
+  void budgetCapsHedges () {
+    ElasticsearchHedging hedging = newHedging(100L, 0, 1);
+    for (int i = 0; i < 3; i++) {
+      StepVerifier.withVirtualTime(
+          () -> hedging.read("idx", ElasticsearchOperation.SEARCH, slowPrimary()))
+          .thenAwait(Duration.ofSeconds(1))
+          .expectNextCount(1)
+          .verifyComplete();
+    }
+
+    assertEquals(3, count("trade.es.hedge.reads"));
+    assertEquals(1, count("trade.es.hedge.sent"));
+    assertEquals(2, count("trade.es.hedge.budget-exhausted"));
+  }
+
+  @Test
+  void cancelledLosersKeepHedgeDelayHigh () {
+    ElasticsearchHedging hedging = newHedging(50L, 1, 100);
+    Function<String, Mono<String>> attempt = preference -> preference == null
+        ? Mono.delay(Duration.ofSeconds(1)).thenReturn("primary")
+        : Mono.delay(Duration.ofMillis(5)).thenReturn("hedge");
+    for (int i = 0; i < 50; i++) {
+      StepVerifier.create(hedging.read("idx", ElasticsearchOperation.SEARCH, attempt))
+          .expectNext("hedge")
+          .verifyComplete();
+    }
+    double sent = count("trade.es.hedge.sent");
+
+    // 落败的原请求按取消时的等待时间（约 55 毫秒）计入样本，30 毫秒返回的请求不再触发对冲
+    StepVerifier.create(hedging.read("idx", ElasticsearchOperation.SEARCH,
+        preference -> preference == null ? Mono.delay(Duration.ofMillis(30)).thenReturn("primary")
+            : Mono.delay(Duration.ofMillis(5)).thenReturn("hedge")))
+        .expectNext("primary")
+        .verifyComplete();
+    assertEquals(sent, count("trade.es.hedge.sent"));
+  }
+}
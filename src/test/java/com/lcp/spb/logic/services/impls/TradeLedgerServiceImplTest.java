@@ -0,0 +1,100 @@
+package com.lcp.spb.logic.services.impls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.UserTradeLedger;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class TradeLedgerServiceImplTest {
+
+  private static final long SETTLE_MILLIS = 2000;
+
+  /** 聚合查询由测试控制完成时机的账本服务 */
+  private static final class ControlledLedgerService extends TradeLedgerServiceImpl {
+
+    private final Sinks.One<SearchResponse<CryptoTradeInfo>> response = Sinks.one();
+    private long cutoff;
+
+    ControlledLedgerService (int maxResidentUsers) {
+      super(maxResidentUsers, SETTLE_MILLIS);
+    }
+
+    @Override
+    Mono<SearchResponse<CryptoTradeInfo>> queryLedger (String userId, long cutoff) {
+      this.cutoff = cutoff;
+      return response.asMono();
+    }
+
+    /** 模拟聚合结果：cutoff 之前写入的 BTC 成交 */
+    void complete (long tradeCount, double volume) {
+      StringTermsBucket bucket = StringTermsBucket.of(b -> b.key("BTC").docCount(tradeCount)
+          .aggregations(Map.of("volume", Aggregate.of(a -> a.sum(sum -> sum.value(volume))))));
+      response.tryEmitValue(SearchResponse.of(r -> r.took(1).timedOut(false)
+          .shards(shards -> shards.total(1).successful(1).failed(0))
+          .hits(hits -> hits.hits(List.of()))
+          .aggregations("by_symbol", Aggregate.of(a -> a.sterms(terms -> terms
+              .buckets(buckets -> buckets.array(List.of(bucket)))
+              .sumOtherDocCount(0L))))));
+    }
+  }
+
+  private static CryptoTradeInfo trade (String tradeId, long ingestedAt, String amount) {
+    CryptoTradeInfo info = new CryptoTradeInfo();
+    info.setTradeId(tradeId);
+    info.setUserId("u1");
+    info.setSymbol(CryptoCurrency.BTC);
+    info.setTotalAmount(new BigDecimal(amount));
+    info.setIngestedAt(ingestedAt);
+    return info;
+  }
+
+  private static void assertBtc (UserTradeLedger ledger, long tradeCount, String volume) {
+    assertEquals(1, ledger.getSymbols().size());
+    assertEquals(tradeCount, ledger.getSymbols().get(0).getTradeCount());
+    assertEquals(0, new BigDecimal(volume).compareTo(ledger.getSymbols().get(0).getVolume()));
+  }
+
+  @Test
+  void tradeSavedDuringLoadIsCountedOnce () {
+    ControlledLedgerService service = new ControlledLedgerService(10);
+    // 加载前刚写入、尚未刷新到 Elasticsearch 的交易
+    service.onTradeSaved(trade("t-recent", System.currentTimeMillis(), "10"));
+
+    Mono<UserTradeLedger> loading = service.ledger("u1");
+    loading.subscribe();
+    // 加载期间写入的交易，以及写入耗时过长、ingestedAt 早于 cutoff 而已被聚合统计的交易
+    service.onTradeSaved(trade("t-during", System.currentTimeMillis(), "20"));
+    service.onTradeSaved(trade("t-late", service.cutoff - 1, "40"));
+    service.complete(2, 100);
+
+    assertBtc(loading.block(), 4, "130");
+    // 加载完成后写入的交易直接累加到常驻账本
+    service.onTradeSaved(trade("t-after", System.currentTimeMillis(), "5"));
+    assertBtc(service.ledger("u1").block(), 5, "135");
+  }
+
+  @Test
+  void residentUsersAreCappedOnInsert () {
+    ControlledLedgerService service = new ControlledLedgerService(2);
+    service.complete(1, 10);
+    service.ledger("u1").block();
+    service.ledger("u2").block();
+    service.ledger("u3").block();
+
+    assertTrue(service.ledger("u2").block().isResident());
+    assertTrue(service.ledger("u3").block().isResident());
+    assertFalse(service.ledger("u1").block().isResident());
+  }
+}
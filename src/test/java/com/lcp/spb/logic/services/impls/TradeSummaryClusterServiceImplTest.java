@@ -0,0 +1,175 @@
+package com.lcp.spb.logic.services.impls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.CreateRequest;
+import co.elastic.clients.elasticsearch.core.CreateResponse;
+import co.elastic.clients.elasticsearch.core.GetRequest;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.bean.trade.TradeSummaryLease;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import com.lcp.spb.logic.resilience.ElasticsearchGuard;
+import com.lcp.spb.logic.resilience.ElasticsearchHedging;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Sinks;
+
+@SpringBootTest(classes = {TradeSummaryClusterServiceImpl.class, ElasticsearchGuard.class,
+    ElasticsearchHedging.class, SinkEmitMetrics.class, TradeSummaryClusterServiceImplTest.Beans.class})
+@TestPropertySource(properties = {
+    "trade.summary.cluster.enabled=true",
+    "trade.summary.cluster.node-id=a",
+    "trade.summary.cluster.lease-ttl-ms=30000",
+    "trade.summary.cluster.renew-interval-ms=10000"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TradeSummaryClusterServiceImplTest {
+
+  @TestConfiguration
+  static class Beans {
+
+    @Bean
+    MeterRegistry meterRegistry () {
+      return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    Sinks.Many<RecentHourTradeSummary> tradeSummarySink () {
+      return Sinks.many().replay().latest();
+    }
+  }
+
+  @MockitoBean
+  private ElasticsearchClient client;
+
+  @Autowired
+  private TradeSummaryClusterServiceImpl service;
+
+  private static CreateRequest<TradeSummaryLease> anyCreate () {
+    return any();
+  }
+
+  private static IndexRequest<TradeSummaryLease> anyIndex () {
+    return any();
+  }
+
+  private static GetResponse<TradeSummaryLease> lease (TradeSummaryLease source) {
+    return new GetResponse.Builder<TradeSummaryLease>()
+        .index("trade-summary-lease").id("summary-scheduler")
+        .found(true).seqNo(7L).primaryTerm(1L).source(source)
+        .build();
+  }
+
+  private static GetResponse<TradeSummaryLease> missing () {
+    return new GetResponse.Builder<TradeSummaryLease>()
+        .index("trade-summary-lease").id("summary-scheduler").found(false)
+        .build();
+  }
+
+  private static IndexResponse indexed () {
+    return IndexResponse.of(b -> b.index("trade-summary-lease").id("summary-scheduler")
+        .result(Result.Updated).seqNo(8L).primaryTerm(1L).version(2L)
+        .shards(s -> s.total(1).successful(1).failed(0)));
+  }
+
+  private static ElasticsearchException conflict () {
+    return new ElasticsearchException("es/index", ErrorResponse.of(e -> e.status(409)
+        .error(c -> c.type("version_conflict_engine_exception").reason("conflict"))));
+  }
+
+  @Test
+  void acquiresMissingLease () throws Exception {
+    when(client.get(any(GetRequest.class), eq(TradeSummaryLease.class))).thenReturn(missing());
+    when(client.create(anyCreate())).thenReturn(CreateResponse.of(b -> b
+        .index("trade-summary-lease").id("summary-scheduler").result(Result.Created)
+        .seqNo(0L).primaryTerm(1L).version(1L)
+        .shards(s -> s.total(1).successful(1).failed(0))));
+
+    assertTrue(service.acquireOrRenew().block());
+    assertTrue(service.isLeader());
+  }
+
+  @Test
+  void doesNotTakeUnexpiredLeaseFromOtherNode () throws Exception {
+    long now = System.currentTimeMillis();
+    when(client.get(any(GetRequest.class), eq(TradeSummaryLease.class)))
+        .thenReturn(lease(new TradeSummaryLease("b", now, now + 20000)));
+
+    assertFalse(service.acquireOrRenew().block());
+    assertFalse(service.isLeader());
+    verify(client, never()).index(anyIndex());
+  }
+
+  @Test
+  void takesOverExpiredLease () throws Exception {
+    long now = System.currentTimeMillis();
+    when(client.get(any(GetRequest.class), eq(TradeSummaryLease.class)))
+        .thenReturn(lease(new TradeSummaryLease("b", now - 60000, now - 1)));
+    when(client.index(anyIndex())).thenReturn(indexed());
+
+    assertTrue(service.acquireOrRenew().block());
+    assertTrue(service.isLeader());
+  }
+
+  @Test
+  void stepsDownOnVersionConflict () throws Exception {
+    long now = System.currentTimeMillis();
+    when(client.get(any(GetRequest.class), eq(TradeSummaryLease.class)))
+        .thenReturn(lease(new TradeSummaryLease("a", now - 5000, now + 25000)));
+    when(client.index(anyIndex())).thenReturn(indexed());
+    assertTrue(service.acquireOrRenew().block());
+
+    when(client.index(anyIndex())).thenThrow(conflict());
+    assertFalse(service.acquireOrRenew().block());
+    assertFalse(service.isLeader());
+  }
+
+  @Test
+  void sharedSummaryIsFencedByLeaseSeqNo () throws Exception {
+    long now = System.currentTimeMillis();
+    when(client.get(any(GetRequest.class), eq(TradeSummaryLease.class)))
+        .thenReturn(lease(new TradeSummaryLease("b", now - 60000, now - 1)));
+    when(client.index(anyIndex())).thenReturn(indexed());
+    assertTrue(service.acquireOrRenew().block());
+
+    RecentHourTradeSummary summary =
+        new RecentHourTradeSummary(3, BigDecimal.TEN, now - 3600000, now, false);
+    service.publishLatest(summary).block();
+    ArgumentCaptor<IndexRequest<TradeSummaryLease>> written = ArgumentCaptor.captor();
+    verify(client, times(2)).index(written.capture());
+    IndexRequest<TradeSummaryLease> request = written.getValue();
+    assertEquals("trade-summary-latest", request.index());
+    assertEquals(8L, request.version());
+    assertEquals(VersionType.ExternalGte, request.versionType());
+
+    // 新 leader 已用更大的版本号写入，旧 leader 的写入被忽略并退出 leader 身份
+    when(client.index(anyIndex())).thenThrow(conflict());
+    service.publishLatest(summary).block();
+    assertFalse(service.isLeader());
+  }
+}
@@ -0,0 +1,72 @@
+package com.lcp.spb.logic.services.impls;
+
+import com.lcp.spb.bean.trade.RecentHourTradeSummary;
+import com.lcp.spb.logic.metrics.SinkEmitMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class TradeSummaryStreamServiceImplTest {
+
+  private final Sinks.Many<RecentHourTradeSummary> sink = Sinks.many().replay().latest();
+
+  private TradeSummaryStreamServiceImpl newService (int replaySize) {
+    TradeSummaryStreamServiceImpl service = new TradeSummaryStreamServiceImpl(sink,
+        new SinkEmitMetrics(new SimpleMeterRegistry()), replaySize, 0L);
+    service.init();
+    return service;
+  }
+
+  private void publish (long count) {
+    sink.tryEmitNext(new RecentHourTradeSummary(count, BigDecimal.ONE, 0, 0, false, null, null));
+  }
+
+  @Test
+  void newClientReceivesLatestOnly () {
+    TradeSummaryStreamServiceImpl service = newService(8);
+    publish(1);
+    publish(2);
+    publish(3);
+
+    StepVerifier.create(service.stream(null))
+        .expectNextMatches(event -> "3".equals(event.id()) && event.data().getCount() == 3)
+        .then(() -> publish(4))
+        .expectNextMatches(event -> "4".equals(event.id()))
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void reconnectResumesAfterLastEventId () {
+    TradeSummaryStreamServiceImpl service = newService(8);
+    for (long i = 1; i <= 5; i++) {
+      publish(i);
+    }
+
+    StepVerifier.create(service.stream(2L))
+        .expectNextMatches(event -> "3".equals(event.id()))
+        .expectNextMatches(event -> "4".equals(event.id()))
+        .expectNextMatches(event -> "5".equals(event.id()))
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void evictedOrUnknownIdFallsBackToLatest () {
+    TradeSummaryStreamServiceImpl service = newService(3);
+    for (long i = 1; i <= 10; i++) {
+      publish(i);
+    }
+
+    StepVerifier.create(service.stream(2L))
+        .expectNextMatches(event -> "10".equals(event.id()))
+        .thenCancel()
+        .verify();
+    StepVerifier.create(service.stream(99L))
+        .expectNextMatches(event -> "10".equals(event.id()))
+        .thenCancel()
+        .verify();
+  }
+}
@@ -0,0 +1,85 @@
+package com.lcp.spb.logic.services.impls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeTicker;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TradeTickerServiceImplTest {
+
+  private static final long TWO_DAYS_MILLIS = 48 * 60 * 60 * 1000L;
+
+  private final TradeTickerServiceImpl service = new TradeTickerServiceImpl(1000);
+
+  private static CryptoTradeInfo trade (String exchange, String price, String quantity,
+      Long executedAt) {
+    CryptoTradeInfo info = new CryptoTradeInfo();
+    info.setSymbol(CryptoCurrency.BTC);
+    info.setExchange(exchange);
+    info.setPrice(new BigDecimal(price));
+    info.setQuantity(new BigDecimal(quantity));
+    info.setExecutedAt(executedAt);
+    return info;
+  }
+
+  private static void assertDecimal (String expected, BigDecimal actual) {
+    assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> String.valueOf(actual));
+  }
+
+  @Test
+  void aggregatesPerExchangeAndAcrossExchanges () {
+    long now = System.currentTimeMillis();
+    service.onTradeSaved(trade("binance", "100", "1", now - 1000));
+    service.onTradeSaved(trade("okx", "200", "3", now));
+
+    TradeTicker all = service.tickers(CryptoCurrency.BTC, null).get(0);
+    assertNull(all.getExchange());
+    assertDecimal("200", all.getLastPrice());
+    assertDecimal("175", all.getVwap1h());
+    assertDecimal("200", all.getHigh24h());
+    assertDecimal("100", all.getLow24h());
+    assertDecimal("4", all.getVolume24h());
+    assertDecimal("700", all.getNotional24h());
+
+    List<TradeTicker> binance = service.tickers(null, "binance");
+    assertEquals(1, binance.size());
+    assertDecimal("100", binance.get(0).getLastPrice());
+    assertTrue(service.tickers(CryptoCurrency.USDT, null).isEmpty());
+  }
+
+  @Test
+  void olderTradeDoesNotReplaceLastPrice () {
+    long now = System.currentTimeMillis();
+    service.onTradeSaved(trade("binance", "100", "1", now));
+    service.onTradeSaved(trade("binance", "90", "1", now - 5000));
+
+    TradeTicker ticker = service.tickers(CryptoCurrency.BTC, "binance").get(0);
+    assertDecimal("100", ticker.getLastPrice());
+    assertEquals(now, ticker.getLastExecutedAt());
+    assertDecimal("90", ticker.getLow24h());
+  }
+
+  @Test
+  void futureTradeIsClampedToNow () {
+    long now = System.currentTimeMillis();
+    service.onTradeSaved(trade("binance", "50", "1", now));
+    // 整两天后的时间戳会落在与当前相同的分钟槽和小时槽
+    service.onTradeSaved(trade("binance", "1000", "1", now + TWO_DAYS_MILLIS));
+    service.onTradeSaved(trade("binance", "150", "2", System.currentTimeMillis()));
+
+    TradeTicker ticker = service.tickers(CryptoCurrency.BTC, "binance").get(0);
+    assertDecimal("150", ticker.getLastPrice());
+    assertTrue(ticker.getLastExecutedAt() <= System.currentTimeMillis());
+    assertDecimal("4", ticker.getVolume24h());
+    assertDecimal("1350", ticker.getNotional24h());
+    assertDecimal("337.5", ticker.getVwap1h());
+    assertDecimal("1000", ticker.getHigh24h());
+    assertDecimal("50", ticker.getLow24h());
+  }
+}
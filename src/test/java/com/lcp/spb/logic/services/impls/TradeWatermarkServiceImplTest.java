@@ -0,0 +1,128 @@
+package com.lcp.spb.logic.services.impls;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.lcp.spb.bean.trade.CryptoTradeInfo;
+import com.lcp.spb.bean.trade.TradeWatermark;
+import com.lcp.spb.bean.trade.enums.CryptoCurrency;
+import com.lcp.spb.logic.resilience.ElasticsearchGuard;
+import com.lcp.spb.logic.resilience.ElasticsearchHedging;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+/** 不经过 SpringApplication 启动，不会发布 ApplicationReadyEvent，初始化时机由测试控制 */
+@SpringJUnitConfig(classes = {TradeWatermarkServiceImpl.class, ElasticsearchGuard.class,
+    ElasticsearchHedging.class, TradeWatermarkServiceImplTest.Beans.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TradeWatermarkServiceImplTest {
+
+  @TestConfiguration
+  static class Beans {
+
+    @Bean
+    MeterRegistry meterRegistry () {
+      return new SimpleMeterRegistry();
+    }
+  }
+
+  @MockitoBean
+  private ElasticsearchClient client;
+
+  @Autowired
+  private TradeWatermarkServiceImpl service;
+
+  private static CryptoTradeInfo trade (CryptoCurrency symbol, Long executedAt) {
+    CryptoTradeInfo info = new CryptoTradeInfo();
+    info.setSymbol(symbol);
+    info.setExecutedAt(executedAt);
+    return info;
+  }
+
+  private static Aggregate max (double value) {
+    return Aggregate.of(a -> a.max(m -> m.value(value)));
+  }
+
+  /** 模拟初始化聚合结果：全局最大成交时间和 BTC 分桶 */
+  private static SearchResponse<CryptoTradeInfo> seedResponse (double latest, double btcLatest) {
+    StringTermsBucket bucket = StringTermsBucket.of(b -> b.key("BTC").docCount(1)
+        .aggregations(Map.of("latest_executed_at", max(btcLatest))));
+    return SearchResponse.of(r -> r.took(1).timedOut(false)
+        .shards(shards -> shards.total(1).successful(1).failed(0))
+        .hits(hits -> hits.hits(List.of()))
+        .aggregations("latest_executed_at", max(latest))
+        .aggregations("by_symbol", Aggregate.of(a -> a.sterms(terms -> terms
+            .buckets(buckets -> buckets.array(List.of(bucket)))
+            .sumOtherDocCount(0L)))));
+  }
+
+  @Test
+  void writesAdvanceWatermarkMonotonically () {
+    assertNull(service.currentLatestExecutedAt());
+
+    service.onTradeSaved(trade(CryptoCurrency.BTC, 2000L));
+    service.onTradeSaved(trade(CryptoCurrency.USDT, 1000L));
+    service.onTradeSaved(trade(CryptoCurrency.BTC, 1500L));
+    service.onTradeSaved(trade(CryptoCurrency.BTC, null));
+
+    TradeWatermark watermark = service.snapshot();
+    assertEquals(2000L, watermark.getLatestExecutedAt());
+    assertEquals(Map.of(CryptoCurrency.BTC, 2000L, CryptoCurrency.USDT, 1000L),
+        watermark.getBySymbol());
+    assertFalse(watermark.isSeeded());
+  }
+
+  @Test
+  void seedIsMergedWithWritesAndRunsOnce () throws Exception {
+    when(client.search(any(SearchRequest.class), eq(CryptoTradeInfo.class)))
+        .thenReturn(seedResponse(5000, 4000));
+    // 初始化期间已写入、比聚合结果更新的交易不会被覆盖
+    service.onTradeSaved(trade(CryptoCurrency.USDT, 6000L));
+
+    assertEquals(6000L, service.latestExecutedAt().block());
+    assertEquals(6000L, service.latestExecutedAt().block());
+
+    TradeWatermark watermark = service.snapshot();
+    assertTrue(watermark.isSeeded());
+    assertEquals(Map.of(CryptoCurrency.BTC, 4000L, CryptoCurrency.USDT, 6000L),
+        watermark.getBySymbol());
+    verify(client, times(1)).search(any(SearchRequest.class), eq(CryptoTradeInfo.class));
+  }
+
+  @Test
+  void failedSeedFallsBackToWritesAndIsRetried () throws Exception {
+    when(client.search(any(SearchRequest.class), eq(CryptoTradeInfo.class)))
+        .thenThrow(new IOException("connection refused"))
+        .thenReturn(seedResponse(5000, 5000));
+    service.onTradeSaved(trade(CryptoCurrency.BTC, 3000L));
+
+    assertEquals(3000L, service.latestExecutedAt().block());
+    assertFalse(service.snapshot().isSeeded());
+
+    assertEquals(5000L, service.latestExecutedAt().block());
+    assertTrue(service.snapshot().isSeeded());
+    verify(client, times(2)).search(any(SearchRequest.class), eq(CryptoTradeInfo.class));
+  }
+}
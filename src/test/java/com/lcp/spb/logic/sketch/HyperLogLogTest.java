@@ -0,0 +1,48 @@
+package com.lcp.spb.logic.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+  @Test
+  void smallCardinalityIsNearlyExact () {
+    HyperLogLog hll = new HyperLogLog(12);
+    for (int i = 0; i < 100; i++) {
+      hll.add("user-" + i);
+      hll.add("user-" + i);
+    }
+    assertEquals(100, hll.estimate(), 2);
+  }
+
+  @Test
+  void largeCardinalityStaysWithinThreeStandardErrors () {
+    int precision = 12;
+    HyperLogLog hll = new HyperLogLog(precision);
+    int distinct = 200_000;
+    for (int i = 0; i < distinct; i++) {
+      hll.add("user-" + i);
+    }
+    double error = Math.abs(hll.estimate() - distinct) / (double) distinct;
+    assertTrue(error < 3 * HyperLogLog.relativeStandardError(precision),
+        "relative error too large: " + error);
+  }
+
+  @Test
+  void mergeEstimatesUnion () {
+    HyperLogLog first = new HyperLogLog(12);
+    HyperLogLog second = new HyperLogLog(12);
+    for (int i = 0; i < 5_000; i++) {
+      first.add("user-" + i);
+      second.add("user-" + (i + 2_500));
+    }
+    HyperLogLog union = first.copy();
+    union.merge(second);
+    double error = Math.abs(union.estimate() - 7_500) / 7_500.0;
+    assertTrue(error < 0.05, "relative error too large: " + error);
+    assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(10)));
+  }
+}
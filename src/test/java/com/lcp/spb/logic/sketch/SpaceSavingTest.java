@@ -0,0 +1,73 @@
+package com.lcp.spb.logic.sketch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+
+class SpaceSavingTest {
+
+  @Test
+  void keepsExactCountsWhileUnderCapacity () {
+    SpaceSaving sketch = new SpaceSaving(10);
+    sketch.offer("u1", 100);
+    sketch.offer("u2", 50);
+    sketch.offer("u1", 25);
+
+    List<SpaceSaving.Counter> top = sketch.top(5);
+    assertEquals(2, top.size());
+    assertEquals("u1", top.get(0).getKey());
+    assertEquals(125, top.get(0).getCount());
+    assertEquals(0, top.get(0).getError());
+    assertEquals(175, sketch.getTotalWeight());
+  }
+
+  @Test
+  void heavyHittersSurviveLongTailWithinErrorBound () {
+    int capacity = 50;
+    SpaceSaving sketch = new SpaceSaving(capacity);
+    Map<String, Double> truth = new HashMap<>();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < 20_000; i++) {
+      String key = i % 10 == 0 ? "whale-" + (i % 3) : "user-" + random.nextInt(5_000);
+      double weight = key.startsWith("whale") ? 500 : random.nextDouble(1, 10);
+      sketch.offer(key, weight);
+      truth.merge(key, weight, Double::sum);
+    }
+
+    double bound = sketch.getTotalWeight() / capacity;
+    List<SpaceSaving.Counter> top = sketch.top(3);
+    for (SpaceSaving.Counter counter : top) {
+      assertTrue(counter.getKey().startsWith("whale"), "whales should rank first");
+      double actual = truth.get(counter.getKey());
+      assertTrue(counter.getCount() >= actual - 1e-6);
+      assertTrue(counter.getCount() - counter.getError() <= actual + 1e-6);
+      assertTrue(counter.getError() <= bound + 1e-6);
+    }
+  }
+
+  @Test
+  void mergePreservesBoundsAcrossBuckets () {
+    SpaceSaving first = new SpaceSaving(3);
+    SpaceSaving second = new SpaceSaving(3);
+    Map<String, Double> truth = new HashMap<>();
+    String[] keys = {"a", "b", "c", "d", "e", "a", "a", "b"};
+    for (int i = 0; i < keys.length; i++) {
+      SpaceSaving target = i % 2 == 0 ? first : second;
+      target.offer(keys[i], i + 1);
+      truth.merge(keys[i], (double) (i + 1), Double::sum);
+    }
+
+    SpaceSaving merged = SpaceSaving.merge(List.of(first, second), 3);
+    assertEquals(first.getTotalWeight() + second.getTotalWeight(), merged.getTotalWeight());
+    for (SpaceSaving.Counter counter : merged.top(3)) {
+      double actual = truth.get(counter.getKey());
+      assertTrue(counter.getCount() >= actual - 1e-6);
+      assertTrue(counter.getCount() - counter.getError() <= actual + 1e-6);
+    }
+  }
+}